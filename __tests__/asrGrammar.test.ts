@@ -0,0 +1,29 @@
+import { buildPhraseGrammar, stripUnknown } from "../src/speech/asr/grammar";
+
+describe("asr grammar", () => {
+  it("contains the phrase, its words and the variants of its words", () => {
+    const g = buildPhraseGrammar("p1:f", "Don't worry, be happy!", [
+      { word: "happy", variants: ["hoppy", "Happy"] },
+      { word: "other", variants: ["ignored"] },
+    ]);
+
+    expect(g.key).toBe("p1:f");
+    expect(g.phrases).toEqual([
+      "don't worry be happy",
+      "don't",
+      "worry",
+      "be",
+      "happy",
+      "hoppy",
+    ]);
+  });
+
+  it("returns no phrases for an empty answer", () => {
+    expect(buildPhraseGrammar("k", "  ").phrases).toEqual([]);
+  });
+
+  it("strips the unknown token from results", () => {
+    expect(stripUnknown("[unk] be [unk] happy")).toBe("be happy");
+    expect(stripUnknown("[unk]")).toBe("");
+  });
+});
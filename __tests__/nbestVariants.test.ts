@@ -0,0 +1,60 @@
+import {
+  findSubstitution,
+  mergeVariants,
+  VariantProposals,
+} from "../src/speech/asr/nbestVariants";
+import { AsrResultEvent } from "../src/speech/asr/types";
+
+function rescued(text: string, topText: string): AsrResultEvent {
+  return {
+    engine: "vosk-en",
+    type: "final",
+    text,
+    alternatives: 3,
+    chosenAlternative: 1,
+    matchScore: 1,
+    topText,
+  };
+}
+
+describe("n-best variants", () => {
+  const expected = ["the", "cat", "sat"];
+
+  it("finds a single substituted expected word", () => {
+    expect(findSubstitution(rescued("the cat sat", "the cad sat"), expected)).toEqual({
+      word: "cat",
+      heard: "cad",
+    });
+  });
+
+  it("ignores finals that were not rescued or differ in more than one word", () => {
+    expect(
+      findSubstitution({ engine: "vosk-en", type: "final", text: "the cat sat" }, expected)
+    ).toBeNull();
+    expect(findSubstitution(rescued("the cat sat", "a cad sat"), expected)).toBeNull();
+    expect(findSubstitution(rescued("the cat sat", "the cat sat down"), expected)).toBeNull();
+    expect(findSubstitution(rescued("the dog sat", "the dig sat"), expected)).toBeNull();
+  });
+
+  it("proposes a pair once it repeats", () => {
+    const proposals = new VariantProposals(2);
+    const p = { word: "cat", heard: "cad" };
+
+    expect(proposals.add("u1", p)).toBe(false);
+    expect(proposals.add("u2", p)).toBe(false);
+    expect(proposals.add("u1", p)).toBe(true);
+    expect(proposals.add("u1", p)).toBe(false);
+  });
+
+  it("merges variants without duplicates", () => {
+    const prev = [{ word: "cat", variants: ["kat"] }];
+
+    expect(mergeVariants(prev, "cat", ["kat", "cad"])).toEqual([
+      { word: "cat", variants: ["kat", "cad"] },
+    ]);
+    expect(mergeVariants(prev, "sat", ["set"])).toEqual([
+      { word: "cat", variants: ["kat"] },
+      { word: "sat", variants: ["set"] },
+    ]);
+  });
+});
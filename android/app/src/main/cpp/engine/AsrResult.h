@@ -0,0 +1,189 @@
+#pragma once
+#include <string>
+#include <vector>
+#include <cstdint>
+#include "JsonReader.h"
+
+// ============================================================
+// Result model (parsed once from Vosk JSON, handed to JNI as-is)
+// ============================================================
+
+struct AsrWord {
+    std::string word;
+    float start = 0.0f;   // seconds from recognizer (re)start
+    float end = 0.0f;
+    float conf = 0.0f;
+};
+
+// one n-best hypothesis (finals only, when max alternatives > 0)
+struct AsrAlternative {
+    std::string text;
+    float confidence = 0.0f;   // Vosk lattice score, not 0..1
+    std::vector<AsrWord> words;
+};
+
+struct AsrResult {
+    std::string engineId;      // recognizer channel that produced it
+    bool isFinal = false;
+    uint32_t utteranceId = 0;
+    uint64_t startFrame = 0;   // audio frames fed to the decoder
+    uint64_t endFrame = 0;
+    uint64_t audioCapturedNs = 0;   // capture time of the newest audio decoded
+    std::string text;
+    std::vector<AsrWord> words;
+
+    // n-best (finals): text / words above are the chosen alternative
+    uint32_t alternatives = 0;      // 0 → n-best off
+    int32_t chosenAlternative = -1; // 0 = decoder's best
+    float matchScore = -1.0f;       // vs expected phrase, -1 → none set
+    std::string topText;            // decoder's best, only when chosen > 0
+
+    // engineId is kept: it names the channel, not the result
+    void clear() {
+        isFinal = false;
+        utteranceId = 0;
+        startFrame = 0;
+        endFrame = 0;
+        audioCapturedNs = 0;
+        text.clear();
+        words.clear();
+        alternatives = 0;
+        chosenAlternative = -1;
+        matchScore = -1.0f;
+        topText.clear();
+    }
+};
+
+/**
+ * Vosk result JSON → AsrResult.
+ *
+ * final:   {"result":[{"conf":..,"end":..,"start":..,"word":".."}...],"text":".."}
+ * n-best:  {"alternatives":[{"confidence":..,"result":[..],"text":".."}...]}
+ * partial: {"partial":".."}
+ */
+struct VoskResultParser {
+
+    /**
+     * An n-best final goes to `alternatives` (decoder order, best first);
+     * out.text / out.words are left empty for the caller to pick.
+     */
+    static bool parseFinal(const char* json, AsrResult& out,
+                           std::vector<AsrAlternative>& alternatives) {
+        out.words.clear();
+        out.text.clear();
+        alternatives.clear();
+
+        JsonReader r(json);
+        std::string name;
+
+        if (!r.beginObject()) return false;
+
+        while (r.hasNext()) {
+            if (!r.nextName(name)) return false;
+
+            if (name == "text") {
+                if (!r.nextString(out.text)) return false;
+            } else if (name == "result") {
+                if (!parseWords(r, out.words)) return false;
+            } else if (name == "alternatives") {
+                if (!parseAlternatives(r, alternatives)) return false;
+            } else {
+                if (!r.skipValue()) return false;
+            }
+        }
+
+        return r.endObject();
+    }
+
+    static bool parseAlternatives(JsonReader& r, std::vector<AsrAlternative>& out) {
+        std::string name;
+        double v;
+
+        if (!r.beginArray()) return false;
+
+        while (r.hasNext()) {
+            if (!r.beginObject()) return false;
+
+            AsrAlternative alt;
+            while (r.hasNext()) {
+                if (!r.nextName(name)) return false;
+
+                if (name == "text") {
+                    if (!r.nextString(alt.text)) return false;
+                } else if (name == "confidence") {
+                    if (!r.nextDouble(v)) return false;
+                    alt.confidence = static_cast<float>(v);
+                } else if (name == "result") {
+                    if (!parseWords(r, alt.words)) return false;
+                } else {
+                    if (!r.skipValue()) return false;
+                }
+            }
+
+            if (!r.endObject()) return false;
+            out.push_back(std::move(alt));
+        }
+
+        return r.endArray();
+    }
+
+    static bool parsePartial(const char* json, AsrResult& out) {
+        out.words.clear();
+        out.text.clear();
+
+        JsonReader r(json);
+        std::string name;
+
+        if (!r.beginObject()) return false;
+
+        while (r.hasNext()) {
+            if (!r.nextName(name)) return false;
+
+            if (name == "partial") {
+                if (!r.nextString(out.text)) return false;
+            } else if (name == "partial_result") {
+                if (!parseWords(r, out.words)) return false;
+            } else {
+                if (!r.skipValue()) return false;
+            }
+        }
+
+        return r.endObject();
+    }
+
+    static bool parseWords(JsonReader& r, std::vector<AsrWord>& words) {
+        std::string name;
+        double v;
+
+        if (!r.beginArray()) return false;
+
+        while (r.hasNext()) {
+            if (!r.beginObject()) return false;
+
+            AsrWord w;
+            while (r.hasNext()) {
+                if (!r.nextName(name)) return false;
+
+                if (name == "word") {
+                    if (!r.nextString(w.word)) return false;
+                } else if (name == "start") {
+                    if (!r.nextDouble(v)) return false;
+                    w.start = static_cast<float>(v);
+                } else if (name == "end") {
+                    if (!r.nextDouble(v)) return false;
+                    w.end = static_cast<float>(v);
+                } else if (name == "conf") {
+                    if (!r.nextDouble(v)) return false;
+                    w.conf = static_cast<float>(v);
+                } else {
+                    if (!r.skipValue()) return false;
+                }
+            }
+
+            if (!r.endObject()) return false;
+            words.push_back(std::move(w));
+        }
+
+        return r.endArray();
+    }
+};
@@ -1,46 +1,404 @@
 #pragma once
-#include <vector>
+#include <atomic>
 #include <mutex>
+#include <condition_variable>
+#include <memory>
+#include <thread>
+#include <chrono>
+#include <cstdint>
+#include <cstring>
 #include <algorithm>
+#include "PipelineMetrics.h"
 
+// ============================================================
+// Overflow policy: what push() does when the ring is full
+// ============================================================
+enum class OverflowPolicy {
+    DROP_OLDEST,   // advance read index, keep newest audio (default)
+    DROP_NEWEST,   // discard the incoming tail that does not fit
+    BLOCK          // wait for the consumer (bounded by blockTimeoutMs)
+};
+
+inline const char* toString(OverflowPolicy policy) {
+    switch (policy) {
+        case OverflowPolicy::DROP_OLDEST: return "DROP_OLDEST";
+        case OverflowPolicy::DROP_NEWEST: return "DROP_NEWEST";
+        case OverflowPolicy::BLOCK: return "BLOCK";
+        default: return "UNKNOWN";
+    }
+}
+
+struct AudioBufferStats {
+    uint64_t capacity = 0;
+    uint64_t fill = 0;
+    uint64_t highWater = 0;
+    uint64_t framesPushed = 0;
+    uint64_t framesDropped = 0;
+    uint64_t overflowEvents = 0;
+    uint64_t wakeups = 0;        // consumer returned from waitForFrames()
+    uint64_t emptyWakeups = 0;   // ...with nothing to read
+};
+
+/**
+ * Timestamps of a popped chunk (CLOCK_MONOTONIC ns, 0 = unknown).
+ */
+struct ChunkTiming {
+    uint64_t oldestPushedNs = 0;     // push() of the first frame popped
+    uint64_t newestCapturedNs = 0;   // capture of the last frame popped
+};
+
+/**
+ * Fixed-capacity single-producer / single-consumer PCM ring buffer.
+ *
+ * Producer = JNI thread calling pushAudio(), consumer = recognition thread.
+ * Indices grow monotonically (64 bit, never wrap in practice) and are masked
+ * on access, so push/pop are O(frames) with no memmove and no mutex.
+ *
+ * DROP_OLDEST lets the producer move the read index forward. The consumer
+ * therefore copies first and commits with a CAS; if the producer dropped the
+ * frames in the meantime the CAS fails and pop() simply retries.
+ *
+ * Every push() also appends a mark {end index, capture time, push time} to a
+ * small SPSC ring, so pop() can tell how long its chunk waited and how old
+ * the audio is (pipeline latency metrics).
+ */
 class AudioBuffer {
 public:
-    explicit AudioBuffer(size_t maxFrames = 16000 * 10)
-            : maxFrames_(maxFrames) {}
+    explicit AudioBuffer(size_t maxFrames = 16000 * 10,
+                         OverflowPolicy policy = OverflowPolicy::DROP_OLDEST)
+            : capacity_(roundUpPow2(maxFrames)),
+              mask_(capacity_ - 1),
+              data_(new int16_t[capacity_]),
+              marks_(new Mark[kMarks]),
+              policy_(policy) {}
+
+    AudioBuffer(const AudioBuffer&) = delete;
+    AudioBuffer& operator=(const AudioBuffer&) = delete;
+
+    // ============================================================
+    // Producer side
+    // ============================================================
+    void push(const int16_t* data, size_t frames, uint64_t capturedNs = 0) {
+        if (frames == 0) return;
 
-    void push(const int16_t* data, size_t frames) {
-        std::lock_guard<std::mutex> lock(mutex_);
+        framesPushed_.fetch_add(frames, std::memory_order_relaxed);
 
-        if (buffer_.size() + frames > maxFrames_) {
-            size_t overflow = (buffer_.size() + frames) - maxFrames_;
-            buffer_.erase(buffer_.begin(), buffer_.begin() + overflow);
+        // Larger than the whole ring: only the newest capacity_ frames survive
+        if (frames > capacity_) {
+            size_t skip = frames - capacity_;
+            countDrop(skip);
+            data += skip;
+            frames = capacity_;
         }
 
-        buffer_.insert(buffer_.end(), data, data + frames);
+        const uint64_t w = writeIdx_.load(std::memory_order_relaxed);
+        uint64_t r = readIdx_.load(std::memory_order_acquire);
+
+        if (w + frames - r > capacity_) {
+            switch (policy_.load(std::memory_order_relaxed)) {
+                case OverflowPolicy::DROP_NEWEST: {
+                    size_t room = capacity_ - static_cast<size_t>(w - r);
+                    countDrop(frames - room);
+                    frames = room;
+                    break;
+                }
+                case OverflowPolicy::BLOCK:
+                    r = waitForRoom(w, frames);
+                    if (w + frames - r <= capacity_) break;
+                    // timed out → fall back to dropping oldest
+                    [[fallthrough]];
+                case OverflowPolicy::DROP_OLDEST:
+                default: {
+                    uint64_t target = w + frames - capacity_;
+                    while (r < target &&
+                           !readIdx_.compare_exchange_weak(
+                                   r, target,
+                                   std::memory_order_acq_rel,
+                                   std::memory_order_acquire)) {
+                        // consumer moved r, re-check
+                    }
+                    if (r < target) countDrop(static_cast<size_t>(target - r));
+                    break;
+                }
+            }
+        }
+
+        if (frames == 0) return;
+
+        copyIn(w, data, frames);
+        addMark(w + frames, capturedNs);
+        writeIdx_.store(w + frames, std::memory_order_release);
+
+        uint64_t fill = w + frames - readIdx_.load(std::memory_order_relaxed);
+        if (fill > highWater_.load(std::memory_order_relaxed)) {
+            highWater_.store(fill, std::memory_order_relaxed);
+        }
+
+        // Wake the consumer only once its threshold is reached
+        std::atomic_thread_fence(std::memory_order_seq_cst);
+        size_t threshold = waitThreshold_.load(std::memory_order_relaxed);
+        if (threshold != 0 && fill >= threshold) {
+            std::lock_guard<std::mutex> lock(waitMutex_);
+            dataCv_.notify_one();
+        }
     }
 
-    size_t pop(int16_t* out, size_t maxFrames) {
-        std::lock_guard<std::mutex> lock(mutex_);
+    // ============================================================
+    // Consumer side
+    // ============================================================
+    size_t pop(int16_t* out, size_t maxFrames, ChunkTiming* timing = nullptr) {
+        uint64_t r = readIdx_.load(std::memory_order_acquire);
 
-        size_t n = std::min(maxFrames, buffer_.size());
+        for (;;) {
+            const uint64_t w = writeIdx_.load(std::memory_order_acquire);
+            size_t n = static_cast<size_t>(std::min<uint64_t>(maxFrames, w - r));
+            if (n == 0) return 0;
 
-        std::copy(buffer_.begin(), buffer_.begin() + n, out);
+            copyOut(r, out, n);
 
-        buffer_.erase(buffer_.begin(), buffer_.begin() + n);
+            if (readIdx_.compare_exchange_strong(
+                    r, r + n,
+                    std::memory_order_acq_rel,
+                    std::memory_order_acquire)) {
+                if (timing) lookupTiming(r, r + n, *timing);
+                return n;
+            }
+            // producer dropped oldest while we copied: r reloaded, retry
+        }
+    }
+
+    /**
+     * Blocks the consumer until at least minFrames are buffered.
+     *
+     * If some audio is buffered but less than minFrames, returns after
+     * maxWaitMs so a trailing short chunk is not held forever. With an empty
+     * buffer it sleeps until data arrives or wakeConsumer() is called, so
+     * silence costs no wakeups.
+     *
+     * @return frames available (0 when woken for shutdown)
+     */
+    size_t waitForFrames(size_t minFrames,
+                         uint32_t maxWaitMs,
+                         const std::atomic<bool>& running) {
+        minFrames = std::max<size_t>(1, std::min(minFrames, capacity_));
+
+        std::unique_lock<std::mutex> lock(waitMutex_);
+
+        auto enough = [&] { return !running || size() >= minFrames; };
+        auto any = [&] { return !running || size() > 0; };
+
+        // phase 1: nothing buffered → sleep until the first frames arrive
+        armWait(1);
+        dataCv_.wait(lock, any);
+
+        // phase 2: partial chunk → wait for the rest, bounded by maxWaitMs
+        armWait(minFrames);
+        dataCv_.wait_for(lock, std::chrono::milliseconds(maxWaitMs), enough);
+
+        waitThreshold_.store(0, std::memory_order_relaxed);
+
+        size_t available = running ? size() : 0;
+        wakeups_.fetch_add(1, std::memory_order_relaxed);
+        if (available == 0) emptyWakeups_.fetch_add(1, std::memory_order_relaxed);
+        return available;
+    }
+
+    /** Wakes a consumer blocked in waitForFrames() (e.g. on stop). */
+    void wakeConsumer() {
+        std::lock_guard<std::mutex> lock(waitMutex_);
+        dataCv_.notify_all();
+    }
 
-        return n;
+    size_t size() const {
+        uint64_t w = writeIdx_.load(std::memory_order_acquire);
+        uint64_t r = readIdx_.load(std::memory_order_acquire);
+        return w > r ? static_cast<size_t>(w - r) : 0;
     }
 
+    size_t capacity() const { return capacity_; }
+
     // ============================================================
     // ✅ NEW: Clear buffer safely
     // ============================================================
     void clear() {
-        std::lock_guard<std::mutex> lock(mutex_);
-        buffer_.clear();
+        uint64_t r = readIdx_.load(std::memory_order_acquire);
+        uint64_t w = writeIdx_.load(std::memory_order_acquire);
+        while (r < w &&
+               !readIdx_.compare_exchange_weak(
+                       r, w,
+                       std::memory_order_acq_rel,
+                       std::memory_order_acquire)) {
+            w = writeIdx_.load(std::memory_order_acquire);
+        }
+    }
+
+    // ============================================================
+    // Policy + stats
+    // ============================================================
+    void setOverflowPolicy(OverflowPolicy policy) {
+        policy_.store(policy, std::memory_order_relaxed);
+    }
+
+    OverflowPolicy getOverflowPolicy() const {
+        return policy_.load(std::memory_order_relaxed);
+    }
+
+    void setBlockTimeoutMs(uint32_t ms) {
+        blockTimeoutMs_.store(ms, std::memory_order_relaxed);
+    }
+
+    AudioBufferStats getStats() const {
+        AudioBufferStats s;
+        s.capacity = capacity_;
+        s.fill = size();
+        s.highWater = highWater_.load(std::memory_order_relaxed);
+        s.framesPushed = framesPushed_.load(std::memory_order_relaxed);
+        s.framesDropped = framesDropped_.load(std::memory_order_relaxed);
+        s.overflowEvents = overflowEvents_.load(std::memory_order_relaxed);
+        s.wakeups = wakeups_.load(std::memory_order_relaxed);
+        s.emptyWakeups = emptyWakeups_.load(std::memory_order_relaxed);
+        return s;
+    }
+
+    uint64_t droppedFrames() const {
+        return framesDropped_.load(std::memory_order_relaxed);
+    }
+
+    void resetStats() {
+        highWater_.store(size(), std::memory_order_relaxed);
+        framesPushed_.store(0, std::memory_order_relaxed);
+        framesDropped_.store(0, std::memory_order_relaxed);
+        overflowEvents_.store(0, std::memory_order_relaxed);
+        wakeups_.store(0, std::memory_order_relaxed);
+        emptyWakeups_.store(0, std::memory_order_relaxed);
     }
 
 private:
-    std::vector<int16_t> buffer_;
-    size_t maxFrames_;
-    std::mutex mutex_;
+    static constexpr size_t kCacheLine = 64;
+
+    // one per push(); 1024 pushes of >= 256 frames cover the whole ring
+    static constexpr size_t kMarks = 1024;
+
+    struct Mark {
+        std::atomic<uint64_t> endIdx{0};
+        std::atomic<uint64_t> capturedNs{0};
+        std::atomic<uint64_t> pushedNs{0};
+    };
+
+    void addMark(uint64_t endIdx, uint64_t capturedNs) {
+        const uint64_t now = monotonicNs();
+        const uint64_t mw = markW_.load(std::memory_order_relaxed);
+
+        Mark& m = marks_[mw & (kMarks - 1)];
+        m.endIdx.store(endIdx, std::memory_order_relaxed);
+        m.capturedNs.store(capturedNs != 0 ? capturedNs : now, std::memory_order_relaxed);
+        m.pushedNs.store(now, std::memory_order_relaxed);
+
+        markW_.store(mw + 1, std::memory_order_release);
+    }
+
+    // consumer only: marks covering frames [begin, end)
+    void lookupTiming(uint64_t begin, uint64_t end, ChunkTiming& t) {
+        const uint64_t mw = markW_.load(std::memory_order_acquire);
+
+        // producer lapped us (huge backlog of tiny pushes): oldest kept mark
+        if (mw - markR_ > kMarks) markR_ = mw - kMarks;
+
+        // marks fully consumed earlier or dropped by DROP_OLDEST / clear()
+        while (markR_ < mw &&
+               marks_[markR_ & (kMarks - 1)].endIdx.load(std::memory_order_relaxed) <= begin) {
+            markR_++;
+        }
+
+        if (markR_ == mw) {
+            t = ChunkTiming{};
+            return;
+        }
+
+        t.oldestPushedNs = marks_[markR_ & (kMarks - 1)].pushedNs.load(std::memory_order_relaxed);
+
+        uint64_t i = markR_;
+        while (i + 1 < mw &&
+               marks_[i & (kMarks - 1)].endIdx.load(std::memory_order_relaxed) < end) {
+            i++;
+        }
+
+        t.newestCapturedNs = marks_[i & (kMarks - 1)].capturedNs.load(std::memory_order_relaxed);
+    }
+
+    static size_t roundUpPow2(size_t v) {
+        size_t p = 1;
+        while (p < v) p <<= 1;
+        return p;
+    }
+
+    void copyIn(uint64_t pos, const int16_t* src, size_t frames) {
+        size_t start = static_cast<size_t>(pos & mask_);
+        size_t first = std::min(frames, capacity_ - start);
+        std::memcpy(data_.get() + start, src, first * sizeof(int16_t));
+        if (first < frames) {
+            std::memcpy(data_.get(), src + first, (frames - first) * sizeof(int16_t));
+        }
+    }
+
+    void copyOut(uint64_t pos, int16_t* dst, size_t frames) const {
+        size_t start = static_cast<size_t>(pos & mask_);
+        size_t first = std::min(frames, capacity_ - start);
+        std::memcpy(dst, data_.get() + start, first * sizeof(int16_t));
+        if (first < frames) {
+            std::memcpy(dst + first, data_.get(), (frames - first) * sizeof(int16_t));
+        }
+    }
+
+    uint64_t waitForRoom(uint64_t w, size_t frames) {
+        auto deadline = std::chrono::steady_clock::now()
+                + std::chrono::milliseconds(blockTimeoutMs_.load(std::memory_order_relaxed));
+
+        uint64_t r = readIdx_.load(std::memory_order_acquire);
+        while (w + frames - r > capacity_ &&
+               std::chrono::steady_clock::now() < deadline) {
+            std::this_thread::sleep_for(std::chrono::milliseconds(1));
+            r = readIdx_.load(std::memory_order_acquire);
+        }
+        return r;
+    }
+
+    // seq_cst fence pairs with the one in push(): either the producer sees
+    // the threshold, or we see its frames before going to sleep
+    void armWait(size_t threshold) {
+        waitThreshold_.store(threshold, std::memory_order_relaxed);
+        std::atomic_thread_fence(std::memory_order_seq_cst);
+    }
+
+    void countDrop(size_t frames) {
+        framesDropped_.fetch_add(frames, std::memory_order_relaxed);
+        overflowEvents_.fetch_add(1, std::memory_order_relaxed);
+    }
+
+    // producer-owned and consumer-owned indices on separate cache lines
+    alignas(kCacheLine) std::atomic<uint64_t> writeIdx_{0};
+    alignas(kCacheLine) std::atomic<uint64_t> readIdx_{0};
+
+    alignas(kCacheLine) const size_t capacity_;
+    const size_t mask_;
+    std::unique_ptr<int16_t[]> data_;
+
+    std::unique_ptr<Mark[]> marks_;
+    alignas(kCacheLine) std::atomic<uint64_t> markW_{0};   // producer
+    uint64_t markR_ = 0;                                   // consumer
+
+    std::atomic<OverflowPolicy> policy_;
+    std::atomic<uint32_t> blockTimeoutMs_{250};
+
+    alignas(kCacheLine) std::atomic<uint64_t> highWater_{0};
+    std::atomic<uint64_t> framesPushed_{0};
+    std::atomic<uint64_t> framesDropped_{0};
+    std::atomic<uint64_t> overflowEvents_{0};
+
+    // consumer wakeup (producer notifies only when threshold is set)
+    alignas(kCacheLine) std::atomic<size_t> waitThreshold_{0};
+    std::mutex waitMutex_;
+    std::condition_variable dataCv_;
+    std::atomic<uint64_t> wakeups_{0};
+    std::atomic<uint64_t> emptyWakeups_{0};
 };
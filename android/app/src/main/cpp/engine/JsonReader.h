@@ -0,0 +1,231 @@
+#pragma once
+#include <string>
+#include <cstdlib>
+#include <cstring>
+#include <cstdint>
+
+/**
+ * Minimal pull-style JSON reader (Gson JsonReader style).
+ *
+ * Walks the input once, no DOM, no allocations except for the strings the
+ * caller asks for. Handles escapes including \uXXXX and surrogate pairs
+ * (decoded to UTF-8). Any syntax error sets ok() == false and every later
+ * call returns false.
+ */
+class JsonReader {
+public:
+    JsonReader(const char* data, size_t len)
+            : p_(data), end_(data + len) {}
+
+    explicit JsonReader(const char* data)
+            : JsonReader(data, data ? std::strlen(data) : 0) {}
+
+    bool ok() const { return ok_; }
+
+    bool beginObject() { return open('{'); }
+    bool endObject() { return close('}'); }
+    bool beginArray() { return open('['); }
+    bool endArray() { return close(']'); }
+
+    /** true if the current object/array has another member/element. */
+    bool hasNext() {
+        if (!ok_) return false;
+        skipWs();
+        if (p_ >= end_ || *p_ == '}' || *p_ == ']') return false;
+        if (needComma_) {
+            if (*p_ != ',') return fail();
+            ++p_;
+            skipWs();
+        }
+        return p_ < end_;
+    }
+
+    bool nextName(std::string& out) {
+        if (!readString(out)) return false;
+        skipWs();
+        if (p_ >= end_ || *p_ != ':') return fail();
+        ++p_;
+        needComma_ = false;
+        return true;
+    }
+
+    bool nextString(std::string& out) {
+        if (!readString(out)) return false;
+        needComma_ = true;
+        return true;
+    }
+
+    bool nextDouble(double& out) {
+        if (!ok_) return false;
+        skipWs();
+        char* stop = nullptr;
+        out = std::strtod(p_, &stop);
+        if (stop == p_ || stop > end_) return fail();
+        p_ = stop;
+        needComma_ = true;
+        return true;
+    }
+
+    /** Skips one complete value of any type. */
+    bool skipValue() {
+        if (!ok_) return false;
+        skipWs();
+        if (p_ >= end_) return fail();
+
+        switch (*p_) {
+            case '{': {
+                beginObject();
+                std::string name;
+                while (hasNext()) {
+                    if (!nextName(name) || !skipValue()) return false;
+                }
+                return endObject();
+            }
+            case '[': {
+                beginArray();
+                while (hasNext()) {
+                    if (!skipValue()) return false;
+                }
+                return endArray();
+            }
+            case '"': {
+                scratch_.clear();
+                return nextString(scratch_);
+            }
+            case 't': return literal("true");
+            case 'f': return literal("false");
+            case 'n': return literal("null");
+            default: {
+                double ignored;
+                return nextDouble(ignored);
+            }
+        }
+    }
+
+private:
+    bool fail() {
+        ok_ = false;
+        return false;
+    }
+
+    void skipWs() {
+        while (p_ < end_ && (*p_ == ' ' || *p_ == '\n' || *p_ == '\r' || *p_ == '\t')) ++p_;
+    }
+
+    bool open(char c) {
+        if (!ok_) return false;
+        skipWs();
+        if (p_ >= end_ || *p_ != c) return fail();
+        ++p_;
+        needComma_ = false;
+        return true;
+    }
+
+    bool close(char c) {
+        if (!ok_) return false;
+        skipWs();
+        if (p_ >= end_ || *p_ != c) return fail();
+        ++p_;
+        needComma_ = true;
+        return true;
+    }
+
+    bool literal(const char* word) {
+        size_t n = std::strlen(word);
+        if (static_cast<size_t>(end_ - p_) < n || std::strncmp(p_, word, n) != 0) return fail();
+        p_ += n;
+        needComma_ = true;
+        return true;
+    }
+
+    bool readString(std::string& out) {
+        if (!ok_) return false;
+        skipWs();
+        if (p_ >= end_ || *p_ != '"') return fail();
+        ++p_;
+
+        out.clear();
+
+        while (p_ < end_) {
+            const char* run = p_;
+            while (p_ < end_ && *p_ != '"' && *p_ != '\\') ++p_;
+            out.append(run, p_ - run);
+
+            if (p_ >= end_) break;
+
+            if (*p_ == '"') {
+                ++p_;
+                return true;
+            }
+
+            // escape
+            if (++p_ >= end_) break;
+            char e = *p_++;
+            switch (e) {
+                case '"': out += '"'; break;
+                case '\\': out += '\\'; break;
+                case '/': out += '/'; break;
+                case 'b': out += '\b'; break;
+                case 'f': out += '\f'; break;
+                case 'n': out += '\n'; break;
+                case 'r': out += '\r'; break;
+                case 't': out += '\t'; break;
+                case 'u': {
+                    uint32_t cp;
+                    if (!hex4(cp)) return fail();
+                    if (cp >= 0xD800 && cp <= 0xDBFF) {
+                        uint32_t lo;
+                        if (end_ - p_ < 2 || p_[0] != '\\' || p_[1] != 'u') return fail();
+                        p_ += 2;
+                        if (!hex4(lo) || lo < 0xDC00 || lo > 0xDFFF) return fail();
+                        cp = 0x10000 + ((cp - 0xD800) << 10) + (lo - 0xDC00);
+                    }
+                    appendUtf8(out, cp);
+                    break;
+                }
+                default:
+                    return fail();
+            }
+        }
+
+        return fail();
+    }
+
+    bool hex4(uint32_t& out) {
+        if (end_ - p_ < 4) return false;
+        out = 0;
+        for (int i = 0; i < 4; ++i) {
+            char c = *p_++;
+            out <<= 4;
+            if (c >= '0' && c <= '9') out |= c - '0';
+            else if (c >= 'a' && c <= 'f') out |= c - 'a' + 10;
+            else if (c >= 'A' && c <= 'F') out |= c - 'A' + 10;
+            else return false;
+        }
+        return true;
+    }
+
+    static void appendUtf8(std::string& out, uint32_t cp) {
+        if (cp < 0x80) {
+            out += static_cast<char>(cp);
+        } else if (cp < 0x800) {
+            out += static_cast<char>(0xC0 | (cp >> 6));
+            out += static_cast<char>(0x80 | (cp & 0x3F));
+        } else if (cp < 0x10000) {
+            out += static_cast<char>(0xE0 | (cp >> 12));
+            out += static_cast<char>(0x80 | ((cp >> 6) & 0x3F));
+            out += static_cast<char>(0x80 | (cp & 0x3F));
+        } else {
+            out += static_cast<char>(0xF0 | (cp >> 18));
+            out += static_cast<char>(0x80 | ((cp >> 12) & 0x3F));
+            out += static_cast<char>(0x80 | ((cp >> 6) & 0x3F));
+            out += static_cast<char>(0x80 | (cp & 0x3F));
+        }
+    }
+
+    const char* p_;
+    const char* end_;
+    bool ok_ = true;
+    bool needComma_ = false;
+    std::string scratch_;
+};
@@ -0,0 +1,162 @@
+#include "ModelCache.h"
+#include <android/log.h>
+#include <chrono>
+#include <dirent.h>
+#include <sys/stat.h>
+
+#define LOGI(...) __android_log_print(ANDROID_LOG_INFO, "ModelCache", __VA_ARGS__)
+#define LOGE(...) __android_log_print(ANDROID_LOG_ERROR, "ModelCache", __VA_ARGS__)
+
+ModelCache& ModelCache::instance() {
+    static ModelCache cache;
+    return cache;
+}
+
+VoskModel* ModelCache::acquire(const std::string& path) {
+
+    std::lock_guard<std::mutex> lock(mutex_);
+
+    auto it = entries_.find(path);
+    if (it != entries_.end()) {
+        Entry& e = it->second;
+        if (e.refCount == 0) {
+            idleLru_.erase(e.lruPos);
+        }
+        e.refCount++;
+        stats_.hits++;
+        LOGI("hit: %s (refs=%d)", path.c_str(), e.refCount);
+        return e.model;
+    }
+
+    stats_.misses++;
+
+    // Loading under the lock is intentional: two engines asking for the same
+    // path must not load it twice.
+    auto started = std::chrono::steady_clock::now();
+    VoskModel* model = vosk_model_new(path.c_str());
+    stats_.lastLoadMs = std::chrono::duration_cast<std::chrono::milliseconds>(
+            std::chrono::steady_clock::now() - started).count();
+
+    if (!model) {
+        stats_.loadFailures++;
+        LOGE("vosk_model_new failed: %s", path.c_str());
+        return nullptr;
+    }
+
+    Entry e;
+    e.model = model;
+    e.bytes = directorySize(path);
+    e.refCount = 1;
+    entries_.emplace(path, e);
+    residentBytes_ += e.bytes;
+
+    LOGI("miss: loaded %s in %llu ms (%llu bytes)",
+         path.c_str(),
+         (unsigned long long) stats_.lastLoadMs,
+         (unsigned long long) e.bytes);
+
+    evictOverBudgetLocked();
+    return model;
+}
+
+void ModelCache::release(VoskModel* model) {
+
+    if (!model) return;
+
+    std::lock_guard<std::mutex> lock(mutex_);
+
+    for (auto& kv : entries_) {
+        Entry& e = kv.second;
+        if (e.model != model) continue;
+
+        if (e.refCount > 0 && --e.refCount == 0) {
+            idleLru_.push_back(kv.first);
+            e.lruPos = std::prev(idleLru_.end());
+            LOGI("idle: %s", kv.first.c_str());
+            evictOverBudgetLocked();
+        }
+        return;
+    }
+
+    // not ours (should not happen) → free directly
+    LOGE("release() of unknown model, freeing");
+    vosk_model_free(model);
+}
+
+void ModelCache::setBudgetBytes(uint64_t bytes) {
+    std::lock_guard<std::mutex> lock(mutex_);
+    budgetBytes_ = bytes;
+    evictOverBudgetLocked();
+}
+
+void ModelCache::trim() {
+    std::lock_guard<std::mutex> lock(mutex_);
+    while (!idleLru_.empty()) {
+        freeLocked(idleLru_.front());
+    }
+}
+
+ModelCacheStats ModelCache::getStats() {
+    std::lock_guard<std::mutex> lock(mutex_);
+    ModelCacheStats s = stats_;
+    s.residentBytes = residentBytes_;
+    s.residentModels = entries_.size();
+    s.idleModels = idleLru_.size();
+    s.budgetBytes = budgetBytes_;
+    return s;
+}
+
+// ============================================================
+// Internals (mutex_ held)
+// ============================================================
+
+void ModelCache::evictOverBudgetLocked() {
+    // only idle models can go; models in use stay even over budget
+    while (residentBytes_ > budgetBytes_ && !idleLru_.empty()) {
+        freeLocked(idleLru_.front());
+    }
+}
+
+void ModelCache::freeLocked(const std::string& path) {
+
+    auto it = entries_.find(path);
+    if (it == entries_.end()) return;
+
+    Entry& e = it->second;
+    if (e.refCount == 0) {
+        idleLru_.erase(e.lruPos);
+    }
+
+    LOGI("evict: %s", path.c_str());
+
+    vosk_model_free(e.model);
+    residentBytes_ -= e.bytes;
+    stats_.evictions++;
+    entries_.erase(it);
+}
+
+uint64_t ModelCache::directorySize(const std::string& path) {
+
+    DIR* dir = opendir(path.c_str());
+    if (!dir) return 0;
+
+    uint64_t total = 0;
+
+    while (dirent* d = readdir(dir)) {
+        std::string name = d->d_name;
+        if (name == "." || name == "..") continue;
+
+        std::string child = path + "/" + name;
+        struct stat st {};
+        if (stat(child.c_str(), &st) != 0) continue;
+
+        if (S_ISDIR(st.st_mode)) {
+            total += directorySize(child);
+        } else {
+            total += static_cast<uint64_t>(st.st_size);
+        }
+    }
+
+    closedir(dir);
+    return total;
+}
@@ -0,0 +1,63 @@
+#pragma once
+#include <cstdint>
+#include <list>
+#include <mutex>
+#include <string>
+#include <unordered_map>
+#include <vosk_api.h>
+
+struct ModelCacheStats {
+    uint64_t hits = 0;
+    uint64_t misses = 0;
+    uint64_t loadFailures = 0;
+    uint64_t evictions = 0;
+    uint64_t residentBytes = 0;    // on-disk size of resident models (proxy)
+    uint64_t residentModels = 0;
+    uint64_t idleModels = 0;       // resident with refCount == 0
+    uint64_t budgetBytes = 0;
+    uint64_t lastLoadMs = 0;
+};
+
+/**
+ * Process-wide cache of loaded VoskModel instances keyed by model path.
+ *
+ * acquire() returns a warm model when one is resident, so engine switches
+ * and reloads do not re-read ~40 MB from disk. release() only drops the
+ * reference; idle models stay resident until the memory budget forces
+ * LRU eviction (or trim() is called).
+ */
+class ModelCache {
+public:
+    static ModelCache& instance();
+
+    VoskModel* acquire(const std::string& path);
+    void release(VoskModel* model);
+
+    void setBudgetBytes(uint64_t bytes);
+
+    /** Frees every idle model (e.g. on memory pressure). */
+    void trim();
+
+    ModelCacheStats getStats();
+
+private:
+    ModelCache() = default;
+
+    struct Entry {
+        VoskModel* model = nullptr;
+        uint64_t bytes = 0;
+        int refCount = 0;
+        std::list<std::string>::iterator lruPos;   // valid while idle
+    };
+
+    void evictOverBudgetLocked();
+    void freeLocked(const std::string& path);
+    static uint64_t directorySize(const std::string& path);
+
+    std::mutex mutex_;
+    std::unordered_map<std::string, Entry> entries_;
+    std::list<std::string> idleLru_;   // front = least recently used
+    uint64_t residentBytes_ = 0;
+    uint64_t budgetBytes_ = 96ull * 1024 * 1024;
+    ModelCacheStats stats_;
+};
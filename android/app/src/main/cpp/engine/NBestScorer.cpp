@@ -0,0 +1,143 @@
+#include "NBestScorer.h"
+
+NBestScorer& NBestScorer::instance() {
+    static NBestScorer scorer;
+    return scorer;
+}
+
+void NBestScorer::setExpected(std::vector<std::string> words,
+                              std::vector<std::vector<std::string>> variants) {
+
+    auto e = std::make_shared<Expected>();
+    e->words = std::move(words);
+    e->variants = std::move(variants);
+    e->variants.resize(e->words.size());
+
+    std::lock_guard<std::mutex> lock(mutex_);
+    expected_ = e->words.empty() ? nullptr : std::move(e);
+}
+
+void NBestScorer::clearExpected() {
+    std::lock_guard<std::mutex> lock(mutex_);
+    expected_.reset();
+}
+
+void NBestScorer::choose(std::vector<AsrAlternative>& alternatives, AsrResult& result) {
+
+    if (alternatives.empty()) return;
+
+    std::shared_ptr<const Expected> expected;
+    {
+        std::lock_guard<std::mutex> lock(mutex_);
+        expected = expected_;
+    }
+
+    finals_.fetch_add(1, std::memory_order_relaxed);
+    alternatives_.fetch_add(alternatives.size(), std::memory_order_relaxed);
+
+    size_t best = 0;
+    float bestScore = -1.0f;
+
+    if (expected) {
+        scored_.fetch_add(1, std::memory_order_relaxed);
+
+        for (size_t i = 0; i < alternatives.size(); i++) {
+            float s = score(*expected, alternatives[i].text);
+            if (s > bestScore) {   // strict: ties keep the decoder's order
+                best = i;
+                bestScore = s;
+            }
+        }
+
+        if (best > 0) rescued_.fetch_add(1, std::memory_order_relaxed);
+    }
+
+    AsrAlternative& chosen = alternatives[best];
+
+    result.alternatives = static_cast<uint32_t>(alternatives.size());
+    result.chosenAlternative = static_cast<int32_t>(best);
+    result.matchScore = bestScore;
+
+    if (best > 0) {
+        result.topText = alternatives[0].text;
+    } else {
+        result.topText.clear();
+    }
+
+    result.text.swap(chosen.text);
+    result.words.swap(chosen.words);
+}
+
+float NBestScorer::score(const Expected& expected, const std::string& text) {
+
+    // Vosk output is lowercase words; fold the rest the way PhraseMatcher
+    // normalizes (ASCII punctuation → space, non-ASCII kept as letters)
+    std::string norm;
+    norm.reserve(text.size());
+
+    bool pendingSpace = false;
+    for (unsigned char c : text) {
+        bool letter = c >= 0x80 || (c >= '0' && c <= '9')
+                      || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+
+        if (!letter) {
+            pendingSpace = true;
+            continue;
+        }
+
+        if (pendingSpace && !norm.empty()) norm.push_back(' ');
+        pendingSpace = false;
+        norm.push_back(static_cast<char>(c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c));
+    }
+
+    // end of the next whole token(s) equal to `token`, from `from`
+    auto findToken = [&norm](const std::string& token, size_t from) -> size_t {
+        if (token.empty()) return std::string::npos;
+
+        for (size_t at = norm.find(token, from); at != std::string::npos;
+             at = norm.find(token, at + 1)) {
+
+            const size_t end = at + token.size();
+            if ((at == 0 || norm[at - 1] == ' ') && (end == norm.size() || norm[end] == ' ')) {
+                return end;
+            }
+        }
+        return std::string::npos;
+    };
+
+    const size_t n = expected.words.size();
+    size_t matched = 0;
+    size_t pos = 0;   // expected words (or their variants) are matched in order
+
+    for (size_t i = 0; i < n; i++) {
+        size_t end = findToken(expected.words[i], pos);
+
+        // a variant stands in for the word under the same rules
+        for (size_t k = 0; end == std::string::npos && k < expected.variants[i].size(); k++) {
+            end = findToken(expected.variants[i][k], pos);
+        }
+
+        if (end != std::string::npos) {
+            pos = end;
+            matched++;
+        }
+    }
+
+    return n > 0 ? static_cast<float>(matched) / static_cast<float>(n) : 0.0f;
+}
+
+NBestStats NBestScorer::getStats() const {
+    NBestStats s;
+    s.finals = finals_.load(std::memory_order_relaxed);
+    s.alternatives = alternatives_.load(std::memory_order_relaxed);
+    s.scored = scored_.load(std::memory_order_relaxed);
+    s.rescued = rescued_.load(std::memory_order_relaxed);
+    return s;
+}
+
+void NBestScorer::resetStats() {
+    finals_.store(0, std::memory_order_relaxed);
+    alternatives_.store(0, std::memory_order_relaxed);
+    scored_.store(0, std::memory_order_relaxed);
+    rescued_.store(0, std::memory_order_relaxed);
+}
@@ -0,0 +1,65 @@
+#pragma once
+#include <atomic>
+#include <cstdint>
+#include <memory>
+#include <mutex>
+#include <string>
+#include <vector>
+#include "AsrResult.h"
+
+struct NBestStats {
+    uint64_t finals = 0;         // n-best finals seen
+    uint64_t alternatives = 0;   // hypotheses parsed (sum over finals)
+    uint64_t scored = 0;         // finals scored against an expected phrase
+    uint64_t rescued = 0;        // an alternative beat the decoder's best
+};
+
+/**
+ * Picks the n-best alternative that best matches the expected answer.
+ *
+ * The expected phrase comes from Java already normalized (PhraseMatcher:
+ * words + per-word variants). Scoring follows the same rules as the
+ * matcher — each expected word, or one of its variants, found as whole
+ * tokens after the previous match, in order — so "best match" here means
+ * "matches the most words for PhraseMatcher". Ties keep the decoder's
+ * order.
+ *
+ * Called from every recognizer channel thread on each n-best final; the
+ * expected phrase is swapped as an immutable snapshot, scoring runs
+ * outside the lock.
+ */
+class NBestScorer {
+public:
+    static NBestScorer& instance();
+
+    void setExpected(std::vector<std::string> words,
+                     std::vector<std::vector<std::string>> variants);
+    void clearExpected();
+
+    /**
+     * Moves the chosen alternative into result.text / words and fills the
+     * n-best fields. Without an expected phrase the decoder's best wins.
+     */
+    void choose(std::vector<AsrAlternative>& alternatives, AsrResult& result);
+
+    NBestStats getStats() const;
+    void resetStats();
+
+private:
+    NBestScorer() = default;
+
+    struct Expected {
+        std::vector<std::string> words;
+        std::vector<std::vector<std::string>> variants;   // per word
+    };
+
+    static float score(const Expected& expected, const std::string& text);
+
+    mutable std::mutex mutex_;
+    std::shared_ptr<const Expected> expected_;
+
+    std::atomic<uint64_t> finals_{0};
+    std::atomic<uint64_t> alternatives_{0};
+    std::atomic<uint64_t> scored_{0};
+    std::atomic<uint64_t> rescued_{0};
+};
@@ -0,0 +1,153 @@
+#pragma once
+#include <atomic>
+#include <cstdint>
+#include <ctime>
+
+// ============================================================
+// Pipeline latency metrics (native stages)
+// ============================================================
+
+/**
+ * CLOCK_MONOTONIC in ns — same clock as Java System.nanoTime() on
+ * Android, so timestamps taken on the capture thread can be compared
+ * with ones taken here.
+ */
+inline uint64_t monotonicNs() {
+    timespec ts{};
+    clock_gettime(CLOCK_MONOTONIC, &ts);
+    return static_cast<uint64_t>(ts.tv_sec) * 1000000000ull
+           + static_cast<uint64_t>(ts.tv_nsec);
+}
+
+/**
+ * Log-linear (HDR-style) latency histogram in microseconds.
+ *
+ * Values < 8 us get their own bucket; above that every power of two is
+ * split into 8 sub-buckets (~12% resolution) up to 2^32 us (~71 min).
+ * record() is a few relaxed atomic adds — safe from any thread, no locks.
+ *
+ * Layout must match com.speechtrainerai.metrics.LatencyHistogram: Java
+ * reads the raw counts (snapshot()) and computes the percentiles.
+ */
+class LatencyHistogram {
+public:
+    static constexpr int kSubBits = 3;
+    static constexpr int kSub = 1 << kSubBits;
+    static constexpr int kMaxExp = 31;
+    static constexpr int kBuckets = (kMaxExp - kSubBits + 2) * kSub;   // 240
+
+    // count, sumUs, maxUs, then kBuckets counts
+    static constexpr int kSnapshotSize = 3 + kBuckets;
+
+    static int bucketOf(uint64_t us) {
+        if (us < static_cast<uint64_t>(kSub)) return static_cast<int>(us);
+
+        int e = 63 - __builtin_clzll(us);
+        if (e > kMaxExp) {
+            e = kMaxExp;
+            us = (2ull << kMaxExp) - 1;
+        }
+
+        return (e - kSubBits + 1) * kSub
+               + static_cast<int>((us >> (e - kSubBits)) & (kSub - 1));
+    }
+
+    void record(uint64_t us) {
+        counts_[bucketOf(us)].fetch_add(1, std::memory_order_relaxed);
+        count_.fetch_add(1, std::memory_order_relaxed);
+        sumUs_.fetch_add(us, std::memory_order_relaxed);
+
+        uint64_t max = maxUs_.load(std::memory_order_relaxed);
+        while (us > max &&
+               !maxUs_.compare_exchange_weak(max, us, std::memory_order_relaxed)) {
+        }
+    }
+
+    void recordSinceNs(uint64_t startNs, uint64_t nowNs) {
+        if (startNs == 0 || nowNs < startNs) return;
+        record((nowNs - startNs) / 1000);
+    }
+
+    void snapshot(int64_t* out) const {
+        out[0] = static_cast<int64_t>(count_.load(std::memory_order_relaxed));
+        out[1] = static_cast<int64_t>(sumUs_.load(std::memory_order_relaxed));
+        out[2] = static_cast<int64_t>(maxUs_.load(std::memory_order_relaxed));
+        for (int i = 0; i < kBuckets; i++) {
+            out[3 + i] = static_cast<int64_t>(counts_[i].load(std::memory_order_relaxed));
+        }
+    }
+
+    void reset() {
+        for (auto& c : counts_) c.store(0, std::memory_order_relaxed);
+        count_.store(0, std::memory_order_relaxed);
+        sumUs_.store(0, std::memory_order_relaxed);
+        maxUs_.store(0, std::memory_order_relaxed);
+    }
+
+private:
+    std::atomic<uint64_t> counts_[kBuckets] = {};
+    std::atomic<uint64_t> count_{0};
+    std::atomic<uint64_t> sumUs_{0};
+    std::atomic<uint64_t> maxUs_{0};
+};
+
+enum class NativeStage : int {
+    QUEUE = 0,    // pushed into AudioBuffer → popped by the decoder
+    DECODE,       // vosk_recognizer_accept_waveform_s per chunk
+    PARSE,        // Vosk result JSON → AsrResult
+    DISPATCH,     // result queued → Java onNativeResult returned
+    FINALIZE,     // final extracted from Vosk (incl. n-best) + parsed + scored
+    COUNT
+};
+
+/**
+ * Process-wide native stage histograms + frame counters.
+ * Recorded by every recognizer channel (with fan-out, decode counts are
+ * summed over recognizers).
+ */
+class PipelineMetrics {
+public:
+    static PipelineMetrics& instance() {
+        static PipelineMetrics metrics;
+        return metrics;
+    }
+
+    // [framesQueued, framesDecoded, framesDropped, chunksDecoded,
+    //  partials, finals]
+    static constexpr int kCounters = 6;
+
+    LatencyHistogram& stage(NativeStage s) {
+        return stages_[static_cast<int>(s)];
+    }
+
+    std::atomic<uint64_t> framesQueued{0};
+    std::atomic<uint64_t> framesDecoded{0};
+    std::atomic<uint64_t> framesDropped{0};
+    std::atomic<uint64_t> chunksDecoded{0};
+    std::atomic<uint64_t> partials{0};
+    std::atomic<uint64_t> finals{0};
+
+    void counters(int64_t* out) const {
+        out[0] = static_cast<int64_t>(framesQueued.load(std::memory_order_relaxed));
+        out[1] = static_cast<int64_t>(framesDecoded.load(std::memory_order_relaxed));
+        out[2] = static_cast<int64_t>(framesDropped.load(std::memory_order_relaxed));
+        out[3] = static_cast<int64_t>(chunksDecoded.load(std::memory_order_relaxed));
+        out[4] = static_cast<int64_t>(partials.load(std::memory_order_relaxed));
+        out[5] = static_cast<int64_t>(finals.load(std::memory_order_relaxed));
+    }
+
+    void reset() {
+        for (auto& s : stages_) s.reset();
+        framesQueued.store(0, std::memory_order_relaxed);
+        framesDecoded.store(0, std::memory_order_relaxed);
+        framesDropped.store(0, std::memory_order_relaxed);
+        chunksDecoded.store(0, std::memory_order_relaxed);
+        partials.store(0, std::memory_order_relaxed);
+        finals.store(0, std::memory_order_relaxed);
+    }
+
+private:
+    PipelineMetrics() = default;
+
+    LatencyHistogram stages_[static_cast<int>(NativeStage::COUNT)];
+};
@@ -0,0 +1,419 @@
+#include "RecognizerChannel.h"
+#include "ModelCache.h"
+#include "NBestScorer.h"
+#include "PipelineMetrics.h"
+#include <android/log.h>
+#include <pthread.h>
+#include <algorithm>
+#include <chrono>
+
+#define LOGI(...) __android_log_print(ANDROID_LOG_INFO, "RecognizerChannel", __VA_ARGS__)
+#define LOGE(...) __android_log_print(ANDROID_LOG_ERROR, "RecognizerChannel", __VA_ARGS__)
+
+
+RecognizerChannel::RecognizerChannel(std::string id, const ChunkConfig& chunk)
+        : id_(std::move(id)), chunk_(chunk) {
+    final_.engineId = id_;
+    partial_.engineId = id_;
+}
+
+RecognizerChannel::~RecognizerChannel() {
+    release();
+}
+
+void RecognizerChannel::setId(const std::string& id) {
+    id_ = id;
+    final_.engineId = id;
+    partial_.engineId = id;
+}
+
+bool RecognizerChannel::loadModel(const std::string& path) {
+
+    if (model_ != nullptr && path == modelPath_) {
+        LOGI("[%s] Model already loaded, ignoring", id_.c_str());
+        return true;
+    }
+
+    if (model_ != nullptr) {
+        LOGI("[%s] Switching model %s -> %s", id_.c_str(), modelPath_.c_str(), path.c_str());
+        release();
+    }
+
+    LOGI("[%s] Loading Vosk model from: %s", id_.c_str(), path.c_str());
+
+    model_ = ModelCache::instance().acquire(path);
+    if (!model_) {
+        LOGE("[%s] vosk_model_new failed (bad path?)", id_.c_str());
+        return false;
+    }
+    modelPath_ = path;
+
+    if (!createRecognizer()) {
+        LOGE("[%s] vosk_recognizer_new failed", id_.c_str());
+        return false;
+    }
+
+    LOGI("[%s] Vosk model loaded OK", id_.c_str());
+    return true;
+}
+
+void RecognizerChannel::configure(VoskRecognizer* rec) {
+    vosk_recognizer_set_max_alternatives(rec, 0);
+    vosk_recognizer_set_words(rec, 1);
+}
+
+bool RecognizerChannel::createRecognizer() {
+
+    openRecognizer_ = vosk_recognizer_new(model_, 16000.0f);
+    if (!openRecognizer_) return false;
+
+    configure(openRecognizer_);
+
+    if (grammarKey_.empty()) {
+        recognizer_ = openRecognizer_;
+    }
+
+    resetStreamPosition();
+    return true;
+}
+
+void RecognizerChannel::freeRecognizers() {
+
+    if (openRecognizer_) {
+        vosk_recognizer_free(openRecognizer_);
+        openRecognizer_ = nullptr;
+    }
+
+    for (auto& g : grammars_) {
+        vosk_recognizer_free(g.recognizer);
+    }
+    grammars_.clear();
+    grammarKey_.clear();
+    grammarStats_.cached = 0;
+
+    recognizer_ = nullptr;
+}
+
+void RecognizerChannel::release() {
+
+    stop();
+
+    // grammars are compiled against this model → go with it
+    freeRecognizers();
+
+    // model stays warm in ModelCache for the next engine / reload
+    if (model_) {
+        ModelCache::instance().release(model_);
+        model_ = nullptr;
+        modelPath_.clear();
+    }
+}
+
+void RecognizerChannel::reset() {
+
+    stop();
+    audioBuffer_.clear();
+
+    if (openRecognizer_) {
+        if (recognizer_ == openRecognizer_) recognizer_ = nullptr;
+        vosk_recognizer_free(openRecognizer_);
+        openRecognizer_ = nullptr;
+    }
+
+    for (auto& g : grammars_) {
+        vosk_recognizer_reset(g.recognizer);
+    }
+
+    if (model_ && createRecognizer()) {
+        LOGI("[%s] Recognizer recreated successfully", id_.c_str());
+    }
+}
+
+GrammarStats RecognizerChannel::getGrammarStats() const {
+    GrammarStats s = grammarStats_;
+    s.active = !grammarKey_.empty();
+    return s;
+}
+
+bool RecognizerChannel::useGrammar(const std::string& key, const std::string& grammarJson) {
+
+    if (recognition_.running) {
+        LOGE("[%s] useGrammar() while running", id_.c_str());
+        return false;
+    }
+
+    if (!model_) {
+        LOGE("[%s] useGrammar() without model", id_.c_str());
+        return false;
+    }
+
+    // back to the full graph
+    if (key.empty()) {
+        grammarKey_.clear();
+        recognizer_ = openRecognizer_;
+        resetStreamPosition();
+        return recognizer_ != nullptr;
+    }
+
+    auto it = grammars_.begin();
+    while (it != grammars_.end() && it->key != key) ++it;
+
+    if (it != grammars_.end()) {
+        grammars_.splice(grammars_.begin(), grammars_, it);
+        grammarStats_.hits++;
+        vosk_recognizer_reset(grammars_.front().recognizer);
+    } else {
+        if (grammarJson.empty()) return false;
+
+        auto t0 = std::chrono::steady_clock::now();
+
+        VoskRecognizer* rec = vosk_recognizer_new_grm(model_, 16000.0f, grammarJson.c_str());
+
+        if (!rec) {
+            grammarStats_.failures++;
+            LOGE("[%s] vosk_recognizer_new_grm failed for %s", id_.c_str(), key.c_str());
+            return false;
+        }
+
+        configure(rec);
+
+        grammarStats_.misses++;
+        grammarStats_.lastCompileMs = static_cast<uint64_t>(
+                std::chrono::duration_cast<std::chrono::milliseconds>(
+                        std::chrono::steady_clock::now() - t0).count());
+
+        grammars_.push_front(GrammarEntry{key, rec});
+
+        // LRU: the active grammar is at the front, never evicted here
+        while (grammars_.size() > kMaxGrammars) {
+            vosk_recognizer_free(grammars_.back().recognizer);
+            grammars_.pop_back();
+            grammarStats_.evictions++;
+        }
+
+        grammarStats_.cached = grammars_.size();
+
+        LOGI("[%s] Grammar %s compiled in %llu ms", id_.c_str(), key.c_str(),
+             (unsigned long long) grammarStats_.lastCompileMs);
+    }
+
+    grammarKey_ = key;
+    recognizer_ = grammars_.front().recognizer;
+    resetStreamPosition();
+    return true;
+}
+
+bool RecognizerChannel::start(ResultCallback cb, uint64_t startFrame) {
+
+    if (recognition_.running) return true;
+
+    if (!recognizer_) {
+        LOGE("[%s] start() without model", id_.c_str());
+        return false;
+    }
+
+    resultCallback_ = cb;
+    framesDecoded_ = startFrame;
+    utteranceStartFrame_ = startFrame;
+
+    recognition_.running = true;
+    recognition_.worker = std::thread(&RecognizerChannel::recognitionLoop, this);
+    return true;
+}
+
+void RecognizerChannel::stop() {
+
+    // 1) Stop recognition thread (wake it if blocked waiting for audio)
+    if (recognition_.running) {
+        recognition_.running = false;
+        audioBuffer_.wakeConsumer();
+    }
+
+    if (recognition_.worker.joinable()) {
+        recognition_.worker.join();
+    } else {
+        return;   // never started → nothing to flush
+    }
+
+    // 2) Flush final result (unless discarded), reset recognizer for next session
+    if (recognizer_) {
+        if (!discardRequested_.exchange(false)) {
+            emitFinal(true);
+        }
+        vosk_recognizer_reset(recognizer_);
+        resetStreamPosition();
+    }
+}
+
+void RecognizerChannel::push(const int16_t* data, size_t frames, uint64_t capturedNs) {
+
+    PipelineMetrics& m = PipelineMetrics::instance();
+    const uint64_t droppedBefore = audioBuffer_.droppedFrames();
+
+    audioBuffer_.push(data, frames, capturedNs);
+
+    m.framesQueued.fetch_add(frames, std::memory_order_relaxed);
+    m.framesDropped.fetch_add(audioBuffer_.droppedFrames() - droppedBefore,
+                              std::memory_order_relaxed);
+}
+
+void RecognizerChannel::discardUtterance() {
+
+    // safe from any thread: pop() retries if its read index moved
+    audioBuffer_.clear();
+    discardRequested_ = true;
+}
+
+void RecognizerChannel::setMaxAlternatives(int n) {
+    maxAlternatives_ = std::max(0, std::min(n, kMaxAlternatives));
+}
+
+void RecognizerChannel::resetStreamPosition() {
+    framesDecoded_ = 0;
+    lastCapturedNs_ = 0;
+    utteranceStartFrame_ = 0;
+    lastPartial_.clear();
+}
+
+void RecognizerChannel::emitFinal(bool endOfStream) {
+
+    PipelineMetrics& m = PipelineMetrics::instance();
+    const uint64_t tf = monotonicNs();
+
+    // n-best is computed when the result is extracted, so the setting is
+    // applied here, on the decode thread, and never mid-utterance
+    vosk_recognizer_set_max_alternatives(recognizer_, maxAlternatives_.load());
+
+    const char* json = endOfStream
+                       ? vosk_recognizer_final_result(recognizer_)
+                       : vosk_recognizer_result(recognizer_);
+
+    const uint64_t t0 = monotonicNs();
+
+    if (!VoskResultParser::parseFinal(json, final_, alternatives_)) {
+        LOGE("[%s] Bad final JSON: %s", id_.c_str(), json);
+        return;
+    }
+
+    m.stage(NativeStage::PARSE).recordSinceNs(t0, monotonicNs());
+
+    if (alternatives_.empty()) {
+        final_.alternatives = 0;
+        final_.chosenAlternative = -1;
+        final_.matchScore = -1.0f;
+        final_.topText.clear();
+    } else {
+        NBestScorer::instance().choose(alternatives_, final_);
+    }
+
+    m.stage(NativeStage::FINALIZE).recordSinceNs(tf, monotonicNs());
+
+    final_.isFinal = true;
+    final_.utteranceId = utteranceId_;
+    final_.startFrame = utteranceStartFrame_;
+    final_.endFrame = framesDecoded_;
+    final_.audioCapturedNs = lastCapturedNs_;
+
+    // next utterance starts here, even if this one was empty
+    utteranceStartFrame_ = framesDecoded_;
+    lastPartial_.clear();
+
+    if (final_.text.empty()) return;
+
+    utteranceId_++;
+    m.finals.fetch_add(1, std::memory_order_relaxed);
+
+    if (resultCallback_) {
+        resultCallback_(final_);
+    }
+}
+
+void RecognizerChannel::emitPartial(const char* json) {
+
+    PipelineMetrics& m = PipelineMetrics::instance();
+    const uint64_t t0 = monotonicNs();
+
+    if (!VoskResultParser::parsePartial(json, partial_)) {
+        LOGE("[%s] Bad partial JSON: %s", id_.c_str(), json);
+        return;
+    }
+
+    m.stage(NativeStage::PARSE).recordSinceNs(t0, monotonicNs());
+
+    if (partial_.text.empty()) return;
+
+    if (partial_.text == lastPartial_) return; // no spam
+
+    lastPartial_ = partial_.text;
+
+    partial_.isFinal = false;
+    partial_.utteranceId = utteranceId_;
+    partial_.startFrame = utteranceStartFrame_;
+    partial_.endFrame = framesDecoded_;
+    partial_.audioCapturedNs = lastCapturedNs_;
+
+    m.partials.fetch_add(1, std::memory_order_relaxed);
+
+    if (resultCallback_) {
+        resultCallback_(partial_);
+    }
+}
+
+void RecognizerChannel::recognitionLoop() {
+
+    // "asr-<id>" in systrace / top (15 chars max)
+    std::string name = ("asr-" + id_).substr(0, 15);
+    pthread_setname_np(pthread_self(), name.c_str());
+
+    LOGI("[%s] Recognition thread started", id_.c_str());
+
+    int16_t tmp[ChunkConfig::kMaxFrames];
+    PipelineMetrics& m = PipelineMetrics::instance();
+    ChunkTiming timing;
+
+    while (recognition_.running) {
+
+        // Sleep until a chunk is ready (no polling, no idle wakeups)
+        if (audioBuffer_.waitForFrames(chunk_.minFrames, chunk_.maxWaitMs,
+                                       recognition_.running) == 0) {
+            continue;
+        }
+
+        if (discardRequested_.exchange(false) && recognizer_) {
+            vosk_recognizer_reset(recognizer_);
+            utteranceStartFrame_ = framesDecoded_;
+
+            // partials already sent belong to a dropped utterance
+            if (!lastPartial_.empty()) utteranceId_++;
+            lastPartial_.clear();
+        }
+
+        size_t frames = audioBuffer_.pop(tmp, ChunkConfig::kMaxFrames, &timing);
+
+        if (frames == 0 || !recognizer_) continue;
+
+        const uint64_t t0 = monotonicNs();
+        m.stage(NativeStage::QUEUE).recordSinceNs(timing.oldestPushedNs, t0);
+
+        int accepted = vosk_recognizer_accept_waveform_s(
+                recognizer_,
+                tmp,
+                frames
+        );
+
+        m.stage(NativeStage::DECODE).recordSinceNs(t0, monotonicNs());
+        m.framesDecoded.fetch_add(frames, std::memory_order_relaxed);
+        m.chunksDecoded.fetch_add(1, std::memory_order_relaxed);
+
+        framesDecoded_ += frames;
+        lastCapturedNs_ = timing.newestCapturedNs;
+
+        if (accepted) {
+            emitFinal(false);
+        } else {
+            emitPartial(vosk_recognizer_partial_result(recognizer_));
+        }
+    }
+
+    LOGI("[%s] Recognition thread stopped", id_.c_str());
+}
@@ -0,0 +1,139 @@
+#pragma once
+#include <atomic>
+#include <list>
+#include <string>
+#include <vector>
+#include "Threading.h"
+#include "AudioBuffer.h"
+#include "AsrResult.h"
+#include <vosk_api.h>
+
+/**
+ * Shared decode chunking (owned by SpeechEngine, read by every channel).
+ */
+struct ChunkConfig {
+    std::atomic<size_t> minFrames{1600};   // 100 ms @ 16 kHz
+    std::atomic<uint32_t> maxWaitMs{60};
+    static constexpr size_t kMaxFrames = 4000;   // ~250ms audio
+};
+
+// n-best hypotheses per final; each one is extra lattice search + JSON
+static constexpr int kMaxAlternatives = 10;
+
+struct GrammarStats {
+    uint64_t hits = 0;          // grammar recognizer reused from cache
+    uint64_t misses = 0;        // compiled (vosk_recognizer_new_grm)
+    uint64_t failures = 0;
+    uint64_t evictions = 0;
+    uint64_t cached = 0;
+    uint64_t lastCompileMs = 0;
+    bool active = false;        // decoding with a grammar right now
+};
+
+/**
+ * One recognizer instance: its own ring buffer, decode thread, model
+ * reference and stream position. SpeechEngine fans the capture stream
+ * out to every channel; results are tagged with the channel (engine) id.
+ */
+class RecognizerChannel {
+public:
+    using ResultCallback = void (*)(const AsrResult& result);
+
+    RecognizerChannel(std::string id, const ChunkConfig& chunk);
+    ~RecognizerChannel();
+
+    RecognizerChannel(const RecognizerChannel&) = delete;
+    RecognizerChannel& operator=(const RecognizerChannel&) = delete;
+
+    const std::string& id() const { return id_; }
+    void setId(const std::string& id);
+
+    const std::string& modelPath() const { return modelPath_; }
+    bool hasModel() const { return model_ != nullptr; }
+    bool isRunning() const { return recognition_.running; }
+
+    bool loadModel(const std::string& path);
+
+    // stop + free recognizer + hand the model back to ModelCache
+    void release();
+
+    // stop, drop buffered audio, fresh recognizer on the same model
+    // (cached grammar recognizers are reset, not recompiled)
+    void reset();
+
+    /**
+     * Switches decoding to a grammar-constrained recognizer (Vosk grammar
+     * JSON: ["phrase one", "phrase two", "[unk]"]). Compiled recognizers
+     * are cached by key (phrase uid); grammarJson is only read on a miss.
+     * Empty key → back to the open-vocabulary recognizer.
+     * Must not be called while running.
+     */
+    bool useGrammar(const std::string& key, const std::string& grammarJson);
+    GrammarStats getGrammarStats() const;
+
+    // startFrame aligns stream positions with channels already running
+    bool start(ResultCallback cb, uint64_t startFrame);
+    void stop();
+
+    // capturedNs: CLOCK_MONOTONIC of the capture (0 → now)
+    void push(const int16_t* data, size_t frames, uint64_t capturedNs);
+
+    // drops buffered audio and the current utterance without emitting a
+    // final (audio that must not be recognized, e.g. our own TTS); the
+    // recognizer itself is reset by the decode thread before its next chunk
+    void discardUtterance();
+
+    // n-best finals (0 = off); takes effect from the next final result
+    void setMaxAlternatives(int n);
+
+    uint64_t framesDecoded() const { return framesDecoded_; }
+
+    AudioBuffer& buffer() { return audioBuffer_; }
+    const AudioBuffer& buffer() const { return audioBuffer_; }
+
+private:
+    struct GrammarEntry {
+        std::string key;
+        VoskRecognizer* recognizer = nullptr;
+    };
+
+    static constexpr size_t kMaxGrammars = 8;
+
+    bool createRecognizer();
+    static void configure(VoskRecognizer* rec);
+    void freeRecognizers();
+    void recognitionLoop();
+    void emitFinal(bool endOfStream);
+    void emitPartial(const char* json);
+    void resetStreamPosition();
+
+    std::string id_;
+    const ChunkConfig& chunk_;
+
+    RecognitionThread recognition_;
+    AudioBuffer audioBuffer_;
+
+    std::string modelPath_;
+    VoskModel* model_ = nullptr;
+    VoskRecognizer* openRecognizer_ = nullptr;   // full graph
+    VoskRecognizer* recognizer_ = nullptr;       // active: open or a grammar
+
+    // compiled grammars for this model, front = most recently used
+    std::list<GrammarEntry> grammars_;
+    std::string grammarKey_;
+    GrammarStats grammarStats_;
+
+    // stream position (frames fed to the recognizer since last reset)
+    std::atomic<uint64_t> framesDecoded_{0};
+    uint64_t lastCapturedNs_ = 0;   // newest audio fed to the recognizer
+    uint64_t utteranceStartFrame_ = 0;
+    uint32_t utteranceId_ = 0;
+    AsrResult final_;
+    AsrResult partial_;
+    std::vector<AsrAlternative> alternatives_;   // n-best scratch
+    std::atomic<int> maxAlternatives_{0};
+    std::string lastPartial_;
+    std::atomic<bool> discardRequested_{false};
+
+    ResultCallback resultCallback_ = nullptr;
+};
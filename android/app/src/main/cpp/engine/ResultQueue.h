@@ -0,0 +1,164 @@
+#pragma once
+#include <atomic>
+#include <cstdint>
+#include <memory>
+#include "AsrResult.h"
+
+struct ResultQueueStats {
+    uint64_t capacity = 0;
+    uint64_t depth = 0;
+    uint64_t highWater = 0;
+    uint64_t enqueued = 0;
+    uint64_t dispatched = 0;
+    uint64_t droppedPartials = 0;
+    uint64_t droppedFinals = 0;
+};
+
+/**
+ * Bounded multi-producer / single-consumer queue of recognition results.
+ *
+ * Producers = recognizer channel threads (one per recognizer), consumer =
+ * the JNI dispatcher thread. Slot sequence numbers (Vyukov) make push a
+ * single CAS on the tail; no mutex, no allocation once the slots' strings
+ * and word vectors have grown to their working size.
+ *
+ * The consumer reads the result in place (front() → popFront()), so a
+ * slot is only reused after the Java callback for it has returned.
+ */
+class ResultQueue {
+public:
+    explicit ResultQueue(size_t capacity = 64)
+            : capacity_(roundUpPow2(capacity)),
+              mask_(capacity_ - 1),
+              slots_(new Slot[capacity_]) {
+        for (size_t i = 0; i < capacity_; i++) {
+            slots_[i].seq.store(i, std::memory_order_relaxed);
+        }
+    }
+
+    ResultQueue(const ResultQueue&) = delete;
+    ResultQueue& operator=(const ResultQueue&) = delete;
+
+    // ============================================================
+    // Producer side (any thread)
+    // ============================================================
+
+    /** false → queue full, nothing written */
+    bool tryPush(const AsrResult& result, uint64_t enqueuedNs) {
+        uint64_t pos = tail_.load(std::memory_order_relaxed);
+        Slot* slot;
+
+        for (;;) {
+            slot = &slots_[pos & mask_];
+            const uint64_t seq = slot->seq.load(std::memory_order_acquire);
+            const int64_t diff = static_cast<int64_t>(seq) - static_cast<int64_t>(pos);
+
+            if (diff == 0) {
+                if (tail_.compare_exchange_weak(pos, pos + 1, std::memory_order_relaxed)) break;
+            } else if (diff < 0) {
+                return false;   // slot still owned by the consumer → full
+            } else {
+                pos = tail_.load(std::memory_order_relaxed);
+            }
+        }
+
+        slot->result = result;   // reuses the slot's string / vector capacity
+        slot->enqueuedNs = enqueuedNs;
+        slot->seq.store(pos + 1, std::memory_order_release);
+
+        enqueued_.fetch_add(1, std::memory_order_relaxed);
+
+        uint64_t depth = pos + 1 - head_.load(std::memory_order_relaxed);
+        if (depth > highWater_.load(std::memory_order_relaxed)) {
+            highWater_.store(depth, std::memory_order_relaxed);
+        }
+        return true;
+    }
+
+    void countDrop(bool isFinal) {
+        (isFinal ? droppedFinals_ : droppedPartials_).fetch_add(1, std::memory_order_relaxed);
+    }
+
+    // ============================================================
+    // Consumer side (dispatcher thread only)
+    // ============================================================
+
+    /** Oldest published result, nullptr when empty. */
+    const AsrResult* front(uint64_t* enqueuedNs = nullptr) const {
+        const uint64_t h = head_.load(std::memory_order_relaxed);
+        const Slot& slot = slots_[h & mask_];
+
+        if (slot.seq.load(std::memory_order_acquire) != h + 1) return nullptr;
+
+        if (enqueuedNs) *enqueuedNs = slot.enqueuedNs;
+        return &slot.result;
+    }
+
+    /** Hands the front slot back to producers. */
+    void popFront() {
+        const uint64_t h = head_.load(std::memory_order_relaxed);
+        slots_[h & mask_].seq.store(h + capacity_, std::memory_order_release);
+        head_.store(h + 1, std::memory_order_release);
+        dispatched_.fetch_add(1, std::memory_order_relaxed);
+    }
+
+    // ============================================================
+    // Diagnostics
+    // ============================================================
+
+    /** Results claimed so far (published or being written). */
+    uint64_t tail() const { return tail_.load(std::memory_order_acquire); }
+
+    /** Results fully dispatched so far. */
+    uint64_t head() const { return head_.load(std::memory_order_acquire); }
+
+    ResultQueueStats stats() const {
+        ResultQueueStats s;
+        const uint64_t t = tail_.load(std::memory_order_relaxed);
+        const uint64_t h = head_.load(std::memory_order_relaxed);
+
+        s.capacity = capacity_;
+        s.depth = t > h ? t - h : 0;
+        s.highWater = highWater_.load(std::memory_order_relaxed);
+        s.enqueued = enqueued_.load(std::memory_order_relaxed);
+        s.dispatched = dispatched_.load(std::memory_order_relaxed);
+        s.droppedPartials = droppedPartials_.load(std::memory_order_relaxed);
+        s.droppedFinals = droppedFinals_.load(std::memory_order_relaxed);
+        return s;
+    }
+
+    void resetStats() {
+        highWater_.store(0, std::memory_order_relaxed);
+        enqueued_.store(0, std::memory_order_relaxed);
+        dispatched_.store(0, std::memory_order_relaxed);
+        droppedPartials_.store(0, std::memory_order_relaxed);
+        droppedFinals_.store(0, std::memory_order_relaxed);
+    }
+
+private:
+    struct Slot {
+        std::atomic<uint64_t> seq{0};
+        uint64_t enqueuedNs = 0;
+        AsrResult result;
+    };
+
+    static size_t roundUpPow2(size_t v) {
+        size_t p = 2;
+        while (p < v) p <<= 1;
+        return p;
+    }
+
+    const size_t capacity_;
+    const size_t mask_;
+    std::unique_ptr<Slot[]> slots_;
+
+    // producers and the consumer on separate cache lines
+    alignas(64) std::atomic<uint64_t> tail_{0};
+    alignas(64) std::atomic<uint64_t> head_{0};
+
+    alignas(64) std::atomic<uint64_t> highWater_{0};
+    std::atomic<uint64_t> enqueued_{0};
+    std::atomic<uint64_t> dispatched_{0};
+    std::atomic<uint64_t> droppedPartials_{0};
+    std::atomic<uint64_t> droppedFinals_{0};
+};
@@ -1,16 +1,100 @@
 #include "SpeechEngine.h"
 #include <android/log.h>
-#include <chrono>
+#include <algorithm>
+#include <thread>
 
 #define LOGI(...) __android_log_print(ANDROID_LOG_INFO, "SpeechEngine", __VA_ARGS__)
 #define LOGE(...) __android_log_print(ANDROID_LOG_ERROR, "SpeechEngine", __VA_ARGS__)
 
 
 SpeechEngine::SpeechEngine()
-        : state_(EngineState::UNINITIALIZED) {}
+        : state_(EngineState::UNINITIALIZED) {
+    channels_.push_back(std::make_shared<RecognizerChannel>("primary", chunk_));
+    publish();
+}
+
+void SpeechEngine::publish() {
+    std::atomic_store(&snapshot_, std::make_shared<const ChannelList>(channels_));
+}
+
+void SpeechEngine::retire(std::shared_ptr<RecognizerChannel> ch) {
+
+    // join + final flush on this thread
+    ch->stop();
+
+    // a pushAudio() still walking an older snapshot holds a reference:
+    // wait it out so the recognizer is never freed on the capture thread
+    while (ch.use_count() > 1) {
+        std::this_thread::yield();
+    }
+}
+
+void SpeechEngine::pushAudio(const int16_t* data, size_t frames, uint64_t capturedNs) {
+
+    // no lock on the capture thread: a stop / join elsewhere never stalls it
+    std::shared_ptr<const ChannelList> channels = std::atomic_load(&snapshot_);
+
+    streamFrames_.fetch_add(frames, std::memory_order_relaxed);
+
+    // one capture stream → every running recognizer
+    for (auto& ch : *channels) {
+        if (ch->isRunning()) ch->push(data, frames, capturedNs);
+    }
+}
+
+void SpeechEngine::discardUtterance() {
+    std::shared_ptr<const ChannelList> channels = std::atomic_load(&snapshot_);
+
+    for (auto& ch : *channels) {
+        if (ch->isRunning()) ch->discardUtterance();
+    }
+}
+
+void SpeechEngine::setOverflowPolicy(OverflowPolicy policy) {
+    LOGI("Audio overflow policy: %s", toString(policy));
+
+    std::lock_guard<std::mutex> lifecycle(lifecycleMutex_);
+    std::lock_guard<std::mutex> lock(channelsMutex_);
+    overflowPolicy_ = policy;
+    for (auto& ch : channels_) {
+        ch->buffer().setOverflowPolicy(policy);
+    }
+}
+
+AudioBufferStats SpeechEngine::getAudioBufferStats() const {
+    std::lock_guard<std::mutex> lock(channelsMutex_);
+    return channels_[0]->buffer().getStats();
+}
+
+void SpeechEngine::resetAudioBufferStats() {
+    std::lock_guard<std::mutex> lock(channelsMutex_);
+    for (auto& ch : channels_) {
+        ch->buffer().resetStats();
+    }
+}
+
+void SpeechEngine::setChunkConfig(size_t minChunkFrames, uint32_t maxWaitMs) {
+    chunk_.minFrames = std::max<size_t>(1, std::min(minChunkFrames, ChunkConfig::kMaxFrames));
+    chunk_.maxWaitMs = maxWaitMs;
+    LOGI("Chunk config: min=%zu frames, maxWait=%u ms",
+         chunk_.minFrames.load(), maxWaitMs);
+}
+
+void SpeechEngine::setMaxAlternatives(int n) {
+    std::lock_guard<std::mutex> lifecycle(lifecycleMutex_);
+    std::lock_guard<std::mutex> lock(channelsMutex_);
+
+    maxAlternatives_ = std::max(0, std::min(n, kMaxAlternatives));
+    for (auto& ch : channels_) {
+        ch->setMaxAlternatives(maxAlternatives_);
+    }
 
-void SpeechEngine::pushAudio(const int16_t* data, size_t frames) {
-    audioBuffer_.push(data, frames);
+    LOGI("Max alternatives: %d", maxAlternatives_);
+}
+
+int SpeechEngine::getMaxAlternatives() const {
+    std::lock_guard<std::mutex> lock(channelsMutex_);
+    return maxAlternatives_;
 }
 
 SpeechEngine& SpeechEngine::instance() {
@@ -34,17 +118,26 @@ void SpeechEngine::shutdown() {
 
     LOGI("Engine shutdown requested");
 
-    stopRecognition();
+    std::lock_guard<std::mutex> lifecycle(lifecycleMutex_);
+
+    for (auto& ch : channels_) {
+        ch->stop();
+    }
 
-    if (recognizer_) {
-        vosk_recognizer_free(recognizer_);
-        recognizer_ = nullptr;
+    ChannelList removed;
+    {
+        std::lock_guard<std::mutex> lock(channelsMutex_);
+        removed.assign(channels_.begin() + 1, channels_.end());
+        channels_.resize(1);
+        publish();
     }
 
-    if (model_) {
-        vosk_model_free(model_);
-        model_ = nullptr;
+    // secondaries go away, primary just drops its model
+    // (models stay warm in ModelCache for the next engine / reload)
+    for (auto& ch : removed) {
+        retire(std::move(ch));
     }
+    channels_[0]->release();
 
     state_ = EngineState::UNINITIALIZED;
 
@@ -55,29 +148,15 @@ void SpeechEngine::fullReset() {
 
     LOGI("FULL RESET requested");
 
-    // 1) Stop recognition thread
-    stopRecognition();
+    std::lock_guard<std::mutex> lifecycle(lifecycleMutex_);
 
-    // 2) Clear audio buffer
-    audioBuffer_.clear();
-
-    // 3) Destroy recognizer completely
-    if (recognizer_) {
-        vosk_recognizer_free(recognizer_);
-        recognizer_ = nullptr;
+    // stop threads, clear audio, fresh recognizers on the same models
+    for (auto& ch : channels_) {
+        ch->reset();
     }
 
-    // 4) Recreate recognizer fresh (if model loaded)
-    if (model_) {
-
-        recognizer_ = vosk_recognizer_new(model_, 16000.0f);
-
-        vosk_recognizer_set_max_alternatives(recognizer_, 0);
-        vosk_recognizer_set_words(recognizer_, 1);
-
+    if (channels_[0]->hasModel()) {
         state_ = EngineState::MODEL_LOADED;
-
-        LOGI("Recognizer recreated successfully");
     }
 
     LOGI("FULL RESET done");
@@ -90,207 +169,204 @@ bool SpeechEngine::isInitialized() const {
 
 bool SpeechEngine::loadModel(const std::string& path) {
 
-    if (model_ != nullptr) {
-        LOGI("Model already loaded, ignoring");
-        return true;
-    }
+    std::lock_guard<std::mutex> lifecycle(lifecycleMutex_);
 
-    LOGI("Loading Vosk model from: %s", path.c_str());
+    RecognizerChannel& primary = *channels_[0];
 
-    model_ = vosk_model_new(path.c_str());
-    if (!model_) {
-        LOGE("vosk_model_new failed (bad path?)");
-        return false;
-    }
+    // a different model stops the primary channel
+    bool switching = primary.hasModel() && primary.modelPath() != path;
 
-    recognizer_ = vosk_recognizer_new(model_, 16000.0f);
-    if (!recognizer_) {
-        LOGE("vosk_recognizer_new failed");
+    if (!primary.loadModel(path)) {
         return false;
     }
 
-    vosk_recognizer_set_max_alternatives(recognizer_, 0);
-    vosk_recognizer_set_words(recognizer_, 1);
-
-    state_ = EngineState::MODEL_LOADED;
-
-    LOGI("Vosk model loaded OK");
+    if (switching || state_ != EngineState::RECOGNIZING) {
+        state_ = EngineState::MODEL_LOADED;
+    }
     return true;
 }
 
-
-EngineState SpeechEngine::getState() const {
-    return state_;
-}
-#include <chrono>
-
-void SpeechEngine::setResultCallback(void (*cb)(const char*)) {
-    resultCallback_ = cb;
+void SpeechEngine::setPrimaryId(const std::string& engineId) {
+    std::lock_guard<std::mutex> lifecycle(lifecycleMutex_);
+    std::lock_guard<std::mutex> lock(channelsMutex_);
+    channels_[0]->setId(engineId);
 }
 
-bool SpeechEngine::startRecognition() {
-    if (state_ == EngineState::RECOGNIZING) {
-        LOGI("startRecognition() already running");
-        return true;
-    }
+bool SpeechEngine::addRecognizer(const std::string& engineId, const std::string& path) {
 
-    if (state_ != EngineState::MODEL_LOADED) {
-        LOGE("startRecognition() invalid state");
-        return false;
-    }
+    std::lock_guard<std::mutex> lifecycle(lifecycleMutex_);
 
-    recognition_.running = true;
-    recognition_.worker = std::thread(&SpeechEngine::recognitionLoop, this);
+    std::shared_ptr<RecognizerChannel> ch;
 
-    state_ = EngineState::RECOGNIZING;
-    return true;
-}
+    for (auto& c : channels_) {
+        if (c->id() == engineId) ch = c;
+    }
 
-void SpeechEngine::stopRecognition() {
+    if (ch == channels_[0]) {
+        LOGI("addRecognizer(%s): already primary", engineId.c_str());
+        return true;
+    }
 
-    LOGI("stopRecognition() requested");
+    bool added = !ch;
 
-    // 1) Stop recognition thread
-    if (recognition_.running) {
-        recognition_.running = false;
+    if (added) {
+        ch = std::make_shared<RecognizerChannel>(engineId, chunk_);
+        ch->buffer().setOverflowPolicy(overflowPolicy_);
+        ch->setMaxAlternatives(maxAlternatives_);
+    }
 
-        if (recognition_.worker.joinable()) {
-            recognition_.worker.join();
+    // model load (or switch) runs outside channelsMutex_
+    if (!ch->loadModel(path)) {
+        if (!added) {
+            {
+                std::lock_guard<std::mutex> lock(channelsMutex_);
+                channels_.erase(std::find(channels_.begin(), channels_.end(), ch));
+                publish();
+            }
+            retire(std::move(ch));
         }
+        return false;
     }
 
-    // 2) Flush final result from Vosk
-    if (recognizer_) {
-
-        const char* finalJson = vosk_recognizer_final_result(recognizer_);
-
-        LOGI("Final result JSON: %s", finalJson);
-
-        // Extract "text" field (temporary simple parser)
-        std::string json = finalJson;
+    if (added) {
+        std::lock_guard<std::mutex> lock(channelsMutex_);
+        channels_.push_back(ch);
+        publish();
+    }
 
-        auto pos = json.find("\"text\"");
-        if (pos != std::string::npos) {
+    // joining a live session: align stream position with the primary
+    if (state_ == EngineState::RECOGNIZING) {
+        ch->start(resultCallback_, channels_[0]->framesDecoded());
+    }
 
-            auto q1 = json.find("\"", pos + 6);
-            auto q2 = json.find("\"", q1 + 1);
+    LOGI("Recognizer added: %s (%zu active)", engineId.c_str(), channels_.size());
+    return true;
+}
 
-            if (q1 != std::string::npos && q2 != std::string::npos) {
+void SpeechEngine::removeRecognizer(const std::string& engineId) {
 
-                std::string finalText =
-                        json.substr(q1 + 1, q2 - q1 - 1);
+    std::lock_guard<std::mutex> lifecycle(lifecycleMutex_);
 
-                if (!finalText.empty() && resultCallback_) {
+    std::shared_ptr<RecognizerChannel> removed;
 
-                    std::string evt =
-                            std::string("{\"type\":\"final\",\"text\":\"")
-                            + finalText + "\"}";
+    {
+        std::lock_guard<std::mutex> lock(channelsMutex_);
 
-                    resultCallback_(evt.c_str());
-                }
+        for (size_t i = 1; i < channels_.size(); i++) {
+            if (channels_[i]->id() == engineId) {
+                removed = std::move(channels_[i]);
+                channels_.erase(channels_.begin() + i);
+                publish();
+                break;
             }
         }
-
-        // 3) Reset recognizer for next session
-        vosk_recognizer_reset(recognizer_);
     }
 
-    // 4) Update engine state
-    if (state_ == EngineState::RECOGNIZING) {
-        state_ = EngineState::MODEL_LOADED;
+    // join + final flush outside channelsMutex_ (capture keeps flowing)
+    if (removed) {
+        retire(std::move(removed));
+        LOGI("Recognizer removed: %s", engineId.c_str());
     }
-
-    LOGI("stopRecognition() done");
 }
 
-void SpeechEngine::recognitionLoop() {
+std::vector<std::string> SpeechEngine::getRecognizerIds() {
+    std::lock_guard<std::mutex> lock(channelsMutex_);
 
-    LOGI("Recognition thread started");
-
-    int16_t tmp[4000]; // ~250ms audio
-    std::string lastPartial;
+    std::vector<std::string> ids;
+    for (auto& ch : channels_) {
+        if (ch->hasModel()) ids.push_back(ch->id());
+    }
+    return ids;
+}
 
-    while (recognition_.running) {
 
-        size_t frames = audioBuffer_.pop(tmp, 4000);
+bool SpeechEngine::setGrammar(const std::string& key, const std::string& grammarJson) {
 
-        if (frames > 0 && recognizer_) {
+    std::lock_guard<std::mutex> lifecycle(lifecycleMutex_);
 
-            int accepted = vosk_recognizer_accept_waveform_s(
-                    recognizer_,
-                    tmp,
-                    frames
-            );
+    RecognizerChannel& primary = *channels_[0];
 
-            if (accepted) {
-                // FINAL
-                const char* resJson = vosk_recognizer_result(recognizer_);
-                std::string json = resJson;
+    // swap recognizers between utterances: flush, switch, resume.
+    // Every running channel restarts at one stream offset so that
+    // ResultArbiter keeps grouping their finals by frame overlap.
+    std::vector<RecognizerChannel*> running;
+    for (auto& ch : channels_) {
+        if (ch->isRunning()) {
+            ch->stop();
+            running.push_back(ch.get());
+        }
+    }
 
-                auto pos = json.find("\"text\"");
-                if (pos != std::string::npos) {
+    bool ok = primary.useGrammar(key, grammarJson);
 
-                    auto q1 = json.find("\"", pos + 6);
-                    auto q2 = json.find("\"", q1 + 1);
+    // audio still queued belongs to the utterances just flushed
+    const uint64_t offset = streamFrames_.load(std::memory_order_relaxed);
+    for (RecognizerChannel* ch : running) {
+        ch->buffer().clear();
+        ch->start(resultCallback_, offset);
+    }
 
-                    std::string finalText =
-                            json.substr(q1 + 1, q2 - q1 - 1);
+    LOGI("Grammar %s: %s", key.empty() ? "(open vocabulary)" : key.c_str(), ok ? "OK" : "FAILED");
+    return ok;
+}
 
-                    if (!finalText.empty() && resultCallback_) {
+GrammarStats SpeechEngine::getGrammarStats() const {
+    std::lock_guard<std::mutex> lifecycle(lifecycleMutex_);
+    return channels_[0]->getGrammarStats();
+}
 
-                        std::string evt =
-                                std::string("{\"type\":\"final\",\"text\":\"")
-                                + finalText + "\"}";
+EngineState SpeechEngine::getState() const {
+    return state_;
+}
 
-                        resultCallback_(evt.c_str());
-                    }
-                }
+void SpeechEngine::setResultCallback(void (*cb)(const AsrResult&)) {
+    resultCallback_ = cb;
+}
 
-                lastPartial.clear();
-            }
-            else {
-                // PARTIAL
-                const char* partialJson =
-                        vosk_recognizer_partial_result(recognizer_);
+bool SpeechEngine::startRecognition() {
+    if (state_ == EngineState::RECOGNIZING) {
+        LOGI("startRecognition() already running");
+        return true;
+    }
 
-                std::string json = partialJson;
+    if (state_ != EngineState::MODEL_LOADED) {
+        LOGE("startRecognition() invalid state");
+        return false;
+    }
 
-                auto pos = json.find("\"partial\"");
-                if (pos != std::string::npos) {
+    std::lock_guard<std::mutex> lifecycle(lifecycleMutex_);
 
-                    auto q1 = json.find("\"", pos + 9);
-                    auto q2 = json.find("\"", q1 + 1);
+    streamFrames_.store(0, std::memory_order_relaxed);
 
-                    std::string partialText =
-                            json.substr(q1 + 1, q2 - q1 - 1);
+    if (!channels_[0]->start(resultCallback_, 0)) {
+        return false;
+    }
 
-                    if (partialText.empty()) {
-                        continue; // <-- НЕ return!
-                    }
+    for (size_t i = 1; i < channels_.size(); i++) {
+        channels_[i]->start(resultCallback_, 0);
+    }
 
-                    if (partialText == lastPartial) {
-                        continue; // no spam
-                    }
+    state_ = EngineState::RECOGNIZING;
+    return true;
+}
 
-                    lastPartial = partialText;
+void SpeechEngine::stopRecognition() {
 
-                    if (resultCallback_) {
+    LOGI("stopRecognition() requested");
 
-                        std::string evt =
-                                std::string("{\"type\":\"partial\",\"text\":\"")
-                                + partialText + "\"}";
+    {
+        std::lock_guard<std::mutex> lifecycle(lifecycleMutex_);
 
-                        resultCallback_(evt.c_str());
-                    }
-                }
-            }
+        // join each thread and flush its final result;
+        // pushAudio and the stats getters do not wait for this
+        for (auto& ch : channels_) {
+            ch->stop();
         }
+    }
 
-        std::this_thread::sleep_for(std::chrono::milliseconds(20));
+    if (state_ == EngineState::RECOGNIZING) {
+        state_ = EngineState::MODEL_LOADED;
     }
 
-    LOGI("Recognition thread stopped");
+    LOGI("stopRecognition() done");
 }
-
-
-
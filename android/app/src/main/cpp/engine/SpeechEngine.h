@@ -1,9 +1,13 @@
 #pragma once
 #include <atomic>
+#include <memory>
+#include <mutex>
 #include <string>
+#include <vector>
 #include "EngineState.h"
-#include "Threading.h"
 #include "AudioBuffer.h"
+#include "AsrResult.h"
+#include "RecognizerChannel.h"
 #include <vosk_api.h>
 
 class SpeechEngine {
@@ -14,28 +18,76 @@ public:
     void shutdown();
     void fullReset();
     bool isInitialized() const;
+
+    // primary recognizer (the current engine)
     bool loadModel(const std::string& path);
+    void setPrimaryId(const std::string& engineId);
+
+    // extra recognizers fed from the same capture stream, each on its own
+    // thread; results are tagged with engineId
+    bool addRecognizer(const std::string& engineId, const std::string& path);
+    void removeRecognizer(const std::string& engineId);
+    std::vector<std::string> getRecognizerIds();
+
+    // grammar-constrained decoding on the primary recognizer
+    // (key = phrase uid; empty key → open vocabulary)
+    bool setGrammar(const std::string& key, const std::string& grammarJson);
+    GrammarStats getGrammarStats() const;
+
     bool startRecognition();
     void stopRecognition();
 
-    void pushAudio(const int16_t* data, size_t frames);
+    // capturedNs: CLOCK_MONOTONIC (System.nanoTime()) of the capture, 0 → now
+    void pushAudio(const int16_t* data, size_t frames, uint64_t capturedNs = 0);
+
+    // every running recognizer forgets the current utterance (no final)
+    void discardUtterance();
+
+    // audio ring buffer tuning / diagnostics (primary channel)
+    void setOverflowPolicy(OverflowPolicy policy);
+    AudioBufferStats getAudioBufferStats() const;
+    void resetAudioBufferStats();
+
+    // recognition chunking: decode as soon as minChunkFrames are buffered,
+    // or after maxWaitMs with whatever (non-empty) audio is waiting
+    void setChunkConfig(size_t minChunkFrames, uint32_t maxWaitMs);
+
+    // n-best finals on every recognizer (0 = 1-best only), clamped to
+    // kMaxAlternatives; the best match for the expected phrase is chosen
+    // by NBestScorer
+    void setMaxAlternatives(int n);
+    int getMaxAlternatives() const;
 
     EngineState getState() const;
 
     // callback setter (JNI layer will set this)
-    void setResultCallback(void (*cb)(const char* text));
+    void setResultCallback(void (*cb)(const AsrResult& result));
 
 private:
     SpeechEngine();
 
-    void recognitionLoop();
-
     std::atomic<EngineState> state_;
-    RecognitionThread recognition_;
-    AudioBuffer audioBuffer_;
-    std::string modelPath_;
-    VoskModel* model_ = nullptr;
-    VoskRecognizer* recognizer_ = nullptr;
+    ChunkConfig chunk_;
+    OverflowPolicy overflowPolicy_ = OverflowPolicy::DROP_OLDEST;
+    int maxAlternatives_ = 0;
+
+    using ChannelList = std::vector<std::shared_ptr<RecognizerChannel>>;
+
+    // lifecycleMutex_ serializes load / start / stop / grammar / add / remove;
+    // thread joins happen under it only. channels_[0] is the primary; changing
+    // the list takes both (lifecycle first), reading it takes either.
+    // The capture thread takes neither: pushAudio reads the immutable
+    // snapshot_, republished by publish() after every change.
+    mutable std::mutex lifecycleMutex_;
+    mutable std::mutex channelsMutex_;
+    ChannelList channels_;
+    std::shared_ptr<const ChannelList> snapshot_;
+
+    // capture frames since startRecognition(): common restart offset
+    std::atomic<uint64_t> streamFrames_{0};
+
+    void publish();                                          // channelsMutex_ held
+    static void retire(std::shared_ptr<RecognizerChannel> ch);
 
-    void (*resultCallback_)(const char* text) = nullptr;
+    void (*resultCallback_)(const AsrResult& result) = nullptr;
 };
@@ -0,0 +1,176 @@
+#include "ResultDispatcher.h"
+#include "../engine/PipelineMetrics.h"
+#include <android/log.h>
+#include <pthread.h>
+#include <chrono>
+
+#define LOGI(...) __android_log_print(ANDROID_LOG_INFO, "ResultDispatcher", __VA_ARGS__)
+#define LOGE(...) __android_log_print(ANDROID_LOG_ERROR, "ResultDispatcher", __VA_ARGS__)
+
+
+ResultDispatcher& ResultDispatcher::instance() {
+    static ResultDispatcher dispatcher;
+    return dispatcher;
+}
+
+bool ResultDispatcher::start(JavaVM* vm, DispatchFn fn) {
+
+    std::lock_guard<std::mutex> lock(lifecycleMutex_);
+
+    if (running_) return true;
+
+    if (!vm || !fn) {
+        LOGE("start() without JavaVM / callback");
+        return false;
+    }
+
+    vm_ = vm;
+    fn_ = fn;
+
+    running_ = true;
+    worker_ = std::thread(&ResultDispatcher::dispatchLoop, this);
+    return true;
+}
+
+void ResultDispatcher::stop() {
+
+    std::lock_guard<std::mutex> lock(lifecycleMutex_);
+
+    if (!running_) return;
+
+    running_ = false;
+    wake();
+
+    if (worker_.joinable()) worker_.join();
+}
+
+// ============================================================
+// Producer side (recognizer threads)
+// ============================================================
+
+void ResultDispatcher::submit(const AsrResult& result) {
+
+    if (!running_.load(std::memory_order_acquire)) {
+        queue_.countDrop(result.isFinal);
+        return;
+    }
+
+    const uint64_t now = monotonicNs();
+
+    if (queue_.tryPush(result, now)) {
+        wake();
+        return;
+    }
+
+    if (!result.isFinal) {
+        queue_.countDrop(false);
+        return;
+    }
+
+    // a final is the answer itself: give Java a moment to catch up
+    const auto deadline = std::chrono::steady_clock::now()
+                          + std::chrono::milliseconds(kFinalWaitMs);
+
+    while (std::chrono::steady_clock::now() < deadline) {
+        wake();
+        std::this_thread::sleep_for(std::chrono::milliseconds(1));
+
+        if (queue_.tryPush(result, now)) {
+            wake();
+            return;
+        }
+    }
+
+    queue_.countDrop(true);
+    LOGE("[%s] Result queue full, final dropped (utterance %u)",
+         result.engineId.c_str(), result.utteranceId);
+}
+
+void ResultDispatcher::wake() {
+    // pairs with the fence after sleeping_ = true in dispatchLoop()
+    std::atomic_thread_fence(std::memory_order_seq_cst);
+
+    if (sleeping_.load(std::memory_order_relaxed)) {
+        std::lock_guard<std::mutex> lock(waitMutex_);
+        cv_.notify_one();
+    }
+}
+
+bool ResultDispatcher::flush(uint32_t timeoutMs) {
+
+    if (workerId_.load() == std::this_thread::get_id()) return false;
+
+    const uint64_t target = queue_.tail();
+    const auto deadline = std::chrono::steady_clock::now()
+                          + std::chrono::milliseconds(timeoutMs);
+
+    while (queue_.head() < target) {
+        if (!running_ || std::chrono::steady_clock::now() >= deadline) return false;
+        wake();
+        std::this_thread::sleep_for(std::chrono::milliseconds(1));
+    }
+
+    return true;
+}
+
+// ============================================================
+// Dispatcher thread
+// ============================================================
+
+void ResultDispatcher::dispatchLoop() {
+
+    pthread_setname_np(pthread_self(), "asr-dispatch");
+    workerId_.store(std::this_thread::get_id());
+
+    // attached once for the life of the thread (not per result)
+    JNIEnv* env = nullptr;
+    JavaVMAttachArgs args{JNI_VERSION_1_6, const_cast<char*>("asr-dispatch"), nullptr};
+
+    if (vm_->AttachCurrentThread(&env, &args) != JNI_OK) {
+        LOGE("AttachCurrentThread failed, results will be dropped");
+        running_ = false;
+        workerId_.store(std::thread::id());
+        return;
+    }
+
+    LOGI("Dispatcher thread started");
+
+    PipelineMetrics& m = PipelineMetrics::instance();
+
+    for (;;) {
+        uint64_t enqueuedNs = 0;
+        const AsrResult* result = queue_.front(&enqueuedNs);
+
+        if (result) {
+            fn_(env, *result);
+
+            // a throwing callback must not poison the next JNI call
+            if (env->ExceptionCheck()) {
+                env->ExceptionDescribe();
+                env->ExceptionClear();
+            }
+
+            m.stage(NativeStage::DISPATCH).recordSinceNs(enqueuedNs, monotonicNs());
+            queue_.popFront();
+            continue;
+        }
+
+        // empty: leave once stopped, otherwise sleep until submit() wakes us
+        if (!running_) break;
+
+        std::unique_lock<std::mutex> lock(waitMutex_);
+        sleeping_.store(true, std::memory_order_relaxed);
+        std::atomic_thread_fence(std::memory_order_seq_cst);
+
+        cv_.wait_for(lock, std::chrono::milliseconds(100), [&] {
+            return !running_ || queue_.front() != nullptr;
+        });
+
+        sleeping_.store(false, std::memory_order_relaxed);
+    }
+
+    vm_->DetachCurrentThread();
+    workerId_.store(std::thread::id());
+
+    LOGI("Dispatcher thread stopped");
+}
@@ -0,0 +1,74 @@
+#pragma once
+#include <jni.h>
+#include <atomic>
+#include <condition_variable>
+#include <cstdint>
+#include <mutex>
+#include <thread>
+#include "../engine/AsrResult.h"
+#include "../engine/ResultQueue.h"
+
+/**
+ * Hands recognition results from the recognizer threads to Java on one
+ * dedicated thread.
+ *
+ * Recognizer threads only copy the result into a bounded lock-free queue
+ * (ResultQueue) and go back to decoding; the dispatcher thread is attached
+ * to the JVM once for its whole life and runs the Java callback (arbiter,
+ * coalescing, React bridge). A slow JS side therefore backs up this queue
+ * instead of stalling vosk_recognizer_accept_waveform.
+ *
+ * Queue full: partials are dropped (the next one supersedes them), finals
+ * wait up to kFinalWaitMs for a slot before being dropped. Both are counted.
+ */
+class ResultDispatcher {
+public:
+    using DispatchFn = void (*)(JNIEnv* env, const AsrResult& result);
+
+    static constexpr size_t kCapacity = 64;
+    static constexpr uint32_t kFinalWaitMs = 200;
+
+    static ResultDispatcher& instance();
+
+    // idempotent; fn runs on the dispatcher thread only
+    bool start(JavaVM* vm, DispatchFn fn);
+
+    // dispatches what is already queued, then detaches and joins
+    void stop();
+
+    bool isRunning() const { return running_.load(std::memory_order_acquire); }
+
+    // recognizer threads
+    void submit(const AsrResult& result);
+
+    /**
+     * Blocks until every result submitted before the call has reached
+     * Java (e.g. the final flushed by stopRecognition()).
+     * false on timeout or when called from the dispatcher thread itself.
+     */
+    bool flush(uint32_t timeoutMs);
+
+    ResultQueueStats getStats() const { return queue_.stats(); }
+    void resetStats() { queue_.resetStats(); }
+
+private:
+    ResultDispatcher() = default;
+
+    void dispatchLoop();
+    void wake();
+
+    ResultQueue queue_{kCapacity};
+
+    JavaVM* vm_ = nullptr;
+    DispatchFn fn_ = nullptr;
+
+    std::mutex lifecycleMutex_;
+    std::thread worker_;
+    std::atomic<bool> running_{false};
+    std::atomic<std::thread::id> workerId_{};
+
+    // dispatcher sleeps only when the queue is empty
+    std::mutex waitMutex_;
+    std::condition_variable cv_;
+    std::atomic<bool> sleeping_{false};
+};
@@ -1,5 +1,11 @@
 #include <jni.h>
+#include <algorithm>
+#include <vector>
 #include "../engine/SpeechEngine.h"
+#include "../engine/ModelCache.h"
+#include "../engine/NBestScorer.h"
+#include "../engine/PipelineMetrics.h"
+#include "ResultDispatcher.h"
 #include <android/log.h>
 
 #define LOG_TAG "SpeechTrainerJNI"
@@ -10,30 +16,139 @@ extern "C" {
 static JavaVM* gJvm = nullptr;
 static jclass gModuleClass = nullptr;
 static jmethodID gOnResultMethod = nullptr;
+static jclass gStringClass = nullptr;
 
-void emitResultToJava(const char* text) {
-    JNIEnv* env = nullptr;
-    gJvm->AttachCurrentThread(&env, nullptr);
+// shared by every partial (no words): Java never writes into them
+static jobjectArray gEmptyWords = nullptr;
+static jfloatArray gEmptyTimings = nullptr;
+
+/**
+ * AsrResult → onNativeResult(engineId, isFinal, utteranceId, startFrame,
+ *                            endFrame, audioCapturedNs, text, words[],
+ *                            wordTimings[start,end,conf]*n,
+ *                            alternatives, chosenAlternative, matchScore,
+ *                            topText)
+ *
+ * Runs on the ResultDispatcher thread only (permanently attached env).
+ */
+static void dispatchToJava(JNIEnv* env, const AsrResult& result) {
+    static std::vector<jfloat> timings;   // dispatcher thread only
+
+    const jsize n = static_cast<jsize>(result.words.size());
+
+    jstring jengine = env->NewStringUTF(result.engineId.c_str());
+    jstring jtext = env->NewStringUTF(result.text.c_str());
+    jstring jtopText = result.topText.empty() ? nullptr : env->NewStringUTF(result.topText.c_str());
+    jobjectArray jwords = gEmptyWords;
+    jfloatArray jtimings = gEmptyTimings;
+
+    if (n > 0) {
+        jwords = env->NewObjectArray(n, gStringClass, nullptr);
+        jtimings = env->NewFloatArray(n * 3);
+
+        if (timings.size() < static_cast<size_t>(n) * 3) timings.resize(n * 3);
+
+        for (jsize i = 0; i < n; i++) {
+            const AsrWord& w = result.words[i];
+
+            jstring jw = env->NewStringUTF(w.word.c_str());
+            env->SetObjectArrayElement(jwords, i, jw);
+            env->DeleteLocalRef(jw);
+
+            timings[i * 3] = w.start;
+            timings[i * 3 + 1] = w.end;
+            timings[i * 3 + 2] = w.conf;
+        }
+
+        env->SetFloatArrayRegion(jtimings, 0, n * 3, timings.data());
+    }
 
-    jstring jtext = env->NewStringUTF(text);
     env->CallStaticVoidMethod(
             gModuleClass,
             gOnResultMethod,
-            jtext
+            jengine,
+            static_cast<jboolean>(result.isFinal),
+            static_cast<jint>(result.utteranceId),
+            static_cast<jlong>(result.startFrame),
+            static_cast<jlong>(result.endFrame),
+            static_cast<jlong>(result.audioCapturedNs),
+            jtext,
+            jwords,
+            jtimings,
+            static_cast<jint>(result.alternatives),
+            static_cast<jint>(result.chosenAlternative),
+            static_cast<jfloat>(result.matchScore),
+            jtopText
     );
+
+    // the thread never detaches, so local refs must not pile up
+    env->DeleteLocalRef(jengine);
     env->DeleteLocalRef(jtext);
+    if (jtopText) env->DeleteLocalRef(jtopText);
+    if (n > 0) {
+        env->DeleteLocalRef(jwords);
+        env->DeleteLocalRef(jtimings);
+    }
+}
+
+/**
+ * SpeechEngine result callback, called from every recognizer channel
+ * thread: only queues the result, Java runs on the dispatcher thread.
+ */
+static void emitResultToJava(const AsrResult& result) {
+    ResultDispatcher::instance().submit(result);
 }
 
+/**
+ * short[] path (VAD output). One copy into a per-thread scratch buffer,
+ * no allocation after the first call, no logging (runs per buffer).
+ */
 JNIEXPORT void JNICALL
 Java_com_speechtrainerai_rn_1java_1connector_RnJavaConnectorModule_nativePushAudio(
-        JNIEnv* env, jclass, jshortArray data, jint frames) {
-LOGI("nativePushAudio frames=%d", frames);
-jshort* pcm = env->GetShortArrayElements(data, nullptr);
-SpeechEngine::instance().pushAudio(
-reinterpret_cast<int16_t*>(pcm),
-frames
-);
-env->ReleaseShortArrayElements(data, pcm, JNI_ABORT);
+        JNIEnv* env, jclass, jshortArray data, jint frames, jlong capturedAtNanos) {
+
+    if (frames <= 0) return;
+
+    static thread_local std::vector<int16_t> scratch;
+    if (scratch.size() < static_cast<size_t>(frames)) scratch.resize(frames);
+
+    env->GetShortArrayRegion(data, 0, frames, reinterpret_cast<jshort*>(scratch.data()));
+
+    SpeechEngine::instance().pushAudio(
+            scratch.data(),
+            static_cast<size_t>(frames),
+            static_cast<uint64_t>(capturedAtNanos)
+    );
+}
+
+/**
+ * Zero-copy capture path: pcm is the direct ByteBuffer AudioRecord read
+ * into (native order), pushed straight into the recognizers' ring buffers.
+ */
+JNIEXPORT void JNICALL
+Java_com_speechtrainerai_rn_1java_1connector_RnJavaConnectorModule_nativePushAudioDirect(
+        JNIEnv* env, jclass, jobject pcm, jint frames, jlong capturedAtNanos) {
+
+    auto* samples = static_cast<const int16_t*>(env->GetDirectBufferAddress(pcm));
+    if (samples == nullptr || frames <= 0) return;   // not a direct buffer
+
+    const jlong capacityFrames = env->GetDirectBufferCapacity(pcm) / 2;
+
+    SpeechEngine::instance().pushAudio(
+            samples,
+            static_cast<size_t>(std::min<jlong>(frames, capacityFrames)),
+            static_cast<uint64_t>(capturedAtNanos)
+    );
+}
+
+/**
+ * Drops buffered audio + the current utterance on every running
+ * recognizer without emitting a final (TTS playback gating).
+ */
+JNIEXPORT void JNICALL
+Java_com_speechtrainerai_rn_1java_1connector_RnJavaConnectorModule_nativeDiscardUtterance(
+        JNIEnv*, jclass) {
+    SpeechEngine::instance().discardUtterance();
 }
 
 JNIEXPORT jboolean JNICALL
@@ -44,9 +159,29 @@ Java_com_speechtrainerai_rn_1java_1connector_RnJavaConnectorModule_nativeInit(
     gOnResultMethod = env->GetStaticMethodID(
             clazz,
             "onNativeResult",
-            "(Ljava/lang/String;)V"
+            "(Ljava/lang/String;ZIJJJLjava/lang/String;[Ljava/lang/String;[FIIFLjava/lang/String;)V"
     );
 
+    if (!gStringClass) {
+        jclass stringClass = env->FindClass("java/lang/String");
+        gStringClass = (jclass)env->NewGlobalRef(stringClass);
+        env->DeleteLocalRef(stringClass);
+    }
+
+    if (!gEmptyWords) {
+        jobjectArray words = env->NewObjectArray(0, gStringClass, nullptr);
+        jfloatArray timings = env->NewFloatArray(0);
+        gEmptyWords = (jobjectArray)env->NewGlobalRef(words);
+        gEmptyTimings = (jfloatArray)env->NewGlobalRef(timings);
+        env->DeleteLocalRef(words);
+        env->DeleteLocalRef(timings);
+    }
+
+    if (!ResultDispatcher::instance().start(gJvm, dispatchToJava)) {
+        LOGE("Result dispatcher failed to start");
+        return JNI_FALSE;
+    }
+
     SpeechEngine::instance().setResultCallback(emitResultToJava);
     return SpeechEngine::instance().init();
 }
@@ -54,7 +189,10 @@ Java_com_speechtrainerai_rn_1java_1connector_RnJavaConnectorModule_nativeInit(
 JNIEXPORT void JNICALL
 Java_com_speechtrainerai_rn_1java_1connector_RnJavaConnectorModule_nativeShutdown(
         JNIEnv*, jclass) {
-SpeechEngine::instance().shutdown();
+    SpeechEngine::instance().shutdown();
+
+    // after the engine: its final results are dispatched before the join
+    ResultDispatcher::instance().stop();
 }
 
 JNIEXPORT void JNICALL
@@ -78,6 +216,106 @@ env->ReleaseStringUTFChars(path, cpath);
 return ok;
 }
 
+JNIEXPORT void JNICALL
+Java_com_speechtrainerai_rn_1java_1connector_RnJavaConnectorModule_nativeSetPrimaryEngineId(
+        JNIEnv* env, jclass, jstring engineId) {
+    const char* cid = env->GetStringUTFChars(engineId, nullptr);
+    SpeechEngine::instance().setPrimaryId(cid);
+    env->ReleaseStringUTFChars(engineId, cid);
+}
+
+JNIEXPORT jboolean JNICALL
+Java_com_speechtrainerai_rn_1java_1connector_RnJavaConnectorModule_nativeAddRecognizer(
+        JNIEnv* env, jclass, jstring engineId, jstring path) {
+    const char* cid = env->GetStringUTFChars(engineId, nullptr);
+    const char* cpath = env->GetStringUTFChars(path, nullptr);
+    bool ok = SpeechEngine::instance().addRecognizer(cid, cpath);
+    env->ReleaseStringUTFChars(path, cpath);
+    env->ReleaseStringUTFChars(engineId, cid);
+    return ok;
+}
+
+JNIEXPORT void JNICALL
+Java_com_speechtrainerai_rn_1java_1connector_RnJavaConnectorModule_nativeRemoveRecognizer(
+        JNIEnv* env, jclass, jstring engineId) {
+    const char* cid = env->GetStringUTFChars(engineId, nullptr);
+    SpeechEngine::instance().removeRecognizer(cid);
+    env->ReleaseStringUTFChars(engineId, cid);
+}
+
+JNIEXPORT jobjectArray JNICALL
+Java_com_speechtrainerai_rn_1java_1connector_RnJavaConnectorModule_nativeGetRecognizerIds(
+        JNIEnv* env, jclass) {
+    std::vector<std::string> ids = SpeechEngine::instance().getRecognizerIds();
+
+    jclass stringClass = env->FindClass("java/lang/String");
+    jobjectArray out = env->NewObjectArray(static_cast<jsize>(ids.size()), stringClass, nullptr);
+
+    for (size_t i = 0; i < ids.size(); i++) {
+        jstring jid = env->NewStringUTF(ids[i].c_str());
+        env->SetObjectArrayElement(out, static_cast<jsize>(i), jid);
+        env->DeleteLocalRef(jid);
+    }
+
+    env->DeleteLocalRef(stringClass);
+    return out;
+}
+
+/**
+ * Loads a model into ModelCache without binding it to a recognizer,
+ * so a later addRecognizer() / engine switch hits a warm model.
+ */
+JNIEXPORT jboolean JNICALL
+Java_com_speechtrainerai_rn_1java_1connector_RnJavaConnectorModule_nativePrewarmModel(
+        JNIEnv* env, jclass, jstring path) {
+    const char* cpath = env->GetStringUTFChars(path, nullptr);
+    VoskModel* model = ModelCache::instance().acquire(cpath);
+    env->ReleaseStringUTFChars(path, cpath);
+
+    if (!model) return JNI_FALSE;
+
+    ModelCache::instance().release(model);   // stays resident while idle
+    return JNI_TRUE;
+}
+
+/**
+ * key = phrase uid (empty → open vocabulary); grammarJson is only
+ * compiled when key is not cached yet.
+ */
+JNIEXPORT jboolean JNICALL
+Java_com_speechtrainerai_rn_1java_1connector_RnJavaConnectorModule_nativeSetGrammar(
+        JNIEnv* env, jclass, jstring key, jstring grammarJson) {
+    const char* ckey = env->GetStringUTFChars(key, nullptr);
+    const char* cjson = grammarJson ? env->GetStringUTFChars(grammarJson, nullptr) : "";
+    bool ok = SpeechEngine::instance().setGrammar(ckey, cjson);
+    if (grammarJson) env->ReleaseStringUTFChars(grammarJson, cjson);
+    env->ReleaseStringUTFChars(key, ckey);
+    return ok;
+}
+
+/**
+ * [hits, misses, failures, evictions, cached, lastCompileMs, active]
+ */
+JNIEXPORT jlongArray JNICALL
+Java_com_speechtrainerai_rn_1java_1connector_RnJavaConnectorModule_nativeGetGrammarStats(
+        JNIEnv* env, jclass) {
+    GrammarStats s = SpeechEngine::instance().getGrammarStats();
+
+    jlong values[7] = {
+            static_cast<jlong>(s.hits),
+            static_cast<jlong>(s.misses),
+            static_cast<jlong>(s.failures),
+            static_cast<jlong>(s.evictions),
+            static_cast<jlong>(s.cached),
+            static_cast<jlong>(s.lastCompileMs),
+            s.active ? 1 : 0
+    };
+
+    jlongArray out = env->NewLongArray(7);
+    env->SetLongArrayRegion(out, 0, 7, values);
+    return out;
+}
+
 JNIEXPORT jboolean JNICALL
 Java_com_speechtrainerai_rn_1java_1connector_RnJavaConnectorModule_nativeStartRecognition(
         JNIEnv*, jclass) {
@@ -87,7 +325,12 @@ Java_com_speechtrainerai_rn_1java_1connector_RnJavaConnectorModule_nativeStartRe
 JNIEXPORT void JNICALL
 Java_com_speechtrainerai_rn_1java_1connector_RnJavaConnectorModule_nativeStopRecognition(
         JNIEnv*, jclass) {
-SpeechEngine::instance().stopRecognition();
+    SpeechEngine::instance().stopRecognition();
+
+    // callers expect the flushed final to have reached Java on return
+    if (!ResultDispatcher::instance().flush(500)) {
+        LOGE("Final result still queued after stopRecognition()");
+    }
 }
 
 JNIEXPORT jstring JNICALL
@@ -97,6 +340,255 @@ Java_com_speechtrainerai_rn_1java_1connector_RnJavaConnectorModule_nativeGetEngi
     return env->NewStringUTF(toString(state));
 }
 
+JNIEXPORT void JNICALL
+Java_com_speechtrainerai_rn_1java_1connector_RnJavaConnectorModule_nativeSetAudioOverflowPolicy(
+        JNIEnv*, jclass, jint policy) {
+    switch (policy) {
+        case 1: SpeechEngine::instance().setOverflowPolicy(OverflowPolicy::DROP_NEWEST); break;
+        case 2: SpeechEngine::instance().setOverflowPolicy(OverflowPolicy::BLOCK); break;
+        default: SpeechEngine::instance().setOverflowPolicy(OverflowPolicy::DROP_OLDEST); break;
+    }
+}
+
+/**
+ * [capacity, fill, highWater, framesPushed, framesDropped, overflowEvents,
+ *  wakeups, emptyWakeups]
+ */
+JNIEXPORT jlongArray JNICALL
+Java_com_speechtrainerai_rn_1java_1connector_RnJavaConnectorModule_nativeGetAudioBufferStats(
+        JNIEnv* env, jclass) {
+    AudioBufferStats s = SpeechEngine::instance().getAudioBufferStats();
+
+    jlong values[8] = {
+            static_cast<jlong>(s.capacity),
+            static_cast<jlong>(s.fill),
+            static_cast<jlong>(s.highWater),
+            static_cast<jlong>(s.framesPushed),
+            static_cast<jlong>(s.framesDropped),
+            static_cast<jlong>(s.overflowEvents),
+            static_cast<jlong>(s.wakeups),
+            static_cast<jlong>(s.emptyWakeups)
+    };
+
+    jlongArray out = env->NewLongArray(8);
+    env->SetLongArrayRegion(out, 0, 8, values);
+    return out;
+}
+
+JNIEXPORT void JNICALL
+Java_com_speechtrainerai_rn_1java_1connector_RnJavaConnectorModule_nativeResetAudioBufferStats(
+        JNIEnv*, jclass) {
+    SpeechEngine::instance().resetAudioBufferStats();
+}
+
+JNIEXPORT void JNICALL
+Java_com_speechtrainerai_rn_1java_1connector_RnJavaConnectorModule_nativeSetChunkConfig(
+        JNIEnv*, jclass, jint minChunkFrames, jint maxWaitMs) {
+    SpeechEngine::instance().setChunkConfig(
+            static_cast<size_t>(std::max(1, (int) minChunkFrames)),
+            static_cast<uint32_t>(std::max(0, (int) maxWaitMs))
+    );
+}
+
+/**
+ * [hits, misses, loadFailures, evictions, residentBytes, residentModels,
+ *  idleModels, budgetBytes, lastLoadMs]
+ */
+JNIEXPORT jlongArray JNICALL
+Java_com_speechtrainerai_rn_1java_1connector_RnJavaConnectorModule_nativeGetModelCacheStats(
+        JNIEnv* env, jclass) {
+    ModelCacheStats s = ModelCache::instance().getStats();
+
+    jlong values[9] = {
+            static_cast<jlong>(s.hits),
+            static_cast<jlong>(s.misses),
+            static_cast<jlong>(s.loadFailures),
+            static_cast<jlong>(s.evictions),
+            static_cast<jlong>(s.residentBytes),
+            static_cast<jlong>(s.residentModels),
+            static_cast<jlong>(s.idleModels),
+            static_cast<jlong>(s.budgetBytes),
+            static_cast<jlong>(s.lastLoadMs)
+    };
+
+    jlongArray out = env->NewLongArray(9);
+    env->SetLongArrayRegion(out, 0, 9, values);
+    return out;
+}
+
+/**
+ * Native stage histograms, flattened:
+ * per NativeStage: [count, sumUs, maxUs, bucket counts...]
+ * (LatencyHistogram::kSnapshotSize values each).
+ */
+JNIEXPORT jlongArray JNICALL
+Java_com_speechtrainerai_rn_1java_1connector_RnJavaConnectorModule_nativeGetPipelineHistograms(
+        JNIEnv* env, jclass) {
+    PipelineMetrics& m = PipelineMetrics::instance();
+
+    const int stages = static_cast<int>(NativeStage::COUNT);
+    const int size = stages * LatencyHistogram::kSnapshotSize;
+
+    std::vector<jlong> values(size);
+    for (int i = 0; i < stages; i++) {
+        m.stage(static_cast<NativeStage>(i)).snapshot(
+                reinterpret_cast<int64_t*>(values.data()) + i * LatencyHistogram::kSnapshotSize);
+    }
+
+    jlongArray out = env->NewLongArray(size);
+    env->SetLongArrayRegion(out, 0, size, values.data());
+    return out;
+}
+
+/**
+ * [framesQueued, framesDecoded, framesDropped, chunksDecoded, partials, finals]
+ */
+JNIEXPORT jlongArray JNICALL
+Java_com_speechtrainerai_rn_1java_1connector_RnJavaConnectorModule_nativeGetPipelineCounters(
+        JNIEnv* env, jclass) {
+    jlong values[PipelineMetrics::kCounters];
+    PipelineMetrics::instance().counters(reinterpret_cast<int64_t*>(values));
+
+    jlongArray out = env->NewLongArray(PipelineMetrics::kCounters);
+    env->SetLongArrayRegion(out, 0, PipelineMetrics::kCounters, values);
+    return out;
+}
+
+JNIEXPORT void JNICALL
+Java_com_speechtrainerai_rn_1java_1connector_RnJavaConnectorModule_nativeResetPipelineMetrics(
+        JNIEnv*, jclass) {
+    PipelineMetrics::instance().reset();
+    ResultDispatcher::instance().resetStats();
+}
+
+/**
+ * [capacity, depth, highWater, enqueued, dispatched, droppedPartials,
+ *  droppedFinals]
+ */
+JNIEXPORT jlongArray JNICALL
+Java_com_speechtrainerai_rn_1java_1connector_RnJavaConnectorModule_nativeGetResultQueueStats(
+        JNIEnv* env, jclass) {
+    ResultQueueStats s = ResultDispatcher::instance().getStats();
+
+    jlong values[7] = {
+            static_cast<jlong>(s.capacity),
+            static_cast<jlong>(s.depth),
+            static_cast<jlong>(s.highWater),
+            static_cast<jlong>(s.enqueued),
+            static_cast<jlong>(s.dispatched),
+            static_cast<jlong>(s.droppedPartials),
+            static_cast<jlong>(s.droppedFinals)
+    };
+
+    jlongArray out = env->NewLongArray(7);
+    env->SetLongArrayRegion(out, 0, 7, values);
+    return out;
+}
+
+// ============================================================
+// N-best alternatives
+// ============================================================
+
+JNIEXPORT void JNICALL
+Java_com_speechtrainerai_rn_1java_1connector_RnJavaConnectorModule_nativeSetMaxAlternatives(
+        JNIEnv*, jclass, jint n) {
+    SpeechEngine::instance().setMaxAlternatives(n);
+}
+
+static std::string toStdString(JNIEnv* env, jstring s) {
+    if (!s) return std::string();
+
+    const char* c = env->GetStringUTFChars(s, nullptr);
+    std::string out(c);
+    env->ReleaseStringUTFChars(s, c);
+    return out;
+}
+
+/**
+ * words: normalized expected words; variants[i]: normalized variants of
+ * words[i] (String[][], may be shorter than words)
+ */
+JNIEXPORT void JNICALL
+Java_com_speechtrainerai_rn_1java_1connector_RnJavaConnectorModule_nativeSetExpectedPhrase(
+        JNIEnv* env, jclass, jobjectArray words, jobjectArray variants) {
+
+    std::vector<std::string> w;
+    std::vector<std::vector<std::string>> v;
+
+    const jsize n = words ? env->GetArrayLength(words) : 0;
+    const jsize nv = variants ? env->GetArrayLength(variants) : 0;
+
+    w.reserve(n);
+    v.resize(n);
+
+    for (jsize i = 0; i < n; i++) {
+        auto jw = static_cast<jstring>(env->GetObjectArrayElement(words, i));
+        w.push_back(toStdString(env, jw));
+        env->DeleteLocalRef(jw);
+
+        if (i >= nv) continue;
+
+        auto list = static_cast<jobjectArray>(env->GetObjectArrayElement(variants, i));
+        const jsize m = list ? env->GetArrayLength(list) : 0;
+
+        for (jsize k = 0; k < m; k++) {
+            auto jv = static_cast<jstring>(env->GetObjectArrayElement(list, k));
+            v[i].push_back(toStdString(env, jv));
+            env->DeleteLocalRef(jv);
+        }
+
+        if (list) env->DeleteLocalRef(list);
+    }
+
+    NBestScorer::instance().setExpected(std::move(w), std::move(v));
+}
+
+JNIEXPORT void JNICALL
+Java_com_speechtrainerai_rn_1java_1connector_RnJavaConnectorModule_nativeClearExpectedPhrase(
+        JNIEnv*, jclass) {
+    NBestScorer::instance().clearExpected();
+}
+
+/**
+ * [maxAlternatives, finals, alternatives, scored, rescued]
+ */
+JNIEXPORT jlongArray JNICALL
+Java_com_speechtrainerai_rn_1java_1connector_RnJavaConnectorModule_nativeGetNBestStats(
+        JNIEnv* env, jclass) {
+    NBestStats s = NBestScorer::instance().getStats();
+
+    jlong values[5] = {
+            static_cast<jlong>(SpeechEngine::instance().getMaxAlternatives()),
+            static_cast<jlong>(s.finals),
+            static_cast<jlong>(s.alternatives),
+            static_cast<jlong>(s.scored),
+            static_cast<jlong>(s.rescued)
+    };
+
+    jlongArray out = env->NewLongArray(5);
+    env->SetLongArrayRegion(out, 0, 5, values);
+    return out;
+}
+
+JNIEXPORT void JNICALL
+Java_com_speechtrainerai_rn_1java_1connector_RnJavaConnectorModule_nativeResetNBestStats(
+        JNIEnv*, jclass) {
+    NBestScorer::instance().resetStats();
+    PipelineMetrics::instance().stage(NativeStage::FINALIZE).reset();
+}
+
+JNIEXPORT void JNICALL
+Java_com_speechtrainerai_rn_1java_1connector_RnJavaConnectorModule_nativeSetModelCacheBudget(
+        JNIEnv*, jclass, jlong bytes) {
+    ModelCache::instance().setBudgetBytes(static_cast<uint64_t>(std::max<jlong>(0, bytes)));
+}
+
+JNIEXPORT void JNICALL
+Java_com_speechtrainerai_rn_1java_1connector_RnJavaConnectorModule_nativeTrimModelCache(
+        JNIEnv*, jclass) {
+    ModelCache::instance().trim();
+}
+
 JNIEXPORT jint JNICALL JNI_OnLoad(JavaVM* vm, void*) {
     gJvm = vm;
     return JNI_VERSION_1_6;
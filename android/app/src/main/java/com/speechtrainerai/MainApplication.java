@@ -10,6 +10,7 @@ import com.facebook.react.defaults.DefaultReactNativeHost;
 import com.facebook.soloader.SoLoader;
 import java.util.List;
 import com.speechtrainerai.rn_java_connector.RnJavaConnectorPackage;
+import com.speechtrainerai.asr.AsrEngineManager;
 
 public class MainApplication extends Application implements ReactApplication {
 
@@ -59,5 +60,7 @@ public class MainApplication extends Application implements ReactApplication {
       // If you opted-in for the New Architecture, we load the native entry point for this app.
       DefaultNewArchitectureEntryPoint.load();
     }
+    // Install + load ASR models in the background while JS boots
+    AsrEngineManager.getInstance().preloadAll(this);
   }
 }
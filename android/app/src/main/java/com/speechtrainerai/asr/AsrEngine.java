@@ -4,13 +4,20 @@ package com.speechtrainerai.asr;
  * Универсальный контракт для всех ASR движков.
  *
  * Важно:
- * движков может быть несколько, но активен только один.
+ * движков может быть несколько; текущий (primary) один, остальные
+ * могут работать параллельно на том же аудиопотоке (fan-out).
  */
 public interface AsrEngine {
 
     /** Уникальный ID движка (например "vosk-en") */
     String getId();
 
+    /**
+     * Папка модели в assets, которую надо установить перед loadModel()
+     * (null — движку модель не нужна).
+     */
+    String getModelAssetFolder();
+
     /**
      * Нужно ли движку внешнее аудио (AudioRecord)?
      *
@@ -25,6 +32,12 @@ public interface AsrEngine {
     /** Загрузка модели (если применимо) */
     boolean loadModel(String path);
 
+    /**
+     * Прогрев модели в кэше без привязки к распознавателю
+     * (для движков, которые не грузятся как текущий при старте).
+     */
+    boolean prewarmModel(String path);
+
     /** Запуск распознавания */
     boolean startRecognition();
 
@@ -1,27 +1,289 @@
 package com.speechtrainerai.asr;
 
-import java.util.HashMap;
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.speechtrainerai.rn_java_connector.ModelInstaller;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 /**
  * Центральный реестр ASR движков.
  *
  * По задаче:
  * количество движков фиксируется в Java слое (hardcoded).
+ *
+ * Движки регистрируются сразу (дёшево), а установка модели и загрузка
+ * идут в фоне с момента старта приложения (preloadAll). Каждый движок
+ * проходит REGISTERED → INSTALLING → LOADING → READY (или FAILED);
+ * вызывающий код ждёт готовности через whenReady() / getReadyFuture().
  */
 public class AsrEngineManager {
 
-    private final HashMap<String, AsrEngine> engines = new HashMap<>();
+    private static final String TAG = "AsrEngineManager";
+
+    public interface ReadyListener {
+        /** modelPath == null → error != null */
+        void onReady(String engineId, String modelPath, Exception error);
+    }
+
+    /**
+     * Состояние + тайминги одного движка.
+     * Все времена — SystemClock.elapsedRealtime(), 0 = ещё не было.
+     */
+    public static final class EngineSlot {
+        public final AsrEngine engine;
+
+        private volatile AsrEngineState state = AsrEngineState.REGISTERED;
+        private volatile String modelPath;
+        private volatile Exception error;
+
+        private final long registeredAt;
+        private volatile long installStartedAt;
+        private volatile long loadStartedAt;
+        private volatile long finishedAt;
+
+        private final List<ReadyListener> listeners = new ArrayList<>();
+        private FutureTask<String> task;
+
+        EngineSlot(AsrEngine engine) {
+            this.engine = engine;
+            this.registeredAt = SystemClock.elapsedRealtime();
+        }
+
+        public AsrEngineState getState() { return state; }
+        public String getModelPath() { return modelPath; }
+        public Exception getError() { return error; }
+
+        public long getInstallMs() {
+            return installStartedAt == 0 || loadStartedAt == 0 ? 0 : loadStartedAt - installStartedAt;
+        }
+
+        public long getLoadMs() {
+            return loadStartedAt == 0 || finishedAt == 0 ? 0 : finishedAt - loadStartedAt;
+        }
+
+        /** от регистрации (≈ старт процесса) до READY/FAILED */
+        public long getTimeToReadyMs() {
+            return finishedAt == 0 ? 0 : finishedAt - registeredAt;
+        }
+    }
+
+    private static AsrEngineManager instance;
+
+    public static synchronized AsrEngineManager getInstance() {
+        if (instance == null) {
+            instance = new AsrEngineManager();
+        }
+        return instance;
+    }
+
+    private final LinkedHashMap<String, EngineSlot> engines = new LinkedHashMap<>();
+
+    // один поток: SpeechEngine — singleton, грузить параллельно нельзя
+    private final ExecutorService preloadExecutor =
+            Executors.newSingleThreadExecutor(r -> new Thread(r, "AsrPreload"));
+
+    private final long createdAt = SystemClock.elapsedRealtime();
+    private volatile long firstResultAt = 0;
 
-    public AsrEngineManager() {
+    // читается на каждом шаге установки: подписчик, появившийся позже
+    // (модуль RN после MainApplication), получает уже идущую установку
+    private volatile ModelInstaller.ProgressListener progressListener;
+
+    private AsrEngineManager() {
 
         // Пока только Vosk движок (EN)
-        engines.put("vosk-en", new VoskAsrEngine("vosk-en"));
+        register(new VoskAsrEngine("vosk-en", "vosk-model-small-en-us-0.15"));
+
+        // Воспроизведение записей (тесты / замеры RTF), та же EN модель
+        register(new ReplayAsrEngine("replay-en", "vosk-model-small-en-us-0.15"));
 
-        // В будущем добавим:
-        // engines.put("android-ru", new AndroidAsrEngine());
+        // В будущем добавим (RU модель для fan-out вместе с EN):
+        // register(new VoskAsrEngine("vosk-ru", "vosk-model-small-ru-0.22"));
+        // register(new AndroidAsrEngine());
+    }
+
+    private void register(AsrEngine engine) {
+        engines.put(engine.getId(), new EngineSlot(engine));
     }
 
     public AsrEngine getEngine(String id) {
+        EngineSlot slot = engines.get(id);
+        return slot != null ? slot.engine : null;
+    }
+
+    public EngineSlot getSlot(String id) {
         return engines.get(id);
     }
+
+    public Collection<EngineSlot> getSlots() {
+        return engines.values();
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    // ============================================================
+    // Background preload
+    // ============================================================
+
+    /**
+     * Запускает install + load всех движков в фоне. Повторный вызов
+     * ничего не делает (кроме перезапуска FAILED движков).
+     * Прогресс установки — в setProgressListener().
+     */
+    public void preloadAll(Context context) {
+        Context app = context.getApplicationContext();
+        for (EngineSlot slot : engines.values()) {
+            preload(app, slot);
+        }
+    }
+
+    /** Прогресс установки моделей, в том числе уже начатой; null — отписка. */
+    public void setProgressListener(ModelInstaller.ProgressListener listener) {
+        progressListener = listener;
+    }
+
+    private void forwardProgress(long bytesDone, long bytesTotal, int filesDone, int filesTotal) {
+        ModelInstaller.ProgressListener l = progressListener;
+        if (l != null) {
+            l.onProgress(bytesDone, bytesTotal, filesDone, filesTotal);
+        }
+    }
+
+    public Future<String> getReadyFuture(String id) {
+        EngineSlot slot = engines.get(id);
+        if (slot == null) return null;
+        synchronized (slot) {
+            return slot.task;
+        }
+    }
+
+    /**
+     * Вызывает listener, когда движок станет READY/FAILED
+     * (сразу, если уже). Поток вызова — AsrPreload или текущий.
+     */
+    public void whenReady(String id, ReadyListener listener) {
+
+        EngineSlot slot = engines.get(id);
+
+        if (slot == null) {
+            listener.onReady(id, null, new IllegalArgumentException("Unknown engine: " + id));
+            return;
+        }
+
+        synchronized (slot) {
+            if (slot.state != AsrEngineState.READY && slot.state != AsrEngineState.FAILED) {
+                slot.listeners.add(listener);
+                return;
+            }
+        }
+
+        listener.onReady(id, slot.modelPath, slot.error);
+    }
+
+    public void markFirstResult() {
+        if (firstResultAt == 0) {
+            firstResultAt = SystemClock.elapsedRealtime();
+            Log.i(TAG, "Time to first recognition: " + (firstResultAt - createdAt) + " ms");
+        }
+    }
+
+    /** 0 = результатов ещё не было */
+    public long getTimeToFirstResultMs() {
+        return firstResultAt == 0 ? 0 : firstResultAt - createdAt;
+    }
+
+    private void preload(Context context, EngineSlot slot) {
+
+        synchronized (slot) {
+            boolean running = slot.task != null && slot.state != AsrEngineState.FAILED;
+            if (running) return;
+
+            slot.state = AsrEngineState.REGISTERED;
+            slot.error = null;
+            slot.task = new FutureTask<>(() -> runPreload(context, slot));
+            preloadExecutor.execute(slot.task);
+        }
+    }
+
+    private String runPreload(Context context, EngineSlot slot) throws Exception {
+
+        AsrEngine engine = slot.engine;
+        String id = engine.getId();
+
+        try {
+            // 1) install
+            slot.installStartedAt = SystemClock.elapsedRealtime();
+            slot.state = AsrEngineState.INSTALLING;
+
+            String path = null;
+            String folder = engine.getModelAssetFolder();
+            if (folder != null) {
+                path = ModelInstaller.installModelIfNeeded(context, folder, this::forwardProgress);
+            }
+
+            // 2) init + load
+            slot.loadStartedAt = SystemClock.elapsedRealtime();
+            slot.state = AsrEngineState.LOADING;
+
+            if (!engine.init()) {
+                throw new IllegalStateException("Init failed: " + id);
+            }
+
+            // первый движок грузится в primary распознаватель, остальные
+            // только прогреваются в кэше (подключаются через fan-out)
+            boolean primary = slot == engines.values().iterator().next();
+            boolean loaded = path == null
+                    || (primary ? engine.loadModel(path) : engine.prewarmModel(path));
+
+            if (!loaded) {
+                throw new IllegalStateException("Model load failed: " + path);
+            }
+
+            slot.modelPath = path;
+            finish(slot, AsrEngineState.READY, null);
+
+            Log.i(TAG, id + " READY in " + slot.getTimeToReadyMs() + " ms"
+                    + " (install " + slot.getInstallMs() + " ms, load " + slot.getLoadMs() + " ms)");
+
+            return path;
+
+        } catch (Exception ex) {
+            Log.e(TAG, id + " FAILED", ex);
+            finish(slot, AsrEngineState.FAILED, ex);
+            throw ex;
+        }
+    }
+
+    private void finish(EngineSlot slot, AsrEngineState state, Exception error) {
+
+        List<ReadyListener> toNotify;
+
+        synchronized (slot) {
+            slot.finishedAt = SystemClock.elapsedRealtime();
+            slot.error = error;
+            slot.state = state;
+            toNotify = new ArrayList<>(slot.listeners);
+            slot.listeners.clear();
+        }
+
+        for (ReadyListener l : toNotify) {
+            try {
+                l.onReady(slot.engine.getId(), slot.modelPath, error);
+            } catch (Exception ex) {
+                Log.e(TAG, "ReadyListener failed", ex);
+            }
+        }
+    }
 }
@@ -0,0 +1,16 @@
+package com.speechtrainerai.asr;
+
+/**
+ * Жизненный цикл движка в AsrEngineManager.
+ *
+ * REGISTERED → INSTALLING → LOADING → READY
+ *                  ↘            ↘
+ *                   FAILED ←─────
+ */
+public enum AsrEngineState {
+    REGISTERED,
+    INSTALLING,
+    LOADING,
+    READY,
+    FAILED
+}
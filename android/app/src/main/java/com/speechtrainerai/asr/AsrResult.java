@@ -0,0 +1,117 @@
+package com.speechtrainerai.asr;
+
+/**
+ * Результат распознавания, уже разобранный в native слое.
+ *
+ * Слова приходят из JNI как два плоских массива:
+ * words[i] и wordTimings[i*3 .. i*3+2] = start, end, conf (секунды / 0..1).
+ */
+public final class AsrResult {
+
+    /** Какой распознаватель выдал результат (их может работать несколько) */
+    public final String engineId;
+
+    public final boolean isFinal;
+    public final int utteranceId;
+
+    /** Позиция в аудиопотоке декодера (фреймы 16 kHz) */
+    public final long startFrame;
+    public final long endFrame;
+
+    /**
+     * System.nanoTime() захвата самого свежего аудио в результате
+     * (0 — неизвестно) и момент, когда результат пришёл в Java.
+     */
+    public final long capturedAtNanos;
+    public final long receivedAtNanos;
+
+    public final String text;
+    public final String[] words;
+    public final float[] wordTimings;
+
+    /**
+     * N-best (только final, если включено): сколько гипотез выдал Vosk,
+     * какая выбрана (0 — лучшая по декодеру, -1 — n-best выключен),
+     * доля слов ожидаемой фразы в выбранной (-1 — фраза не задана) и
+     * текст лучшей по декодеру, если выбрана другая.
+     */
+    public final int alternatives;
+    public final int chosenAlternative;
+    public final float matchScore;
+    public final String topText;
+
+    public AsrResult(String engineId,
+                     boolean isFinal,
+                     int utteranceId,
+                     long startFrame,
+                     long endFrame,
+                     long capturedAtNanos,
+                     String text,
+                     String[] words,
+                     float[] wordTimings) {
+        this(engineId, isFinal, utteranceId, startFrame, endFrame, capturedAtNanos,
+                text, words, wordTimings, 0, -1, -1f, null);
+    }
+
+    public AsrResult(String engineId,
+                     boolean isFinal,
+                     int utteranceId,
+                     long startFrame,
+                     long endFrame,
+                     long capturedAtNanos,
+                     String text,
+                     String[] words,
+                     float[] wordTimings,
+                     int alternatives,
+                     int chosenAlternative,
+                     float matchScore,
+                     String topText) {
+        this.engineId = engineId;
+        this.isFinal = isFinal;
+        this.utteranceId = utteranceId;
+        this.startFrame = startFrame;
+        this.endFrame = endFrame;
+        this.capturedAtNanos = capturedAtNanos;
+        this.receivedAtNanos = System.nanoTime();
+        this.text = text;
+        this.words = words;
+        this.wordTimings = wordTimings;
+        this.alternatives = alternatives;
+        this.chosenAlternative = chosenAlternative;
+        this.matchScore = matchScore;
+        this.topText = topText;
+    }
+
+    /** Выбрана не лучшая по декодеру гипотеза (ближе к ожидаемой фразе) */
+    public boolean isRescued() {
+        return chosenAlternative > 0;
+    }
+
+    public int getWordCount() {
+        return words != null ? words.length : 0;
+    }
+
+    public float getWordStart(int i) {
+        return wordTimings[i * 3];
+    }
+
+    public float getWordEnd(int i) {
+        return wordTimings[i * 3 + 1];
+    }
+
+    public float getWordConf(int i) {
+        return wordTimings[i * 3 + 2];
+    }
+
+    /** Средняя уверенность по словам (0 — слов нет, например partial) */
+    public float getMeanConf() {
+        int n = getWordCount();
+        if (n == 0) return 0f;
+
+        float sum = 0f;
+        for (int i = 0; i < n; i++) {
+            sum += getWordConf(i);
+        }
+        return sum / n;
+    }
+}
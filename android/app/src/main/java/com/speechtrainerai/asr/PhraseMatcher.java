@@ -0,0 +1,353 @@
+package com.speechtrainerai.asr;
+
+import com.speechtrainerai.metrics.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Сопоставление распознанного текста с ожидаемой фразой — пословно,
+ * по мере прихода partial / final (раньше это делал SpeechCompare в JS
+ * на каждый partial).
+ *
+ * load() один раз на фразу: эталон и варианты нормализуются заранее.
+ * onResult() на каждый результат: текст нормализуется один раз, дальше
+ * только сравнение токенов. Наружу уходят лишь события
+ * "слово N совпало" / "фраза завершена".
+ *
+ * Правила те же, что были в SpeechCompare:
+ *  - ищем текущее слово эталона среди слов результата, от найденного
+ *    места совпадают подряд идущие слова
+ *  - не нашли / сбились — проверяем варианты текущего слова: вариант
+ *    (одно или несколько слов) ищется целыми словами после уже засчитанных,
+ *    как в NBestScorer
+ * Отличие: в пределах одной реплики (engineId + utteranceId) уже
+ * засчитанные слова повторно не просматриваются, так что растущий
+ * partial не засчитывает одно и то же слово дважды.
+ */
+public final class PhraseMatcher {
+
+    public interface Listener {
+        /** @param byVariant засчитано по варианту (иначе точное совпадение) */
+        void onWordMatched(int matchId, int index, String word, boolean byVariant, AsrResult source);
+
+        void onPhraseComplete(int matchId, int words, long durationMs);
+    }
+
+    private final Listener listener;
+
+    // ============================================================
+    // Phrase state (guarded by this)
+    // ============================================================
+
+    private int matchId = 0;
+    private String[] words = new String[0];
+    private String[][] variants = new String[0][];   // per word, normalized
+    private String[][][] variantTokens = new String[0][][];   // variants split into words
+    private int index = 0;
+    private long loadedAtNanos = 0;
+
+    // current utterance: tokens before consumed are already matched
+    private String utteranceEngine = null;
+    private int utteranceId = -1;
+    private int consumed = 0;
+
+    private final ArrayList<String> tokens = new ArrayList<>();
+    private final StringBuilder norm = new StringBuilder();
+
+    // ============================================================
+    // Stats
+    // ============================================================
+
+    private long results = 0;
+    private long wordsMatched = 0;
+    private long variantMatches = 0;
+    private long phrasesCompleted = 0;
+
+    // результат пришёл в Java → событие совпадения отправлено
+    private final LatencyHistogram matchLatency = new LatencyHistogram();
+
+    public PhraseMatcher(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @param id id фразы от вызывающего (приходит в каждом событии; не 0)
+     * @param expected ожидаемая фраза
+     * @param wordVariants слово эталона → допустимые варианты (может быть null)
+     */
+    public synchronized void load(int id, String expected, Map<String, List<String>> wordVariants) {
+
+        matchId = id;
+        words = tokenize(normalize(expected, new StringBuilder()));
+        index = 0;
+        loadedAtNanos = System.nanoTime();
+        resetUtterance();
+
+        setVariants(wordVariants);
+    }
+
+    /** Варианты поменялись посреди фразы: прогресс сохраняется. */
+    public synchronized void setVariants(Map<String, List<String>> wordVariants) {
+
+        variants = new String[words.length][];
+        variantTokens = new String[words.length][][];
+
+        for (int i = 0; i < words.length; i++) {
+            List<String> list = findVariants(wordVariants, words[i]);
+            ArrayList<String> out = new ArrayList<>(list.size());
+
+            for (String v : list) {
+                String n = normalize(v, new StringBuilder()).toString();
+                if (!n.isEmpty()) out.add(n);
+            }
+
+            variants[i] = out.toArray(new String[0]);
+
+            variantTokens[i] = new String[variants[i].length][];
+            for (int k = 0; k < variants[i].length; k++) {
+                variantTokens[i][k] = tokenize(variants[i][k]);
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        matchId = 0;   // ids come from JS and are never 0
+        words = new String[0];
+        variants = new String[0][];
+        variantTokens = new String[0][][];
+        index = 0;
+        resetUtterance();
+    }
+
+    public synchronized String[] getWords() {
+        return words.clone();
+    }
+
+    /** Нормализованные варианты по словам (параллельно getWords()) */
+    public synchronized String[][] getVariants() {
+        String[][] out = new String[variants.length][];
+        for (int i = 0; i < variants.length; i++) {
+            out[i] = variants[i].clone();
+        }
+        return out;
+    }
+
+    public synchronized int getMatchId() {
+        return matchId;
+    }
+
+    public synchronized int getCurrentIndex() {
+        return index;
+    }
+
+    /**
+     * Поток результатов (до coalescing / rate limit в ResultDispatcher).
+     */
+    public synchronized void onResult(AsrResult r) {
+
+        if (index >= words.length || r.text == null) return;
+
+        results++;
+
+        if (!r.engineId.equals(utteranceEngine) || r.utteranceId != utteranceId) {
+            utteranceEngine = r.engineId;
+            utteranceId = r.utteranceId;
+            consumed = 0;
+        }
+
+        normalize(r.text, norm.delete(0, norm.length()));
+        split(norm, tokens);
+
+        int from = Math.min(consumed, tokens.size());
+        int found = indexOf(tokens, words[index], from);
+
+        if (found < 0) {
+            matchVariant(r, from);
+        } else {
+            int i = found;
+
+            while (i < tokens.size() && index < words.length) {
+
+                if (tokens.get(i).equals(words[index])) {
+                    match(r, false);
+                    consumed = ++i;
+                    continue;
+                }
+
+                matchVariant(r, i);
+                break;
+            }
+        }
+
+        if (r.isFinal) resetUtterance();
+    }
+
+    /**
+     * Засчитать текущее слово вручную (кнопка "подсказка").
+     * @return false — фраза уже завершена
+     */
+    public synchronized boolean skipWord() {
+        if (index >= words.length) return false;
+        match(null, false);
+        return true;
+    }
+
+    // ============================================================
+    // Stats
+    // ============================================================
+
+    /** [results, wordsMatched, variantMatches, phrasesCompleted] */
+    public synchronized long[] getStats() {
+        return new long[] { results, wordsMatched, variantMatches, phrasesCompleted };
+    }
+
+    public LatencyHistogram getMatchLatency() {
+        return matchLatency;
+    }
+
+    public synchronized void resetStats() {
+        results = 0;
+        wordsMatched = 0;
+        variantMatches = 0;
+        phrasesCompleted = 0;
+        matchLatency.reset();
+    }
+
+    // ============================================================
+    // Internals
+    // ============================================================
+
+    private void match(AsrResult source, boolean byVariant) {
+
+        int i = index++;
+        wordsMatched++;
+        if (byVariant) variantMatches++;
+
+        listener.onWordMatched(matchId, i, words[i], byVariant, source);
+
+        if (source != null) {
+            matchLatency.recordSince(source.receivedAtNanos, System.nanoTime());
+        }
+
+        if (index == words.length) {
+            phrasesCompleted++;
+            listener.onPhraseComplete(matchId, words.length,
+                    (System.nanoTime() - loadedAtNanos) / 1_000_000L);
+        }
+    }
+
+    /** Вариант текущего слова целыми словами от from: засчитать и сдвинуть consumed за него. */
+    private void matchVariant(AsrResult source, int from) {
+
+        if (index >= variantTokens.length) return;
+
+        for (String[] v : variantTokens[index]) {
+            int found = indexOf(tokens, v, from);
+            if (found >= 0) {
+                consumed = found + v.length;
+                match(source, true);
+                return;
+            }
+        }
+    }
+
+    private void resetUtterance() {
+        utteranceEngine = null;
+        utteranceId = -1;
+        consumed = 0;
+    }
+
+    private static List<String> findVariants(Map<String, List<String>> all, String word) {
+
+        if (all == null) return Collections.emptyList();
+
+        for (Map.Entry<String, List<String>> e : all.entrySet()) {
+            if (normalize(e.getKey(), new StringBuilder()).toString().equals(word)) {
+                return e.getValue();
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    private static int indexOf(List<String> list, String word, int from) {
+        for (int i = from; i < list.size(); i++) {
+            if (list.get(i).equals(word)) return i;
+        }
+        return -1;
+    }
+
+    /** Первое вхождение подряд идущих слов run в list от from. */
+    private static int indexOf(List<String> list, String[] run, int from) {
+
+        if (run.length == 0) return -1;
+
+        for (int i = from; i + run.length <= list.size(); i++) {
+            if (startsAt(list, run, i)) return i;
+        }
+        return -1;
+    }
+
+    private static boolean startsAt(List<String> list, String[] run, int at) {
+        for (int k = 0; k < run.length; k++) {
+            if (!list.get(at + k).equals(run[k])) return false;
+        }
+        return true;
+    }
+
+    private static String[] tokenize(CharSequence normalized) {
+        ArrayList<String> out = new ArrayList<>();
+        split(normalized, out);
+        return out.toArray(new String[0]);
+    }
+
+    /** normalized: lowercase, single spaces, no leading / trailing space */
+    private static void split(CharSequence normalized, List<String> out) {
+
+        out.clear();
+
+        int start = 0;
+        for (int i = 0; i <= normalized.length(); i++) {
+            if (i == normalized.length() || normalized.charAt(i) == ' ') {
+                if (i > start) out.add(normalized.subSequence(start, i).toString());
+                start = i + 1;
+            }
+        }
+    }
+
+    /**
+     * Как normalizeText() в JS: нижний регистр, всё кроме букв и цифр →
+     * пробел, пробелы схлопнуты, по краям обрезаны.
+     */
+    static StringBuilder normalize(String input, StringBuilder out) {
+
+        if (input == null) return out;
+
+        boolean pendingSpace = false;
+
+        for (int i = 0; i < input.length(); ) {
+            int cp = input.codePointAt(i);
+            i += Character.charCount(cp);
+
+            if (isLetterOrNumber(cp)) {
+                if (pendingSpace && out.length() > 0) out.append(' ');
+                pendingSpace = false;
+                out.appendCodePoint(Character.toLowerCase(cp));
+            } else {
+                pendingSpace = true;
+            }
+        }
+
+        return out;
+    }
+
+    private static boolean isLetterOrNumber(int cp) {
+
+        if (Character.isLetterOrDigit(cp)) return true;
+
+        int type = Character.getType(cp);
+        return type == Character.LETTER_NUMBER || type == Character.OTHER_NUMBER;
+    }
+}
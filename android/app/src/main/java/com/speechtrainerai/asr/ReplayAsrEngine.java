@@ -0,0 +1,356 @@
+package com.speechtrainerai.asr;
+
+import android.util.Log;
+
+import com.speechtrainerai.audio.PcmFileReader;
+import com.speechtrainerai.rn_java_connector.RnJavaConnectorModule;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * "Движок" для воспроизведения записанного аудио (WAV / raw PCM) через
+ * тот же путь nativePushAudio → SpeechEngine, что и микрофон.
+ *
+ * Нужен для детерминированных тестов и замеров скорости на корпусе
+ * записанных ответов:
+ *  - REALTIME   — подача в темпе реального времени (как микрофон);
+ *    время уходит на паузы подачи, поэтому только задержка финала
+ *  - THROUGHPUT — без пауз, сколько успевает декодер (RTF)
+ *
+ * Каждый файл = отдельная сессия распознавания: start → push → дождаться
+ * пустого буфера → stop (final). VAD не применяется.
+ *
+ * Микрофон движку не нужен → needsExternalAudio() = false
+ */
+public class ReplayAsrEngine implements AsrEngine {
+
+    private static final String TAG = "ReplayAsrEngine";
+
+    public enum Mode { REALTIME, THROUGHPUT }
+
+    public interface Listener {
+        /** Поток воспроизведения */
+        void onReplayFinished(Report report);
+    }
+
+    /** Результат по одному файлу */
+    public static final class FileResult {
+        public final String name;
+        public long audioMs;
+        public long decodeMs;     // THROUGHPUT only: in REALTIME it is just the audio length
+        public long tailMs;       // last push → final flushed by stop
+        public String error;
+        public final List<String> utterances = new ArrayList<>();
+
+        FileResult(String name) {
+            this.name = name;
+        }
+
+        public double getRtf() {
+            return audioMs > 0 ? (double) decodeMs / audioMs : 0;
+        }
+
+        public String getText() {
+            StringBuilder sb = new StringBuilder();
+            for (String u : utterances) {
+                if (sb.length() > 0) sb.append(' ');
+                sb.append(u);
+            }
+            return sb.toString();
+        }
+    }
+
+    /** Итог прогона корпуса */
+    public static final class Report {
+        public final Mode mode;
+        public final List<FileResult> files = new ArrayList<>();
+        public long audioMs;
+        public long decodeMs;
+        public long maxTailMs;
+        public long wallMs;
+        public boolean cancelled;
+
+        Report(Mode mode) {
+            this.mode = mode;
+        }
+
+        public boolean hasRtf() {
+            return mode == Mode.THROUGHPUT;
+        }
+
+        /** decode time / audio time (< 1 → быстрее реального времени); только THROUGHPUT */
+        public double getRtf() {
+            return audioMs > 0 ? (double) decodeMs / audioMs : 0;
+        }
+    }
+
+    private static final int SAMPLE_RATE = 16000;
+    private static final int CHUNK_FRAMES = 1600;   // 100 ms
+
+    private final String id;
+    private final String modelAssetFolder;
+
+    private volatile String sourcePath;
+    private volatile Mode mode = Mode.THROUGHPUT;
+    private volatile Listener listener;
+
+    private Thread thread;
+    private volatile boolean cancelled = false;
+
+    private volatile Report lastReport;
+    private volatile FileResult current;
+
+    public ReplayAsrEngine(String id, String modelAssetFolder) {
+        this.id = id;
+        this.modelAssetFolder = modelAssetFolder;
+    }
+
+    /**
+     * @param path WAV / .pcm / .raw файл или папка с такими файлами
+     */
+    public void configure(String path, Mode mode) {
+        this.sourcePath = path;
+        this.mode = mode;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public Report getLastReport() {
+        return lastReport;
+    }
+
+    public boolean isReplaying() {
+        Thread t = thread;
+        return t != null && t.isAlive();
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public String getModelAssetFolder() {
+        return modelAssetFolder;
+    }
+
+    @Override
+    public boolean needsExternalAudio() {
+        return false;
+    }
+
+    @Override
+    public boolean init() {
+        Log.i(TAG, "init()");
+        return RnJavaConnectorModule.nativeInit();
+    }
+
+    @Override
+    public boolean loadModel(String path) {
+        Log.i(TAG, "loadModel(): " + path);
+        return RnJavaConnectorModule.nativeLoadModel(path);
+    }
+
+    @Override
+    public boolean prewarmModel(String path) {
+        return RnJavaConnectorModule.nativePrewarmModel(path);
+    }
+
+    @Override
+    public synchronized boolean startRecognition() {
+
+        if (isReplaying()) return true;
+
+        List<File> files = listSources(sourcePath);
+
+        if (files.isEmpty()) {
+            Log.e(TAG, "Nothing to replay: " + sourcePath);
+            return false;
+        }
+
+        cancelled = false;
+
+        Mode m = mode;
+        thread = new Thread(() -> replay(files, m), "AsrReplay");
+        thread.start();
+
+        Log.i(TAG, "Replaying " + files.size() + " file(s), mode=" + m);
+        return true;
+    }
+
+    @Override
+    public synchronized void stopRecognition() {
+
+        cancelled = true;
+
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (InterruptedException ignored) {}
+            thread = null;
+        }
+
+        RnJavaConnectorModule.nativeStopRecognition();
+    }
+
+    @Override
+    public void shutdown() {
+        Log.i(TAG, "shutdown()");
+        stopRecognition();
+        RnJavaConnectorModule.nativeShutdown();
+    }
+
+    /**
+     * Финалы распознавания (тот же поток, что и onNativeResult).
+     */
+    public void onResult(AsrResult r) {
+        FileResult f = current;
+        if (f == null || !r.isFinal) return;
+
+        synchronized (f.utterances) {
+            f.utterances.add(r.text);
+        }
+    }
+
+    // ============================================================
+    // Replay
+    // ============================================================
+
+    private void replay(List<File> files, Mode m) {
+
+        Report report = new Report(m);
+        long wallStart = System.nanoTime();
+
+        for (File file : files) {
+
+            if (cancelled) break;
+
+            FileResult f = new FileResult(file.getName());
+            report.files.add(f);
+
+            try {
+                replayFile(file, m, f);
+            } catch (Exception ex) {
+                f.error = ex.toString();
+                Log.e(TAG, "Replay failed: " + file, ex);
+            }
+
+            report.audioMs += f.audioMs;
+            report.decodeMs += f.decodeMs;
+            report.maxTailMs = Math.max(report.maxTailMs, f.tailMs);
+
+            Log.i(TAG, f.name + ": " + f.audioMs + " ms audio, "
+                    + (report.hasRtf()
+                        ? "decode " + f.decodeMs + " ms, RTF " + String.format("%.3f", f.getRtf()) + ", "
+                        : "")
+                    + "final +" + f.tailMs + " ms → \"" + f.getText() + "\"");
+        }
+
+        report.wallMs = (System.nanoTime() - wallStart) / 1_000_000;
+        report.cancelled = cancelled;
+        lastReport = report;
+
+        Log.i(TAG, "Replay done: " + report.files.size() + " file(s), "
+                + (report.hasRtf() ? "RTF " + String.format("%.3f", report.getRtf()) + ", " : "")
+                + "max final +" + report.maxTailMs + " ms, wall " + report.wallMs + " ms");
+
+        Listener l = listener;
+        if (l != null) l.onReplayFinished(report);
+    }
+
+    private void replayFile(File file, Mode m, FileResult f) throws Exception {
+
+        try (PcmFileReader reader = PcmFileReader.open(file, SAMPLE_RATE)) {
+
+            if (reader.getSampleRate() != SAMPLE_RATE
+                    || reader.getChannels() != 1
+                    || reader.getBitsPerSample() != 16) {
+                throw new IllegalArgumentException("Need 16 kHz mono 16-bit, got "
+                        + reader.getSampleRate() + " Hz, " + reader.getChannels()
+                        + " ch, " + reader.getBitsPerSample() + " bit");
+            }
+
+            current = f;
+
+            if (!RnJavaConnectorModule.nativeStartRecognition()) {
+                throw new IllegalStateException("nativeStartRecognition failed");
+            }
+
+            short[] chunk = new short[CHUNK_FRAMES];
+            long pushed = 0;
+            long t0 = System.nanoTime();
+            long lastPush = t0;
+
+            // a read error must not leave the session recognizing
+            try {
+                long capacity = RnJavaConnectorModule.nativeGetAudioBufferStats()[0];
+
+                int n;
+                while (!cancelled && (n = reader.read(chunk, CHUNK_FRAMES)) > 0) {
+
+                    if (m == Mode.REALTIME) {
+                        // pace by audio clock: chunk k goes out at t0 + k * 100 ms
+                        long dueNs = t0 + pushed * 1_000_000_000L / SAMPLE_RATE;
+                        long sleepMs = (dueNs - System.nanoTime()) / 1_000_000;
+                        if (sleepMs > 0) Thread.sleep(sleepMs);
+                    } else {
+                        // never outrun the decoder: overflow would drop audio
+                        while (!cancelled && bufferFill() > capacity - n) {
+                            Thread.sleep(1);
+                        }
+                    }
+
+                    RnJavaConnectorModule.nativePushAudio(chunk, n, System.nanoTime());
+                    pushed += n;
+                    lastPush = System.nanoTime();
+                }
+
+                // let the decoder catch up, then flush the final result
+                while (!cancelled && bufferFill() > 0) {
+                    Thread.sleep(2);
+                }
+            } finally {
+                RnJavaConnectorModule.nativeStopRecognition();
+            }
+
+            long end = System.nanoTime();
+
+            // REALTIME: t0 → end is the pacing, not decode work
+            if (m == Mode.THROUGHPUT) f.decodeMs = (end - t0) / 1_000_000;
+            f.tailMs = (end - lastPush) / 1_000_000;
+            f.audioMs = pushed * 1000 / SAMPLE_RATE;
+
+        } finally {
+            current = null;
+        }
+    }
+
+    private static long bufferFill() {
+        return RnJavaConnectorModule.nativeGetAudioBufferStats()[1];
+    }
+
+    private static List<File> listSources(String path) {
+
+        if (path == null) return Collections.emptyList();
+
+        File src = new File(path);
+
+        if (src.isFile()) return Collections.singletonList(src);
+
+        File[] all = src.listFiles((dir, name) -> {
+            String n = name.toLowerCase();
+            return n.endsWith(".wav") || n.endsWith(".pcm") || n.endsWith(".raw");
+        });
+
+        if (all == null) return Collections.emptyList();
+
+        Arrays.sort(all);
+        return Arrays.asList(all);
+    }
+}
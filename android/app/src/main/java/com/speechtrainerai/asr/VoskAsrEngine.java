@@ -11,9 +11,11 @@ import com.speechtrainerai.rn_java_connector.RnJavaConnectorModule;
 public class VoskAsrEngine implements AsrEngine {
 
     private final String id;
+    private final String modelAssetFolder;
 
-    public VoskAsrEngine(String id) {
+    public VoskAsrEngine(String id, String modelAssetFolder) {
         this.id = id;
+        this.modelAssetFolder = modelAssetFolder;
     }
 
     @Override
@@ -21,6 +23,11 @@ public class VoskAsrEngine implements AsrEngine {
         return id;
     }
 
+    @Override
+    public String getModelAssetFolder() {
+        return modelAssetFolder;
+    }
+
     @Override
     public boolean needsExternalAudio() {
         return true;
@@ -38,6 +45,12 @@ public class VoskAsrEngine implements AsrEngine {
         return RnJavaConnectorModule.nativeLoadModel(path);
     }
 
+    @Override
+    public boolean prewarmModel(String path) {
+        Log.i("VoskAsrEngine", "prewarmModel(): " + path);
+        return RnJavaConnectorModule.nativePrewarmModel(path);
+    }
+
     @Override
     public boolean startRecognition() {
         Log.i("VoskAsrEngine", "startRecognition()");
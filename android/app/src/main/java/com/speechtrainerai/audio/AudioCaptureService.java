@@ -0,0 +1,463 @@
+package com.speechtrainerai.audio;
+
+import android.media.AudioFormat;
+import android.media.AudioRecord;
+import android.media.MediaRecorder;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.speechtrainerai.metrics.PipelineMetrics;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+
+/**
+ * Постоянный захват микрофона на время сессии.
+ *
+ * AudioRecord + поток чтения живут, пока сессия не остановлена (stop()).
+ * Движки — сменные потребители (Sink): при переключении движка или
+ * reset распознавателя sink только отсоединяется (detach) и
+ * присоединяется заново (attach), AudioRecord не пересоздаётся.
+ *
+ * Пока sink отсоединён, аудио пишется в кольцевой pre-roll буфер;
+ * при attach() накопленное отдаётся новому sink ДО живого потока,
+ * так что речь во время переключения не теряется (в пределах preRollMs).
+ *
+ * Поток захвата берёт ссылку на sink под lock, а вызывает его уже без
+ * lock: долгий onAudio() не держит detach()/attach()/getStats() и не
+ * блокирует URGENT_AUDIO поток на чужом lock. detach() ждёт, пока
+ * начатый вызов закончится → после него старый sink больше
+ * гарантированно не получит ни одного буфера.
+ *
+ * Горячий путь без аллокаций и копий: AudioRecord читает в один и тот же
+ * direct ByteBuffer (native order), который sink отдаёт прямо в native
+ * (GetDirectBufferAddress). Поток захвата — THREAD_PRIORITY_URGENT_AUDIO,
+ * размеры буферов — от getMinBufferSize(). Переполнения AudioRecord
+ * (поток не успел забрать аудио) считаются в getStats().
+ */
+public class AudioCaptureService {
+
+    public interface Sink {
+        /**
+         * Поток захвата (или поток attach() для pre-roll).
+         *
+         * @param pcm             direct, native order, 16-bit mono с позиции 0;
+         *                        переиспользуется — валиден только внутри вызова
+         * @param capturedAtNanos System.nanoTime() сразу после AudioRecord.read
+         *                        (для pre-roll — время самого свежего кадра)
+         */
+        void onAudio(ByteBuffer pcm, int frames, long capturedAtNanos);
+    }
+
+    private static final String TAG = "AudioCapture";
+
+    // внутренний буфер AudioRecord: запас на задержки планировщика
+    private static final int RECORD_BUFFER_FACTOR = 4;
+    private static final int MIN_RECORD_BUFFER_MS = 200;
+
+    // одно чтение: от 20 мс (не чаще) до 250 мс (не дольше)
+    private static final int MIN_READ_MS = 20;
+    private static final int MAX_READ_MS = 250;
+
+    private final int sampleRate;
+    private final Object lock = new Object();
+
+    // ============================================================
+    // AudioRecord
+    // ============================================================
+
+    private AudioRecord audioRecord;
+    private Thread thread;
+    private volatile boolean running = false;
+
+    private ByteBuffer pcm;            // direct, читается в него (поток захвата)
+    private int readFrames;
+    private int recordBufferFrames;
+
+    // ============================================================
+    // Sink + pre-roll (guarded by lock)
+    // ============================================================
+
+    private Sink sink;
+    private Sink delivering;           // sink, чей onAudio() идёт сейчас (поток захвата)
+
+    private final short[] preRoll;
+    private final ByteBuffer preRollOut;   // direct, для replayPreRoll()
+    private int preRollPos = 0;
+    private int preRollFill = 0;
+    private long preRollCapturedAt = 0;
+
+    private boolean detached = false;
+    private long detachedAtMs = 0;
+    private long framesWhileDetached = 0;
+
+    // ============================================================
+    // Counters
+    // ============================================================
+
+    private long recorderStarts = 0;
+    private long switches = 0;
+    private long lastSwitchMs = 0;
+    private long lastReplayedFrames = 0;
+    private long lastLostFrames = 0;
+    private long totalReplayedFrames = 0;
+    private long totalLostFrames = 0;
+
+    // AudioRecord overruns (оценка по паузам между read())
+    private long overruns = 0;
+    private long overrunFrames = 0;
+
+    public AudioCaptureService(int sampleRate, int preRollMs) {
+        this.sampleRate = sampleRate;
+        this.preRoll = new short[Math.max(1, sampleRate * preRollMs / 1000)];
+        this.preRollOut = ByteBuffer.allocateDirect(preRoll.length * 2)
+                .order(ByteOrder.nativeOrder());
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public boolean isAttached() {
+        synchronized (lock) {
+            return sink != null;
+        }
+    }
+
+    // ============================================================
+    // Session lifecycle
+    // ============================================================
+
+    /**
+     * Создаёт AudioRecord и поток захвата (если ещё не запущены).
+     * Разрешение RECORD_AUDIO проверяет вызывающий код.
+     */
+    public synchronized void start() {
+
+        if (running) return;
+
+        int minBufferSize = AudioRecord.getMinBufferSize(
+                sampleRate,
+                AudioFormat.CHANNEL_IN_MONO,
+                AudioFormat.ENCODING_PCM_16BIT
+        );
+
+        if (minBufferSize <= 0) {
+            throw new IllegalStateException("Invalid buffer size");
+        }
+
+        // read one min buffer at a time, keep several of them queued in AudioRecord
+        int minFrames = minBufferSize / 2;
+        readFrames = clamp(minFrames, msToFrames(MIN_READ_MS), msToFrames(MAX_READ_MS));
+        recordBufferFrames = Math.max(
+                Math.max(minFrames, readFrames) * RECORD_BUFFER_FACTOR,
+                msToFrames(MIN_RECORD_BUFFER_MS));
+
+        AudioRecord record = new AudioRecord(
+                MediaRecorder.AudioSource.MIC,
+                sampleRate,
+                AudioFormat.CHANNEL_IN_MONO,
+                AudioFormat.ENCODING_PCM_16BIT,
+                recordBufferFrames * 2
+        );
+
+        if (record.getState() != AudioRecord.STATE_INITIALIZED) {
+            record.release();
+            throw new IllegalStateException("AudioRecord not initialized");
+        }
+
+        synchronized (lock) {
+            clearPreRoll();
+            detached = false;
+        }
+
+        if (pcm == null || pcm.capacity() < readFrames * 2) {
+            pcm = ByteBuffer.allocateDirect(readFrames * 2).order(ByteOrder.nativeOrder());
+        }
+
+        audioRecord = record;
+        running = true;
+        audioRecord.startRecording();
+
+        synchronized (lock) {
+            recorderStarts++;
+        }
+
+        thread = new Thread(this::captureLoop, "AudioRecordThread");
+        thread.start();
+
+        Log.i(TAG, "Capture started, minBufferSize=" + minBufferSize
+                + " B, read " + readFrames + " frames, AudioRecord buffer "
+                + recordBufferFrames + " frames (" + framesToMs(recordBufferFrames) + " ms)");
+    }
+
+    /**
+     * Конец сессии: останавливает поток и освобождает AudioRecord.
+     */
+    public synchronized void stop() {
+
+        running = false;
+
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (InterruptedException ignored) {}
+            thread = null;
+        }
+
+        if (audioRecord != null) {
+            try {
+                audioRecord.stop();
+            } catch (Exception ignored) {}
+            audioRecord.release();
+            audioRecord = null;
+        }
+
+        synchronized (lock) {
+            sink = null;
+            detached = false;
+            clearPreRoll();
+        }
+    }
+
+    // ============================================================
+    // Hot-swap
+    // ============================================================
+
+    /**
+     * Отсоединяет текущий sink; аудио дальше копится в pre-roll.
+     * Когда метод вернулся, старый sink уже не вызывается.
+     */
+    public void detach() {
+        synchronized (lock) {
+            sink = null;
+            awaitDelivery();
+
+            if (!running || detached) return;
+
+            detached = true;
+            detachedAtMs = SystemClock.elapsedRealtime();
+            framesWhileDetached = 0;
+            clearPreRoll();
+        }
+    }
+
+    /**
+     * Подключает sink. Если перед этим был detach() — сначала отдаёт
+     * аудио, накопленное за время переключения, и считает разрыв.
+     */
+    public void attach(Sink next) {
+        synchronized (lock) {
+
+            if (detached) {
+                long replayed = preRollFill;
+                long lost = framesWhileDetached - replayed;
+
+                replayPreRoll(next);
+
+                switches++;
+                lastSwitchMs = SystemClock.elapsedRealtime() - detachedAtMs;
+                lastReplayedFrames = replayed;
+                lastLostFrames = lost;
+                totalReplayedFrames += replayed;
+                totalLostFrames += lost;
+                detached = false;
+
+                Log.i(TAG, "Sink swapped in " + lastSwitchMs + " ms, replayed "
+                        + replayed + " frames, lost " + lost + " frames ("
+                        + framesToMs(lost) + " ms)");
+            }
+
+            awaitDelivery();
+            sink = next;
+        }
+    }
+
+    /**
+     * Под lock: ждёт конца вызова sink, начатого потоком захвата.
+     * Из самого sink (поток захвата) не ждёт — иначе deadlock.
+     */
+    private void awaitDelivery() {
+        if (Thread.currentThread() == thread) return;
+
+        while (delivering != null) {
+            try {
+                lock.wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // ============================================================
+    // Stats
+    // ============================================================
+
+    /**
+     * [recorderStarts, switches, lastSwitchMs, lastReplayedFrames,
+     *  lastLostFrames, totalReplayedFrames, totalLostFrames, preRollFrames,
+     *  overruns, overrunFrames, readFrames, recordBufferFrames]
+     */
+    public long[] getStats() {
+        synchronized (lock) {
+            return new long[]{
+                    recorderStarts,
+                    switches,
+                    lastSwitchMs,
+                    lastReplayedFrames,
+                    lastLostFrames,
+                    totalReplayedFrames,
+                    totalLostFrames,
+                    preRoll.length,
+                    overruns,
+                    overrunFrames,
+                    readFrames,
+                    recordBufferFrames
+            };
+        }
+    }
+
+    public void resetStats() {
+        synchronized (lock) {
+            recorderStarts = 0;
+            switches = 0;
+            lastSwitchMs = 0;
+            lastReplayedFrames = 0;
+            lastLostFrames = 0;
+            totalReplayedFrames = 0;
+            totalLostFrames = 0;
+            overruns = 0;
+            overrunFrames = 0;
+        }
+    }
+
+    public long framesToMs(long frames) {
+        return frames * 1000 / sampleRate;
+    }
+
+    private int msToFrames(int ms) {
+        return sampleRate * ms / 1000;
+    }
+
+    private static int clamp(int v, int min, int max) {
+        return Math.max(min, Math.min(max, v));
+    }
+
+    // ============================================================
+    // Internals
+    // ============================================================
+
+    private void captureLoop() {
+
+        // UI / GC must not delay reads (AudioRecord overruns otherwise)
+        Process.setThreadPriority(Process.THREAD_PRIORITY_URGENT_AUDIO);
+
+        ByteBuffer buffer = pcm;
+        int readBytes = readFrames * 2;
+        long recordBufferNs = recordBufferFrames * 1_000_000_000L / sampleRate;
+
+        PipelineMetrics metrics = PipelineMetrics.getInstance();
+        long lastReadAt = 0;
+
+        while (running) {
+
+            long t0 = System.nanoTime();
+            int bytes = audioRecord.read(buffer, readBytes, AudioRecord.READ_BLOCKING);
+            long capturedAt = System.nanoTime();
+
+            if (bytes <= 0) continue;
+
+            int read = bytes / 2;
+
+            // longer than the whole AudioRecord buffer since the previous
+            // read → its ring wrapped and the oldest audio is gone
+            if (lastReadAt != 0 && capturedAt - lastReadAt > recordBufferNs) {
+                countOverrun((capturedAt - lastReadAt - recordBufferNs) * sampleRate / 1_000_000_000L);
+            }
+            lastReadAt = capturedAt;
+
+            metrics.stage(PipelineMetrics.Stage.READ).recordSince(t0, capturedAt);
+            metrics.framesCaptured.addAndGet(read);
+
+            deliver(buffer, read, capturedAt);
+        }
+    }
+
+    private void countOverrun(long lostFrames) {
+        synchronized (lock) {
+            overruns++;
+            overrunFrames += lostFrames;
+        }
+    }
+
+    /**
+     * Один буфер от AudioRecord → sink или pre-roll.
+     * Package-private: JMH бенчмарки гоняют его без потока захвата.
+     */
+    void deliver(ByteBuffer buffer, int read, long capturedAtNanos) {
+        Sink target;
+
+        synchronized (lock) {
+            target = sink;
+
+            if (target == null) {
+                if (detached) {
+                    framesWhileDetached += read;
+                    writePreRoll(buffer, read);
+                    preRollCapturedAt = capturedAtNanos;
+                }
+                return;
+            }
+
+            delivering = target;
+        }
+
+        // без lock: см. описание класса
+        try {
+            target.onAudio(buffer, read, capturedAtNanos);
+        } finally {
+            synchronized (lock) {
+                delivering = null;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private void writePreRoll(ByteBuffer data, int frames) {
+
+        int cap = preRoll.length;
+
+        // only the newest cap frames matter
+        int skip = Math.max(0, frames - cap);
+        for (int i = skip; i < frames; i++) {
+            preRoll[preRollPos] = data.getShort(i * 2);
+            preRollPos = (preRollPos + 1) % cap;
+        }
+
+        preRollFill = Math.min(cap, preRollFill + frames);
+    }
+
+    private void replayPreRoll(Sink target) {
+
+        if (preRollFill == 0) return;
+
+        int cap = preRoll.length;
+        int start = (preRollPos - preRollFill + cap) % cap;
+
+        ShortBuffer out = preRollOut.asShortBuffer();
+        int first = Math.min(preRollFill, cap - start);
+        out.put(preRoll, start, first);
+        out.put(preRoll, 0, preRollFill - first);
+
+        target.onAudio(preRollOut, preRollFill, preRollCapturedAt);
+        clearPreRoll();
+    }
+
+    private void clearPreRoll() {
+        preRollPos = 0;
+        preRollFill = 0;
+    }
+}
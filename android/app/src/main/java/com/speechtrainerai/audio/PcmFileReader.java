@@ -0,0 +1,169 @@
+package com.speechtrainerai.audio;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Читает 16-bit PCM из WAV (RIFF, WAVE_FORMAT_PCM) или "сырого" файла
+ * (.pcm / .raw — считаем 16 kHz mono little-endian).
+ *
+ * Используется для воспроизведения записанных ответов через тот же
+ * путь nativePushAudio, что и микрофон.
+ */
+public final class PcmFileReader implements Closeable {
+
+    private final InputStream in;
+    private final int sampleRate;
+    private final int channels;
+    private final int bitsPerSample;
+    private final long totalFrames;
+
+    private byte[] bytes = new byte[0];
+
+    private PcmFileReader(InputStream in,
+                          int sampleRate,
+                          int channels,
+                          int bitsPerSample,
+                          long dataBytes) {
+        this.in = in;
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.bitsPerSample = bitsPerSample;
+        this.totalFrames = dataBytes / Math.max(1, channels * bitsPerSample / 8);
+    }
+
+    public static PcmFileReader open(File file, int defaultSampleRate) throws IOException {
+
+        InputStream in = new BufferedInputStream(new FileInputStream(file), 64 * 1024);
+
+        try {
+            String name = file.getName().toLowerCase();
+
+            if (!name.endsWith(".wav")) {
+                return new PcmFileReader(in, defaultSampleRate, 1, 16, file.length());
+            }
+
+            byte[] h = new byte[12];
+            readFully(in, h, 12);
+
+            if (!tag(h, 0, "RIFF") || !tag(h, 8, "WAVE")) {
+                throw new IOException("Not a RIFF/WAVE file: " + file.getName());
+            }
+
+            int format = 0, channels = 0, rate = 0, bits = 0;
+            byte[] ch = new byte[8];
+
+            // walk chunks until "data"; "fmt " must come first
+            while (true) {
+                readFully(in, ch, 8);
+                long size = le32(ch, 4) & 0xffffffffL;
+
+                if (tag(ch, 0, "fmt ")) {
+                    byte[] fmt = new byte[(int) size];
+                    readFully(in, fmt, fmt.length);
+                    format = le16(fmt, 0);
+                    channels = le16(fmt, 2);
+                    rate = le32(fmt, 4);
+                    bits = le16(fmt, 14);
+                    if ((size & 1) != 0) skip(in, 1);
+
+                } else if (tag(ch, 0, "data")) {
+                    if (format != 1) {
+                        throw new IOException("Unsupported WAV format " + format
+                                + " (only PCM): " + file.getName());
+                    }
+                    return new PcmFileReader(in, rate, channels, bits, size);
+
+                } else {
+                    skip(in, size + (size & 1));
+                }
+            }
+
+        } catch (IOException ex) {
+            in.close();
+            throw ex;
+        }
+    }
+
+    public int getSampleRate() { return sampleRate; }
+    public int getChannels() { return channels; }
+    public int getBitsPerSample() { return bitsPerSample; }
+    public long getTotalFrames() { return totalFrames; }
+
+    /**
+     * @return frames read, -1 at end of data
+     */
+    public int read(short[] out, int frames) throws IOException {
+
+        int need = frames * 2;
+        if (bytes.length < need) bytes = new byte[need];
+
+        int got = 0;
+        while (got < need) {
+            int n = in.read(bytes, got, need - got);
+            if (n < 0) break;
+            got += n;
+        }
+
+        int read = got / 2;
+        if (read == 0) return -1;
+
+        for (int i = 0; i < read; i++) {
+            out[i] = (short) ((bytes[i * 2] & 0xff) | (bytes[i * 2 + 1] << 8));
+        }
+
+        return read;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // ============================================================
+    // Little-endian helpers
+    // ============================================================
+
+    private static boolean tag(byte[] b, int off, String tag) {
+        for (int i = 0; i < 4; i++) {
+            if (b[off + i] != tag.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static int le16(byte[] b, int off) {
+        return (b[off] & 0xff) | ((b[off + 1] & 0xff) << 8);
+    }
+
+    private static int le32(byte[] b, int off) {
+        return (b[off] & 0xff)
+                | ((b[off + 1] & 0xff) << 8)
+                | ((b[off + 2] & 0xff) << 16)
+                | ((b[off + 3] & 0xff) << 24);
+    }
+
+    private static void readFully(InputStream in, byte[] b, int len) throws IOException {
+        int got = 0;
+        while (got < len) {
+            int n = in.read(b, got, len - got);
+            if (n < 0) throw new EOFException("Truncated WAV header");
+            got += n;
+        }
+    }
+
+    private static void skip(InputStream in, long n) throws IOException {
+        while (n > 0) {
+            long s = in.skip(n);
+            if (s <= 0) {
+                if (in.read() < 0) throw new EOFException("Truncated WAV");
+                s = 1;
+            }
+            n -= s;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.speechtrainerai.audio;
+
+/**
+ * Глушит распознавание, пока звучит наш собственный TTS.
+ *
+ * Микрофон слышит динамик: без гейта Vosk декодирует подсказку и шлёт
+ * ложные partial. Гейт закрывается на onStart озвучки и открывается
+ * через guardMs после её конца (хвост эха / реверберации).
+ *
+ * Закрытие/открытие — из потоков TTS / MediaPlayer, проверка isOpen() —
+ * из потока захвата на каждый буфер (только volatile чтения).
+ *
+ * Если конец озвучки потерян (движок TTS упал, stop без onDone),
+ * гейт сам открывается через MAX_CLOSED_MS.
+ */
+public final class PlaybackGate {
+
+    private static final long MAX_CLOSED_MS = 60_000;
+
+    private volatile boolean enabled = true;
+    private volatile long guardNanos = 250_000_000L;
+
+    private volatile boolean closed = false;
+    private volatile long closedAtNanos = 0;
+    private volatile long armedAtNanos = 0;    // last close(): MAX_CLOSED_MS counts from it
+    private volatile long reopenAtNanos = 0;   // 0 = no guard pending
+
+    // ============================================================
+    // Counters
+    // ============================================================
+
+    private volatile long closes = 0;
+    private volatile long suppressedBuffers = 0;   // capture thread only
+    private volatile long suppressedFrames = 0;    // capture thread only
+    private volatile long suppressedNanos = 0;
+
+    public void configure(boolean enabled, long guardMs) {
+        this.enabled = enabled;
+        this.guardNanos = Math.max(0, guardMs) * 1_000_000L;
+
+        if (!enabled) {
+            closed = false;
+            reopenAtNanos = 0;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getGuardMs() {
+        return guardNanos / 1_000_000L;
+    }
+
+    /**
+     * Озвучка началась.
+     * @return true, если гейт только что закрылся (пора сбросить распознаватель)
+     */
+    public synchronized boolean close() {
+
+        if (!enabled) return false;
+
+        long now = System.nanoTime();
+        reopenAtNanos = 0;
+        armedAtNanos = now;
+        if (closed) return false;
+
+        closed = true;
+        closedAtNanos = now;
+        closes++;
+        return true;
+    }
+
+    /** Озвучка закончилась (done / error / stop): открыться через guard. */
+    public synchronized void release() {
+        if (closed) reopenAtNanos = System.nanoTime() + guardNanos;
+    }
+
+    /**
+     * Поток захвата: можно ли отдавать этот буфер распознаванию.
+     */
+    public boolean isOpen(long nowNanos) {
+
+        if (!closed) return true;
+
+        // unlocked pre-check; open() decides again under the lock
+        return due(nowNanos) && open(nowNanos);
+    }
+
+    private boolean due(long nowNanos) {
+        long reopenAt = reopenAtNanos;
+        return (reopenAt != 0 && nowNanos >= reopenAt)
+                || nowNanos - armedAtNanos >= MAX_CLOSED_MS * 1_000_000L;
+    }
+
+    /** Поток захвата: буфер выброшен гейтом. */
+    public void countSuppressed(int frames) {
+        suppressedBuffers++;
+        suppressedFrames += frames;
+    }
+
+    /**
+     * Открывает, если срок всё ещё наступил: close() следующей озвучки
+     * между проверкой в isOpen() и этим вызовом снимает reopenAtNanos —
+     * тогда гейт остаётся закрытым.
+     */
+    private synchronized boolean open(long nowNanos) {
+        if (!closed) return true;
+        if (!due(nowNanos)) return false;
+
+        closed = false;
+        reopenAtNanos = 0;
+        suppressedNanos += nowNanos - closedAtNanos;
+        return true;
+    }
+
+    /** [closes, suppressedBuffers, suppressedFrames, suppressedMs, closedNow] */
+    public long[] getStats() {
+        return new long[] {
+                closes,
+                suppressedBuffers,
+                suppressedFrames,
+                suppressedNanos / 1_000_000L,
+                closed ? 1 : 0
+        };
+    }
+
+    public synchronized void resetStats() {
+        closes = 0;
+        suppressedBuffers = 0;
+        suppressedFrames = 0;
+        suppressedNanos = 0;
+    }
+}
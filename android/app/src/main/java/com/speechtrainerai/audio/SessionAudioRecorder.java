@@ -0,0 +1,957 @@
+package com.speechtrainerai.audio;
+
+import android.os.Process;
+import android.util.Log;
+
+import com.speechtrainerai.metrics.LatencyHistogram;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Запись ответов сессии на диск — необязательная ступень после захвата.
+ *
+ * Поток захвата только копирует буфер в кольцо в памяти (tee(): без
+ * локов, аллокаций и файлового I/O). Не успевает писатель — кадры, не
+ * влезшие в кольцо, отбрасываются и считаются; захват не ждёт никогда.
+ *
+ * Фоновый поток (THREAD_PRIORITY_BACKGROUND) раз в DRAIN_MS переносит
+ * кольцо в файл сессии: заранее выделенный (setLength) и отображённый в
+ * память (MappedByteBuffer) кольцевой буфер на sessionSeconds. Длинная
+ * сессия перезаписывает собственное начало; промахи по страницам
+ * достаются писателю, а не AudioRecordThread.
+ *
+ * Индекс: высказывания (начало / конец речи по VAD, без VAD — всё время
+ * показа фразы) с uid фразы, которая была на экране. Лежит рядом с PCM
+ * (<id>.json) и переписывается при закрытии каждого высказывания и не
+ * реже INDEX_REFRESH_MS — переживает смерть процесса. WAV собирается
+ * только по запросу (exportWav).
+ *
+ * Диск: сессии + экспорт ≤ budgetBytes; перед новой сессией удаляются
+ * самые старые.
+ */
+public final class SessionAudioRecorder {
+
+    private static final String TAG = "SessionRecorder";
+
+    private static final String PCM_EXT = ".pcm";
+    private static final String INDEX_EXT = ".json";
+    private static final String WAV_EXT = ".wav";
+    private static final String TMP_EXT = ".tmp";
+
+    // memory ring between the capture thread and the writer
+    private static final int RING_MS = 4000;
+    private static final long DRAIN_MS = 40;
+
+    // writtenFrames в индексе отстаёт от файла не больше чем на это + кольцо
+    private static final int INDEX_REFRESH_MS = 1000;
+
+    // a tee() longer than this would be visible to the capture thread
+    private static final long SLOW_TEE_NANOS = 1_000_000L;
+
+    private static final int COPY_BYTES = 64 * 1024;
+
+    /** Снимок одного высказывания для JS / экспорта. */
+    public static final class Segment {
+        public final String sessionId;
+        public final int utterance;
+        public final String phraseUid;     // null — фраза не была задана
+        public final long startFrame;      // кадры от начала сессии
+        public final long endFrame;        // открытое — сколько записано сейчас
+        public final boolean open;
+        public final boolean clipped;      // начало уже перезаписано кольцом
+
+        Segment(String sessionId, int utterance, String phraseUid,
+                long startFrame, long endFrame, boolean open, boolean clipped) {
+            this.sessionId = sessionId;
+            this.utterance = utterance;
+            this.phraseUid = phraseUid;
+            this.startFrame = startFrame;
+            this.endFrame = endFrame;
+            this.open = open;
+            this.clipped = clipped;
+        }
+    }
+
+    public interface ExportCallback {
+        /** wav == null: высказывание не найдено или целиком перезаписано */
+        void onExported(File wav);
+        void onError(IOException ex);
+    }
+
+    private final File dir;
+    private final File wavDir;
+    private final int sampleRate;
+
+    private volatile long budgetBytes;
+    private volatile int sessionFrames;
+
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            r.run();
+        }, "AudioRecorder");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // ============================================================
+    // Memory ring (capture thread → writer, single producer / consumer)
+    // ============================================================
+
+    private final short[] ring;            // power of two
+    private final int ringMask;
+
+    private volatile long head = 0;        // frames put (capture thread)
+    private volatile long tail = 0;        // frames taken (writer)
+    private volatile boolean accepting = false;
+
+    // capture thread only
+    private ByteBuffer teeSource;
+    private ShortBuffer teeShorts;
+    private int lastTeeFrames = 0;
+
+    // ============================================================
+    // Utterance boundaries (any thread → writer)
+    // ============================================================
+
+    private static final int MARK_PHRASE = 0;
+    private static final int MARK_SPEECH_START = 1;
+    private static final int MARK_SPEECH_END = 2;
+
+    private static final class Marker {
+        final int type;
+        final long position;   // stream frames (head units)
+        final String uid;
+
+        Marker(int type, long position, String uid) {
+            this.type = type;
+            this.position = position;
+            this.uid = uid;
+        }
+    }
+
+    private final ConcurrentLinkedQueue<Marker> markers = new ConcurrentLinkedQueue<>();
+    private volatile String phraseUid;
+    private volatile boolean phraseUtterances = false;
+
+    // ============================================================
+    // Sessions (index guarded by sessions; the file by the writer thread)
+    // ============================================================
+
+    private static final class Utterance {
+        final int index;
+        final String uid;
+        final long start;
+        long end = -1;      // -1 while open
+
+        Utterance(int index, String uid, long start) {
+            this.index = index;
+            this.uid = uid;
+            this.start = start;
+        }
+    }
+
+    private static final class Session {
+        final String id;
+        final int capacityFrames;
+        long writtenFrames = 0;
+        boolean closed = false;
+        long floor = 0;     // frames below may be overwritten (session cut short)
+        final ArrayList<Utterance> utterances = new ArrayList<>();
+        int nextUtterance = 0;
+
+        Session(String id, int capacityFrames) {
+            this.id = id;
+            this.capacityFrames = capacityFrames;
+        }
+
+        Utterance openUtterance() {
+            if (utterances.isEmpty()) return null;
+            Utterance u = utterances.get(utterances.size() - 1);
+            return u.end < 0 ? u : null;
+        }
+
+        /** First frame still on disk (the ring overwrites the oldest). */
+        long firstFrame() {
+            return Math.max(floor, writtenFrames - capacityFrames);
+        }
+    }
+
+    private final ArrayList<Session> sessions = new ArrayList<>();   // oldest first
+
+    // writer thread only
+    private Session active;
+    private RandomAccessFile activeFile;
+    private MappedByteBuffer activeMap;
+    private ShortBuffer activeShorts;
+    private long sessionBase;   // head at the first frame of the active session
+    private String currentUid;  // phrase of new utterances
+    private long indexedFrames; // writtenFrames in the last index write
+
+    // ============================================================
+    // Stats
+    // ============================================================
+
+    // capture thread only → volatile
+    private volatile long teeCalls = 0;
+    private volatile long framesTeed = 0;
+    private volatile long framesDropped = 0;
+    private volatile long slowTees = 0;
+
+    // writer thread only → volatile
+    private volatile long sessionsStarted = 0;
+    private volatile long framesWritten = 0;
+    private volatile long maxRingFill = 0;
+    private volatile long diskBytes = 0;
+    private volatile long evictedSessions = 0;
+    private volatile long exports = 0;
+
+    private final LatencyHistogram teeLatency = new LatencyHistogram();
+    private final LatencyHistogram drainLatency = new LatencyHistogram();
+
+    public SessionAudioRecorder(File dir, int sampleRate, long budgetBytes, int sessionSeconds) {
+        this.dir = dir;
+        this.wavDir = new File(dir, "wav");
+        this.sampleRate = sampleRate;
+
+        int ringFrames = Integer.highestOneBit(Math.max(1024, sampleRate * RING_MS / 1000) - 1) << 1;
+        this.ring = new short[ringFrames];
+        this.ringMask = ringFrames - 1;
+
+        configure(budgetBytes, sessionSeconds);
+
+        writer.execute(this::load);
+        writer.scheduleWithFixedDelay(this::drain, DRAIN_MS, DRAIN_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /** Действует со следующей сессии. */
+    public void configure(long budgetBytes, int sessionSeconds) {
+        this.budgetBytes = Math.max(0, budgetBytes);
+        this.sessionFrames = Math.max(sampleRate, sampleRate * sessionSeconds);
+    }
+
+    // ============================================================
+    // Capture thread
+    // ============================================================
+
+    /**
+     * Копия буфера захвата в кольцо. Тот же контракт, что у
+     * AudioCaptureService.Sink: pcm — direct, native order, с позиции 0.
+     */
+    public void tee(ByteBuffer pcm, int frames) {
+
+        if (!accepting || frames <= 0) return;
+
+        long t0 = System.nanoTime();
+
+        if (pcm != teeSource) {
+            teeSource = pcm;
+            teeShorts = pcm.asShortBuffer();
+        }
+
+        long h = head;
+        int free = ring.length - (int) (h - tail);
+        int n = Math.min(frames, free);
+
+        // writer is behind: the newest frames do not fit, capture goes on
+        if (n < frames) {
+            framesDropped += frames - n;
+        }
+
+        teeShorts.clear();
+        int at = (int) (h & ringMask);
+        int first = Math.min(n, ring.length - at);
+        teeShorts.get(ring, at, first);
+        teeShorts.get(ring, 0, n - first);
+
+        head = h + n;
+        lastTeeFrames = n;
+
+        teeCalls++;
+        framesTeed += n;
+
+        long dt = System.nanoTime() - t0;
+        teeLatency.record(dt / 1000);
+        if (dt > SLOW_TEE_NANOS) slowTees++;
+    }
+
+    /**
+     * VAD открыл речь (поток захвата, внутри обработки последнего буфера).
+     * Начало сдвигается на leadFrames раньше этого буфера — pre-roll VAD.
+     */
+    public void markSpeechStart(int leadFrames) {
+        if (!accepting) return;
+        markers.add(new Marker(MARK_SPEECH_START, head - lastTeeFrames - leadFrames, null));
+    }
+
+    public void markSpeechEnd() {
+        if (!accepting) return;
+        markers.add(new Marker(MARK_SPEECH_END, head, null));
+    }
+
+    // ============================================================
+    // Session lifecycle (JS / module threads)
+    // ============================================================
+
+    /** uid фразы на экране; высказывания дальше относятся к ней. */
+    public void markPhrase(String uid) {
+        phraseUid = uid;
+        if (accepting) {
+            long h = head;
+            markers.add(new Marker(MARK_PHRASE, h, uid));
+            if (phraseUtterances) markers.add(new Marker(MARK_SPEECH_START, h, null));
+        }
+    }
+
+    /**
+     * Без VAD границ речи нет: высказывание — всё время показа фразы
+     * (markPhrase закрывает предыдущее и открывает следующее, сессия
+     * открывается с высказыванием текущей фразы).
+     */
+    public void setPhraseUtterances(boolean enabled) {
+        phraseUtterances = enabled;
+    }
+
+    /** Начало сессии захвата; файл создаётся на потоке записи. */
+    public void beginSession() {
+        writer.execute(this::openSession);
+    }
+
+    /** Конец сессии: дописывает кольцо, закрывает индекс и файл. */
+    public void endSession() {
+        accepting = false;
+        writer.execute(this::closeSession);
+    }
+
+    /** endSession() + остановка потока записи (ждёт до timeoutMs). */
+    public boolean close(long timeoutMs) {
+
+        endSession();
+        writer.shutdown();
+
+        try {
+            return writer.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // ============================================================
+    // Index / export
+    // ============================================================
+
+    /** Высказывания фразы (null — все), от старых к новым. */
+    public List<Segment> segments(String uid) {
+
+        ArrayList<Segment> out = new ArrayList<>();
+
+        synchronized (sessions) {
+            for (Session s : sessions) {
+                long first = s.firstFrame();
+
+                for (Utterance u : s.utterances) {
+                    if (uid != null && !uid.equals(u.uid)) continue;
+
+                    long end = u.end >= 0 ? u.end : s.writtenFrames;
+                    if (end <= first) continue;
+
+                    out.add(new Segment(s.id, u.index, u.uid, Math.max(first, u.start), end,
+                            u.end < 0, u.start < first));
+                }
+            }
+        }
+        return out;
+    }
+
+    /** WAV (16-bit mono) одного высказывания; собирается на потоке записи. */
+    public void exportWav(String sessionId, int utterance, ExportCallback callback) {
+        writer.execute(() -> {
+            try {
+                callback.onExported(writeWav(sessionId, utterance));
+            } catch (IOException ex) {
+                Log.e(TAG, "Export failed: " + sessionId + "/" + utterance, ex);
+                callback.onError(ex);
+            }
+        });
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    // ============================================================
+    // Stats
+    // ============================================================
+
+    /**
+     * [sessions, teeCalls, framesTeed, framesDropped, slowTees,
+     *  framesWritten, maxRingFill, ringFrames, diskBytes, budgetBytes,
+     *  evictedSessions, exports, storedSessions, utterances]
+     */
+    public long[] getStats() {
+
+        long stored;
+        long utterances = 0;
+
+        synchronized (sessions) {
+            stored = sessions.size();
+            for (Session s : sessions) {
+                utterances += s.utterances.size();
+            }
+        }
+
+        return new long[] {
+                sessionsStarted,
+                teeCalls,
+                framesTeed,
+                framesDropped,
+                slowTees,
+                framesWritten,
+                maxRingFill,
+                ring.length,
+                diskBytes,
+                budgetBytes,
+                evictedSessions,
+                exports,
+                stored,
+                utterances
+        };
+    }
+
+    /** Cost of tee() on the capture thread, per call. */
+    public LatencyHistogram getTeeLatency() {
+        return teeLatency;
+    }
+
+    /** One ring → file pass on the writer thread. */
+    public LatencyHistogram getDrainLatency() {
+        return drainLatency;
+    }
+
+    public void resetStats() {
+        writer.execute(() -> {
+            sessionsStarted = 0;
+            framesWritten = 0;
+            maxRingFill = 0;
+            evictedSessions = 0;
+            exports = 0;
+            drainLatency.reset();
+        });
+
+        // capture-thread counters: a racing tee() may keep its last increment
+        teeCalls = 0;
+        framesTeed = 0;
+        framesDropped = 0;
+        slowTees = 0;
+        teeLatency.reset();
+    }
+
+    // ============================================================
+    // Writer thread
+    // ============================================================
+
+    private void load() {
+
+        if (!wavDir.isDirectory() && !wavDir.mkdirs()) {
+            Log.e(TAG, "Cannot create " + wavDir);
+            return;
+        }
+
+        File[] files = dir.listFiles();
+        if (files == null) return;
+
+        // ids are creation times: name order = age order
+        Arrays.sort(files);
+
+        ArrayList<Session> loaded = new ArrayList<>();
+
+        for (File f : files) {
+            String name = f.getName();
+
+            if (name.endsWith(TMP_EXT)) {
+                f.delete();   // index rewrite interrupted by process death
+            } else if (name.endsWith(PCM_EXT)) {
+                String id = name.substring(0, name.length() - PCM_EXT.length());
+                Session s = readIndex(id);
+
+                if (s == null) {
+                    // no index → nothing can address this audio
+                    f.delete();
+                    deleteWavs(id);
+                } else {
+                    loaded.add(s);
+                }
+            }
+        }
+
+        synchronized (sessions) {
+            sessions.addAll(0, loaded);
+        }
+        diskBytes = measureDisk();
+
+        Log.i(TAG, "Loaded " + loaded.size() + " recorded session(s), " + diskBytes / 1024 + " KB");
+    }
+
+    private void openSession() {
+
+        if (active != null) return;
+
+        // leftovers of a tee() racing the previous endSession()
+        tail = head;
+        sessionBase = tail;
+
+        int capacity = sessionFrames;
+        long bytes = capacity * 2L;
+
+        evictFor(bytes);
+
+        if (bytes > budgetBytes) {
+            capacity = (int) (budgetBytes / 2);
+            bytes = capacity * 2L;
+        }
+        if (capacity < sampleRate) {
+            Log.w(TAG, "Recorder budget too small, session not recorded");
+            return;
+        }
+
+        String id = "s" + System.currentTimeMillis();
+        Session session = new Session(id, capacity);
+
+        try {
+            RandomAccessFile file = new RandomAccessFile(pcmFile(id), "rw");
+            // allocated up front: no file growth while the session runs
+            file.setLength(bytes);
+
+            MappedByteBuffer map = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            map.order(ByteOrder.LITTLE_ENDIAN);
+
+            activeFile = file;
+            activeMap = map;
+            activeShorts = map.asShortBuffer();
+        } catch (IOException ex) {
+            Log.e(TAG, "Cannot create session file " + id, ex);
+            pcmFile(id).delete();
+            return;
+        }
+
+        synchronized (sessions) {
+            sessions.add(session);
+        }
+        active = session;
+        sessionsStarted++;
+        diskBytes += bytes;
+
+        markers.clear();
+        currentUid = phraseUid;
+
+        // without the VAD nothing else would open the phrase already on screen
+        if (phraseUtterances && currentUid != null) {
+            synchronized (sessions) {
+                session.utterances.add(new Utterance(session.nextUtterance++, currentUid, 0));
+            }
+        }
+
+        writeIndexQuietly(session);
+        indexedFrames = 0;
+
+        accepting = true;
+
+        Log.i(TAG, "Recording session " + id + ", ring " + capacity / sampleRate + " s");
+    }
+
+    private void closeSession() {
+
+        if (active == null) {
+            tail = head;
+            return;
+        }
+
+        drain();
+
+        Session session = active;
+
+        synchronized (sessions) {
+            Utterance open = session.openUtterance();
+            if (open != null) open.end = session.writtenFrames;
+            session.closed = true;
+        }
+        writeIndexQuietly(session);
+
+        active = null;
+        activeMap = null;
+        activeShorts = null;
+
+        try {
+            // not wrapped: give back the unused tail of the allocation
+            if (session.writtenFrames < session.capacityFrames) {
+                activeFile.setLength(session.writtenFrames * 2);
+            }
+            activeFile.close();
+        } catch (IOException ex) {
+            Log.w(TAG, "Session file not trimmed: " + session.id, ex);
+        }
+        activeFile = null;
+
+        diskBytes = measureDisk();
+
+        Log.i(TAG, "Session " + session.id + " closed: " + session.writtenFrames / sampleRate
+                + " s, " + session.utterances.size() + " utterance(s)");
+    }
+
+    private void drain() {
+
+        Session session = active;
+
+        if (session == null) {
+            // nothing to write into: frames from before a failed open
+            if (!accepting) tail = head;
+            return;
+        }
+
+        long t0 = System.nanoTime();
+
+        long t = tail;
+        long h = head;
+        if (h - t > maxRingFill) maxRingFill = h - t;
+
+        boolean indexChanged = applyMarkers(session, t);
+
+        while (t < h) {
+            long frame = t - sessionBase;
+            int at = (int) (frame % session.capacityFrames);
+            int ringAt = (int) (t & ringMask);
+            int n = (int) Math.min(h - t, Math.min(ring.length - ringAt, session.capacityFrames - at));
+
+            activeShorts.position(at);
+            activeShorts.put(ring, ringAt, n);
+            t += n;
+
+            synchronized (sessions) {
+                session.writtenFrames = t - sessionBase;
+            }
+            indexChanged |= applyMarkers(session, t);
+        }
+
+        framesWritten += t - tail;
+        tail = t;
+
+        // a session cut short by process death keeps a recent writtenFrames
+        long written = t - sessionBase;
+        if (indexChanged || written - indexedFrames >= (long) sampleRate * INDEX_REFRESH_MS / 1000) {
+            writeIndexQuietly(session);
+            indexedFrames = written;
+        }
+
+        drainLatency.recordSince(t0, System.nanoTime());
+    }
+
+    /** Markers at or before `upTo` (stream frames); true if an utterance closed. */
+    private boolean applyMarkers(Session session, long upTo) {
+
+        boolean closed = false;
+
+        for (Marker m = markers.peek(); m != null && m.position <= upTo; m = markers.peek()) {
+            markers.poll();
+
+            long pos = Math.max(0, Math.min(m.position - sessionBase, session.writtenFrames));
+
+            synchronized (sessions) {
+                Utterance open = session.openUtterance();
+
+                if (open != null) {
+                    open.end = Math.max(open.start, pos);
+                    closed = true;
+                }
+
+                if (m.type == MARK_SPEECH_START) {
+                    // lead-in never reaches back into the previous utterance
+                    int last = session.utterances.size() - 1;
+                    long from = last >= 0 ? Math.max(pos, session.utterances.get(last).end) : pos;
+
+                    session.utterances.add(new Utterance(session.nextUtterance++, currentUid, from));
+                }
+            }
+
+            if (m.type == MARK_PHRASE) {
+                currentUid = m.uid;
+            }
+        }
+        return closed;
+    }
+
+    private File writeWav(String sessionId, int utterance) throws IOException {
+
+        Session session = null;
+        long from = 0;
+        long to = 0;
+        boolean open = false;
+
+        synchronized (sessions) {
+            for (Session s : sessions) {
+                if (!s.id.equals(sessionId)) continue;
+
+                for (Utterance u : s.utterances) {
+                    if (u.index != utterance) continue;
+
+                    session = s;
+                    from = Math.max(u.start, s.firstFrame());
+                    to = u.end >= 0 ? u.end : s.writtenFrames;
+                    open = u.end < 0;
+                }
+            }
+        }
+
+        if (session == null || to <= from) return null;
+
+        File wav = new File(wavDir, sessionId + "-" + utterance + WAV_EXT);
+
+        // closed utterances never change; an open one is re-exported as it grows
+        if (!open && wav.isFile()) return wav;
+
+        File tmp = new File(wavDir, wav.getName() + TMP_EXT);
+        long frames = to - from;
+
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tmp), COPY_BYTES)) {
+            writeWavHeader(out, frames);
+
+            if (session == active) {
+                copyFrames(activeMap, session.capacityFrames, from, to, out);
+            } else {
+                try (RandomAccessFile file = new RandomAccessFile(pcmFile(sessionId), "r")) {
+                    ByteBuffer map = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+                    copyFrames(map, session.capacityFrames, from, to, out);
+                }
+            }
+        } catch (IOException ex) {
+            tmp.delete();
+            throw ex;
+        }
+
+        if (!tmp.renameTo(wav)) {
+            tmp.delete();
+            throw new IOException("rename failed: " + tmp);
+        }
+
+        exports++;
+        diskBytes = measureDisk();
+        return wav;
+    }
+
+    /** Session frames [from, to) out of the ring file, in order. */
+    private static void copyFrames(ByteBuffer src, int capacityFrames, long from, long to, OutputStream out)
+            throws IOException {
+
+        ByteBuffer view = src.duplicate();
+        byte[] buf = new byte[COPY_BYTES];
+
+        for (long f = from; f < to; ) {
+            int at = (int) (f % capacityFrames);
+            int n = (int) Math.min(to - f, Math.min(capacityFrames - at, buf.length / 2));
+
+            view.clear();
+            view.position(at * 2);
+            view.get(buf, 0, n * 2);
+            out.write(buf, 0, n * 2);
+
+            f += n;
+        }
+    }
+
+    private void writeWavHeader(OutputStream out, long frames) throws IOException {
+
+        long dataBytes = frames * 2;
+
+        ByteBuffer h = ByteBuffer.allocate(44).order(ByteOrder.LITTLE_ENDIAN);
+        h.put("RIFF".getBytes(StandardCharsets.US_ASCII));
+        h.putInt((int) (36 + dataBytes));
+        h.put("WAVE".getBytes(StandardCharsets.US_ASCII));
+        h.put("fmt ".getBytes(StandardCharsets.US_ASCII));
+        h.putInt(16);
+        h.putShort((short) 1);              // WAVE_FORMAT_PCM
+        h.putShort((short) 1);              // mono
+        h.putInt(sampleRate);
+        h.putInt(sampleRate * 2);           // byte rate
+        h.putShort((short) 2);              // block align
+        h.putShort((short) 16);             // bits per sample
+        h.put("data".getBytes(StandardCharsets.US_ASCII));
+        h.putInt((int) dataBytes);
+
+        out.write(h.array());
+    }
+
+    // ============================================================
+    // Disk budget (writer thread)
+    // ============================================================
+
+    /** Oldest closed sessions go until `need` more bytes fit the budget. */
+    private void evictFor(long need) {
+
+        long used = measureDisk();
+
+        while (used + need > budgetBytes) {
+            Session oldest;
+            synchronized (sessions) {
+                if (sessions.isEmpty() || sessions.get(0) == active) break;
+                oldest = sessions.remove(0);
+            }
+
+            pcmFile(oldest.id).delete();
+            indexFile(oldest.id).delete();
+            deleteWavs(oldest.id);
+            evictedSessions++;
+
+            used = measureDisk();
+            Log.i(TAG, "Evicted session " + oldest.id + ", " + used / 1024 + " KB left");
+        }
+
+        diskBytes = used;
+    }
+
+    private long measureDisk() {
+        return sizeOf(dir.listFiles()) + sizeOf(wavDir.listFiles());
+    }
+
+    private static long sizeOf(File[] files) {
+        long total = 0;
+        if (files != null) {
+            for (File f : files) {
+                if (f.isFile()) total += f.length();
+            }
+        }
+        return total;
+    }
+
+    private void deleteWavs(String id) {
+        File[] files = wavDir.listFiles();
+        if (files == null) return;
+
+        for (File f : files) {
+            if (f.getName().startsWith(id + "-")) f.delete();
+        }
+    }
+
+    // ============================================================
+    // Index files
+    // ============================================================
+
+    private File pcmFile(String id) {
+        return new File(dir, id + PCM_EXT);
+    }
+
+    private File indexFile(String id) {
+        return new File(dir, id + INDEX_EXT);
+    }
+
+    private void writeIndexQuietly(Session s) {
+        try {
+            writeIndex(s);
+        } catch (IOException | JSONException ex) {
+            Log.e(TAG, "Index not written: " + s.id, ex);
+        }
+    }
+
+    private void writeIndex(Session s) throws IOException, JSONException {
+
+        JSONObject o = new JSONObject();
+        JSONArray list = new JSONArray();
+
+        synchronized (sessions) {
+            long first = s.firstFrame();
+
+            o.put("id", s.id);
+            o.put("sampleRate", sampleRate);
+            o.put("capacityFrames", s.capacityFrames);
+            o.put("writtenFrames", s.writtenFrames);
+            o.put("closed", s.closed);
+
+            for (Utterance u : s.utterances) {
+                // fully overwritten by the ring: nothing left to index
+                if (u.end >= 0 && u.end <= first) continue;
+
+                JSONArray row = new JSONArray();
+                row.put(u.index);
+                row.put(u.uid != null ? u.uid : JSONObject.NULL);
+                row.put(u.start);
+                row.put(u.end);
+                list.put(row);
+            }
+        }
+        o.put("utterances", list);
+
+        File tmp = new File(dir, s.id + INDEX_EXT + TMP_EXT);
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            out.write(o.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        if (!tmp.renameTo(indexFile(s.id))) {
+            tmp.delete();
+            throw new IOException("rename failed: " + tmp);
+        }
+    }
+
+    private Session readIndex(String id) {
+
+        File f = indexFile(id);
+        if (!f.isFile()) return null;
+
+        try (InputStream in = new FileInputStream(f)) {
+            byte[] data = new byte[(int) f.length()];
+            int off = 0;
+            while (off < data.length) {
+                int n = in.read(data, off, data.length - off);
+                if (n < 0) break;
+                off += n;
+            }
+
+            JSONObject o = new JSONObject(new String(data, 0, off, StandardCharsets.UTF_8));
+            Session s = new Session(id, o.getInt("capacityFrames"));
+            s.writtenFrames = o.getLong("writtenFrames");
+
+            // cut short by process death: up to one refresh + one ring of frames
+            // reached the file after the index, wrapping over its oldest audio
+            if (!o.optBoolean("closed", false)) {
+                long unindexed = (long) sampleRate * INDEX_REFRESH_MS / 1000 + ring.length;
+                s.floor = Math.max(0, s.writtenFrames + unindexed - s.capacityFrames);
+            }
+            s.closed = true;
+
+            JSONArray list = o.getJSONArray("utterances");
+            for (int i = 0; i < list.length(); i++) {
+                JSONArray row = list.getJSONArray(i);
+                Utterance u = new Utterance(row.getInt(0), row.isNull(1) ? null : row.getString(1),
+                        row.getLong(2));
+                u.end = row.getLong(3) >= 0 ? row.getLong(3) : s.writtenFrames;
+                s.utterances.add(u);
+                s.nextUtterance = u.index + 1;
+            }
+            return s;
+        } catch (IOException | JSONException ex) {
+            Log.w(TAG, "Bad index " + f.getName(), ex);
+            return null;
+        }
+    }
+}
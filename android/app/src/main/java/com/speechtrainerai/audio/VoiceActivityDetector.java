@@ -0,0 +1,249 @@
+package com.speechtrainerai.audio;
+
+/**
+ * Лёгкий VAD (energy + zero-crossing) для AudioRecordThread.
+ *
+ * Пропускает в декодер только речь:
+ *  - pre-roll: немного тишины ДО начала речи (чтобы не терять первый слог)
+ *  - hangover: немного тишины ПОСЛЕ речи (чтобы Vosk увидел конец фразы)
+ *
+ * Работает без аллокаций на каждый буфер: выход пишется во внутренний
+ * массив, который переиспользуется (getOutput()).
+ *
+ * Не потокобезопасен — вызывается только из потока захвата.
+ */
+public class VoiceActivityDetector {
+
+    public interface Listener {
+        void onSpeechStart();
+        void onSpeechEnd();
+    }
+
+    // ============================================================
+    // Config (16 kHz mono PCM)
+    // ============================================================
+
+    private final int frameSize;        // 20 ms = 320 samples
+    private final int hangoverFrames;   // frames kept after speech ends
+    private final int startFrames;      // consecutive speech frames to open
+
+    private final double minRms;        // absolute floor for speech energy
+    private final double speechRatio;   // rms must exceed noiseFloor * ratio
+    private final double maxZcr;        // above this only loud frames count
+
+    // ============================================================
+    // State
+    // ============================================================
+
+    private final short[] preRoll;
+    private int preRollPos = 0;
+    private int preRollFill = 0;
+
+    private short[] output = new short[0];
+    private int outputLen = 0;
+
+    private boolean inSpeech = false;
+    private int speechRun = 0;
+    private int silenceRun = 0;
+    private double noiseFloor;
+
+    private Listener listener;
+
+    // ============================================================
+    // Counters (read from other threads → volatile)
+    // ============================================================
+
+    private volatile long framesIn = 0;
+    private volatile long framesForwarded = 0;
+    private volatile long speechSegments = 0;
+
+    /**
+     * Hangover по умолчанию не короче самого длинного правила эндпоинта
+     * модели (conf/model.conf: rule2 0.5 s, rule3 0.75 s, rule4 1.0 s):
+     * иначе хвост тишины обрезается раньше, чем Vosk закроет фразу.
+     */
+    public static final int DEFAULT_HANGOVER_MS = 1000;
+
+    public VoiceActivityDetector(int sampleRate) {
+        this(sampleRate, 20, 300, DEFAULT_HANGOVER_MS, 2, 400.0, 3.0, 0.45);
+    }
+
+    public VoiceActivityDetector(int sampleRate,
+                                 int frameMs,
+                                 int preRollMs,
+                                 int hangoverMs,
+                                 int startFrames,
+                                 double minRms,
+                                 double speechRatio,
+                                 double maxZcr) {
+
+        this.frameSize = Math.max(1, sampleRate * frameMs / 1000);
+        this.hangoverFrames = Math.max(1, hangoverMs / frameMs);
+        this.startFrames = Math.max(1, startFrames);
+        this.minRms = minRms;
+        this.speechRatio = speechRatio;
+        this.maxZcr = maxZcr;
+        this.preRoll = new short[Math.max(frameSize, sampleRate * preRollMs / 1000)];
+        this.noiseFloor = minRms / speechRatio;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Сброс состояния между сессиями (счётчики не трогаем).
+     */
+    public void reset() {
+        preRollPos = 0;
+        preRollFill = 0;
+        outputLen = 0;
+        inSpeech = false;
+        speechRun = 0;
+        silenceRun = 0;
+        noiseFloor = minRms / speechRatio;
+    }
+
+    public void resetStats() {
+        framesIn = 0;
+        framesForwarded = 0;
+        speechSegments = 0;
+    }
+
+    /**
+     * Классифицирует буфер и собирает в getOutput() то, что надо
+     * отправить в декодер.
+     *
+     * @return количество сэмплов в getOutput()
+     */
+    public int process(short[] in, int len) {
+
+        ensureOutputCapacity(len + preRoll.length);
+        outputLen = 0;
+
+        for (int off = 0; off < len; off += frameSize) {
+            int n = Math.min(frameSize, len - off);
+            processFrame(in, off, n);
+        }
+
+        framesIn += len;
+        framesForwarded += outputLen;
+
+        return outputLen;
+    }
+
+    public short[] getOutput() {
+        return output;
+    }
+
+    public boolean isInSpeech() {
+        return inSpeech;
+    }
+
+    public long getFramesIn() {
+        return framesIn;
+    }
+
+    public long getFramesForwarded() {
+        return framesForwarded;
+    }
+
+    public long getFramesSkipped() {
+        return framesIn - framesForwarded;
+    }
+
+    public long getSpeechSegments() {
+        return speechSegments;
+    }
+
+    // ============================================================
+    // Internals
+    // ============================================================
+
+    private void processFrame(short[] in, int off, int n) {
+
+        long energy = 0;
+        int crossings = 0;
+        short prev = in[off];
+
+        for (int i = off; i < off + n; i++) {
+            short s = in[i];
+            energy += (long) s * s;
+            if ((s ^ prev) < 0) crossings++;
+            prev = s;
+        }
+
+        double rms = Math.sqrt((double) energy / n);
+        double zcr = (double) crossings / n;
+
+        double threshold = Math.max(minRms, noiseFloor * speechRatio);
+        boolean speech = rms > threshold && (zcr < maxZcr || rms > threshold * 2);
+
+        if (!speech) {
+            // track background level only while not speaking
+            noiseFloor = noiseFloor * 0.95 + rms * 0.05;
+        }
+
+        if (inSpeech) {
+
+            append(in, off, n);
+
+            if (speech) {
+                silenceRun = 0;
+            } else if (++silenceRun >= hangoverFrames) {
+                inSpeech = false;
+                speechRun = 0;
+                silenceRun = 0;
+                if (listener != null) listener.onSpeechEnd();
+            }
+            return;
+        }
+
+        speechRun = speech ? speechRun + 1 : 0;
+
+        if (speechRun >= startFrames) {
+            inSpeech = true;
+            silenceRun = 0;
+            speechSegments++;
+
+            flushPreRoll();
+            append(in, off, n);
+
+            if (listener != null) listener.onSpeechStart();
+            return;
+        }
+
+        keepInPreRoll(in, off, n);
+    }
+
+    private void keepInPreRoll(short[] in, int off, int n) {
+        for (int i = 0; i < n; i++) {
+            preRoll[preRollPos] = in[off + i];
+            preRollPos = (preRollPos + 1) % preRoll.length;
+        }
+        preRollFill = Math.min(preRoll.length, preRollFill + n);
+    }
+
+    private void flushPreRoll() {
+        int start = (preRollPos - preRollFill + preRoll.length) % preRoll.length;
+        int first = Math.min(preRollFill, preRoll.length - start);
+
+        System.arraycopy(preRoll, start, output, outputLen, first);
+        System.arraycopy(preRoll, 0, output, outputLen + first, preRollFill - first);
+        outputLen += preRollFill;
+
+        preRollFill = 0;
+        preRollPos = 0;
+    }
+
+    private void append(short[] in, int off, int n) {
+        System.arraycopy(in, off, output, outputLen, n);
+        outputLen += n;
+    }
+
+    private void ensureOutputCapacity(int needed) {
+        if (output.length < needed) {
+            output = new short[needed];
+        }
+    }
+}
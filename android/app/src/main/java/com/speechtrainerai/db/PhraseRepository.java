@@ -0,0 +1,416 @@
+package com.speechtrainerai.db;
+
+import android.database.Cursor;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import com.speechtrainerai.metrics.LatencyHistogram;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Чтение таблицы phrases по частям — вместо loadAllPhrases(), который
+ * тащил через мост все строки со всеми колонками и разбирал variants
+ * у каждой.
+ *
+ *  - loadDeck()  — только то, что нужно PhraseSampler (uid + счётчики),
+ *                  в параллельные массивы, без моста
+ *  - page()      — keyset-страницы (topic, uid) с фильтром по теме и
+ *                  выбором колонок; OFFSET не используется
+ *  - get()       — полные строки нескольких фраз (variants — сырым JSON,
+ *                  разбирает JS только для показанной фразы)
+ *
+ * Порядок везде (topic, uid) — его обслуживает индекс phrases_topic_uid
+ * (создаёт initSpeechDb, схема принадлежит JS).
+ *
+ * Большие выборки читаются кусками по CHUNK строк: курсор Android
+ * держит результат в окне ~2 МБ, и переполнение окна заставляет SQLite
+ * перешагивать запрос с начала.
+ */
+public final class PhraseRepository {
+
+    private static final String TAG = "PhraseRepository";
+
+    public static final int MAX_PAGE = 500;
+    private static final int CHUNK = 4096;
+
+    // below SQLITE_MAX_VARIABLE_NUMBER (999) of old SQLite builds
+    private static final int MAX_ARGS = 500;
+
+    private static final String DECK_COLUMNS = "topic, uid, cntf, dwf, cntr, dwr";
+
+    /** Колонки SpItem; page() / get() принимают только их. */
+    public static final List<String> COLUMNS = Arrays.asList(
+            "uid", "topic", "q", "a", "variants",
+            "cntf", "cntr", "df", "dr", "dwf", "dwr", "tsf", "tsr");
+
+    private static final Set<String> KNOWN = new LinkedHashSet<>(COLUMNS);
+
+    // ============================================================
+    // Results
+    // ============================================================
+
+    /** Колода для PhraseSampler, параллельные массивы в порядке (topic, uid). */
+    public static final class Deck {
+        public final String[] uids;
+        public final int[] cntf;
+        public final double[] dwf;
+        public final int[] cntr;
+        public final double[] dwr;
+
+        Deck(int n) {
+            uids = new String[n];
+            cntf = new int[n];
+            dwf = new double[n];
+            cntr = new int[n];
+            dwr = new double[n];
+        }
+
+        Deck trim(int n) {
+            if (n == uids.length) return this;
+
+            Deck d = new Deck(n);
+            System.arraycopy(uids, 0, d.uids, 0, n);
+            System.arraycopy(cntf, 0, d.cntf, 0, n);
+            System.arraycopy(dwf, 0, d.dwf, 0, n);
+            System.arraycopy(cntr, 0, d.cntr, 0, n);
+            System.arraycopy(dwr, 0, d.dwr, 0, n);
+            return d;
+        }
+    }
+
+    /**
+     * Страница: значения — Long / Double / String / null, по columns.
+     * nextTopic / nextUid — курсор следующей страницы (null — последняя).
+     */
+    public static final class Page {
+        public final String[] columns;
+        public final List<Object[]> rows;
+        public final String nextTopic;
+        public final String nextUid;
+
+        public Page(String[] columns, List<Object[]> rows, String nextTopic, String nextUid) {
+            this.columns = columns;
+            this.rows = rows;
+            this.nextTopic = nextTopic;
+            this.nextUid = nextUid;
+        }
+    }
+
+    private final File dbFile;
+
+    // guarded by this
+    private SQLiteDatabase db;
+
+    // ============================================================
+    // Stats
+    // ============================================================
+
+    private long queries = 0;
+    private long rowsRead = 0;
+    private long lastDeckSize = 0;
+
+    private final LatencyHistogram deckLatency = new LatencyHistogram();
+    private final LatencyHistogram pageLatency = new LatencyHistogram();
+    private final LatencyHistogram getLatency = new LatencyHistogram();
+
+    public PhraseRepository(File dbFile) {
+        this.dbFile = dbFile;
+    }
+
+    /**
+     * Вся колода (или одна тема), только колонки весов.
+     * @param topic null — все темы
+     */
+    public synchronized Deck loadDeck(String topic) {
+
+        long t0 = System.nanoTime();
+        open();
+
+        Deck deck = new Deck(count(topic));
+        int n = 0;
+
+        String afterTopic = "";
+        String afterUid = "";
+
+        while (true) {
+            Cursor c = topic != null
+                    ? db.rawQuery("SELECT " + DECK_COLUMNS + " FROM phrases WHERE topic = ?1 AND uid > ?2"
+                            + " ORDER BY uid LIMIT " + CHUNK,
+                            new String[] { topic, afterUid })
+                    : db.rawQuery("SELECT " + DECK_COLUMNS + " FROM phrases"
+                            + " WHERE topic >= ?1 AND (topic > ?1 OR uid > ?2)"
+                            + " ORDER BY topic, uid LIMIT " + CHUNK,
+                            new String[] { afterTopic, afterUid });
+
+            int read = 0;
+
+            try {
+                while (c.moveToNext()) {
+                    if (n == deck.uids.length) {
+                        // rows inserted since count(): grow
+                        deck = grow(deck, n);
+                    }
+
+                    afterTopic = c.getString(0);
+                    afterUid = c.getString(1);
+
+                    // NULL reads as 0, same as `?? 0` in JS
+                    deck.uids[n] = afterUid;
+                    deck.cntf[n] = c.getInt(2);
+                    deck.dwf[n] = c.getDouble(3);
+                    deck.cntr[n] = c.getInt(4);
+                    deck.dwr[n] = c.getDouble(5);
+                    n++;
+                    read++;
+                }
+            } finally {
+                c.close();
+            }
+
+            queries++;
+            if (read < CHUNK) break;
+        }
+
+        rowsRead += n;
+        lastDeckSize = n;
+        deckLatency.recordSince(t0, System.nanoTime());
+
+        Log.i(TAG, "Deck loaded: " + n + " phrase(s)" + (topic != null ? " of " + topic : ""));
+        return deck.trim(n);
+    }
+
+    /**
+     * Одна страница в порядке (topic, uid), после курсора (afterTopic, afterUid).
+     * @param topic null — все темы
+     * @param afterUid null — первая страница
+     * @param columns null — все колонки; uid и topic добавляются всегда
+     *                (из них курсор)
+     */
+    public synchronized Page page(String topic, String afterTopic, String afterUid,
+                                  int limit, List<String> columns) {
+
+        long t0 = System.nanoTime();
+        open();
+
+        String[] cols = projection(columns);
+        int pageSize = Math.max(1, Math.min(MAX_PAGE, limit));
+
+        String from = afterUid != null ? afterUid : "";
+        String fromTopic = afterTopic != null ? afterTopic : "";
+
+        // one extra row tells whether there is a next page
+        Cursor c = topic != null
+                ? db.rawQuery("SELECT " + String.join(", ", cols) + " FROM phrases"
+                        + " WHERE topic = ?1 AND uid > ?2 ORDER BY uid LIMIT " + (pageSize + 1),
+                        new String[] { topic, from })
+                : db.rawQuery("SELECT " + String.join(", ", cols) + " FROM phrases"
+                        + " WHERE topic >= ?1 AND (topic > ?1 OR uid > ?2)"
+                        + " ORDER BY topic, uid LIMIT " + (pageSize + 1),
+                        new String[] { fromTopic, from });
+
+        ArrayList<Object[]> rows = new ArrayList<>(pageSize);
+        boolean more = false;
+
+        try {
+            while (c.moveToNext()) {
+                if (rows.size() == pageSize) {
+                    more = true;
+                    break;
+                }
+                rows.add(readRow(c, cols.length));
+            }
+        } finally {
+            c.close();
+        }
+
+        queries++;
+        rowsRead += rows.size();
+        pageLatency.recordSince(t0, System.nanoTime());
+
+        if (!more) return new Page(cols, rows, null, null);
+
+        // uid is column 0, topic column 1 (projection())
+        Object[] last = rows.get(rows.size() - 1);
+        return new Page(cols, rows, (String) last[1], (String) last[0]);
+    }
+
+    /**
+     * Строки по uid, в порядке uids; нет такой фразы — null на её месте.
+     * @param columns null — все колонки
+     */
+    public synchronized Page get(String[] uids, List<String> columns) {
+
+        long t0 = System.nanoTime();
+        open();
+
+        String[] cols = projection(columns);
+        HashMap<String, Object[]> found = new HashMap<>(uids.length * 2);
+
+        for (int from = 0; from < uids.length; from += MAX_ARGS) {
+            int to = Math.min(uids.length, from + MAX_ARGS);
+
+            StringBuilder sql = new StringBuilder("SELECT ")
+                    .append(String.join(", ", cols))
+                    .append(" FROM phrases WHERE uid IN (");
+            for (int i = from; i < to; i++) {
+                sql.append(i == from ? "?" : ", ?");
+            }
+            sql.append(')');
+
+            Cursor c = db.rawQuery(sql.toString(), Arrays.copyOfRange(uids, from, to));
+            try {
+                while (c.moveToNext()) {
+                    Object[] row = readRow(c, cols.length);
+                    found.put((String) row[0], row);
+                }
+            } finally {
+                c.close();
+            }
+            queries++;
+        }
+
+        ArrayList<Object[]> rows = new ArrayList<>(uids.length);
+        for (String uid : uids) {
+            rows.add(found.get(uid));
+        }
+
+        rowsRead += found.size();
+        getLatency.recordSince(t0, System.nanoTime());
+        return new Page(cols, rows, null, null);
+    }
+
+    /** Тема → число фраз, по алфавиту (только индекс). */
+    public synchronized Map<String, Long> topics() {
+
+        open();
+
+        LinkedHashMap<String, Long> out = new LinkedHashMap<>();
+        Cursor c = db.rawQuery("SELECT topic, COUNT(*) FROM phrases GROUP BY topic ORDER BY topic", null);
+        try {
+            while (c.moveToNext()) {
+                out.put(c.getString(0), c.getLong(1));
+            }
+        } finally {
+            c.close();
+        }
+
+        queries++;
+        return out;
+    }
+
+    public synchronized void close() {
+        if (db != null) {
+            db.close();
+            db = null;
+        }
+    }
+
+    // ============================================================
+    // Stats
+    // ============================================================
+
+    /** [queries, rowsRead, lastDeckSize] */
+    public synchronized long[] getStats() {
+        return new long[] { queries, rowsRead, lastDeckSize };
+    }
+
+    public LatencyHistogram getDeckLatency() {
+        return deckLatency;
+    }
+
+    public LatencyHistogram getPageLatency() {
+        return pageLatency;
+    }
+
+    public LatencyHistogram getGetLatency() {
+        return getLatency;
+    }
+
+    public synchronized void resetStats() {
+        queries = 0;
+        rowsRead = 0;
+        deckLatency.reset();
+        pageLatency.reset();
+        getLatency.reset();
+    }
+
+    // ============================================================
+    // Internals
+    // ============================================================
+
+    private void open() {
+
+        if (db != null) return;
+
+        // read-only use, but a read-write handle: WAL (PhraseStatsWriter)
+        // needs to create -shm / -wal next to the file
+        db = SQLiteDatabase.openDatabase(dbFile.getPath(), null, SQLiteDatabase.OPEN_READWRITE);
+        Log.i(TAG, "Opened " + dbFile);
+    }
+
+    private int count(String topic) {
+
+        Cursor c = topic != null
+                ? db.rawQuery("SELECT COUNT(*) FROM phrases WHERE topic = ?", new String[] { topic })
+                : db.rawQuery("SELECT COUNT(*) FROM phrases", null);
+        try {
+            return c.moveToFirst() ? c.getInt(0) : 0;
+        } finally {
+            c.close();
+            queries++;
+        }
+    }
+
+    /** uid, topic first (page cursor), then the requested columns. */
+    private static String[] projection(List<String> columns) {
+
+        LinkedHashSet<String> out = new LinkedHashSet<>();
+        out.add("uid");
+        out.add("topic");
+
+        for (String col : columns != null ? columns : COLUMNS) {
+            if (!KNOWN.contains(col)) {
+                throw new SQLException("Unknown phrases column: " + col);
+            }
+            out.add(col);
+        }
+
+        return out.toArray(new String[0]);
+    }
+
+    private static Object[] readRow(Cursor c, int columns) {
+
+        Object[] row = new Object[columns];
+
+        for (int i = 0; i < columns; i++) {
+            switch (c.getType(i)) {
+                case Cursor.FIELD_TYPE_INTEGER: row[i] = c.getLong(i); break;
+                case Cursor.FIELD_TYPE_FLOAT:   row[i] = c.getDouble(i); break;
+                case Cursor.FIELD_TYPE_NULL:    row[i] = null; break;
+                default:                        row[i] = c.getString(i); break;
+            }
+        }
+        return row;
+    }
+
+    private static Deck grow(Deck deck, int n) {
+
+        Deck d = new Deck(Math.max(16, n * 2));
+        System.arraycopy(deck.uids, 0, d.uids, 0, n);
+        System.arraycopy(deck.cntf, 0, d.cntf, 0, n);
+        System.arraycopy(deck.dwf, 0, d.dwf, 0, n);
+        System.arraycopy(deck.cntr, 0, d.cntr, 0, n);
+        System.arraycopy(deck.dwr, 0, d.dwr, 0, n);
+        return d;
+    }
+}
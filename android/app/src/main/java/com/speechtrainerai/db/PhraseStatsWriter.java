@@ -0,0 +1,347 @@
+package com.speechtrainerai.db;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import com.speechtrainerai.metrics.LatencyHistogram;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Отложенная (write-behind) запись статистики ответов в таблицу phrases.
+ *
+ * Раньше каждый ответ — отдельный UPDATE из JS через мост, в autocommit.
+ * Теперь put() только кладёт строку в буфер (по uid: более свежая
+ * заменяет ожидающую — значения абсолютные, не приращения), а поток
+ * записи сбрасывает буфер одной транзакцией с заранее подготовленным
+ * UPDATE:
+ *  - набралось maxBatch фраз
+ *  - прошло flushDelayMs с первой ожидающей записи
+ *  - flush() (приложение ушло в фон, JS перед чтением)
+ *  - close() — синхронно, с ожиданием (invalidate модуля)
+ *
+ * БД та же, что открывает react-native-sqlite-storage. Своё соединение
+ * переводит её в WAL: запись не блокирует чтение из JS. При падении
+ * процесса теряется не больше, чем накоплено за flushDelayMs.
+ */
+public final class PhraseStatsWriter {
+
+    private static final String TAG = "PhraseStatsWriter";
+
+    private static final String UPDATE_SQL =
+            "UPDATE phrases SET cntf=?, cntr=?, df=?, dr=?, dwf=?, dwr=?, tsf=?, tsr=? WHERE uid=?";
+
+    /** Строка SpItemResult; tsf / tsr — null, если не было показа. */
+    public static final class Row {
+        final String uid;
+        final long cntf;
+        final long cntr;
+        final double df;
+        final double dr;
+        final double dwf;
+        final double dwr;
+        final Long tsf;
+        final Long tsr;
+
+        public Row(String uid,
+                   long cntf, long cntr,
+                   double df, double dr,
+                   double dwf, double dwr,
+                   Long tsf, Long tsr) {
+            this.uid = uid;
+            this.cntf = cntf;
+            this.cntr = cntr;
+            this.df = df;
+            this.dr = dr;
+            this.dwf = dwf;
+            this.dwr = dwr;
+            this.tsf = tsf;
+            this.tsr = tsr;
+        }
+    }
+
+    private final File dbFile;
+
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "PhraseStatsWriter");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // writer thread only
+    private SQLiteDatabase db;
+    private SQLiteStatement update;
+
+    // ============================================================
+    // Buffer (guarded by this)
+    // ============================================================
+
+    private LinkedHashMap<String, Row> pending = new LinkedHashMap<>();
+    private ScheduledFuture<?> timer = null;
+    private boolean flushQueued = false;
+    private boolean closed = false;
+
+    private int maxBatch = 32;
+    private long flushDelayMs = 2000;
+
+    // ============================================================
+    // Stats
+    // ============================================================
+
+    private long queued = 0;
+    private long coalesced = 0;
+    private long flushes = 0;
+    private long rowsWritten = 0;
+    private long rowsMissing = 0;      // uid no longer in the table
+    private long failures = 0;
+    private long lastBatch = 0;
+    private long maxBatchSeen = 0;
+
+    private final LatencyHistogram flushLatency = new LatencyHistogram();
+
+    public PhraseStatsWriter(File dbFile) {
+        this.dbFile = dbFile;
+    }
+
+    public synchronized void configure(int maxBatch, long flushDelayMs) {
+        this.maxBatch = Math.max(1, maxBatch);
+        this.flushDelayMs = Math.max(0, flushDelayMs);
+    }
+
+    /**
+     * Поток вызывающего (модуль RN): только буфер, без диска.
+     * @return false — writer уже закрыт
+     */
+    public synchronized boolean put(Row row) {
+
+        if (closed) return false;
+
+        if (pending.put(row.uid, row) != null) coalesced++;
+        queued++;
+
+        if (pending.size() >= maxBatch) {
+            queueFlush();
+        } else if (timer == null && !flushQueued) {
+            timer = writer.schedule(this::flushNow, flushDelayMs, TimeUnit.MILLISECONDS);
+        }
+        return true;
+    }
+
+    /**
+     * Сбросить буфер сейчас (асинхронно); onFlushed — на потоке записи
+     * после коммита (или неудачи).
+     * @return false — writer уже закрыт, onFlushed не вызовется
+     */
+    public synchronized boolean flush(Runnable onFlushed) {
+        if (closed) return false;
+
+        writer.execute(() -> {
+            try {
+                flushNow();
+            } finally {
+                // readers / sync wait on this: runs even if the flush threw
+                if (onFlushed != null) onFlushed.run();
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Последний сброс + закрытие БД; ждёт не дольше timeoutMs.
+     * @return true — всё записано
+     */
+    public boolean close(long timeoutMs) {
+
+        synchronized (this) {
+            if (closed) return true;
+            closed = true;
+            if (timer != null) timer.cancel(false);
+        }
+
+        writer.execute(() -> {
+            flushNow();
+            closeDb();
+        });
+        writer.shutdown();
+
+        try {
+            if (!writer.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS)) {
+                Log.e(TAG, "close(): flush did not finish in " + timeoutMs + " ms");
+                return false;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+
+        synchronized (this) {
+            return pending.isEmpty();
+        }
+    }
+
+    // ============================================================
+    // Stats
+    // ============================================================
+
+    /**
+     * [pending, queued, coalesced, flushes, rowsWritten, rowsMissing,
+     *  failures, lastBatch, maxBatch]
+     */
+    public synchronized long[] getStats() {
+        return new long[] {
+                pending.size(), queued, coalesced, flushes, rowsWritten, rowsMissing,
+                failures, lastBatch, maxBatchSeen
+        };
+    }
+
+    public LatencyHistogram getFlushLatency() {
+        return flushLatency;
+    }
+
+    public synchronized void resetStats() {
+        queued = 0;
+        coalesced = 0;
+        flushes = 0;
+        rowsWritten = 0;
+        rowsMissing = 0;
+        failures = 0;
+        lastBatch = 0;
+        maxBatchSeen = 0;
+        flushLatency.reset();
+    }
+
+    // ============================================================
+    // Writer thread
+    // ============================================================
+
+    private void queueFlush() {
+        if (flushQueued) return;
+
+        flushQueued = true;
+        if (timer != null) {
+            timer.cancel(false);
+            timer = null;
+        }
+        writer.execute(this::flushNow);
+    }
+
+    private void flushNow() {
+
+        LinkedHashMap<String, Row> batch;
+
+        synchronized (this) {
+            flushQueued = false;
+            if (timer != null) {
+                timer.cancel(false);
+                timer = null;
+            }
+
+            if (pending.isEmpty()) return;
+
+            batch = pending;
+            pending = new LinkedHashMap<>();
+        }
+
+        long t0 = System.nanoTime();
+        int missing = 0;
+
+        try {
+            open();
+
+            db.beginTransactionNonExclusive();
+            try {
+                for (Row r : batch.values()) {
+                    bind(r);
+                    if (update.executeUpdateDelete() == 0) missing++;
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+
+        } catch (RuntimeException ex) {
+            // SQLException, or anything else: the batch is already out of pending
+            Log.e(TAG, "Flush of " + batch.size() + " row(s) failed, will retry", ex);
+
+            synchronized (this) {
+                failures++;
+
+                // newer rows queued meanwhile win over the failed ones
+                for (Map.Entry<String, Row> e : batch.entrySet()) {
+                    pending.putIfAbsent(e.getKey(), e.getValue());
+                }
+
+                if (!closed && timer == null) {
+                    timer = writer.schedule(this::flushNow, Math.max(flushDelayMs, 1000),
+                            TimeUnit.MILLISECONDS);
+                }
+            }
+            return;
+        }
+
+        flushLatency.recordSince(t0, System.nanoTime());
+
+        synchronized (this) {
+            flushes++;
+            rowsWritten += batch.size() - missing;
+            rowsMissing += missing;
+            lastBatch = batch.size();
+            maxBatchSeen = Math.max(maxBatchSeen, batch.size());
+        }
+    }
+
+    private void bind(Row r) {
+        update.clearBindings();
+        update.bindLong(1, r.cntf);
+        update.bindLong(2, r.cntr);
+        update.bindDouble(3, r.df);
+        update.bindDouble(4, r.dr);
+        update.bindDouble(5, r.dwf);
+        update.bindDouble(6, r.dwr);
+        if (r.tsf != null) update.bindLong(7, r.tsf); else update.bindNull(7);
+        if (r.tsr != null) update.bindLong(8, r.tsr); else update.bindNull(8);
+        update.bindString(9, r.uid);
+    }
+
+    private void open() {
+
+        if (db != null) return;
+
+        // the schema belongs to JS (initSpeechDb): never create the file here
+        SQLiteDatabase d = SQLiteDatabase.openDatabase(
+                dbFile.getPath(), null, SQLiteDatabase.OPEN_READWRITE);
+
+        try {
+            // persistent for the file: the JS connection gets WAL too
+            if (!d.enableWriteAheadLogging()) {
+                Log.w(TAG, "WAL not enabled for " + dbFile);
+            }
+
+            update = d.compileStatement(UPDATE_SQL);
+        } catch (RuntimeException ex) {
+            d.close();   // e.g. table not created yet: retried on the next flush
+            throw ex;
+        }
+
+        db = d;
+        Log.i(TAG, "Opened " + dbFile + " (WAL)");
+    }
+
+    private void closeDb() {
+        if (update != null) {
+            update.close();
+            update = null;
+        }
+        if (db != null) {
+            db.close();
+            db = null;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.speechtrainerai.db;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import java.io.File;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Синтетическая колода для замеров загрузки (debug): отдельный файл БД
+ * со схемой phrases из initSpeechDb и rows строк похожего на настоящие
+ * размера — тема на ~50 фраз, q / a по несколько слов, у части фраз
+ * сохранённые варианты.
+ *
+ * Схема продублирована намеренно: рабочую БД замер не трогает.
+ */
+public final class SyntheticDeck {
+
+    private static final int PHRASES_PER_TOPIC = 50;
+
+    private static final String[] WORDS = {
+            "hello", "world", "morning", "station", "ticket", "coffee", "window",
+            "yesterday", "weather", "question", "answer", "kitchen", "friend",
+            "library", "evening", "travel", "market", "language", "number", "river",
+    };
+
+    private SyntheticDeck() {
+    }
+
+    /** Пересоздаёт файл; seed фиксирован — колода одна и та же на каждый rows. */
+    public static void create(File file, int rows) {
+
+        SQLiteDatabase.deleteDatabase(file);
+
+        SQLiteDatabase db = SQLiteDatabase.openDatabase(file.getPath(), null,
+                SQLiteDatabase.OPEN_READWRITE | SQLiteDatabase.CREATE_IF_NECESSARY);
+
+        try {
+            db.execSQL("CREATE TABLE phrases ("
+                    + " uid TEXT PRIMARY KEY, topic TEXT NOT NULL, q TEXT NOT NULL, a TEXT NOT NULL,"
+                    + " variants TEXT DEFAULT NULL,"
+                    + " cntf INTEGER DEFAULT 0, cntr INTEGER DEFAULT 0,"
+                    + " df REAL DEFAULT 0, dr REAL DEFAULT 0, dwf REAL DEFAULT 0, dwr REAL DEFAULT 0,"
+                    + " tsf INTEGER DEFAULT NULL, tsr INTEGER DEFAULT NULL)");
+            db.execSQL("CREATE INDEX phrases_topic_uid ON phrases(topic, uid)");
+
+            Random random = new Random(rows);
+            long now = System.currentTimeMillis();
+
+            SQLiteStatement insert = db.compileStatement(
+                    "INSERT INTO phrases(uid, topic, q, a, variants, cntf, cntr, df, dr, dwf, dwr, tsf, tsr)"
+                            + " VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+
+            db.beginTransaction();
+            try {
+                for (int i = 0; i < rows; i++) {
+                    int cntf = random.nextInt(20);
+                    int cntr = random.nextInt(5);
+                    double dwf = cntf > 0 ? 500 + random.nextInt(3000) : 0;
+                    double dwr = cntr > 0 ? 500 + random.nextInt(3000) : 0;
+
+                    insert.clearBindings();
+                    insert.bindString(1, String.format(Locale.ROOT, "%08X", i * 2654435761L & 0xFFFFFFFFL));
+                    insert.bindString(2, String.format(Locale.ROOT, "topic %04d", i / PHRASES_PER_TOPIC));
+                    insert.bindString(3, sentence(random));
+                    insert.bindString(4, sentence(random));
+                    insert.bindString(5, random.nextInt(4) == 0
+                            ? "[{\"word\":\"" + word(random) + "\",\"variants\":[\"" + word(random)
+                                    + "\",\"" + word(random) + "\"]}]"
+                            : "[]");
+                    insert.bindLong(6, cntf);
+                    insert.bindLong(7, cntr);
+                    insert.bindDouble(8, dwf * 3);
+                    insert.bindDouble(9, dwr * 3);
+                    insert.bindDouble(10, dwf);
+                    insert.bindDouble(11, dwr);
+                    if (cntf > 0) insert.bindLong(12, now - random.nextInt(1_000_000_000)); else insert.bindNull(12);
+                    if (cntr > 0) insert.bindLong(13, now - random.nextInt(1_000_000_000)); else insert.bindNull(13);
+                    insert.executeInsert();
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+                insert.close();
+            }
+        } finally {
+            db.close();
+        }
+    }
+
+    private static String sentence(Random random) {
+
+        StringBuilder sb = new StringBuilder();
+        int words = 3 + random.nextInt(5);
+
+        for (int i = 0; i < words; i++) {
+            if (i > 0) sb.append(' ');
+            sb.append(word(random));
+        }
+        return sb.toString();
+    }
+
+    private static String word(Random random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+}
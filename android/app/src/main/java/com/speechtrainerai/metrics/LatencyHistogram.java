@@ -0,0 +1,132 @@
+package com.speechtrainerai.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Логарифмически-линейная (HDR-style) гистограмма задержек в микросекундах.
+ *
+ * Значения < 8 мкс — по своей корзине; дальше каждая степень двойки
+ * делится на 8 под-корзин (~12% точности), до 2^32 мкс (~71 мин).
+ * record() — несколько атомарных инкрементов, без локов и аллокаций.
+ *
+ * Раскладка корзин совпадает с native LatencyHistogram (PipelineMetrics.h):
+ * снимок native гистограммы читается через fromSnapshot().
+ */
+public final class LatencyHistogram {
+
+    static final int SUB_BITS = 3;
+    static final int SUB = 1 << SUB_BITS;
+    static final int MAX_EXP = 31;
+    public static final int BUCKETS = (MAX_EXP - SUB_BITS + 2) * SUB;   // 240
+
+    /** count, sumUs, maxUs + BUCKETS */
+    public static final int SNAPSHOT_SIZE = 3 + BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sumUs = new AtomicLong();
+    private final AtomicLong maxUs = new AtomicLong();
+
+    static int bucketOf(long us) {
+
+        if (us < SUB) return (int) Math.max(0, us);
+
+        int e = 63 - Long.numberOfLeadingZeros(us);
+        if (e > MAX_EXP) {
+            e = MAX_EXP;
+            us = (2L << MAX_EXP) - 1;
+        }
+
+        return (e - SUB_BITS + 1) * SUB + (int) ((us >>> (e - SUB_BITS)) & (SUB - 1));
+    }
+
+    /** Верхняя граница корзины (включительно), мкс */
+    static long bucketHigh(int index) {
+
+        if (index < SUB) return index;
+
+        int e = index / SUB - 1 + SUB_BITS;
+        long sub = index % SUB;
+        long width = 1L << (e - SUB_BITS);
+
+        return ((SUB + sub) << (e - SUB_BITS)) + width - 1;
+    }
+
+    public void record(long us) {
+        counts.incrementAndGet(bucketOf(us));
+        count.incrementAndGet();
+        sumUs.addAndGet(us);
+
+        long max = maxUs.get();
+        while (us > max && !maxUs.compareAndSet(max, us)) {
+            max = maxUs.get();
+        }
+    }
+
+    /** Интервал от startNanos (System.nanoTime()) до nowNanos */
+    public void recordSince(long startNanos, long nowNanos) {
+        if (startNanos == 0 || nowNanos < startNanos) return;
+        record((nowNanos - startNanos) / 1000);
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+        count.set(0);
+        sumUs.set(0);
+        maxUs.set(0);
+    }
+
+    /**
+     * Native снимок: [count, sumUs, maxUs, counts...] с offset.
+     */
+    public static LatencyHistogram fromSnapshot(long[] snapshot, int offset) {
+
+        LatencyHistogram h = new LatencyHistogram();
+
+        h.count.set(snapshot[offset]);
+        h.sumUs.set(snapshot[offset + 1]);
+        h.maxUs.set(snapshot[offset + 2]);
+
+        for (int i = 0; i < BUCKETS; i++) {
+            h.counts.set(i, snapshot[offset + 3 + i]);
+        }
+
+        return h;
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMaxUs() {
+        return maxUs.get();
+    }
+
+    public double getMeanUs() {
+        long n = count.get();
+        return n > 0 ? (double) sumUs.get() / n : 0;
+    }
+
+    /**
+     * @param q 0..1 (0.5 = p50)
+     * @return верхняя граница корзины с q-квантилем (не больше max), мкс
+     */
+    public long getPercentileUs(double q) {
+
+        long n = count.get();
+        if (n == 0) return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(q * n));
+        long seen = 0;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(bucketHigh(i), maxUs.get());
+            }
+        }
+
+        return maxUs.get();
+    }
+}
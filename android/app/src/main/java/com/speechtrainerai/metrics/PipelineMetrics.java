@@ -0,0 +1,56 @@
+package com.speechtrainerai.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Java-этапы конвейера "микрофон → JS" (native этапы — в PipelineMetrics.h).
+ *
+ * Каждый аудио-чанк несёт время захвата (System.nanoTime() сразу после
+ * AudioRecord.read) через nativePushAudio в AudioBuffer и дальше в
+ * результат распознавания, так что END_TO_END = от захвата самого свежего
+ * аудио в результате до emit в JS.
+ *
+ * Все этапы — в микросекундах.
+ */
+public final class PipelineMetrics {
+
+    public enum Stage {
+        READ,         // блокировка в AudioRecord.read
+        PUSH,         // захват → nativePushAudio вернулся (VAD + JNI + копия в буфер)
+        EMIT,         // onNativeResult → emit в JS вернулся (coalescing + мост)
+        END_TO_END    // захват → emit в JS
+    }
+
+    private static final PipelineMetrics INSTANCE = new PipelineMetrics();
+
+    public static PipelineMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    private final LatencyHistogram[] stages = new LatencyHistogram[Stage.values().length];
+
+    // ============================================================
+    // Counters
+    // ============================================================
+
+    public final AtomicLong framesCaptured = new AtomicLong();
+    public final AtomicLong framesPushed = new AtomicLong();
+    public final AtomicLong resultsEmitted = new AtomicLong();
+
+    private PipelineMetrics() {
+        for (int i = 0; i < stages.length; i++) {
+            stages[i] = new LatencyHistogram();
+        }
+    }
+
+    public LatencyHistogram stage(Stage stage) {
+        return stages[stage.ordinal()];
+    }
+
+    public void reset() {
+        for (LatencyHistogram h : stages) h.reset();
+        framesCaptured.set(0);
+        framesPushed.set(0);
+        resultsEmitted.set(0);
+    }
+}
@@ -0,0 +1,50 @@
+package com.speechtrainerai.rn_java_connector;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableMap;
+
+import com.speechtrainerai.metrics.LatencyHistogram;
+
+/**
+ * Bridge argument / result helpers shared by the modules of this package.
+ */
+final class BridgeMaps {
+
+    private BridgeMaps() {
+    }
+
+    /** Percentiles in microseconds, same shape as StageLatency in JS. */
+    static WritableMap toWritableMap(LatencyHistogram h) {
+
+        WritableMap map = Arguments.createMap();
+        map.putDouble("count", h.getCount());
+        map.putDouble("meanUs", h.getMeanUs());
+        map.putDouble("p50Us", h.getPercentileUs(0.50));
+        map.putDouble("p90Us", h.getPercentileUs(0.90));
+        map.putDouble("p99Us", h.getPercentileUs(0.99));
+        map.putDouble("maxUs", h.getMaxUs());
+        return map;
+    }
+
+    static double optDouble(ReadableMap map, String key) {
+        return map.hasKey(key) && !map.isNull(key) ? map.getDouble(key) : 0;
+    }
+
+    static Long optLong(ReadableMap map, String key) {
+        return map.hasKey(key) && !map.isNull(key) ? (long) map.getDouble(key) : null;
+    }
+
+    static String optString(ReadableMap map, String key) {
+        return map.hasKey(key) && !map.isNull(key) ? map.getString(key) : null;
+    }
+
+    static String[] toStringArray(ReadableArray array) {
+        String[] out = new String[array != null ? array.size() : 0];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = array.getString(i);
+        }
+        return out;
+    }
+}
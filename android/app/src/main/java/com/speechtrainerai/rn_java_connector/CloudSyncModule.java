@@ -0,0 +1,185 @@
+package com.speechtrainerai.rn_java_connector;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableMap;
+
+import android.database.SQLException;
+import android.util.Log;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.speechtrainerai.sync.CloudSync;
+import com.speechtrainerai.sync.CloudSyncClient;
+import com.speechtrainerai.sync.SqliteSyncStore;
+
+import static com.speechtrainerai.rn_java_connector.BridgeMaps.optString;
+import static com.speechtrainerai.rn_java_connector.BridgeMaps.toWritableMap;
+
+/**
+ * Cloud sync of the phrases table with the Apps Script endpoint (see
+ * CloudSync). Queued answer statistics are committed through
+ * PhraseStoreModule before each sync, so they are part of it.
+ */
+public class CloudSyncModule extends ReactContextBaseJavaModule {
+
+    private static final String TAG = "CloudSync";
+
+    private static final int SYNC_BATCH_ROWS_DEFAULT = 200;
+
+    private final PhraseStoreModule store;
+    private final SqliteSyncStore syncStore;
+
+    // network + apply off the JS thread, one sync at a time
+    private final ExecutorService syncExecutor =
+            Executors.newSingleThreadExecutor(r -> new Thread(r, "CloudSync"));
+
+    // set by configureCloudSync(); guarded by this
+    private CloudSync cloudSync;
+
+    public CloudSyncModule(ReactApplicationContext ctx, PhraseStoreModule store) {
+        super(ctx);
+        this.store = store;
+        syncStore = new SqliteSyncStore(store.getDatabaseFile());
+    }
+
+    @Override
+    public String getName() {
+        return "CloudSync";
+    }
+
+    // ============================================================
+    // CLOUD SYNC (whole table by default, changed phrases on opt-in)
+    // ============================================================
+
+    /**
+     * config: { url, batchRows?, compress?, delta? }. Replaces the previous
+     * sync engine; its stats start over. Both options are off unless asked
+     * for, since the server has to understand them:
+     *  - compress: the payload goes as base64(gzip) inside the JSON
+     *    envelope with encoding: "gzip" (no HTTP Content-Encoding)
+     *  - delta: push only changed rows and pull after the (Ts, Uid)
+     *    watermark; needs a server that upserts by Uid, stamps Ts and
+     *    keeps Deleted tombstones. Otherwise the whole table goes up and
+     *    comes down, as SendDatabaseToCloud / ReceiveAllRowsFromCloud did.
+     */
+    @ReactMethod
+    public void configureCloudSync(ReadableMap config, Promise p) {
+
+        String url = optString(config, "url");
+        if (url == null) {
+            p.reject("BAD_CONFIG", "url is required");
+            return;
+        }
+
+        int batchRows = config.hasKey("batchRows") ? config.getInt("batchRows") : SYNC_BATCH_ROWS_DEFAULT;
+        boolean compress = config.hasKey("compress") && config.getBoolean("compress");
+        boolean delta = config.hasKey("delta") && config.getBoolean("delta");
+
+        try {
+            CloudSyncClient client = new CloudSyncClient(new URL(url), compress);
+            synchronized (this) {
+                cloudSync = new CloudSync(syncStore, client, batchRows, delta);
+            }
+            p.resolve(null);
+        } catch (MalformedURLException ex) {
+            p.reject("BAD_CONFIG", ex.getMessage());
+        }
+    }
+
+    /**
+     * Push, then pull (see configureCloudSync for what each mode sends).
+     * Queued phrase results are committed first, so they are part of this
+     * sync.
+     */
+    @ReactMethod
+    public void syncPhrases(Promise p) {
+
+        CloudSync sync;
+        synchronized (this) {
+            sync = cloudSync;
+        }
+        if (sync == null) {
+            p.reject("SYNC_NOT_CONFIGURED", "Call configureCloudSync() first");
+            return;
+        }
+
+        Runnable run = () -> syncExecutor.execute(() -> {
+            try {
+                CloudSync.Result r = sync.sync();
+
+                WritableMap map = Arguments.createMap();
+                map.putInt("pushedRows", r.pushedRows);
+                map.putInt("pushBatches", r.pushBatches);
+                map.putInt("pulledRows", r.pulledRows);
+                map.putInt("pullPages", r.pullPages);
+                map.putInt("appliedRows", r.appliedRows);
+                map.putDouble("bytesSent", r.bytesSent);
+                map.putDouble("bytesReceived", r.bytesReceived);
+                map.putDouble("durationMs", r.durationMs);
+                p.resolve(map);
+            } catch (IOException | RuntimeException ex) {
+                // SQLException is a RuntimeException; so are bad server JSON and the like
+                Log.e(TAG, "Cloud sync failed", ex);
+                p.reject("SYNC_FAILED", ex.getMessage());
+            }
+        });
+
+        store.afterPendingWrites(run);
+    }
+
+    @ReactMethod
+    public void getCloudSyncStats(Promise p) {
+
+        CloudSync sync;
+        synchronized (this) {
+            sync = cloudSync;
+        }
+
+        syncExecutor.execute(() -> {
+            try {
+                WritableMap map = Arguments.createMap();
+                map.putInt("pendingChanges", syncStore.pendingCount());
+
+                if (sync != null) {
+                    long[] s = sync.getStats();
+                    map.putDouble("syncs", s[0]);
+                    map.putDouble("failures", s[1]);
+                    map.putDouble("pushedRows", s[2]);
+                    map.putDouble("pulledRows", s[3]);
+                    map.putDouble("appliedRows", s[4]);
+                    map.putMap("syncLatency", toWritableMap(sync.getSyncLatency()));
+                }
+                p.resolve(map);
+            } catch (SQLException ex) {
+                p.reject("DB_ERROR", ex.getMessage());
+            }
+        });
+    }
+
+    @ReactMethod
+    public void resetCloudSyncStats(Promise p) {
+
+        synchronized (this) {
+            if (cloudSync != null) cloudSync.resetStats();
+        }
+        p.resolve(null);
+    }
+
+    @Override
+    public void invalidate() {
+        super.invalidate();
+
+        // a running sync finishes its current request; the store goes after it
+        syncExecutor.execute(syncStore::close);
+        syncExecutor.shutdown();
+    }
+}
@@ -5,11 +5,102 @@ import android.content.res.AssetManager;
 import android.util.Log;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
 
+/**
+ * Installs a model folder from assets into internal storage.
+ *
+ * Layout:
+ *   assets/<model>/...                   model files
+ *   assets/<model>.manifest              "sha256 size path" per file (generated by Gradle)
+ *   filesDir/models/.staging-<model>-<v> copy in progress (+ .journal of verified files)
+ *   filesDir/models/<model>-<v>          installed model (+ .installed marker)
+ *
+ * <v> is derived from the manifest, so a new model build gets a new directory.
+ * Installs of one model are serialized (AsrPreload and prepareModel may race);
+ * the second caller finds the first one's install and returns it.
+ * A killed install resumes from the journal (journaled files are hashed again,
+ * not trusted on size); the staging directory is renamed into place only
+ * after every file has been size- and checksum-verified.
+ */
 public class ModelInstaller {
 
     private static final String TAG = "ModelInstaller";
 
+    private static final String MODELS_DIR = "models";
+    private static final String MARKER = ".installed";
+    private static final String JOURNAL = ".journal";
+    private static final String NO_MANIFEST_VERSION = "nomanifest";
+
+    private static final int COPY_BUFFER_SIZE = 256 * 1024;
+    private static final long PROGRESS_STEP_BYTES = 2L * 1024 * 1024;
+
+    public interface ProgressListener {
+        void onProgress(long bytesDone, long bytesTotal, int filesDone, int filesTotal);
+    }
+
+    /**
+     * Timing / work summary of the last installModelIfNeeded() call.
+     */
+    public static final class InstallReport {
+        public final String path;
+        public final String version;
+        public final boolean alreadyInstalled;
+        public final boolean verified;
+        public final int filesCopied;
+        public final int filesReused;
+        public final long bytesCopied;
+        public final long durationMs;
+
+        InstallReport(String path, String version, boolean alreadyInstalled, boolean verified,
+                      int filesCopied, int filesReused, long bytesCopied, long durationMs) {
+            this.path = path;
+            this.version = version;
+            this.alreadyInstalled = alreadyInstalled;
+            this.verified = verified;
+            this.filesCopied = filesCopied;
+            this.filesReused = filesReused;
+            this.bytesCopied = bytesCopied;
+            this.durationMs = durationMs;
+        }
+    }
+
+    private static final class Entry {
+        final String path;
+        final long size;        // -1 = unknown (no manifest)
+        final String sha256;    // null = unknown (no manifest)
+
+        Entry(String path, long size, String sha256) {
+            this.path = path;
+            this.size = size;
+            this.sha256 = sha256;
+        }
+    }
+
+    private static volatile InstallReport lastReport;
+
+    // one lock per asset folder: installs share the staging dir and journal
+    private static final ConcurrentHashMap<String, Object> installLocks = new ConcurrentHashMap<>();
+
+    public static InstallReport getLastReport() {
+        return lastReport;
+    }
+
     /**
      * Copies a full folder from assets into internal storage.
      *
@@ -19,62 +110,454 @@ public class ModelInstaller {
      */
     public static String installModelIfNeeded(Context context, String assetFolderName)
             throws IOException {
+        return installModelIfNeeded(context, assetFolderName, null);
+    }
+
+    public static String installModelIfNeeded(Context context,
+                                              String assetFolderName,
+                                              ProgressListener listener)
+            throws IOException {
+
+        Object lock = installLocks.get(assetFolderName);
+        if (lock == null) {
+            Object created = new Object();
+            lock = installLocks.putIfAbsent(assetFolderName, created);
+            if (lock == null) lock = created;
+        }
+
+        synchronized (lock) {
+            return install(context, assetFolderName, listener);
+        }
+    }
+
+    private static String install(Context context,
+                                  String assetFolderName,
+                                  ProgressListener listener)
+            throws IOException {
+
+        long startedAt = System.nanoTime();
+        AssetManager assets = context.getAssets();
+
+        List<Entry> entries = readManifest(assets, assetFolderName);
+        boolean hasManifest = entries != null;
+        String version;
 
-        File targetDir = new File(context.getFilesDir(), assetFolderName);
+        if (hasManifest) {
+            version = manifestVersion(assets, assetFolderName);
+        } else {
+            Log.w(TAG, "No manifest for " + assetFolderName + ", installing unverified");
+            entries = new ArrayList<>();
+            listAssetFiles(assets, assetFolderName, "", entries);
+            version = NO_MANIFEST_VERSION;
+        }
+
+        File modelsDir = new File(context.getFilesDir(), MODELS_DIR);
+        File targetDir = new File(modelsDir, assetFolderName + "-" + version);
 
-        if (targetDir.exists() && targetDir.isDirectory()) {
+        // ============================================================
+        // Fast path: verified install of this exact version
+        // ============================================================
+        if (isInstalled(targetDir, version)) {
             Log.i(TAG, "Model already installed: " + targetDir.getAbsolutePath());
+            lastReport = new InstallReport(targetDir.getAbsolutePath(), version,
+                    true, hasManifest, 0, 0, 0, elapsedMs(startedAt));
             return targetDir.getAbsolutePath();
         }
 
-        Log.i(TAG, "Installing model from assets: " + assetFolderName);
-        copyAssetFolder(context.getAssets(), assetFolderName, targetDir.getAbsolutePath());
+        Log.i(TAG, "Installing model from assets: " + assetFolderName + " (v " + version + ")");
+
+        File stagingDir = new File(modelsDir, ".staging-" + assetFolderName + "-" + version);
+        if (!stagingDir.exists() && !stagingDir.mkdirs()) {
+            throw new IOException("Cannot create " + stagingDir);
+        }
+
+        // ============================================================
+        // Copy (parallel across files), resuming from the journal
+        // ============================================================
+        Set<String> journaled = readJournal(stagingDir);
+
+        long bytesTotal = 0;
+        for (Entry e : entries) bytesTotal += Math.max(0, e.size);
+
+        CopyProgress progress = new CopyProgress(listener, bytesTotal, entries.size());
+        AtomicInteger filesCopied = new AtomicInteger();
+        AtomicInteger filesReused = new AtomicInteger();
+        AtomicLong bytesCopied = new AtomicLong();
+
+        int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+
+        try (Writer journal = new OutputStreamWriter(
+                new FileOutputStream(new File(stagingDir, JOURNAL), true),
+                StandardCharsets.UTF_8)) {
+
+            List<Future<?>> jobs = new ArrayList<>();
+
+            for (Entry e : entries) {
+                File out = new File(stagingDir, e.path);
+                boolean resumable = journaled.contains(e.path) && (e.size < 0 || out.length() == e.size);
+
+                jobs.add(pool.submit(() -> {
+                    // verified when journaled, but a power loss can drop
+                    // unsynced pages or a later write can damage the file
+                    if (resumable && matchesChecksum(out, e)) {
+                        filesReused.incrementAndGet();
+                        progress.fileDone(Math.max(0, e.size));
+                        return null;
+                    }
+
+                    long n = copyAndVerify(assets, assetFolderName + "/" + e.path, out, e, progress);
+                    bytesCopied.addAndGet(n);
+                    filesCopied.incrementAndGet();
+                    synchronized (journal) {
+                        journal.write(e.path);
+                        journal.write('\n');
+                        journal.flush();
+                    }
+                    progress.fileDone(0);
+                    return null;
+                }));
+            }
+
+            for (Future<?> job : jobs) {
+                job.get();
+            }
+
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            throw new IOException("Model install failed", cause);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Model install interrupted");
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // ============================================================
+        // Final size check, marker, atomic rename into place
+        // ============================================================
+        for (Entry e : entries) {
+            File f = new File(stagingDir, e.path);
+            if (!f.isFile() || (e.size >= 0 && f.length() != e.size)) {
+                throw new IOException("Verification failed: " + e.path);
+            }
+        }
+
+        writeMarker(stagingDir, version);
+        new File(stagingDir, JOURNAL).delete();
+
+        if (targetDir.exists()) {
+            // unmarked leftovers of a broken install
+            deleteRecursive(targetDir);
+        }
+
+        if (!stagingDir.renameTo(targetDir)) {
+            throw new IOException("Cannot rename " + stagingDir + " -> " + targetDir);
+        }
+
+        removeStaleInstalls(context, modelsDir, assetFolderName, targetDir);
+
+        lastReport = new InstallReport(targetDir.getAbsolutePath(), version,
+                false, hasManifest, filesCopied.get(), filesReused.get(),
+                bytesCopied.get(), elapsedMs(startedAt));
+
+        Log.i(TAG, "Model installed at: " + targetDir.getAbsolutePath()
+                + " in " + lastReport.durationMs + " ms"
+                + " (copied " + lastReport.filesCopied
+                + ", reused " + lastReport.filesReused + ")");
 
-        Log.i(TAG, "Model installed at: " + targetDir.getAbsolutePath());
         return targetDir.getAbsolutePath();
     }
 
-    private static void copyAssetFolder(AssetManager assets,
-                                        String fromAssetPath,
-                                        String toPath) throws IOException {
+    // ============================================================
+    // Manifest
+    // ============================================================
 
-        String[] files = assets.list(fromAssetPath);
-        if (files == null) return;
+    private static List<Entry> readManifest(AssetManager assets, String assetFolderName)
+            throws IOException {
 
-        File dir = new File(toPath);
-        if (!dir.exists()) dir.mkdirs();
+        InputStream in;
+        try {
+            in = assets.open(assetFolderName + ".manifest");
+        } catch (FileNotFoundException ex) {
+            return null;
+        }
 
-        for (String file : files) {
-            String assetFilePath = fromAssetPath + "/" + file;
-            String targetFilePath = toPath + "/" + file;
+        List<Entry> entries = new ArrayList<>();
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(in, StandardCharsets.UTF_8))) {
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+
+                // sha256 size path (path may contain spaces)
+                String[] parts = line.split(" ", 3);
+                if (parts.length != 3) {
+                    throw new IOException("Bad manifest line: " + line);
+                }
+                entries.add(new Entry(parts[2], Long.parseLong(parts[1]), parts[0]));
+            }
+        }
+
+        return entries;
+    }
 
-            String[] subFiles = assets.list(assetFilePath);
+    private static String manifestVersion(AssetManager assets, String assetFolderName)
+            throws IOException {
+
+        MessageDigest md = sha256();
+
+        try (InputStream in = assets.open(assetFolderName + ".manifest")) {
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) != -1) md.update(buf, 0, n);
+        }
+
+        return toHex(md.digest()).substring(0, 12);
+    }
+
+    /**
+     * Fallback when no manifest is packaged: old recursive walk.
+     */
+    private static void listAssetFiles(AssetManager assets,
+                                       String root,
+                                       String relative,
+                                       List<Entry> out) throws IOException {
 
-            if (subFiles != null && subFiles.length > 0) {
-                // directory
-                copyAssetFolder(assets, assetFilePath, targetFilePath);
+        String assetPath = relative.isEmpty() ? root : root + "/" + relative;
+        String[] files = assets.list(assetPath);
+        if (files == null) return;
+
+        for (String file : files) {
+            String rel = relative.isEmpty() ? file : relative + "/" + file;
+            String[] sub = assets.list(root + "/" + rel);
+
+            if (sub != null && sub.length > 0) {
+                listAssetFiles(assets, root, rel, out);
             } else {
-                // file
-                copyAssetFile(assets, assetFilePath, targetFilePath);
+                out.add(new Entry(rel, -1, null));
+            }
+        }
+    }
+
+    // ============================================================
+    // Copy
+    // ============================================================
+
+    private static final class CopyProgress {
+        private final ProgressListener listener;
+        private final long bytesTotal;
+        private final int filesTotal;
+        private final AtomicLong bytesDone = new AtomicLong();
+        private final AtomicInteger filesDone = new AtomicInteger();
+        private final AtomicLong lastReported = new AtomicLong();
+
+        CopyProgress(ProgressListener listener, long bytesTotal, int filesTotal) {
+            this.listener = listener;
+            this.bytesTotal = bytesTotal;
+            this.filesTotal = filesTotal;
+        }
+
+        void bytes(long n) {
+            long done = bytesDone.addAndGet(n);
+            long last = lastReported.get();
+            if (done - last >= PROGRESS_STEP_BYTES && lastReported.compareAndSet(last, done)) {
+                report(done);
+            }
+        }
+
+        void fileDone(long skippedBytes) {
+            filesDone.incrementAndGet();
+            report(bytesDone.addAndGet(skippedBytes));
+        }
+
+        private void report(long done) {
+            if (listener != null) {
+                listener.onProgress(done, bytesTotal, filesDone.get(), filesTotal);
             }
         }
     }
 
-    private static void copyAssetFile(AssetManager assets,
+    /**
+     * Single pass: copy with a large buffer, hash on the fly, fsync.
+     *
+     * @return bytes written
+     */
+    private static long copyAndVerify(AssetManager assets,
                                       String assetFilePath,
-                                      String targetFilePath) throws IOException {
+                                      File target,
+                                      Entry entry,
+                                      CopyProgress progress) throws IOException {
+
+        File parent = target.getParentFile();
+        if (parent != null && !parent.exists()) parent.mkdirs();
+
+        MessageDigest md = sha256();
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        long total = 0;
+
+        try (InputStream in = assets.open(assetFilePath);
+             FileOutputStream out = new FileOutputStream(target)) {
+
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                md.update(buffer, 0, read);
+                total += read;
+                progress.bytes(read);
+            }
+
+            out.getFD().sync();
+        }
+
+        if (entry.size >= 0 && total != entry.size) {
+            target.delete();
+            throw new IOException("Size mismatch for " + entry.path
+                    + ": " + total + " != " + entry.size);
+        }
+
+        if (entry.sha256 != null && !entry.sha256.equalsIgnoreCase(toHex(md.digest()))) {
+            target.delete();
+            throw new IOException("Checksum mismatch for " + entry.path);
+        }
+
+        return total;
+    }
+
+    /** Re-hash of a resumed file; without a manifest there is nothing to compare. */
+    private static boolean matchesChecksum(File file, Entry entry) throws IOException {
+
+        if (entry.sha256 == null) return true;
+
+        MessageDigest md = sha256();
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+
+        try (InputStream in = new FileInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                md.update(buffer, 0, read);
+            }
+        }
 
-        InputStream in = assets.open(assetFilePath);
-        OutputStream out = new FileOutputStream(targetFilePath);
+        if (entry.sha256.equalsIgnoreCase(toHex(md.digest()))) return true;
 
-        byte[] buffer = new byte[4096];
-        int read;
-        while ((read = in.read(buffer)) != -1) {
-            out.write(buffer, 0, read);
+        Log.w(TAG, "Journaled file changed, copying again: " + entry.path);
+        return false;
+    }
+
+    // ============================================================
+    // Install state
+    // ============================================================
+
+    private static boolean isInstalled(File dir, String version) {
+
+        File marker = new File(dir, MARKER);
+        if (!marker.isFile()) return false;
+
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(
+                new FileInputStream(marker), StandardCharsets.UTF_8))) {
+            return version.equals(r.readLine());
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    private static void writeMarker(File dir, String version) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(new File(dir, MARKER))) {
+            out.write((version + "\n").getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+    }
+
+    private static Set<String> readJournal(File stagingDir) {
+
+        File journal = new File(stagingDir, JOURNAL);
+        if (!journal.isFile()) return Collections.emptySet();
+
+        Set<String> done = new HashSet<>();
+
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(
+                new FileInputStream(journal), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                if (!line.isEmpty()) done.add(line);
+            }
+        } catch (IOException ex) {
+            Log.w(TAG, "Cannot read journal, recopying everything", ex);
+            return Collections.emptySet();
         }
 
-        in.close();
-        out.flush();
-        out.close();
+        Log.i(TAG, "Resuming install, " + done.size() + " files already verified");
+        return done;
+    }
+
+    /**
+     * Removes other versions of this model and the pre-versioning
+     * install at filesDir/<model>.
+     */
+    private static void removeStaleInstalls(Context context,
+                                            File modelsDir,
+                                            String assetFolderName,
+                                            File keep) {
+
+        File legacy = new File(context.getFilesDir(), assetFolderName);
+        if (legacy.isDirectory()) {
+            Log.i(TAG, "Removing legacy install: " + legacy);
+            deleteRecursive(legacy);
+        }
+
+        File[] siblings = modelsDir.listFiles();
+        if (siblings == null) return;
+
+        // exactly <model>-<v> / .staging-<model>-<v>: a model whose name
+        // extends this one ("<model>-lgraph") is not a version of it
+        Pattern ownDirs = Pattern.compile("(\\.staging-)?" + Pattern.quote(assetFolderName)
+                + "-([0-9a-f]{12}|" + NO_MANIFEST_VERSION + ")");
+
+        for (File f : siblings) {
+            boolean sameModel = ownDirs.matcher(f.getName()).matches();
+
+            if (sameModel && !f.equals(keep)) {
+                Log.i(TAG, "Removing stale install: " + f);
+                deleteRecursive(f);
+            }
+        }
+    }
+
+    // ============================================================
+    // Utils
+    // ============================================================
+
+    private static void deleteRecursive(File f) {
+        File[] children = f.listFiles();
+        if (children != null) {
+            for (File c : children) deleteRecursive(c);
+        }
+        f.delete();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+            sb.append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    private static long elapsedMs(long startedAtNanos) {
+        return (System.nanoTime() - startedAtNanos) / 1_000_000;
     }
 }
@@ -0,0 +1,176 @@
+package com.speechtrainerai.rn_java_connector;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import com.speechtrainerai.db.PhraseRepository;
+import com.speechtrainerai.metrics.LatencyHistogram;
+import com.speechtrainerai.schedule.PhraseSampler;
+
+import static com.speechtrainerai.rn_java_connector.BridgeMaps.optDouble;
+import static com.speechtrainerai.rn_java_connector.BridgeMaps.toWritableMap;
+
+/**
+ * Weighted next-phrase choice over the whole deck (see PhraseSampler):
+ * O(log n) per pick and per answered phrase, off the JS thread.
+ *
+ * The deck comes either from JS (loadPhraseSampler) or straight from
+ * SQLite through PhraseStoreModule (loadPhraseDeck).
+ */
+public class PhraseSchedulerModule extends ReactContextBaseJavaModule {
+
+    private final PhraseStoreModule store;
+
+    private final PhraseSampler phraseSampler = new PhraseSampler();
+    private final LatencyHistogram phrasePickLatency = new LatencyHistogram();
+
+    public PhraseSchedulerModule(ReactApplicationContext ctx, PhraseStoreModule store) {
+        super(ctx);
+        this.store = store;
+    }
+
+    @Override
+    public String getName() {
+        return "PhraseScheduler";
+    }
+
+    // ============================================================
+    // DECK (straight from SQLite into the sampler)
+    // ============================================================
+
+    /**
+     * Loads the deck (one topic, or all when topic is null) from SQLite
+     * straight into the phrase sampler: only uid + counters are read and
+     * nothing crosses the bridge. Resolves the phrase count; indices from
+     * pickNextPhrase() then refer to this deck (see getPhrasesAt()).
+     */
+    @ReactMethod
+    public void loadPhraseDeck(String topic, boolean reverseMode, Promise p) {
+        store.read(p, () -> {
+            PhraseRepository.Deck deck = store.getRepository().loadDeck(topic);
+            phraseSampler.load(deck.uids, deck.cntf, deck.dwf, deck.cntr, deck.dwr, reverseMode);
+            p.resolve(deck.uids.length);
+        });
+    }
+
+    /**
+     * Full rows for sampler indices, in order; null for an index outside
+     * the deck or a phrase deleted since. variants stays a JSON string.
+     */
+    @ReactMethod
+    public void getPhrasesAt(ReadableArray indices, Promise p) {
+        store.read(p, () -> {
+            String[] uids = new String[indices.size()];
+            for (int i = 0; i < uids.length; i++) {
+                uids[i] = phraseSampler.getUid(indices.getInt(i));
+            }
+            p.resolve(PhraseStoreModule.toWritableRows(store.getPhraseRows(uids)));
+        });
+    }
+
+    // ============================================================
+    // PHRASE SCHEDULING (weighted next phrase, O(log n) per pick)
+    // ============================================================
+
+    /**
+     * Whole deck, in the order JS indexes it: [{uid, cntf, dwf, cntr, dwr}]
+     * (SpItem; missing counters = 0). Resolves the phrase count.
+     */
+    @ReactMethod
+    public void loadPhraseSampler(ReadableArray items, boolean reverseMode, Promise p) {
+
+        int n = items != null ? items.size() : 0;
+
+        String[] uids = new String[n];
+        int[] cntf = new int[n];
+        double[] dwf = new double[n];
+        int[] cntr = new int[n];
+        double[] dwr = new double[n];
+
+        for (int i = 0; i < n; i++) {
+            ReadableMap item = items.getMap(i);
+
+            uids[i] = item.getString("uid");
+            cntf[i] = (int) optDouble(item, "cntf");
+            dwf[i] = optDouble(item, "dwf");
+            cntr[i] = (int) optDouble(item, "cntr");
+            dwr[i] = optDouble(item, "dwr");
+        }
+
+        phraseSampler.load(uids, cntf, dwf, cntr, dwr, reverseMode);
+        p.resolve(n);
+    }
+
+    /** One phrase answered: only its weight is recomputed. */
+    @ReactMethod
+    public void updatePhraseSampler(ReadableMap item, Promise p) {
+        p.resolve(phraseSampler.update(
+                item.getString("uid"),
+                (int) optDouble(item, "cntf"),
+                optDouble(item, "dwf"),
+                (int) optDouble(item, "cntr"),
+                optDouble(item, "dwr")));
+    }
+
+    @ReactMethod
+    public void setPhraseSamplerReverseMode(boolean reverseMode, Promise p) {
+        phraseSampler.setReverseMode(reverseMode);
+        p.resolve(null);
+    }
+
+    /** The phrase on screen now (goes into the recency history). */
+    @ReactMethod
+    public void visitPhrase(String uid, Promise p) {
+        phraseSampler.visit(uid);
+        p.resolve(null);
+    }
+
+    /** Next phrase index (-1 = empty deck). */
+    @ReactMethod
+    public void pickNextPhrase(Promise p) {
+        long t0 = System.nanoTime();
+        int index = phraseSampler.next();
+        phrasePickLatency.recordSince(t0, System.nanoTime());
+
+        p.resolve(index);
+    }
+
+    /** Most likely next phrase indices, best first (TTS prefetch). */
+    @ReactMethod
+    public void getLikelyNextPhrases(int count, Promise p) {
+        WritableArray out = Arguments.createArray();
+        for (int i : phraseSampler.likelyNext(count)) {
+            out.pushInt(i);
+        }
+        p.resolve(out);
+    }
+
+    @ReactMethod
+    public void getPhraseSamplerStats(Promise p) {
+
+        long[] s = phraseSampler.getStats();
+
+        WritableMap map = Arguments.createMap();
+        map.putDouble("phrases", s[0]);
+        map.putDouble("picks", s[1]);
+        map.putDouble("updates", s[2]);
+        map.putDouble("historySize", s[3]);
+        map.putMap("pickLatency", toWritableMap(phrasePickLatency));
+
+        p.resolve(map);
+    }
+
+    @ReactMethod
+    public void resetPhraseSamplerStats(Promise p) {
+        phraseSampler.resetStats();
+        phrasePickLatency.reset();
+        p.resolve(null);
+    }
+}
@@ -0,0 +1,408 @@
+package com.speechtrainerai.rn_java_connector;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.LifecycleEventListener;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import android.util.Log;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.speechtrainerai.db.PhraseRepository;
+import com.speechtrainerai.db.PhraseStatsWriter;
+import com.speechtrainerai.db.SyntheticDeck;
+import com.speechtrainerai.schedule.PhraseSampler;
+
+import static com.speechtrainerai.rn_java_connector.BridgeMaps.optDouble;
+import static com.speechtrainerai.rn_java_connector.BridgeMaps.optLong;
+import static com.speechtrainerai.rn_java_connector.BridgeMaps.optString;
+import static com.speechtrainerai.rn_java_connector.BridgeMaps.toStringArray;
+import static com.speechtrainerai.rn_java_connector.BridgeMaps.toWritableMap;
+
+/**
+ * The phrases table of the JS SQLite database, from Java: write-behind
+ * answer statistics and paged / projected reads.
+ *
+ * PhraseSchedulerModule (deck → sampler) and CloudSyncModule (changes
+ * since the last sync) go through this module, so every read or sync
+ * runs after the results queued before it are committed.
+ */
+public class PhraseStoreModule extends ReactContextBaseJavaModule {
+
+    private static final String TAG = "PhraseStore";
+
+    // react-native-sqlite-storage, location "default" → databases dir
+    static final String SPEECH_DB_NAME = "speechtrainer.db";
+
+    private static final long PHRASE_STATS_CLOSE_TIMEOUT_MS = 3000;
+    private static final int PHRASE_PAGE_DEFAULT = 50;
+
+    private final PhraseStatsWriter phraseStatsWriter;
+
+    // paged / projected reads of the same file (see read())
+    private final PhraseRepository phraseRepository;
+
+    public PhraseStoreModule(ReactApplicationContext ctx) {
+        super(ctx);
+
+        phraseStatsWriter = new PhraseStatsWriter(ctx.getDatabasePath(SPEECH_DB_NAME));
+        phraseRepository = new PhraseRepository(ctx.getDatabasePath(SPEECH_DB_NAME));
+
+        // backgrounded apps get killed without notice: write what is pending
+        ctx.addLifecycleEventListener(new LifecycleEventListener() {
+            @Override
+            public void onHostResume() {
+            }
+
+            @Override
+            public void onHostPause() {
+                phraseStatsWriter.flush(null);
+            }
+
+            @Override
+            public void onHostDestroy() {
+                phraseStatsWriter.flush(null);
+            }
+        });
+    }
+
+    @Override
+    public String getName() {
+        return "PhraseStore";
+    }
+
+    File getDatabaseFile() {
+        return getReactApplicationContext().getDatabasePath(SPEECH_DB_NAME);
+    }
+
+    PhraseRepository getRepository() {
+        return phraseRepository;
+    }
+
+    /** run once everything queued so far is committed (or at once, if closed) */
+    void afterPendingWrites(Runnable run) {
+        if (!phraseStatsWriter.flush(run)) {
+            run.run();
+        }
+    }
+
+    // ============================================================
+    // PHRASE STATISTICS (write-behind, batched transactions)
+    // ============================================================
+
+    /**
+     * SpItemResult for one phrase: {cntf, cntr, df, dr, dwf, dwr, tsf, tsr}.
+     * Resolves as soon as it is buffered; a newer result for the same uid
+     * replaces a pending one.
+     */
+    @ReactMethod
+    public void queuePhraseResult(String uid, ReadableMap result, Promise p) {
+
+        PhraseStatsWriter.Row row = new PhraseStatsWriter.Row(
+                uid,
+                (long) optDouble(result, "cntf"),
+                (long) optDouble(result, "cntr"),
+                optDouble(result, "df"),
+                optDouble(result, "dr"),
+                optDouble(result, "dwf"),
+                optDouble(result, "dwr"),
+                optLong(result, "tsf"),
+                optLong(result, "tsr"));
+
+        if (!phraseStatsWriter.put(row)) {
+            p.reject("WRITER_CLOSED", "Phrase stats writer is closed");
+            return;
+        }
+        p.resolve(null);
+    }
+
+    /**
+     * Resolves once everything queued so far is committed; a failed batch
+     * stays queued (see getPhraseResultWriterStats().failures).
+     */
+    @ReactMethod
+    public void flushPhraseResults(Promise p) {
+        afterPendingWrites(() -> p.resolve(null));
+    }
+
+    /** Flush after maxBatch phrases or flushDelayMs after the first pending one. */
+    @ReactMethod
+    public void setPhraseResultWriteBehind(int maxBatch, int flushDelayMs, Promise p) {
+        phraseStatsWriter.configure(maxBatch, flushDelayMs);
+        p.resolve(null);
+    }
+
+    @ReactMethod
+    public void getPhraseResultWriterStats(Promise p) {
+
+        long[] s = phraseStatsWriter.getStats();
+
+        WritableMap map = Arguments.createMap();
+        map.putDouble("pending", s[0]);
+        map.putDouble("queued", s[1]);
+        map.putDouble("coalesced", s[2]);
+        map.putDouble("flushes", s[3]);
+        map.putDouble("rowsWritten", s[4]);
+        map.putDouble("rowsMissing", s[5]);
+        map.putDouble("failures", s[6]);
+        map.putDouble("lastBatch", s[7]);
+        map.putDouble("maxBatch", s[8]);
+        map.putDouble("meanBatch", s[3] > 0 ? (double) (s[4] + s[5]) / s[3] : 0);
+        map.putMap("flushLatency", toWritableMap(phraseStatsWriter.getFlushLatency()));
+
+        p.resolve(map);
+    }
+
+    @ReactMethod
+    public void resetPhraseResultWriterStats(Promise p) {
+        phraseStatsWriter.resetStats();
+        p.resolve(null);
+    }
+
+    // ============================================================
+    // PHRASE REPOSITORY (paged reads)
+    // ============================================================
+
+    /**
+     * Reads run on the stats writer thread right after it commits what is
+     * buffered: they always see the latest queued results, and the native
+     * modules queue never waits on SQLite.
+     */
+    void read(Promise p, Runnable read) {
+
+        afterPendingWrites(() -> {
+            try {
+                read.run();
+            } catch (RuntimeException ex) {
+                // SQLException or a bad row / argument: the promise settles either way
+                Log.e(TAG, "Phrase read failed", ex);
+                p.reject("DB_ERROR", ex.getMessage());
+            }
+        });
+    }
+
+    /** Full rows by uid, in order; null for an unknown uid. */
+    @ReactMethod
+    public void getPhrases(ReadableArray uids, Promise p) {
+        read(p, () -> p.resolve(toWritableRows(getPhraseRows(toStringArray(uids)))));
+    }
+
+    /**
+     * One page in (topic, uid) order.
+     * query: {topic?, after?: {topic, uid}, limit?, columns?: string[]}
+     * resolves {rows, next: {topic, uid} | null}; uid and topic are
+     * always in the rows.
+     */
+    @ReactMethod
+    public void queryPhrasePage(ReadableMap query, Promise p) {
+
+        String topic = optString(query, "topic");
+        ReadableMap after = query.hasKey("after") && !query.isNull("after") ? query.getMap("after") : null;
+        int limit = query.hasKey("limit") ? query.getInt("limit") : PHRASE_PAGE_DEFAULT;
+        List<String> columns = query.hasKey("columns") && !query.isNull("columns")
+                ? Arrays.asList(toStringArray(query.getArray("columns")))
+                : null;
+
+        read(p, () -> {
+            PhraseRepository.Page page = phraseRepository.page(
+                    topic,
+                    after != null ? optString(after, "topic") : null,
+                    after != null ? optString(after, "uid") : null,
+                    limit,
+                    columns);
+
+            WritableMap map = Arguments.createMap();
+            map.putArray("rows", toWritableRows(page));
+
+            if (page.nextUid != null) {
+                WritableMap next = Arguments.createMap();
+                next.putString("topic", page.nextTopic);
+                next.putString("uid", page.nextUid);
+                map.putMap("next", next);
+            } else {
+                map.putNull("next");
+            }
+
+            p.resolve(map);
+        });
+    }
+
+    /** [{topic, count}] in topic order. */
+    @ReactMethod
+    public void getPhraseTopics(Promise p) {
+        read(p, () -> {
+            WritableArray out = Arguments.createArray();
+            for (Map.Entry<String, Long> e : phraseRepository.topics().entrySet()) {
+                WritableMap map = Arguments.createMap();
+                map.putString("topic", e.getKey());
+                map.putDouble("count", e.getValue());
+                out.pushMap(map);
+            }
+            p.resolve(out);
+        });
+    }
+
+    @ReactMethod
+    public void getPhraseRepositoryStats(Promise p) {
+
+        long[] s = phraseRepository.getStats();
+
+        WritableMap map = Arguments.createMap();
+        map.putDouble("queries", s[0]);
+        map.putDouble("rowsRead", s[1]);
+        map.putDouble("deckSize", s[2]);
+        map.putMap("deckLatency", toWritableMap(phraseRepository.getDeckLatency()));
+        map.putMap("pageLatency", toWritableMap(phraseRepository.getPageLatency()));
+        map.putMap("getLatency", toWritableMap(phraseRepository.getGetLatency()));
+
+        p.resolve(map);
+    }
+
+    @ReactMethod
+    public void resetPhraseRepositoryStats(Promise p) {
+        phraseRepository.resetStats();
+        p.resolve(null);
+    }
+
+    /**
+     * Debug: startup cost of the deck path on a synthetic deck of `rows`
+     * phrases (its own file, created once per size). Measures the Java
+     * side only: deck query, sampler load, heap they retain, first pick +
+     * its full row, first page. Resolves the numbers and the file name,
+     * so JS can time the old SELECT * path on the same data.
+     */
+    @ReactMethod
+    public void measurePhraseDeck(int rows, Promise p) {
+
+        new Thread(() -> {
+            try {
+                String name = "phrasebench-" + rows + ".db";
+                File file = getReactApplicationContext().getDatabasePath(name);
+
+                long t0 = System.nanoTime();
+                if (!file.exists()) {
+                    SyntheticDeck.create(file, rows);
+                }
+                long seedNanos = System.nanoTime() - t0;
+
+                PhraseRepository repository = new PhraseRepository(file);
+                PhraseSampler sampler = new PhraseSampler();
+
+                try {
+                    long heapBefore = usedHeap();
+
+                    t0 = System.nanoTime();
+                    PhraseRepository.Deck deck = repository.loadDeck(null);
+                    long deckNanos = System.nanoTime() - t0;
+
+                    t0 = System.nanoTime();
+                    sampler.load(deck.uids, deck.cntf, deck.dwf, deck.cntr, deck.dwr, false);
+                    long samplerNanos = System.nanoTime() - t0;
+
+                    deck = null;   // the sampler keeps its own copies
+                    long heapBytes = usedHeap() - heapBefore;
+
+                    t0 = System.nanoTime();
+                    String uid = sampler.getUid(sampler.next());
+                    repository.get(new String[] { uid }, null);
+                    long firstNanos = System.nanoTime() - t0;
+
+                    t0 = System.nanoTime();
+                    repository.page(null, null, null, PHRASE_PAGE_DEFAULT, null);
+                    long pageNanos = System.nanoTime() - t0;
+
+                    WritableMap map = Arguments.createMap();
+                    map.putString("file", name);
+                    map.putDouble("rows", sampler.getPhraseCount());
+                    map.putDouble("seedMs", seedNanos / 1e6);
+                    map.putDouble("deckMs", deckNanos / 1e6);
+                    map.putDouble("samplerMs", samplerNanos / 1e6);
+                    map.putDouble("firstPhraseMs", firstNanos / 1e6);
+                    map.putDouble("pageMs", pageNanos / 1e6);
+                    map.putDouble("javaHeapBytes", heapBytes);
+
+                    p.resolve(map);
+                } finally {
+                    repository.close();
+                }
+            } catch (RuntimeException ex) {
+                p.reject("DB_ERROR", ex.getMessage());
+            }
+        }, "PhraseDeckMeasure").start();
+    }
+
+    /** Rows for uids in order; a null uid (unknown index) gives a null row. */
+    PhraseRepository.Page getPhraseRows(String[] uids) {
+
+        // unknown indices come in as null: not a query argument
+        int known = 0;
+        for (String uid : uids) {
+            if (uid != null) known++;
+        }
+
+        String[] query = new String[known];
+        known = 0;
+        for (String uid : uids) {
+            if (uid != null) query[known++] = uid;
+        }
+
+        PhraseRepository.Page found = phraseRepository.get(query, null);
+
+        ArrayList<Object[]> rows = new ArrayList<>(uids.length);
+        int next = 0;
+        for (String uid : uids) {
+            rows.add(uid != null ? found.rows.get(next++) : null);
+        }
+        return new PhraseRepository.Page(found.columns, rows, null, null);
+    }
+
+    static WritableArray toWritableRows(PhraseRepository.Page page) {
+
+        WritableArray out = Arguments.createArray();
+
+        for (Object[] row : page.rows) {
+            if (row == null) {
+                out.pushNull();
+                continue;
+            }
+
+            WritableMap map = Arguments.createMap();
+            for (int i = 0; i < page.columns.length; i++) {
+                Object v = row[i];
+                if (v == null) map.putNull(page.columns[i]);
+                else if (v instanceof String) map.putString(page.columns[i], (String) v);
+                else map.putDouble(page.columns[i], ((Number) v).doubleValue());
+            }
+            out.pushMap(map);
+        }
+        return out;
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        rt.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    @Override
+    public void invalidate() {
+        super.invalidate();
+
+        // last batch is committed before the module goes away
+        if (!phraseStatsWriter.close(PHRASE_STATS_CLOSE_TIMEOUT_MS)) {
+            Log.e(TAG, "Phrase stats not fully written on invalidate()");
+        }
+        phraseRepository.close();
+    }
+}
@@ -0,0 +1,260 @@
+package com.speechtrainerai.rn_java_connector;
+
+import android.util.Log;
+
+import com.speechtrainerai.asr.AsrResult;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Picks between result streams when several recognizers run in parallel
+ * on the same audio (fan-out). Sits in front of ResultDispatcher.
+ *
+ * - one active engine: pass-through, no added latency
+ * - ALL: every engine's results go out, tagged by engineId
+ * - PREFERRED: the preferred engine wins; others only fill in when it
+ *   produced no final for the same stretch of audio
+ * - BEST_CONFIDENCE: highest mean word confidence wins (ties → preferred)
+ *
+ * Finals from different engines are grouped when their frame ranges
+ * overlap. A group is decided once every active engine has answered or
+ * windowMs after its first final, whichever comes first.
+ */
+public class ResultArbiter {
+
+    public enum Policy { ALL, PREFERRED, BEST_CONFIDENCE }
+
+    private static final String TAG = "ResultArbiter";
+
+    private final ResultDispatcher downstream;
+    private final long windowMs;
+
+    private final ScheduledExecutorService executor =
+            Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "ResultArbiter");
+                t.setDaemon(true);
+                return t;
+            });
+
+    // ============================================================
+    // State (guarded by this)
+    // ============================================================
+
+    private Policy policy = Policy.PREFERRED;
+    private String preferredEngineId = null;
+    private final LinkedHashSet<String> activeEngines = new LinkedHashSet<>();
+
+    private final ArrayList<AsrResult> group = new ArrayList<>();
+    private long groupStartFrame = 0;
+    private long groupEndFrame = 0;
+    private ScheduledFuture<?> groupTimeout = null;
+
+    // engine whose partials are shown (last winner)
+    private String leaderEngineId = null;
+
+    // ============================================================
+    // Counters
+    // ============================================================
+
+    private long received = 0;
+    private long forwarded = 0;
+    private long suppressedPartials = 0;
+    private long finalGroups = 0;
+    private long finalsDiscarded = 0;
+    private long fallbackFinals = 0;   // preferred engine had no answer
+
+    public ResultArbiter(ResultDispatcher downstream, long windowMs) {
+        this.downstream = downstream;
+        this.windowMs = windowMs;
+    }
+
+    public synchronized void setPolicy(Policy policy, String preferredEngineId) {
+        flushGroup();
+        this.policy = policy;
+        this.preferredEngineId = preferredEngineId;
+        this.leaderEngineId = preferredEngineId;
+        Log.i(TAG, "policy=" + policy + " preferred=" + preferredEngineId);
+    }
+
+    public synchronized Policy getPolicy() {
+        return policy;
+    }
+
+    public synchronized String getPreferredEngineId() {
+        return preferredEngineId;
+    }
+
+    /**
+     * Engines currently fed from the capture stream (primary first).
+     */
+    public synchronized void setActiveEngines(Collection<String> engineIds) {
+        flushGroup();
+        activeEngines.clear();
+        activeEngines.addAll(engineIds);
+
+        if (leaderEngineId == null || !activeEngines.contains(leaderEngineId)) {
+            leaderEngineId = preferredOrFirst();
+        }
+    }
+
+    /**
+     * Called from the native recognition threads (one per engine).
+     */
+    public synchronized void submit(AsrResult r) {
+
+        received++;
+
+        if (activeEngines.size() <= 1 || policy == Policy.ALL) {
+            forward(r);
+            return;
+        }
+
+        if (!r.isFinal) {
+            if (r.engineId != null && r.engineId.equals(leaderEngineId)) {
+                forward(r);
+            } else {
+                suppressedPartials++;
+            }
+            return;
+        }
+
+        // new stretch of audio → decide the previous group first
+        if (!group.isEmpty() && !overlaps(r)) {
+            flushGroup();
+        }
+
+        if (group.isEmpty()) {
+            groupStartFrame = r.startFrame;
+            groupEndFrame = r.endFrame;
+            groupTimeout = executor.schedule(this::onGroupTimeout, windowMs, TimeUnit.MILLISECONDS);
+        } else {
+            groupStartFrame = Math.min(groupStartFrame, r.startFrame);
+            groupEndFrame = Math.max(groupEndFrame, r.endFrame);
+        }
+
+        group.add(r);
+
+        if (everyEngineAnswered()) {
+            flushGroup();
+        }
+    }
+
+    /**
+     * [received, forwarded, suppressedPartials, finalGroups,
+     *  finalsDiscarded, fallbackFinals, activeEngines]
+     */
+    public synchronized long[] getStats() {
+        return new long[]{
+                received,
+                forwarded,
+                suppressedPartials,
+                finalGroups,
+                finalsDiscarded,
+                fallbackFinals,
+                activeEngines.size()
+        };
+    }
+
+    public synchronized void resetStats() {
+        received = 0;
+        forwarded = 0;
+        suppressedPartials = 0;
+        finalGroups = 0;
+        finalsDiscarded = 0;
+        fallbackFinals = 0;
+    }
+
+    // ============================================================
+    // Internals
+    // ============================================================
+
+    private synchronized void onGroupTimeout() {
+        groupTimeout = null;
+        flushGroup();
+    }
+
+    private boolean overlaps(AsrResult r) {
+        return r.startFrame < groupEndFrame && r.endFrame > groupStartFrame;
+    }
+
+    private boolean everyEngineAnswered() {
+        for (String id : activeEngines) {
+            if (find(id) == null) return false;
+        }
+        return true;
+    }
+
+    private AsrResult find(String engineId) {
+        for (AsrResult r : group) {
+            if (engineId != null && engineId.equals(r.engineId)) return r;
+        }
+        return null;
+    }
+
+    private void flushGroup() {
+
+        if (groupTimeout != null) {
+            groupTimeout.cancel(false);
+            groupTimeout = null;
+        }
+
+        if (group.isEmpty()) return;
+
+        AsrResult winner = null;
+
+        if (policy == Policy.PREFERRED) {
+            winner = find(preferredEngineId);
+            if (winner == null) fallbackFinals++;
+        }
+
+        if (winner == null) {
+            winner = mostConfident();
+        }
+
+        finalGroups++;
+        finalsDiscarded += group.size() - 1;
+        leaderEngineId = winner.engineId;
+
+        group.clear();
+        forward(winner);
+    }
+
+    private AsrResult mostConfident() {
+
+        AsrResult best = null;
+
+        for (AsrResult r : group) {
+            if (best == null) {
+                best = r;
+                continue;
+            }
+
+            float c = r.getMeanConf();
+            float b = best.getMeanConf();
+
+            if (c > b || (c == b && r.engineId != null && r.engineId.equals(preferredEngineId))) {
+                best = r;
+            }
+        }
+
+        return best;
+    }
+
+    private String preferredOrFirst() {
+        if (preferredEngineId != null && activeEngines.contains(preferredEngineId)) {
+            return preferredEngineId;
+        }
+        return activeEngines.isEmpty() ? null : activeEngines.iterator().next();
+    }
+
+    private void forward(AsrResult r) {
+        forwarded++;
+        downstream.submit(r);
+    }
+}
@@ -0,0 +1,202 @@
+package com.speechtrainerai.rn_java_connector;
+
+import android.util.Log;
+
+import com.speechtrainerai.asr.AsrResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalescing, rate-limited channel for native ASR results → JS.
+ *
+ * - partials: latest wins; at most maxEmitsPerSecond bridge emits
+ * - finals: never dropped, delivered in order, flushed immediately
+ * - finals + the newest partial go out together in one emit
+ */
+public class ResultDispatcher {
+
+    public interface Emitter {
+        /**
+         * @param results finals in order, then at most one partial
+         * @return false if the event could not be delivered (no JS context)
+         */
+        boolean emit(List<AsrResult> results);
+    }
+
+    /**
+     * Sees every result before coalescing / rate limiting, on the thread
+     * that submitted it. Must be cheap.
+     */
+    public interface Observer {
+        void onResult(AsrResult result);
+    }
+
+    private static final String TAG = "ResultDispatcher";
+
+    private final Emitter emitter;
+    private volatile Observer observer;
+
+    private final ScheduledExecutorService executor =
+            Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "ResultDispatcher");
+                t.setDaemon(true);
+                return t;
+            });
+
+    // ============================================================
+    // Pending state (guarded by this)
+    // ============================================================
+
+    private final ArrayList<AsrResult> pendingFinals = new ArrayList<>();
+    private AsrResult pendingPartial = null;
+    private boolean flushScheduled = false;
+    private long lastEmitAtMs = 0;
+    private long minIntervalMs;
+
+    // ============================================================
+    // Counters
+    // ============================================================
+
+    private long received = 0;
+    private long coalescedPartials = 0;   // replaced by a newer partial
+    private long droppedPartials = 0;     // superseded by a final
+    private long droppedNoContext = 0;    // JS not ready
+    private long emits = 0;               // bridge emit() calls
+    private long batchedEmits = 0;        // emits carrying > 1 result
+    private long resultsEmitted = 0;
+
+    public ResultDispatcher(Emitter emitter, int maxEmitsPerSecond) {
+        this.emitter = emitter;
+        setMaxEmitsPerSecond(maxEmitsPerSecond);
+    }
+
+    public synchronized void setMaxEmitsPerSecond(int maxEmitsPerSecond) {
+        minIntervalMs = maxEmitsPerSecond > 0 ? 1000L / maxEmitsPerSecond : 0;
+        Log.i(TAG, "min emit interval: " + minIntervalMs + " ms");
+    }
+
+    public void setObserver(Observer observer) {
+        this.observer = observer;
+    }
+
+    /**
+     * Called from the native dispatcher thread (via ResultArbiter).
+     */
+    public void submit(AsrResult result) {
+
+        Observer o = observer;
+        if (o != null) o.onResult(result);
+
+        enqueue(result);
+    }
+
+    private synchronized void enqueue(AsrResult result) {
+
+        received++;
+
+        if (result.isFinal) {
+            if (pendingPartial != null) {
+                droppedPartials++;
+                pendingPartial = null;
+            }
+            pendingFinals.add(result);
+
+            // do not wait behind a rate-limited partial flush
+            flushScheduled = true;
+            executor.execute(this::flush);
+            return;
+        }
+
+        if (pendingPartial != null) {
+            coalescedPartials++;
+        }
+        pendingPartial = result;
+
+        long sinceLast = System.currentTimeMillis() - lastEmitAtMs;
+        scheduleFlush(Math.max(0, minIntervalMs - sinceLast));
+    }
+
+    public synchronized void resetStats() {
+        received = 0;
+        coalescedPartials = 0;
+        droppedPartials = 0;
+        droppedNoContext = 0;
+        emits = 0;
+        batchedEmits = 0;
+        resultsEmitted = 0;
+    }
+
+    /**
+     * [received, coalescedPartials, droppedPartials, droppedNoContext,
+     *  emits, batchedEmits, resultsEmitted, minIntervalMs]
+     */
+    public synchronized long[] getStats() {
+        return new long[]{
+                received,
+                coalescedPartials,
+                droppedPartials,
+                droppedNoContext,
+                emits,
+                batchedEmits,
+                resultsEmitted,
+                minIntervalMs
+        };
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // ============================================================
+    // Internals
+    // ============================================================
+
+    private void scheduleFlush(long delayMs) {
+
+        if (flushScheduled) return;
+
+        flushScheduled = true;
+
+        if (delayMs == 0) {
+            executor.execute(this::flush);
+        } else {
+            executor.schedule(this::flush, delayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flush() {
+
+        ArrayList<AsrResult> batch;
+
+        synchronized (this) {
+            flushScheduled = false;
+
+            int count = pendingFinals.size() + (pendingPartial != null ? 1 : 0);
+            if (count == 0) return;
+
+            batch = new ArrayList<>(count);
+            batch.addAll(pendingFinals);
+            if (pendingPartial != null) batch.add(pendingPartial);
+
+            pendingFinals.clear();
+            pendingPartial = null;
+            lastEmitAtMs = System.currentTimeMillis();
+        }
+
+        boolean delivered = emitter.emit(batch);
+
+        synchronized (this) {
+            if (!delivered) {
+                droppedNoContext += batch.size();
+                return;
+            }
+            emits++;
+            resultsEmitted += batch.size();
+            if (batch.size() > 1) batchedEmits++;
+        }
+    }
+}
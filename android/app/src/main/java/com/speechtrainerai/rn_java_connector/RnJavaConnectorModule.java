@@ -7,9 +7,6 @@ import com.facebook.react.modules.core.DeviceEventManagerModule;
 import com.facebook.react.bridge.ReactApplicationContext;
 
 import android.util.Log;
-import android.media.AudioRecord;
-import android.media.AudioFormat;
-import android.media.MediaRecorder;
 
 import android.Manifest;
 import android.content.pm.PackageManager;
@@ -21,16 +18,43 @@ import com.facebook.react.modules.core.PermissionListener;
 import android.app.Activity;
 
 import android.speech.tts.TextToSpeech;
-import android.speech.tts.UtteranceProgressListener;
+
+import org.json.JSONArray;
 
 import java.util.Locale;
-import java.util.UUID;
 
 import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import com.speechtrainerai.asr.AsrEngine;
 import com.speechtrainerai.asr.AsrEngineManager;
+import com.speechtrainerai.asr.AsrEngineState;
+import com.speechtrainerai.asr.AsrResult;
+import com.speechtrainerai.asr.PhraseMatcher;
+import com.speechtrainerai.asr.ReplayAsrEngine;
+import com.speechtrainerai.audio.AudioCaptureService;
+import com.speechtrainerai.audio.PlaybackGate;
+import com.speechtrainerai.audio.SessionAudioRecorder;
+import com.speechtrainerai.audio.VoiceActivityDetector;
+import com.speechtrainerai.metrics.LatencyHistogram;
+import com.speechtrainerai.metrics.PipelineMetrics;
+import com.speechtrainerai.tts.TtsCache;
+
+import static com.speechtrainerai.rn_java_connector.BridgeMaps.toWritableMap;
 
 public class RnJavaConnectorModule extends ReactContextBaseJavaModule {
 
@@ -48,10 +72,39 @@ public class RnJavaConnectorModule extends ReactContextBaseJavaModule {
     public static native void nativeFullReset();
     public static native boolean nativeIsInitialized();
     public static native boolean nativeLoadModel(String path);
+    public static native boolean nativePrewarmModel(String path);
+    public static native void nativeSetPrimaryEngineId(String engineId);
+    public static native boolean nativeAddRecognizer(String engineId, String path);
+    public static native void nativeRemoveRecognizer(String engineId);
+    public static native String[] nativeGetRecognizerIds();
+    public static native boolean nativeSetGrammar(String key, String grammarJson);
+    public static native long[] nativeGetGrammarStats();
     public static native boolean nativeStartRecognition();
     public static native void nativeStopRecognition();
     public static native String nativeGetEngineState();
-    public static native void nativePushAudio(short[] data, int frames);
+    public static native void nativePushAudio(short[] data, int frames, long capturedAtNanos);
+    public static native void nativePushAudioDirect(ByteBuffer pcm, int frames, long capturedAtNanos);
+
+    public static native void nativeSetAudioOverflowPolicy(int policy);
+    public static native long[] nativeGetAudioBufferStats();
+    public static native void nativeResetAudioBufferStats();
+    public static native void nativeSetChunkConfig(int minChunkFrames, int maxWaitMs);
+
+    public static native long[] nativeGetModelCacheStats();
+    public static native void nativeSetModelCacheBudget(long bytes);
+    public static native void nativeTrimModelCache();
+
+    public static native long[] nativeGetPipelineHistograms();
+    public static native long[] nativeGetPipelineCounters();
+    public static native void nativeResetPipelineMetrics();
+    public static native long[] nativeGetResultQueueStats();
+    public static native void nativeDiscardUtterance();
+
+    public static native void nativeSetMaxAlternatives(int n);
+    public static native void nativeSetExpectedPhrase(String[] words, String[][] variants);
+    public static native void nativeClearExpectedPhrase();
+    public static native long[] nativeGetNBestStats();
+    public static native void nativeResetNBestStats();
 
     // ============================================================
     // React context
@@ -59,24 +112,86 @@ public class RnJavaConnectorModule extends ReactContextBaseJavaModule {
 
     private static ReactApplicationContext reactContext;
 
+    // ============================================================
+    // Native results → JS (coalesced, rate-limited)
+    // ============================================================
+
+    private static final ResultDispatcher resultDispatcher =
+            new ResultDispatcher(RnJavaConnectorModule::emitSpeechResults, 15);
+
+    // parallel recognizers → one stream (see setArbitrationPolicy)
+    private static final ResultArbiter resultArbiter =
+            new ResultArbiter(resultDispatcher, 400);
+
+    // expected phrase vs arbitrated results, ahead of coalescing
+    private static final PhraseMatcher phraseMatcher = new PhraseMatcher(new PhraseMatcher.Listener() {
+        @Override
+        public void onWordMatched(int matchId, int index, String word, boolean byVariant, AsrResult source) {
+            emitPhraseWordMatched(matchId, index, word, byVariant, source);
+        }
+
+        @Override
+        public void onPhraseComplete(int matchId, int words, long durationMs) {
+            emitPhraseComplete(matchId, words, durationMs);
+        }
+    });
+
+    static {
+        resultDispatcher.setObserver(phraseMatcher::onResult);
+    }
+
     // ============================================================
     // Engines
     // ============================================================
 
-    private final AsrEngineManager asrManager = new AsrEngineManager();
+    // process-wide: preloading starts in MainApplication.onCreate()
+    private final AsrEngineManager asrManager = AsrEngineManager.getInstance();
     private AsrEngine currentEngine = null;
     private String currentModelPath = null;
 
+    // extra recognizers on the same capture stream (besides currentEngine)
+    private final List<String> parallelEngineIds = new ArrayList<>();
+
     // ============================================================
-    // AudioRecord
+    // AudioRecord (one per session, engines are swappable sinks)
     // ============================================================
 
-    private AudioRecord audioRecord;
-    private Thread audioThread;
-    private volatile boolean audioRunning = false;
-
     private static final int SAMPLE_RATE = 16000;
-    private int audioBufferSize = 0;
+
+    private final AudioCaptureService capture = new AudioCaptureService(SAMPLE_RATE, 1000);
+
+    // ============================================================
+    // VAD (runs on AudioRecordThread, before nativePushAudio)
+    // ============================================================
+
+    private final VoiceActivityDetector vad = new VoiceActivityDetector(SAMPLE_RATE);
+    private volatile boolean vadEnabled = true;
+
+    // capture buffer as short[] for the VAD (AudioRecordThread only)
+    private ByteBuffer vadSource;
+    private ShortBuffer vadSourceShorts;
+    private short[] vadInput = new short[0];
+
+    // ============================================================
+    // Session recording (tee after the TTS gate, see SessionAudioRecorder)
+    // ============================================================
+
+    private static final long RECORDER_BUDGET_MB_DEFAULT = 256;
+    private static final int RECORDER_SESSION_SECONDS_DEFAULT = 600;
+    private static final long RECORDER_CLOSE_TIMEOUT_MS = 2000;
+
+    // VAD reports speech after its 300 ms pre-roll
+    private static final int RECORDER_LEAD_FRAMES = SAMPLE_RATE * 300 / 1000;
+
+    // null = not recording
+    private volatile SessionAudioRecorder recorder;
+
+    // ============================================================
+    // TTS gating: no recognition of our own prompts
+    // ============================================================
+
+    private final PlaybackGate ttsGate = new PlaybackGate();
+    private boolean ttsGateWasOpen = true;   // AudioRecordThread only
 
     // ============================================================
     // Permissions
@@ -89,11 +204,15 @@ public class RnJavaConnectorModule extends ReactContextBaseJavaModule {
     // TTS
     // ============================================================
 
+    private static final long TTS_CACHE_BUDGET_BYTES = 32L * 1024 * 1024;
+
     private TextToSpeech tts;
     private boolean ttsReady = false;
 
-    private final Locale localeEn = Locale.US;
-    private final Locale localeRu = new Locale("ru", "RU");
+    // pre-synthesized prompts (cacheDir/tts), owns playback + live speech
+    private final TtsCache ttsCache;
+
+    private final Locale localeEn = TextLanguage.EN;
 
     // ============================================================
     // Constructor
@@ -103,6 +222,38 @@ public class RnJavaConnectorModule extends ReactContextBaseJavaModule {
         super(ctx);
         reactContext = ctx;
 
+        // installs MainApplication already started report here from now on
+        asrManager.setProgressListener(RnJavaConnectorModule::emitModelInstallProgress);
+
+        // no-op if MainApplication already started it; retries FAILED engines
+        asrManager.preloadAll(ctx);
+
+        for (AsrEngineManager.EngineSlot slot : asrManager.getSlots()) {
+            if (slot.engine instanceof ReplayAsrEngine) {
+                ((ReplayAsrEngine) slot.engine).setListener(RnJavaConnectorModule::emitReplayFinished);
+            }
+        }
+
+        vad.setListener(new VoiceActivityDetector.Listener() {
+            @Override
+            public void onSpeechStart() {
+                SessionAudioRecorder rec = recorder;
+                if (rec != null) rec.markSpeechStart(RECORDER_LEAD_FRAMES);
+
+                emitVadEvent("SpeechStart");
+            }
+
+            @Override
+            public void onSpeechEnd() {
+                SessionAudioRecorder rec = recorder;
+                if (rec != null) rec.markSpeechEnd();
+
+                emitVadEvent("SpeechEnd");
+            }
+        });
+
+        ttsCache = new TtsCache(new File(ctx.getCacheDir(), "tts"), TTS_CACHE_BUDGET_BYTES);
+
         Log.i("TTS", "Initializing TextToSpeech...");
 
         tts = new TextToSpeech(ctx, status -> {
@@ -111,38 +262,48 @@ public class RnJavaConnectorModule extends ReactContextBaseJavaModule {
 
                 Log.i("TTS", "TTS engine ready");
 
-                tts.setLanguage(localeEn);
+                ttsCache.attach(tts, localeEn, new TtsCache.Listener() {
+
+                    @Override
+                    public void onStart(String utteranceId) {
+                        // recognizers forget what they heard so far: the
+                        // prompt's first syllables may already be buffered
+                        if (ttsGate.close() && capture.isRunning()) {
+                            nativeDiscardUtterance();
+                        }
+                    }
 
-                tts.setOnUtteranceProgressListener(
-                        new UtteranceProgressListener() {
+                    @Override
+                    public void onDone(String utteranceId) {
 
-                            @Override
-                            public void onStart(String utteranceId) {
-                                Log.i("TTS", "Speech started: " + utteranceId);
-                            }
+                        ttsGate.release();
 
-                            @Override
-                            public void onDone(String utteranceId) {
+                        WritableMap map = Arguments.createMap();
+                        map.putString("utteranceId", utteranceId);
 
-                                WritableMap map = Arguments.createMap();
-                                map.putString("utteranceId", utteranceId);
+                        reactContext
+                                .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                                .emit("TtsFinished", map);
+                    }
 
-                                reactContext
-                                        .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
-                                        .emit("TtsFinished", map);
-                            }
+                    @Override
+                    public void onError(String utteranceId) {
 
-                            @Override
-                            public void onError(String utteranceId) {
+                        ttsGate.release();
 
-                                WritableMap map = Arguments.createMap();
-                                map.putString("utteranceId", utteranceId);
+                        WritableMap map = Arguments.createMap();
+                        map.putString("utteranceId", utteranceId);
 
-                                reactContext
-                                        .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
-                                        .emit("TtsError", map);
-                            }
-                        });
+                        reactContext
+                                .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                                .emit("TtsError", map);
+                    }
+
+                    @Override
+                    public void onStop(String utteranceId) {
+                        ttsGate.release();
+                    }
+                });
 
                 ttsReady = true;
 
@@ -166,24 +327,6 @@ public class RnJavaConnectorModule extends ReactContextBaseJavaModule {
         return "RnJavaConnector";
     }
 
-    // ============================================================
-    // Utils
-    // ============================================================
-
-    private Locale detectLanguage(String text) {
-
-        for (int i = 0; i < text.length(); i++) {
-
-            char c = text.charAt(i);
-
-            if (c >= 0x0400 && c <= 0x04FF) {
-                return localeRu;
-            }
-        }
-
-        return localeEn;
-    }
-
     // ============================================================
     // BASIC INIT / SHUTDOWN
     // ============================================================
@@ -217,7 +360,8 @@ public class RnJavaConnectorModule extends ReactContextBaseJavaModule {
             String installedPath =
                     ModelInstaller.installModelIfNeeded(
                             getReactApplicationContext(),
-                            "vosk-model-small-en-us-0.15"
+                            "vosk-model-small-en-us-0.15",
+                            RnJavaConnectorModule::emitModelInstallProgress
                     );
 
             p.resolve(installedPath);
@@ -227,6 +371,47 @@ public class RnJavaConnectorModule extends ReactContextBaseJavaModule {
         }
     }
 
+    @ReactMethod
+    public void getModelInstallReport(Promise p) {
+
+        ModelInstaller.InstallReport r = ModelInstaller.getLastReport();
+
+        if (r == null) {
+            p.resolve(null);
+            return;
+        }
+
+        WritableMap map = Arguments.createMap();
+        map.putString("path", r.path);
+        map.putString("version", r.version);
+        map.putBoolean("alreadyInstalled", r.alreadyInstalled);
+        map.putBoolean("verified", r.verified);
+        map.putInt("filesCopied", r.filesCopied);
+        map.putInt("filesReused", r.filesReused);
+        map.putDouble("bytesCopied", r.bytesCopied);
+        map.putDouble("durationMs", r.durationMs);
+
+        p.resolve(map);
+    }
+
+    private static void emitModelInstallProgress(long bytesDone,
+                                                 long bytesTotal,
+                                                 int filesDone,
+                                                 int filesTotal) {
+
+        if (reactContext == null) return;
+
+        WritableMap map = Arguments.createMap();
+        map.putDouble("bytesDone", bytesDone);
+        map.putDouble("bytesTotal", bytesTotal);
+        map.putInt("filesDone", filesDone);
+        map.putInt("filesTotal", filesTotal);
+
+        reactContext
+                .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                .emit("ModelInstallProgress", map);
+    }
+
     @ReactMethod
     public void loadModel(String path, Promise p) {
 
@@ -241,6 +426,94 @@ public class RnJavaConnectorModule extends ReactContextBaseJavaModule {
         p.resolve(true);
     }
 
+    // ============================================================
+    // Model cache (native, shared across engine switches)
+    // ============================================================
+
+    @ReactMethod
+    public void getModelCacheStats(Promise p) {
+
+        long[] s = nativeGetModelCacheStats();
+
+        WritableMap map = Arguments.createMap();
+        map.putDouble("hits", s[0]);
+        map.putDouble("misses", s[1]);
+        map.putDouble("loadFailures", s[2]);
+        map.putDouble("evictions", s[3]);
+        map.putDouble("residentBytes", s[4]);
+        map.putDouble("residentModels", s[5]);
+        map.putDouble("idleModels", s[6]);
+        map.putDouble("budgetBytes", s[7]);
+        map.putDouble("lastLoadMs", s[8]);
+
+        p.resolve(map);
+    }
+
+    @ReactMethod
+    public void setModelCacheBudget(double megabytes, Promise p) {
+        nativeSetModelCacheBudget((long) (megabytes * 1024 * 1024));
+        p.resolve(true);
+    }
+
+    /**
+     * Frees models that no engine is using (e.g. on memory pressure).
+     */
+    @ReactMethod
+    public void trimModelCache(Promise p) {
+        nativeTrimModelCache();
+        p.resolve(null);
+    }
+
+    // ============================================================
+    // Engine readiness (background preload)
+    // ============================================================
+
+    /**
+     * Resolves with the installed model path once the engine is READY.
+     */
+    @ReactMethod
+    public void awaitEngineReady(String engineId, Promise p) {
+
+        if (asrManager.getEngine(engineId) == null) {
+            p.reject("ENGINE_NOT_FOUND", "Unknown engine: " + engineId);
+            return;
+        }
+
+        asrManager.whenReady(engineId, (id, modelPath, error) -> {
+            if (error != null) {
+                p.reject("ENGINE_NOT_READY", error.toString());
+            } else {
+                p.resolve(modelPath);
+            }
+        });
+    }
+
+    @ReactMethod
+    public void getEngineReadiness(Promise p) {
+
+        WritableArray arr = Arguments.createArray();
+
+        for (AsrEngineManager.EngineSlot slot : asrManager.getSlots()) {
+
+            AsrEngineState state = slot.getState();
+
+            WritableMap map = Arguments.createMap();
+            map.putString("engine", slot.engine.getId());
+            map.putString("state", state.name());
+            map.putBoolean("ready", state == AsrEngineState.READY);
+            map.putString("modelPath", slot.getModelPath());
+            map.putString("error",
+                    slot.getError() != null ? slot.getError().toString() : null);
+            map.putDouble("installMs", slot.getInstallMs());
+            map.putDouble("loadMs", slot.getLoadMs());
+            map.putDouble("timeToReadyMs", slot.getTimeToReadyMs());
+            map.putDouble("timeToFirstResultMs", asrManager.getTimeToFirstResultMs());
+            arr.pushMap(map);
+        }
+
+        p.resolve(arr);
+    }
+
     // ============================================================
     // PERMISSIONS
     // ============================================================
@@ -318,24 +591,50 @@ public class RnJavaConnectorModule extends ReactContextBaseJavaModule {
             return;
         }
 
+        // Модель ещё ставится / грузится в фоне → переключимся, когда будет READY
+        asrManager.whenReady(engineId, (id, modelPath, error) -> {
+
+            if (error != null) {
+                p.reject("ENGINE_NOT_READY", error.toString());
+                return;
+            }
+
+            getReactApplicationContext().runOnNativeModulesQueueThread(() -> {
+                if (modelPath != null) {
+                    currentModelPath = modelPath;
+                }
+                switchEngine(engineId, next, p);
+            });
+        });
+    }
+
+    private void switchEngine(String engineId, AsrEngine next, Promise p) {
+
         Log.i("RnJavaConnector", "🔄 Switching engine to: " + engineId);
 
         try {
 
             // ============================================================
-            // 1) Полностью остановить AudioRecord + thread
+            // 1) Отсоединить движок от захвата (AudioRecord продолжает
+            //    писать в pre-roll, новый движок получит это аудио)
             // ============================================================
-            fullStopAndRelease();
+            capture.detach();
 
             // ============================================================
-            // 2) Полностью остановить и уничтожить старый движок
+            // 2) Остановить старый движок; уничтожаем только если он
+            //    меняется (тот же движок держит модель и кэш грамматик)
             // ============================================================
-            if (currentEngine != null) {
-                Log.i("RnJavaConnector", "Shutting down previous engine: "
-                        + currentEngine.getId());
+            boolean sameEngine = next == currentEngine;
 
+            if (currentEngine != null) {
                 currentEngine.stopRecognition();
-                currentEngine.shutdown();
+
+                if (!sameEngine) {
+                    Log.i("RnJavaConnector", "Shutting down previous engine: "
+                            + currentEngine.getId());
+
+                    currentEngine.shutdown();
+                }
             }
 
             // ============================================================
@@ -357,6 +656,7 @@ public class RnJavaConnectorModule extends ReactContextBaseJavaModule {
 
             // ============================================================
             // 5) Если модель уже установлена → загружаем заново
+            //    (тот же путь в native игнорируется)
             // ============================================================
             if (currentModelPath != null) {
 
@@ -378,8 +678,16 @@ public class RnJavaConnectorModule extends ReactContextBaseJavaModule {
 
             nativeFullReset();
 
+            // результаты primary распознавателя помечаются id движка
+            nativeSetPrimaryEngineId(engineId);
+
             // ============================================================
-            // 7) Готово
+            // 7) Параллельные распознаватели (после shutdown их нет)
+            // ============================================================
+            applyParallelEngines();
+
+            // ============================================================
+            // 8) Готово
             // ============================================================
             Log.i("RnJavaConnector", "✅ Engine switched successfully: " + engineId);
 
@@ -395,184 +703,1275 @@ public class RnJavaConnectorModule extends ReactContextBaseJavaModule {
 
 
     // ============================================================
-    // START / STOP RECOGNITION
+    // REPLAY (recorded audio instead of the mic)
     // ============================================================
 
+    /**
+     * Source for the replay engine: WAV / raw PCM file or a folder of them.
+     * mode: "realtime" | "throughput". Then setCurrentEngine + startRecognition.
+     */
     @ReactMethod
-    public void startRecognition(String engineId, Promise p) {
+    public void configureReplay(String engineId, String path, String mode, Promise p) {
 
-        if (currentEngine == null) {
-            p.reject("NO_ENGINE", "Call setCurrentEngine() first");
+        AsrEngine engine = asrManager.getEngine(engineId);
+
+        if (!(engine instanceof ReplayAsrEngine)) {
+            p.reject("ENGINE_NOT_REPLAY", "Not a replay engine: " + engineId);
             return;
         }
 
-        if (!currentEngine.getId().equals(engineId)) {
-            p.reject("ENGINE_MISMATCH", "Engine not active");
+        ReplayAsrEngine.Mode value;
+
+        switch (mode) {
+            case "realtime": value = ReplayAsrEngine.Mode.REALTIME; break;
+            case "throughput": value = ReplayAsrEngine.Mode.THROUGHPUT; break;
+            default:
+                p.reject("BAD_REPLAY_MODE", "Unknown replay mode: " + mode);
+                return;
+        }
+
+        ((ReplayAsrEngine) engine).configure(path, value);
+        p.resolve(true);
+    }
+
+    @ReactMethod
+    public void getReplayReport(String engineId, Promise p) {
+
+        AsrEngine engine = asrManager.getEngine(engineId);
+
+        if (!(engine instanceof ReplayAsrEngine)) {
+            p.reject("ENGINE_NOT_REPLAY", "Not a replay engine: " + engineId);
             return;
         }
 
-        if (audioRunning) {
-            p.resolve(true);
+        ReplayAsrEngine.Report r = ((ReplayAsrEngine) engine).getLastReport();
+        p.resolve(r != null ? toReplayMap(r) : null);
+    }
+
+    private static void emitReplayFinished(ReplayAsrEngine.Report report) {
+
+        if (reactContext == null) return;
+
+        reactContext
+                .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                .emit("ReplayFinished", toReplayMap(report));
+    }
+
+    private static WritableMap toReplayMap(ReplayAsrEngine.Report r) {
+
+        WritableArray files = Arguments.createArray();
+
+        for (ReplayAsrEngine.FileResult f : r.files) {
+
+            WritableArray utterances = Arguments.createArray();
+            synchronized (f.utterances) {
+                for (String u : f.utterances) {
+                    utterances.pushString(u);
+                }
+            }
+
+            WritableMap fm = Arguments.createMap();
+            fm.putString("name", f.name);
+            fm.putDouble("audioMs", f.audioMs);
+            fm.putDouble("tailMs", f.tailMs);
+            if (r.hasRtf()) {
+                fm.putDouble("decodeMs", f.decodeMs);
+                fm.putDouble("rtf", f.getRtf());
+            } else {
+                fm.putNull("decodeMs");
+                fm.putNull("rtf");
+            }
+            fm.putString("text", f.getText());
+            fm.putArray("utterances", utterances);
+            fm.putString("error", f.error);
+            files.pushMap(fm);
+        }
+
+        WritableMap map = Arguments.createMap();
+        map.putString("mode", r.mode == ReplayAsrEngine.Mode.REALTIME ? "realtime" : "throughput");
+        map.putDouble("audioMs", r.audioMs);
+        map.putDouble("maxTailMs", r.maxTailMs);
+        map.putDouble("wallMs", r.wallMs);
+        if (r.hasRtf()) {
+            map.putDouble("decodeMs", r.decodeMs);
+            map.putDouble("rtf", r.getRtf());
+        } else {
+            // realtime pacing: decode time is the audio length, RTF ≈ 1
+            map.putNull("decodeMs");
+            map.putNull("rtf");
+        }
+        map.putBoolean("cancelled", r.cancelled);
+        map.putArray("files", files);
+        return map;
+    }
+
+    // ============================================================
+    // GRAMMAR (recognizer limited to the expected phrase)
+    // ============================================================
+
+    /**
+     * Decode the next session with a grammar recognizer built from these
+     * phrases (expected answer, its words, variants; "[unk]" is added).
+     * Compiled grammars are cached natively by key (phrase uid), so a
+     * repeated phrase only swaps recognizers.
+     */
+    @ReactMethod
+    public void setGrammar(String key, ReadableArray phrases, Promise p) {
+
+        if (key == null || key.isEmpty()) {
+            p.reject("BAD_GRAMMAR", "Grammar key is required");
             return;
         }
 
-        try {
+        JSONArray grammar = new JSONArray();
 
-            if (currentEngine.needsExternalAudio()) {
-                initAudioRecord();
+        for (int i = 0; i < phrases.size(); i++) {
+            String phrase = phrases.getString(i);
+            if (phrase != null && !phrase.trim().isEmpty()) {
+                grammar.put(phrase.trim());
             }
+        }
 
-            boolean ok = currentEngine.startRecognition();
-            p.resolve(ok);
+        if (grammar.length() == 0) {
+            p.reject("BAD_GRAMMAR", "Grammar has no phrases: " + key);
+            return;
+        }
 
-        } catch (Exception ex) {
+        grammar.put("[unk]");
 
-            p.reject("START_FAILED", ex.toString());
+        if (!nativeSetGrammar(key, grammar.toString())) {
+            p.reject("GRAMMAR_FAILED", "Grammar recognizer failed: " + key);
+            return;
         }
+
+        p.resolve(true);
     }
 
+    /**
+     * Back to the open-vocabulary recognizer (cached grammars are kept).
+     */
     @ReactMethod
-    public void stopRecognition(String engineId, Promise p) {
+    public void clearGrammar(Promise p) {
+        p.resolve(nativeSetGrammar("", null));
+    }
 
-        fullStopAndRelease();
+    @ReactMethod
+    public void getGrammarStats(Promise p) {
 
-        if (currentEngine != null) {
-            currentEngine.stopRecognition();
-        }
+        long[] s = nativeGetGrammarStats();
 
-        p.resolve(null);
+        WritableMap map = Arguments.createMap();
+        map.putDouble("hits", s[0]);
+        map.putDouble("misses", s[1]);
+        map.putDouble("failures", s[2]);
+        map.putDouble("evictions", s[3]);
+        map.putDouble("cached", s[4]);
+        map.putDouble("lastCompileMs", s[5]);
+        map.putBoolean("active", s[6] != 0);
+
+        p.resolve(map);
     }
 
     // ============================================================
-    // AudioRecord init with permission check
+    // PARALLEL ENGINES (fan-out + arbitration)
     // ============================================================
 
-    private void initAudioRecord() {
+    /**
+     * Runs these engines next to the current one, fed from the same
+     * capture stream (each on its own native thread). Empty = off.
+     */
+    @ReactMethod
+    public void setParallelEngines(ReadableArray engineIds, Promise p) {
 
-        if (ContextCompat.checkSelfPermission(
-                getReactApplicationContext(),
-                Manifest.permission.RECORD_AUDIO
-        ) != PackageManager.PERMISSION_GRANTED) {
+        List<String> ids = new ArrayList<>();
 
-            throw new SecurityException("RECORD_AUDIO permission not granted");
-        }
+        for (int i = 0; i < engineIds.size(); i++) {
 
-        audioBufferSize = AudioRecord.getMinBufferSize(
-                SAMPLE_RATE,
-                AudioFormat.CHANNEL_IN_MONO,
-                AudioFormat.ENCODING_PCM_16BIT
-        );
+            String id = engineIds.getString(i);
+            AsrEngine engine = asrManager.getEngine(id);
 
-        if (audioBufferSize <= 0) {
-            throw new IllegalStateException("Invalid buffer size");
-        }
+            if (engine == null) {
+                p.reject("ENGINE_NOT_FOUND", "Unknown engine: " + id);
+                return;
+            }
 
-        audioRecord = new AudioRecord(
-                MediaRecorder.AudioSource.MIC,
-                SAMPLE_RATE,
-                AudioFormat.CHANNEL_IN_MONO,
-                AudioFormat.ENCODING_PCM_16BIT,
-                audioBufferSize
-        );
+            if (!engine.needsExternalAudio()) {
+                p.reject("ENGINE_NOT_PARALLEL",
+                        "Engine reads the mic itself: " + id);
+                return;
+            }
 
-        if (audioRecord.getState() != AudioRecord.STATE_INITIALIZED) {
-            throw new IllegalStateException("AudioRecord not initialized");
+            if (!ids.contains(id)) ids.add(id);
         }
 
-        audioRunning = true;
-        audioRecord.startRecording();
+        // wait for every model, then apply on the native modules thread
+        AtomicInteger pending = new AtomicInteger(ids.size() + 1);
+        String[] failure = new String[1];
 
-        audioThread = new Thread(() -> {
+        Runnable done = () -> {
+            if (pending.decrementAndGet() != 0) return;
 
-            short[] buffer = new short[4000];
-
-            while (audioRunning) {
+            getReactApplicationContext().runOnNativeModulesQueueThread(() -> {
+                if (failure[0] != null) {
+                    p.reject("ENGINE_NOT_READY", failure[0]);
+                    return;
+                }
 
-                int read = audioRecord.read(buffer, 0, buffer.length);
+                parallelEngineIds.clear();
+                parallelEngineIds.addAll(ids);
 
-                if (read > 0) {
-                    nativePushAudio(buffer, read);
-                }
-            }
+                p.resolve(applyParallelEngines());
+            });
+        };
 
-        }, "AudioRecordThread");
+        for (String id : ids) {
+            asrManager.whenReady(id, (engineId, modelPath, error) -> {
+                if (error != null) failure[0] = engineId + ": " + error;
+                done.run();
+            });
+        }
 
-        audioThread.start();
+        done.run();
     }
 
-    private void fullStopAndRelease() {
+    /**
+     * policy: "all" | "preferred" | "bestConfidence"
+     * preferredEngineId: usually the expected language of the phrase
+     */
+    @ReactMethod
+    public void setArbitrationPolicy(String policy, String preferredEngineId, Promise p) {
 
-        audioRunning = false;
+        ResultArbiter.Policy value;
 
-        if (audioThread != null) {
-            try {
-                audioThread.join();
-            } catch (InterruptedException ignored) {}
-            audioThread = null;
+        switch (policy) {
+            case "all": value = ResultArbiter.Policy.ALL; break;
+            case "preferred": value = ResultArbiter.Policy.PREFERRED; break;
+            case "bestConfidence": value = ResultArbiter.Policy.BEST_CONFIDENCE; break;
+            default:
+                p.reject("BAD_POLICY", "Unknown arbitration policy: " + policy);
+                return;
         }
 
-        if (audioRecord != null) {
-            try {
-                audioRecord.stop();
-            } catch (Exception ignored) {}
-            audioRecord.release();
-            audioRecord = null;
-        }
+        resultArbiter.setPolicy(value, preferredEngineId);
+        p.resolve(true);
     }
 
-    // ============================================================
-    // TTS API
-    // ============================================================
-
     @ReactMethod
-    public void isTtsReady(Promise p) {
-        p.resolve(ttsReady);
+    public void getArbitrationStats(Promise p) {
+
+        long[] s = resultArbiter.getStats();
+
+        WritableArray engines = Arguments.createArray();
+        for (String id : nativeGetRecognizerIds()) {
+            engines.pushString(id);
+        }
+
+        WritableMap map = Arguments.createMap();
+        map.putArray("engines", engines);
+        map.putString("preferredEngine", resultArbiter.getPreferredEngineId());
+        map.putDouble("received", s[0]);
+        map.putDouble("forwarded", s[1]);
+        map.putDouble("suppressedPartials", s[2]);
+        map.putDouble("finalGroups", s[3]);
+        map.putDouble("finalsDiscarded", s[4]);
+        map.putDouble("fallbackFinals", s[5]);
+
+        p.resolve(map);
     }
 
     @ReactMethod
-    public void speak(String text, Promise p) {
+    public void resetArbitrationStats(Promise p) {
+        resultArbiter.resetStats();
+        p.resolve(null);
+    }
 
-        if (!ttsReady || tts == null) {
-            p.reject("TTS_NOT_READY", "TTS not ready");
-            return;
+    /**
+     * Syncs native secondary recognizers with parallelEngineIds.
+     * Models come from ModelCache (prewarmed by AsrEngineManager).
+     *
+     * @return engine ids now running (primary first)
+     */
+    private WritableArray applyParallelEngines() {
+
+        String primaryId = currentEngine != null ? currentEngine.getId() : null;
+
+        for (String id : nativeGetRecognizerIds()) {
+            if (!id.equals(primaryId) && !parallelEngineIds.contains(id)) {
+                nativeRemoveRecognizer(id);
+            }
         }
 
-        Locale lang = detectLanguage(text);
-        tts.setLanguage(lang);
+        if (primaryId != null) {
+            for (String id : parallelEngineIds) {
 
-        String utteranceId = UUID.randomUUID().toString();
+                if (id.equals(primaryId)) continue;
 
-        tts.speak(
-                text,
-                TextToSpeech.QUEUE_FLUSH,
-                null,
-                utteranceId
-        );
+                AsrEngineManager.EngineSlot slot = asrManager.getSlot(id);
+                String path = slot != null ? slot.getModelPath() : null;
+
+                if (path == null || !nativeAddRecognizer(id, path)) {
+                    Log.e("RnJavaConnector", "Parallel engine failed: " + id);
+                }
+            }
+        }
+
+        String[] active = nativeGetRecognizerIds();
+        resultArbiter.setActiveEngines(Arrays.asList(active));
 
-        p.resolve(utteranceId);
+        Log.i("RnJavaConnector", "Active recognizers: " + Arrays.toString(active));
+
+        WritableArray out = Arguments.createArray();
+        for (String id : active) {
+            out.pushString(id);
+        }
+        return out;
     }
 
     // ============================================================
-    // Native callback → JS
+    // START / STOP RECOGNITION
     // ============================================================
 
-    public static void onNativeResult(String text) {
+    @ReactMethod
+    public void startRecognition(String engineId, Promise p) {
 
-        if (reactContext == null) return;
+        if (currentEngine == null) {
+            p.reject("NO_ENGINE", "Call setCurrentEngine() first");
+            return;
+        }
 
-        reactContext
-                .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
-                .emit("SpeechResult", text);
-    }
+        if (!currentEngine.getId().equals(engineId)) {
+            p.reject("ENGINE_MISMATCH", "Engine not active");
+            return;
+        }
+
+        if (capture.isAttached()) {
+            p.resolve(true);
+            return;
+        }
+
+        try {
+
+            boolean external = currentEngine.needsExternalAudio();
+
+            if (external) {
+                startCapture();
+            } else {
+                stopCapture();
+            }
+
+            boolean ok = currentEngine.startRecognition();
+
+            // after start: pre-roll from an engine switch goes to the new recognizer
+            if (ok && external) {
+                capture.attach(this::onCapturedAudio);
+            }
+
+            p.resolve(ok);
+
+        } catch (Exception ex) {
+
+            p.reject("START_FAILED", ex.toString());
+        }
+    }
+
+    @ReactMethod
+    public void stopRecognition(String engineId, Promise p) {
+
+        stopCapture();
+
+        if (currentEngine != null) {
+            currentEngine.stopRecognition();
+        }
+
+        p.resolve(null);
+    }
+
+    // ============================================================
+    // Capture with permission check
+    // ============================================================
+
+    private void startCapture() {
+
+        if (capture.isRunning()) return;
+
+        if (ContextCompat.checkSelfPermission(
+                getReactApplicationContext(),
+                Manifest.permission.RECORD_AUDIO
+        ) != PackageManager.PERMISSION_GRANTED) {
+
+            throw new SecurityException("RECORD_AUDIO permission not granted");
+        }
+
+        vad.reset();
+
+        SessionAudioRecorder rec = recorder;
+        if (rec != null) rec.beginSession();
+
+        capture.start();
+    }
+
+    /** Capture and its session recording end together. */
+    private void stopCapture() {
+
+        capture.stop();
+
+        SessionAudioRecorder rec = recorder;
+        if (rec != null) rec.endSession();
+    }
+
+    /**
+     * AudioRecordThread (or the attaching thread for switch pre-roll).
+     */
+    private void onCapturedAudio(ByteBuffer pcm, int read, long capturedAtNanos) {
+
+        // captured while our TTS was audible (+ guard) → never decoded
+        if (!ttsGate.isOpen(capturedAtNanos)) {
+            ttsGate.countSuppressed(read);
+            ttsGateWasOpen = false;
+            return;
+        }
+
+        if (!ttsGateWasOpen) {
+            ttsGateWasOpen = true;
+            vad.reset();   // noise floor / speech state include the prompt
+        }
+
+        // copy into the recorder's memory ring, file I/O is on its own thread
+        SessionAudioRecorder rec = recorder;
+        if (rec != null) rec.tee(pcm, read);
+
+        if (!vadEnabled) {
+            // zero-copy: native reads the direct buffer in place
+            nativePushAudioDirect(pcm, read, capturedAtNanos);
+            countPushed(read, capturedAtNanos);
+            return;
+        }
+
+        // forward only speech (+ pre-roll / hangover)
+        int voiced = vad.process(toVadInput(pcm, read), read);
+
+        if (voiced > 0) {
+            nativePushAudio(vad.getOutput(), voiced, capturedAtNanos);
+            countPushed(voiced, capturedAtNanos);
+        }
+    }
+
+    /**
+     * VAD works on short[]: one bulk copy out of the direct buffer into a
+     * reused array (capture thread only).
+     */
+    private short[] toVadInput(ByteBuffer pcm, int frames) {
+
+        if (pcm != vadSource) {
+            vadSource = pcm;
+            vadSourceShorts = pcm.asShortBuffer();
+        }
+
+        if (vadInput.length < frames) {
+            vadInput = new short[frames];
+        }
+
+        vadSourceShorts.clear();
+        vadSourceShorts.get(vadInput, 0, frames);
+        return vadInput;
+    }
+
+    private static void countPushed(int frames, long capturedAtNanos) {
+        PipelineMetrics metrics = PipelineMetrics.getInstance();
+        metrics.stage(PipelineMetrics.Stage.PUSH).recordSince(capturedAtNanos, System.nanoTime());
+        metrics.framesPushed.addAndGet(frames);
+    }
+
+    /**
+     * Gap in delivered audio across engine switches / recognizer resets.
+     */
+    @ReactMethod
+    public void getCaptureStats(Promise p) {
+
+        long[] s = capture.getStats();
+
+        WritableMap map = Arguments.createMap();
+        map.putBoolean("running", capture.isRunning());
+        map.putDouble("recorderStarts", s[0]);
+        map.putDouble("switches", s[1]);
+        map.putDouble("lastSwitchMs", s[2]);
+        map.putDouble("lastReplayedFrames", s[3]);
+        map.putDouble("lastLostFrames", s[4]);
+        map.putDouble("lastGapMs", capture.framesToMs(s[4]));
+        map.putDouble("totalReplayedFrames", s[5]);
+        map.putDouble("totalLostFrames", s[6]);
+        map.putDouble("preRollFrames", s[7]);
+        map.putDouble("overruns", s[8]);
+        map.putDouble("overrunFrames", s[9]);
+        map.putDouble("readFrames", s[10]);
+        map.putDouble("recordBufferFrames", s[11]);
+
+        p.resolve(map);
+    }
+
+    @ReactMethod
+    public void resetCaptureStats(Promise p) {
+        capture.resetStats();
+        p.resolve(null);
+    }
+
+    // ============================================================
+    // SESSION RECORDING (learner answers → mmap ring → WAV on demand)
+    // ============================================================
+
+    /**
+     * config: { enabled, budgetMb?, sessionSeconds? }. Sessions start and
+     * stop with capture; budget / length apply from the next session.
+     */
+    @ReactMethod
+    public void configureAudioRecorder(ReadableMap config, Promise p) {
+
+        boolean enabled = config.hasKey("enabled") && config.getBoolean("enabled");
+        long budgetMb = config.hasKey("budgetMb") ? config.getInt("budgetMb") : RECORDER_BUDGET_MB_DEFAULT;
+        int sessionSeconds = config.hasKey("sessionSeconds")
+                ? config.getInt("sessionSeconds") : RECORDER_SESSION_SECONDS_DEFAULT;
+
+        SessionAudioRecorder rec = recorder;
+
+        if (!enabled) {
+            if (rec != null) {
+                recorder = null;
+                rec.close(RECORDER_CLOSE_TIMEOUT_MS);
+            }
+            p.resolve(false);
+            return;
+        }
+
+        if (rec == null) {
+            rec = new SessionAudioRecorder(
+                    new File(getReactApplicationContext().getFilesDir(), "recordings"),
+                    SAMPLE_RATE, budgetMb * 1024 * 1024, sessionSeconds);
+            rec.setPhraseUtterances(!vadEnabled);
+            recorder = rec;
+
+            // capture already running: record the rest of this session
+            if (capture.isRunning()) rec.beginSession();
+        } else {
+            rec.configure(budgetMb * 1024 * 1024, sessionSeconds);
+        }
+
+        p.resolve(true);
+    }
+
+    /**
+     * The phrase on screen: utterances from now on are indexed under it.
+     * Without the VAD there are no speech boundaries, so the whole time a
+     * phrase is shown is one utterance.
+     */
+    @ReactMethod
+    public void setRecordingPhrase(String uid, Promise p) {
+
+        SessionAudioRecorder rec = recorder;
+
+        if (rec != null) rec.markPhrase(uid);
+        p.resolve(null);
+    }
+
+    /** Recorded utterances of one phrase (null = all), oldest first. */
+    @ReactMethod
+    public void listRecordings(String uid, Promise p) {
+
+        SessionAudioRecorder rec = recorder;
+        WritableArray out = Arguments.createArray();
+
+        if (rec != null) {
+            int rate = rec.getSampleRate();
+
+            for (SessionAudioRecorder.Segment s : rec.segments(uid)) {
+                WritableMap map = Arguments.createMap();
+                map.putString("sessionId", s.sessionId);
+                map.putInt("utterance", s.utterance);
+                map.putString("phraseUid", s.phraseUid);
+                map.putDouble("startMs", s.startFrame * 1000.0 / rate);
+                map.putDouble("durationMs", (s.endFrame - s.startFrame) * 1000.0 / rate);
+                map.putBoolean("open", s.open);
+                map.putBoolean("clipped", s.clipped);
+                out.pushMap(map);
+            }
+        }
+        p.resolve(out);
+    }
+
+    /** Resolves the WAV path, or null if the audio is gone (ring / budget). */
+    @ReactMethod
+    public void exportRecording(String sessionId, int utterance, Promise p) {
+
+        SessionAudioRecorder rec = recorder;
+        if (rec == null) {
+            p.reject("RECORDER_DISABLED", "Call configureAudioRecorder({ enabled: true }) first");
+            return;
+        }
+
+        rec.exportWav(sessionId, utterance, new SessionAudioRecorder.ExportCallback() {
+            @Override
+            public void onExported(File wav) {
+                p.resolve(wav != null ? wav.getAbsolutePath() : null);
+            }
+
+            @Override
+            public void onError(IOException ex) {
+                p.reject("EXPORT_FAILED", ex.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Capture must not notice the recorder: teeLatency is its whole cost on
+     * AudioRecordThread, framesDropped counts audio the writer fell behind
+     * on (recording gap, capture unaffected); compare with getCaptureStats().overruns.
+     */
+    @ReactMethod
+    public void getAudioRecorderStats(Promise p) {
+
+        SessionAudioRecorder rec = recorder;
+
+        WritableMap map = Arguments.createMap();
+        map.putBoolean("enabled", rec != null);
+
+        if (rec != null) {
+            long[] s = rec.getStats();
+            map.putDouble("sessions", s[0]);
+            map.putDouble("teeCalls", s[1]);
+            map.putDouble("framesTeed", s[2]);
+            map.putDouble("framesDropped", s[3]);
+            map.putDouble("slowTees", s[4]);
+            map.putDouble("framesWritten", s[5]);
+            map.putDouble("maxRingFill", s[6]);
+            map.putDouble("ringFrames", s[7]);
+            map.putDouble("diskBytes", s[8]);
+            map.putDouble("budgetBytes", s[9]);
+            map.putDouble("evictedSessions", s[10]);
+            map.putDouble("exports", s[11]);
+            map.putDouble("storedSessions", s[12]);
+            map.putDouble("utterances", s[13]);
+            map.putMap("teeLatency", toWritableMap(rec.getTeeLatency()));
+            map.putMap("drainLatency", toWritableMap(rec.getDrainLatency()));
+        }
+
+        p.resolve(map);
+    }
+
+    @ReactMethod
+    public void resetAudioRecorderStats(Promise p) {
+        SessionAudioRecorder rec = recorder;
+        if (rec != null) rec.resetStats();
+        p.resolve(null);
+    }
+
+    // ============================================================
+    // Native audio buffer diagnostics
+    // ============================================================
+
+    /**
+     * policy: "dropOldest" | "dropNewest" | "block"
+     */
+    @ReactMethod
+    public void setAudioOverflowPolicy(String policy, Promise p) {
+
+        int code;
+
+        switch (policy) {
+            case "dropOldest": code = 0; break;
+            case "dropNewest": code = 1; break;
+            case "block": code = 2; break;
+            default:
+                p.reject("BAD_POLICY", "Unknown overflow policy: " + policy);
+                return;
+        }
+
+        nativeSetAudioOverflowPolicy(code);
+        p.resolve(true);
+    }
+
+    @ReactMethod
+    public void getAudioBufferStats(Promise p) {
+
+        long[] s = nativeGetAudioBufferStats();
+
+        WritableMap map = Arguments.createMap();
+        map.putDouble("capacity", s[0]);
+        map.putDouble("fill", s[1]);
+        map.putDouble("highWater", s[2]);
+        map.putDouble("framesPushed", s[3]);
+        map.putDouble("framesDropped", s[4]);
+        map.putDouble("overflowEvents", s[5]);
+        map.putDouble("wakeups", s[6]);
+        map.putDouble("emptyWakeups", s[7]);
+
+        p.resolve(map);
+    }
+
+    @ReactMethod
+    public void resetAudioBufferStats(Promise p) {
+        nativeResetAudioBufferStats();
+        p.resolve(null);
+    }
+
+    /**
+     * Recognition thread decodes once minChunkFrames are buffered
+     * (or after maxWaitMs with a shorter non-empty chunk).
+     */
+    @ReactMethod
+    public void setRecognitionChunk(int minChunkFrames, int maxWaitMs, Promise p) {
+
+        if (minChunkFrames <= 0 || maxWaitMs < 0) {
+            p.reject("BAD_CHUNK_CONFIG",
+                    "minChunkFrames must be > 0, maxWaitMs >= 0");
+            return;
+        }
+
+        nativeSetChunkConfig(minChunkFrames, maxWaitMs);
+        p.resolve(true);
+    }
+
+    // ============================================================
+    // VAD
+    // ============================================================
+
+    @ReactMethod
+    public void setVadEnabled(boolean enabled, Promise p) {
+        Log.i("RnJavaConnector", "VAD enabled: " + enabled);
+        vadEnabled = enabled;
+
+        // no speech boundaries without the VAD: one utterance per phrase
+        SessionAudioRecorder rec = recorder;
+        if (rec != null) rec.setPhraseUtterances(!enabled);
+
+        p.resolve(true);
+    }
+
+    @ReactMethod
+    public void getVadStats(Promise p) {
+
+        WritableMap map = Arguments.createMap();
+        map.putBoolean("enabled", vadEnabled);
+        map.putBoolean("inSpeech", vad.isInSpeech());
+        map.putDouble("framesIn", vad.getFramesIn());
+        map.putDouble("framesForwarded", vad.getFramesForwarded());
+        map.putDouble("framesSkipped", vad.getFramesSkipped());
+        map.putDouble("speechSegments", vad.getSpeechSegments());
+
+        p.resolve(map);
+    }
+
+    @ReactMethod
+    public void resetVadStats(Promise p) {
+        vad.resetStats();
+        p.resolve(null);
+    }
+
+    // ============================================================
+    // TTS gating
+    // ============================================================
+
+    /**
+     * While a prompt plays (live or cached) captured audio is dropped and
+     * the recognizers' current utterance is discarded; recognition resumes
+     * guardMs after playback ends.
+     */
+    @ReactMethod
+    public void setTtsGating(boolean enabled, int guardMs, Promise p) {
+
+        if (guardMs < 0) {
+            p.reject("BAD_GUARD", "guardMs must be >= 0");
+            return;
+        }
+
+        ttsGate.configure(enabled, guardMs);
+        Log.i("RnJavaConnector", "TTS gating: " + enabled + ", guard " + guardMs + " ms");
+        p.resolve(null);
+    }
+
+    @ReactMethod
+    public void getTtsGatingStats(Promise p) {
+
+        long[] s = ttsGate.getStats();
+
+        WritableMap map = Arguments.createMap();
+        map.putBoolean("enabled", ttsGate.isEnabled());
+        map.putDouble("guardMs", ttsGate.getGuardMs());
+        map.putBoolean("gated", s[4] != 0);
+        map.putDouble("gatings", s[0]);
+        map.putDouble("suppressedBuffers", s[1]);
+        map.putDouble("suppressedFrames", s[2]);
+        map.putDouble("suppressedMs", s[3]);
+
+        p.resolve(map);
+    }
+
+    @ReactMethod
+    public void resetTtsGatingStats(Promise p) {
+        ttsGate.resetStats();
+        p.resolve(null);
+    }
+
+    private static void emitVadEvent(String eventName) {
+
+        if (reactContext == null) return;
+
+        WritableMap map = Arguments.createMap();
+        map.putDouble("timestamp", System.currentTimeMillis());
+
+        reactContext
+                .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                .emit(eventName, map);
+    }
+
+    // ============================================================
+    // TTS API
+    // ============================================================
+
+    @ReactMethod
+    public void isTtsReady(Promise p) {
+        p.resolve(ttsReady);
+    }
+
+    @ReactMethod
+    public void speak(String text, Promise p) {
+
+        if (!ttsReady || tts == null) {
+            p.reject("TTS_NOT_READY", "TTS not ready");
+            return;
+        }
+
+        // cached audio plays at once; a miss falls back to live synthesis
+        p.resolve(ttsCache.speak(text));
+    }
+
+    /**
+     * Pre-synthesizes the next likely prompts (most likely first) in the
+     * background; replaces the previous list.
+     */
+    @ReactMethod
+    public void prefetchTts(ReadableArray texts, Promise p) {
+
+        if (!ttsReady || tts == null) {
+            p.reject("TTS_NOT_READY", "TTS not ready");
+            return;
+        }
+
+        List<String> list = new ArrayList<>(texts.size());
+        for (int i = 0; i < texts.size(); i++) {
+            list.add(texts.getString(i));
+        }
+
+        ttsCache.prefetch(list);
+        p.resolve(null);
+    }
+
+    /**
+     * 1.0 = normal. Part of the cache key: prompts cached at another rate
+     * are re-synthesized.
+     */
+    @ReactMethod
+    public void setTtsRate(double rate, Promise p) {
+
+        if (rate <= 0) {
+            p.reject("BAD_RATE", "Rate must be > 0");
+            return;
+        }
+
+        ttsCache.setSpeechRate((float) rate);
+        p.resolve(null);
+    }
+
+    @ReactMethod
+    public void getTtsCacheStats(Promise p) {
+
+        long[] s = ttsCache.getStats();
+        long lookups = s[0] + s[1];
+
+        WritableMap map = Arguments.createMap();
+        map.putDouble("hits", s[0]);
+        map.putDouble("misses", s[1]);
+        map.putDouble("hitRate", lookups > 0 ? (double) s[0] / lookups : 0);
+        map.putDouble("prefetched", s[2]);
+        map.putDouble("prefetchFailures", s[3]);
+        map.putDouble("pending", s[4]);
+        map.putDouble("entries", s[5]);
+        map.putDouble("bytes", s[6]);
+        map.putDouble("budgetBytes", s[7]);
+        map.putDouble("evictions", s[8]);
+
+        WritableMap ttfa = Arguments.createMap();
+        ttfa.putMap("cached", toWritableMap(ttsCache.getTimeToFirstAudio(true)));
+        ttfa.putMap("live", toWritableMap(ttsCache.getTimeToFirstAudio(false)));
+        map.putMap("timeToFirstAudio", ttfa);
+
+        p.resolve(map);
+    }
+
+    @ReactMethod
+    public void resetTtsCacheStats(Promise p) {
+        ttsCache.resetStats();
+        p.resolve(null);
+    }
+
+    @ReactMethod
+    public void clearTtsCache(Promise p) {
+        ttsCache.clear();
+        p.resolve(null);
+    }
+
+    // ============================================================
+    // Native callback → JS
+    // ============================================================
+
+    public static void onNativeResult(String engineId,
+                                      boolean isFinal,
+                                      int utteranceId,
+                                      long startFrame,
+                                      long endFrame,
+                                      long audioCapturedNanos,
+                                      String text,
+                                      String[] words,
+                                      float[] wordTimings,
+                                      int alternatives,
+                                      int chosenAlternative,
+                                      float matchScore,
+                                      String topText) {
+
+        AsrEngineManager manager = AsrEngineManager.getInstance();
+        manager.markFirstResult();
+
+        AsrResult result = new AsrResult(engineId, isFinal, utteranceId, startFrame, endFrame,
+                audioCapturedNanos, text, words, wordTimings,
+                alternatives, chosenAlternative, matchScore, topText);
+
+        // replay collects per-file results for its report
+        AsrEngine source = manager.getEngine(engineId);
+        if (source instanceof ReplayAsrEngine) {
+            ((ReplayAsrEngine) source).onResult(result);
+        }
+
+        resultArbiter.submit(result);
+    }
+
+    // ============================================================
+    // PHRASE MATCHING (expected answer vs results, in Java)
+    // ============================================================
+
+    /**
+     * Loads the expected answer; from now on JS only gets
+     * "PhraseWordMatched" / "PhraseComplete" events for it.
+     *
+     * matchId: chosen by JS before the call, so events that beat the
+     * promise are still recognized. variants: [{word, variants: [..]}]
+     * (Tvariant[]). Resolves {matchId, words} — words normalized, in
+     * match order.
+     */
+    @ReactMethod
+    public void loadPhraseMatch(int matchId, String expected, ReadableArray variants, Promise p) {
+
+        phraseMatcher.load(matchId, expected, toVariantMap(variants));
+        syncExpectedPhrase();
+
+        WritableArray words = Arguments.createArray();
+        for (String w : phraseMatcher.getWords()) {
+            words.pushString(w);
+        }
+
+        WritableMap map = Arguments.createMap();
+        map.putInt("matchId", matchId);
+        map.putArray("words", words);
+
+        p.resolve(map);
+    }
+
+    /** Variants edited mid-phrase: matched words are kept. */
+    @ReactMethod
+    public void setPhraseMatchVariants(ReadableArray variants, Promise p) {
+        phraseMatcher.setVariants(toVariantMap(variants));
+        syncExpectedPhrase();
+        p.resolve(null);
+    }
+
+    @ReactMethod
+    public void clearPhraseMatch(Promise p) {
+        phraseMatcher.clear();
+        nativeClearExpectedPhrase();
+        p.resolve(null);
+    }
+
+    /** Counts the current word as matched (hint button). */
+    @ReactMethod
+    public void skipPhraseWord(Promise p) {
+        p.resolve(phraseMatcher.skipWord());
+    }
+
+    @ReactMethod
+    public void getPhraseMatchStats(Promise p) {
+
+        long[] s = phraseMatcher.getStats();
+
+        WritableMap map = Arguments.createMap();
+        map.putInt("matchId", phraseMatcher.getMatchId());
+        map.putInt("currentIndex", phraseMatcher.getCurrentIndex());
+        map.putDouble("results", s[0]);
+        map.putDouble("wordsMatched", s[1]);
+        map.putDouble("variantMatches", s[2]);
+        map.putDouble("phrasesCompleted", s[3]);
+        map.putMap("latency", toWritableMap(phraseMatcher.getMatchLatency()));
+
+        p.resolve(map);
+    }
+
+    @ReactMethod
+    public void resetPhraseMatchStats(Promise p) {
+        phraseMatcher.resetStats();
+        p.resolve(null);
+    }
+
+    /** Same words / variants for n-best scoring in native (NBestScorer). */
+    private static void syncExpectedPhrase() {
+        nativeSetExpectedPhrase(phraseMatcher.getWords(), phraseMatcher.getVariants());
+    }
+
+    // ============================================================
+    // N-BEST ALTERNATIVES (scored against the expected phrase)
+    // ============================================================
+
+    /**
+     * 0 = 1-best only (default). With n > 0 every final carries up to n
+     * hypotheses; the one closest to the expected phrase is emitted.
+     * Clamped to 10 in native. Takes effect from the next final.
+     */
+    @ReactMethod
+    public void setNBest(int maxAlternatives, Promise p) {
+        nativeSetMaxAlternatives(maxAlternatives);
+        p.resolve(null);
+    }
+
+    /**
+     * Counters + "finalize" latency (final extraction incl. n-best,
+     * parse, scoring) — compare with n = 0 to see the extra cost.
+     */
+    @ReactMethod
+    public void getNBestStats(Promise p) {
+
+        long[] s = nativeGetNBestStats();
+        long[] hist = nativeGetPipelineHistograms();
+
+        WritableMap map = Arguments.createMap();
+        map.putDouble("maxAlternatives", s[0]);
+        map.putDouble("finals", s[1]);
+        map.putDouble("alternatives", s[2]);
+        map.putDouble("scored", s[3]);
+        map.putDouble("rescued", s[4]);
+        map.putMap("finalize", toWritableMap(
+                LatencyHistogram.fromSnapshot(hist, 4 * LatencyHistogram.SNAPSHOT_SIZE)));
+
+        p.resolve(map);
+    }
+
+    @ReactMethod
+    public void resetNBestStats(Promise p) {
+        nativeResetNBestStats();
+        p.resolve(null);
+    }
+
+    private static Map<String, List<String>> toVariantMap(ReadableArray variants) {
+
+        Map<String, List<String>> out = new HashMap<>();
+        if (variants == null) return out;
+
+        for (int i = 0; i < variants.size(); i++) {
+            ReadableMap v = variants.getMap(i);
+            if (v == null || !v.hasKey("word") || !v.hasKey("variants")) continue;
+
+            ReadableArray list = v.getArray("variants");
+            List<String> values = new ArrayList<>(list.size());
+            for (int j = 0; j < list.size(); j++) {
+                values.add(list.getString(j));
+            }
+
+            out.put(v.getString("word"), values);
+        }
+
+        return out;
+    }
+
+    private static void emitPhraseWordMatched(int matchId,
+                                              int index,
+                                              String word,
+                                              boolean byVariant,
+                                              AsrResult source) {
+
+        if (reactContext == null) return;
+
+        WritableMap map = Arguments.createMap();
+        map.putInt("matchId", matchId);
+        map.putInt("index", index);
+        map.putString("word", word);
+        map.putBoolean("byVariant", byVariant);
+        map.putBoolean("manual", source == null);
+        if (source != null) {
+            map.putString("engine", source.engineId);
+            map.putBoolean("isFinal", source.isFinal);
+        }
+
+        reactContext
+                .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                .emit("PhraseWordMatched", map);
+    }
+
+    private static void emitPhraseComplete(int matchId, int words, long durationMs) {
+
+        if (reactContext == null) return;
+
+        WritableMap map = Arguments.createMap();
+        map.putInt("matchId", matchId);
+        map.putInt("words", words);
+        map.putDouble("durationMs", durationMs);
+
+        reactContext
+                .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                .emit("PhraseComplete", map);
+    }
+
+    /**
+     * Dispatcher output → "SpeechResult" event (see SpeechResultPayload).
+     */
+    private static boolean emitSpeechResults(List<AsrResult> results) {
+
+        if (reactContext == null) return false;
+
+        reactContext
+                .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                .emit("SpeechResult", SpeechResultPayload.build(results));
+
+        PipelineMetrics metrics = PipelineMetrics.getInstance();
+        LatencyHistogram emit = metrics.stage(PipelineMetrics.Stage.EMIT);
+        LatencyHistogram endToEnd = metrics.stage(PipelineMetrics.Stage.END_TO_END);
+        long now = System.nanoTime();
+
+        for (AsrResult r : results) {
+            emit.recordSince(r.receivedAtNanos, now);
+            endToEnd.recordSince(r.capturedAtNanos, now);
+        }
+        metrics.resultsEmitted.addAndGet(results.size());
+
+        return true;
+    }
+
+    @ReactMethod
+    public void setResultEmitRate(int maxEmitsPerSecond, Promise p) {
+        resultDispatcher.setMaxEmitsPerSecond(maxEmitsPerSecond);
+        p.resolve(true);
+    }
+
+    @ReactMethod
+    public void getResultDispatchStats(Promise p) {
+
+        long[] s = resultDispatcher.getStats();
+
+        WritableMap map = Arguments.createMap();
+        map.putDouble("received", s[0]);
+        map.putDouble("coalescedPartials", s[1]);
+        map.putDouble("droppedPartials", s[2]);
+        map.putDouble("droppedNoContext", s[3]);
+        map.putDouble("emits", s[4]);
+        map.putDouble("batchedEmits", s[5]);
+        map.putDouble("resultsEmitted", s[6]);
+        map.putDouble("minIntervalMs", s[7]);
+
+        p.resolve(map);
+    }
+
+    @ReactMethod
+    public void resetResultDispatchStats(Promise p) {
+        resultDispatcher.resetStats();
+        p.resolve(null);
+    }
+
+    // ============================================================
+    // PIPELINE METRICS (capture → JS latency per stage)
+    // ============================================================
+
+    /**
+     * Per-stage latency percentiles (us) + frame counters since the last
+     * reset. Java stages are recorded here, native ones in PipelineMetrics.h.
+     */
+    @ReactMethod
+    public void getPipelineMetrics(Promise p) {
+
+        PipelineMetrics metrics = PipelineMetrics.getInstance();
+        long[] nativeHist = nativeGetPipelineHistograms();
+        long[] c = nativeGetPipelineCounters();
+
+        // capture order; native stages in NativeStage order
+        WritableMap stages = Arguments.createMap();
+        stages.putMap("read", toWritableMap(metrics.stage(PipelineMetrics.Stage.READ)));
+        stages.putMap("push", toWritableMap(metrics.stage(PipelineMetrics.Stage.PUSH)));
+        stages.putMap("queue", toWritableMap(LatencyHistogram.fromSnapshot(nativeHist, 0)));
+        stages.putMap("decode", toWritableMap(
+                LatencyHistogram.fromSnapshot(nativeHist, LatencyHistogram.SNAPSHOT_SIZE)));
+        stages.putMap("parse", toWritableMap(
+                LatencyHistogram.fromSnapshot(nativeHist, 2 * LatencyHistogram.SNAPSHOT_SIZE)));
+        stages.putMap("dispatch", toWritableMap(
+                LatencyHistogram.fromSnapshot(nativeHist, 3 * LatencyHistogram.SNAPSHOT_SIZE)));
+        stages.putMap("finalize", toWritableMap(
+                LatencyHistogram.fromSnapshot(nativeHist, 4 * LatencyHistogram.SNAPSHOT_SIZE)));
+        stages.putMap("emit", toWritableMap(metrics.stage(PipelineMetrics.Stage.EMIT)));
+        stages.putMap("endToEnd", toWritableMap(metrics.stage(PipelineMetrics.Stage.END_TO_END)));
+
+        WritableMap counters = Arguments.createMap();
+        counters.putDouble("framesCaptured", metrics.framesCaptured.get());
+        counters.putDouble("framesPushed", metrics.framesPushed.get());
+        counters.putDouble("framesQueued", c[0]);
+        counters.putDouble("framesDecoded", c[1]);
+        counters.putDouble("framesDropped", c[2]);
+        counters.putDouble("chunksDecoded", c[3]);
+        counters.putDouble("partials", c[4]);
+        counters.putDouble("finals", c[5]);
+        counters.putDouble("resultsEmitted", metrics.resultsEmitted.get());
+
+        // native recognizer threads → dispatcher thread (onNativeResult)
+        long[] q = nativeGetResultQueueStats();
+
+        WritableMap resultQueue = Arguments.createMap();
+        resultQueue.putDouble("capacity", q[0]);
+        resultQueue.putDouble("depth", q[1]);
+        resultQueue.putDouble("highWater", q[2]);
+        resultQueue.putDouble("enqueued", q[3]);
+        resultQueue.putDouble("dispatched", q[4]);
+        resultQueue.putDouble("droppedPartials", q[5]);
+        resultQueue.putDouble("droppedFinals", q[6]);
+
+        WritableMap map = Arguments.createMap();
+        map.putMap("stages", stages);
+        map.putMap("counters", counters);
+        map.putMap("resultQueue", resultQueue);
+
+        p.resolve(map);
+    }
+
+    @ReactMethod
+    public void resetPipelineMetrics(Promise p) {
+        PipelineMetrics.getInstance().reset();
+        nativeResetPipelineMetrics();
+        p.resolve(null);
+    }
 
     @Override
     public void invalidate() {
         super.invalidate();
 
-        if (tts != null) {
-            tts.stop();
-            tts.shutdown();
-            tts = null;
+        capture.stop();
+
+        SessionAudioRecorder rec = recorder;
+        if (rec != null) {
+            recorder = null;
+            rec.close(RECORDER_CLOSE_TIMEOUT_MS);
         }
+
+        // stops playback / prefetch and shuts the engine down
+        ttsCache.shutdown();
+        tts = null;
     }
 }
@@ -15,8 +15,14 @@ public class RnJavaConnectorPackage implements ReactPackage {
     public List<NativeModule> createNativeModules(
             ReactApplicationContext reactContext) {
 
+        // scheduling and sync read the phrases through the store (see PhraseStoreModule)
+        PhraseStoreModule phraseStore = new PhraseStoreModule(reactContext);
+
         List<NativeModule> modules = new ArrayList<>();
         modules.add(new RnJavaConnectorModule(reactContext));
+        modules.add(phraseStore);
+        modules.add(new PhraseSchedulerModule(reactContext, phraseStore));
+        modules.add(new CloudSyncModule(reactContext, phraseStore));
         return modules;
     }
 
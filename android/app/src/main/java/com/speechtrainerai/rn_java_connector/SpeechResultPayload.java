@@ -0,0 +1,63 @@
+package com.speechtrainerai.rn_java_connector;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import com.speechtrainerai.asr.AsrResult;
+
+import java.util.List;
+
+/**
+ * "SpeechResult" event body: one result → map, batch → array of maps
+ * (no JSON round trip).
+ */
+final class SpeechResultPayload {
+
+    private SpeechResultPayload() {}
+
+    static Object build(List<AsrResult> results) {
+
+        if (results.size() == 1) {
+            return toWritableMap(results.get(0));
+        }
+
+        WritableArray arr = Arguments.createArray();
+        for (AsrResult r : results) {
+            arr.pushMap(toWritableMap(r));
+        }
+        return arr;
+    }
+
+    static WritableMap toWritableMap(AsrResult r) {
+
+        WritableMap map = Arguments.createMap();
+        map.putString("engine", r.engineId);
+        map.putString("type", r.isFinal ? "final" : "partial");
+        map.putString("text", r.text);
+        map.putInt("utteranceId", r.utteranceId);
+        map.putDouble("startFrame", r.startFrame);
+        map.putDouble("endFrame", r.endFrame);
+
+        if (r.chosenAlternative >= 0) {
+            map.putInt("alternatives", r.alternatives);
+            map.putInt("chosenAlternative", r.chosenAlternative);
+            map.putDouble("matchScore", r.matchScore);
+            if (r.topText != null) map.putString("topText", r.topText);
+        }
+
+        WritableArray words = Arguments.createArray();
+
+        for (int i = 0; i < r.getWordCount(); i++) {
+            WritableMap w = Arguments.createMap();
+            w.putString("word", r.words[i]);
+            w.putDouble("start", r.getWordStart(i));
+            w.putDouble("end", r.getWordEnd(i));
+            w.putDouble("conf", r.getWordConf(i));
+            words.pushMap(w);
+        }
+
+        map.putArray("words", words);
+        return map;
+    }
+}
@@ -0,0 +1,31 @@
+package com.speechtrainerai.rn_java_connector;
+
+import java.util.Locale;
+
+/**
+ * TTS language from the text itself: any Cyrillic letter → Russian,
+ * otherwise English.
+ *
+ * Kept free of Android types so the JVM benchmarks can call it.
+ */
+public final class TextLanguage {
+
+    public static final Locale EN = Locale.US;
+    public static final Locale RU = new Locale("ru", "RU");
+
+    private TextLanguage() {}
+
+    public static Locale detect(String text) {
+
+        for (int i = 0; i < text.length(); i++) {
+
+            char c = text.charAt(i);
+
+            if (c >= 0x0400 && c <= 0x04FF) {
+                return RU;
+            }
+        }
+
+        return EN;
+    }
+}
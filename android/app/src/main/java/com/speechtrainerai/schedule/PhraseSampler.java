@@ -0,0 +1,335 @@
+package com.speechtrainerai.schedule;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Взвешенный выбор следующей фразы за O(log n) — замена
+ * pickNextPhraseIndex() из phraseSelection.ts, который на каждый выбор
+ * пересчитывал веса всех фраз.
+ *
+ * Веса те же: слабость (getWeaknessScore) × давность показа × 0.01 для
+ * текущей фразы. Они лежат в листьях дерева отрезков (сумма + максимум
+ * в узлах):
+ *  - выбор — спуск по суммам от корня, O(log n)
+ *  - ответ на фразу — пересчёт одного листа и пути к корню, O(log n)
+ *  - давность — меняется только у фраз из окна истории (не больше
+ *    historyLimit), остальные имеют множитель 1, полный проход не нужен
+ *  - самые вероятные следующие (для TTS prefetch) — обход по максимумам,
+ *    O(k log n)
+ *
+ * Суммы в узлах пересчитываются из детей, а не накапливаются дельтами,
+ * так что ошибка округления не растёт со временем.
+ */
+public final class PhraseSampler {
+
+    private static final double TARGET_WORD_DURATION_MS = 2500;
+    private static final double CURRENT_FACTOR = 0.01;
+
+    private final Random random;
+
+    // ============================================================
+    // Phrases (guarded by this)
+    // ============================================================
+
+    private int n = 0;
+    private String[] uids = new String[0];
+    private final HashMap<String, Integer> indexOf = new HashMap<>();
+
+    // forward / reverse: answer count and average word duration (ms)
+    private int[] cntf = new int[0];
+    private double[] dwf = new double[0];
+    private int[] cntr = new int[0];
+    private double[] dwr = new double[0];
+    private boolean reverseMode = false;
+
+    private double[] weakness = new double[0];
+
+    // segment tree over leaf weights: leaves at [size, 2 * size)
+    private int size = 1;
+    private double[] sum = new double[2];
+    private double[] max = new double[2];
+
+    // ============================================================
+    // History: last shown phrases, oldest first (ring buffer)
+    // ============================================================
+
+    private int historyLimit = 3;
+    private int[] history = new int[8];
+    private int historyStart = 0;
+    private int historySize = 0;
+
+    // ============================================================
+    // Stats
+    // ============================================================
+
+    private long picks = 0;
+    private long updates = 0;
+
+    public PhraseSampler() {
+        this(new Random());
+    }
+
+    public PhraseSampler(Random random) {
+        this.random = random;
+    }
+
+    /**
+     * Колода целиком (массивы параллельны uids). История сбрасывается.
+     */
+    public synchronized void load(String[] uids,
+                                  int[] cntf, double[] dwf,
+                                  int[] cntr, double[] dwr,
+                                  boolean reverseMode) {
+        n = uids.length;
+        this.uids = uids.clone();
+        this.cntf = cntf.clone();
+        this.dwf = dwf.clone();
+        this.cntr = cntr.clone();
+        this.dwr = dwr.clone();
+        this.reverseMode = reverseMode;
+
+        indexOf.clear();
+        for (int i = 0; i < n; i++) {
+            indexOf.put(uids[i], i);
+        }
+
+        // как в SpeechTrainerPhrase: 3..8 последних показов
+        historyLimit = Math.max(3, Math.min(8, n / 2));
+        history = new int[historyLimit];
+        historyStart = 0;
+        historySize = 0;
+
+        size = 1;
+        while (size < Math.max(1, n)) size <<= 1;
+
+        sum = new double[2 * size];
+        max = new double[2 * size];
+        weakness = new double[n];
+
+        rebuild();
+    }
+
+    /** Прямой / обратный режим: другие счётчики → полный пересчёт, O(n). */
+    public synchronized void setReverseMode(boolean reverseMode) {
+        if (this.reverseMode == reverseMode) return;
+
+        this.reverseMode = reverseMode;
+        rebuild();
+    }
+
+    /**
+     * Результат ответа на фразу изменился — O(log n).
+     * @return false — фразы с таким uid нет
+     */
+    public synchronized boolean update(String uid, int cntf, double dwf, int cntr, double dwr) {
+
+        Integer i = indexOf.get(uid);
+        if (i == null) return false;
+
+        this.cntf[i] = cntf;
+        this.dwf[i] = dwf;
+        this.cntr[i] = cntr;
+        this.dwr[i] = dwr;
+
+        weakness[i] = weaknessOf(i);
+        refresh(i);
+
+        updates++;
+        return true;
+    }
+
+    /**
+     * Фраза показана: становится текущей (последней в истории).
+     * Пересчитываются только фразы окна истории и вытесненная из него.
+     */
+    public synchronized void visit(String uid) {
+
+        Integer i = indexOf.get(uid);
+        if (i == null) return;
+
+        int evicted = -1;
+
+        if (historySize == historyLimit) {
+            evicted = history[historyStart];
+            historyStart = (historyStart + 1) % historyLimit;
+            historySize--;
+        }
+
+        history[(historyStart + historySize) % historyLimit] = i;
+        historySize++;
+
+        if (evicted >= 0) refresh(evicted);
+        for (int k = 0; k < historySize; k++) {
+            refresh(history[(historyStart + k) % historyLimit]);
+        }
+    }
+
+    /**
+     * Следующая фраза (индекс в колоде), с учётом текущей и истории.
+     * @return -1 — колода пуста
+     */
+    public synchronized int next() {
+
+        if (n == 0) return -1;
+        if (n == 1) return 0;
+
+        picks++;
+
+        double total = sum[1];
+        int current = currentIndex();
+
+        if (!(total > 0)) {
+            // all weights zero: first phrase that is not the current one
+            return current == 0 ? 1 : 0;
+        }
+
+        double threshold = random.nextDouble() * total;
+        int node = 1;
+
+        while (node < size) {
+            int left = 2 * node;
+
+            if (threshold < sum[left] || sum[left + 1] <= 0) {
+                node = left;
+            } else {
+                threshold -= sum[left];
+                node = left + 1;
+            }
+        }
+
+        return Math.min(node - size, n - 1);
+    }
+
+    /**
+     * До count самых вероятных следующих фраз (по убыванию веса), кроме
+     * текущей, за O(count log n).
+     */
+    public synchronized int[] likelyNext(int count) {
+
+        int current = currentIndex();
+        int[] out = new int[Math.max(0, Math.min(count, n))];
+        int found = 0;
+
+        if (out.length == 0 || !(max[1] > 0)) return new int[0];
+
+        // best-first over subtree maxima
+        PriorityQueue<Integer> queue = new PriorityQueue<>(
+                4 * out.length + 4, (a, b) -> Double.compare(max[b], max[a]));
+        queue.add(1);
+
+        while (!queue.isEmpty() && found < out.length) {
+            int node = queue.poll();
+            if (!(max[node] > 0)) break;
+
+            if (node >= size) {
+                int i = node - size;
+                if (i != current) out[found++] = i;
+                continue;
+            }
+
+            queue.add(2 * node);
+            queue.add(2 * node + 1);
+        }
+
+        return found == out.length ? out : Arrays.copyOf(out, found);
+    }
+
+    public synchronized int getPhraseCount() {
+        return n;
+    }
+
+    /** @return null — индекс вне колоды */
+    public synchronized String getUid(int i) {
+        return i >= 0 && i < n ? uids[i] : null;
+    }
+
+    public synchronized double getWeight(int i) {
+        return sum[size + i];
+    }
+
+    /** [phrases, picks, updates, historySize] */
+    public synchronized long[] getStats() {
+        return new long[] { n, picks, updates, historySize };
+    }
+
+    public synchronized void resetStats() {
+        picks = 0;
+        updates = 0;
+    }
+
+    // ============================================================
+    // Internals
+    // ============================================================
+
+    private void rebuild() {
+
+        for (int i = 0; i < n; i++) {
+            weakness[i] = weaknessOf(i);
+            sum[size + i] = weakness[i];
+            max[size + i] = weakness[i];
+        }
+
+        for (int node = size - 1; node >= 1; node--) {
+            sum[node] = sum[2 * node] + sum[2 * node + 1];
+            max[node] = Math.max(max[2 * node], max[2 * node + 1]);
+        }
+
+        for (int k = 0; k < historySize; k++) {
+            refresh(history[(historyStart + k) % historyLimit]);
+        }
+    }
+
+    /** Leaf i ← weakness × recency × current, then the path to the root. */
+    private void refresh(int i) {
+
+        int stepsAgo = stepsAgo(i);
+        double w = weakness[i] * recencyFactor(stepsAgo);
+        if (stepsAgo == 1) w *= CURRENT_FACTOR;
+
+        int node = size + i;
+        sum[node] = w;
+        max[node] = w;
+
+        for (node >>= 1; node >= 1; node >>= 1) {
+            sum[node] = sum[2 * node] + sum[2 * node + 1];
+            max[node] = Math.max(max[2 * node], max[2 * node + 1]);
+        }
+    }
+
+    /** 1 = current phrase, 0 = not in the history window */
+    private int stepsAgo(int i) {
+        for (int k = historySize - 1; k >= 0; k--) {
+            if (history[(historyStart + k) % historyLimit] == i) return historySize - k;
+        }
+        return 0;
+    }
+
+    private int currentIndex() {
+        return historySize > 0 ? history[(historyStart + historySize - 1) % historyLimit] : -1;
+    }
+
+    // same curve as getRecencyFactor() in phraseSelection.ts
+    private static double recencyFactor(int stepsAgo) {
+        if (stepsAgo == 0) return 1;
+        if (stepsAgo <= 1) return 0.05;
+        if (stepsAgo <= 2) return 0.2;
+        if (stepsAgo <= 4) return 0.5;
+        return 0.8;
+    }
+
+    // same formula as getWeaknessScore() in phraseSelection.ts
+    private double weaknessOf(int i) {
+
+        int count = reverseMode ? cntr[i] : cntf[i];
+        double avgWordDuration = reverseMode ? dwr[i] : dwf[i];
+        double effectiveDuration = count == 0 ? TARGET_WORD_DURATION_MS : avgWordDuration;
+
+        double noveltyPart = 1.0 / (1 + count);
+        double speedPart = Math.min(1, Math.max(0, effectiveDuration / TARGET_WORD_DURATION_MS));
+
+        return noveltyPart * 0.7 + speedPart * 0.3;
+    }
+}
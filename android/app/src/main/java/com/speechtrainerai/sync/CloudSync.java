@@ -0,0 +1,227 @@
+package com.speechtrainerai.sync;
+
+import android.util.Log;
+
+import com.speechtrainerai.metrics.LatencyHistogram;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Инкрементальная синхронизация phrases с облаком — вместо выгрузки всей
+ * базы одним JSON (SendDatabaseToCloud) и скачивания всех строк
+ * (ReceiveAllRowsFromCloud).
+ *
+ * sync() = push, затем pull. Два режима:
+ *
+ * delta (только если сервер точно умеет: upsert по Uid, свой Ts на
+ * каждую принятую строку, Deleted-надгробия; см. StandInSyncServer):
+ *  - push: изменения после подтверждённой версии журнала, по одной
+ *    строке на фразу, пачками по batchRows; после каждой принятой пачки
+ *    версия подтверждается (обрыв посередине — следующий sync начнёт
+ *    с неотправленного, повтор пачки безопасен: upsert по Uid)
+ *  - pull: строки сервера после водяного знака (Ts, Uid) страницами,
+ *    затем всё одной транзакцией вместе с новым водяным знаком
+ *  Трафик и время растут с числом изменений, а не с размером колоды.
+ *
+ * full (по умолчанию — контракт старого скрипта, как SendDatabaseToCloud
+ * / ReceiveAllRowsFromCloud):
+ *  - push: вся таблица одним UpdateRows, и только если журнал не пуст
+ *    (сервер может заменять таблицу целиком — пачки затёрли бы друг друга)
+ *  - pull: все строки сервера, без водяного знака
+ *  Экономия — только пропуск push без изменений.
+ *
+ * Push идёт первым: к pull неотправленных локальных изменений обычно
+ * нет, а если push не прошёл — pull не запускается, конфликтов нет.
+ */
+public final class CloudSync {
+
+    private static final String TAG = "CloudSync";
+
+    public static final class Result {
+        public int pushedRows;
+        public int pushBatches;
+        public int pulledRows;
+        public int pullPages;
+        public int appliedRows;
+        public long bytesSent;
+        public long bytesReceived;
+        public long durationMs;
+    }
+
+    private final SyncStore store;
+    private final CloudSyncClient client;
+    private final int batchRows;
+    private final boolean delta;
+
+    // ============================================================
+    // Stats (guarded by this)
+    // ============================================================
+
+    private long syncs = 0;
+    private long failures = 0;
+    private long pushedRows = 0;
+    private long pulledRows = 0;
+    private long appliedRows = 0;
+
+    private final LatencyHistogram syncLatency = new LatencyHistogram();
+
+    /**
+     * @param delta true — сервер подтверждённо понимает дельты (см. выше);
+     *              false — полная выгрузка / загрузка таблицы
+     */
+    public CloudSync(SyncStore store, CloudSyncClient client, int batchRows, boolean delta) {
+        this.store = store;
+        this.client = client;
+        this.batchRows = Math.max(1, batchRows);
+        this.delta = delta;
+    }
+
+    public boolean isDelta() {
+        return delta;
+    }
+
+    public synchronized Result sync() throws IOException {
+
+        long t0 = System.nanoTime();
+        long[] traffic0 = client.getTraffic();
+
+        Result r = new Result();
+
+        try {
+            if (delta) {
+                push(r);
+                pull(r);
+            } else {
+                pushTable(r);
+                pullTable(r);
+            }
+        } catch (IOException | RuntimeException ex) {
+            failures++;
+            throw ex;
+        }
+
+        long[] traffic = client.getTraffic();
+        r.bytesSent = traffic[1] - traffic0[1];
+        r.bytesReceived = traffic[2] - traffic0[2];
+        r.durationMs = (System.nanoTime() - t0) / 1_000_000L;
+
+        syncs++;
+        pushedRows += r.pushedRows;
+        pulledRows += r.pulledRows;
+        appliedRows += r.appliedRows;
+        syncLatency.recordSince(t0, System.nanoTime());
+
+        Log.i(TAG, "Synced: pushed " + r.pushedRows + " in " + r.pushBatches + " batch(es), pulled "
+                + r.pulledRows + ", applied " + r.appliedRows
+                + ", " + r.bytesSent + " B out / " + r.bytesReceived + " B in, " + r.durationMs + " ms");
+        return r;
+    }
+
+    private void push(Result r) throws IOException {
+
+        long acked = store.getAckedVersion();
+
+        while (true) {
+            List<SyncRow> rows = store.pendingChanges(acked, batchRows);
+            if (rows.isEmpty()) return;
+
+            client.updateRows(rows);
+
+            // rows come by ascending version: everything up to the last is on the server
+            acked = rows.get(rows.size() - 1).version;
+            store.ack(acked);
+
+            r.pushedRows += rows.size();
+            r.pushBatches++;
+        }
+    }
+
+    private void pushTable(Result r) throws IOException {
+
+        if (store.pendingCount() == 0) return;
+
+        // read before the rows: a change logged in between is sent again next time
+        long head = store.headVersion();
+        List<SyncRow> rows = store.allRows();
+
+        client.updateRows(rows);
+        store.ack(head);
+
+        r.pushedRows = rows.size();
+        r.pushBatches = 1;
+    }
+
+    private void pull(Result r) throws IOException {
+
+        long sinceTs = store.getWatermarkTs();
+        String sinceUid = store.getWatermarkUid();
+
+        ArrayList<SyncRow> changed = new ArrayList<>();
+
+        while (true) {
+            CloudSyncClient.Page page = client.getRows(sinceTs, sinceUid, batchRows);
+            r.pullPages++;
+
+            long pageTs = sinceTs;
+            String pageUid = sinceUid;
+
+            for (SyncRow row : page.rows) {
+                // a server without `since` sends everything
+                if (!row.isAfter(sinceTs, sinceUid)) continue;
+
+                changed.add(row);
+                if (row.isAfter(pageTs, pageUid)) {
+                    pageTs = row.ts;
+                    pageUid = row.uid;
+                }
+            }
+
+            boolean advanced = pageTs != sinceTs || !pageUid.equals(sinceUid);
+            sinceTs = pageTs;
+            sinceUid = pageUid;
+
+            // no progress: do not loop on a server that keeps saying "more"
+            if (!page.more || !advanced) break;
+        }
+
+        r.pulledRows = changed.size();
+        if (changed.isEmpty()) return;
+
+        r.appliedRows = store.applyRemote(changed, sinceTs, sinceUid);
+    }
+
+    private void pullTable(Result r) throws IOException {
+
+        List<SyncRow> rows = client.getAllRows();
+        r.pullPages = 1;
+        r.pulledRows = rows.size();
+        if (rows.isEmpty()) return;
+
+        // no Ts contract: the watermark stays where delta mode left it
+        r.appliedRows = store.applyRemote(rows, store.getWatermarkTs(), store.getWatermarkUid());
+    }
+
+    // ============================================================
+    // Stats
+    // ============================================================
+
+    /** [syncs, failures, pushedRows, pulledRows, appliedRows] */
+    public synchronized long[] getStats() {
+        return new long[] { syncs, failures, pushedRows, pulledRows, appliedRows };
+    }
+
+    public LatencyHistogram getSyncLatency() {
+        return syncLatency;
+    }
+
+    public synchronized void resetStats() {
+        syncs = 0;
+        failures = 0;
+        pushedRows = 0;
+        pulledRows = 0;
+        appliedRows = 0;
+        syncLatency.reset();
+    }
+}
@@ -0,0 +1,223 @@
+package com.speechtrainerai.sync;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * HTTP-сторона синхронизации: POST JSON {methodName, ...} на один URL,
+ * как делал webApiWrapper.ts.
+ *
+ * UpdateRows: {payload: [rows]} или, со сжатием,
+ *             {encoding: "gzip", payload: base64(gzip([rows]))}
+ * GetAllRows: {since, sinceUid, limit, acceptEncoding: "gzip"}
+ *             → {status, data: [rows] | base64(gzip), encoding?, more?}
+ *             getAllRows() — без since / limit, как ReceiveAllRowsFromCloud
+ *
+ * Сжатие — внутри JSON-конверта (encoding + base64 от gzip), HTTP-заголовок
+ * Content-Encoding запроса не используется: сервер должен понимать поле
+ * encoding, поэтому сжатие включается явно.
+ *
+ * Сервер, не знающий since / limit, отдаёт все строки: лишние отсекает
+ * CloudSync по водяному знаку, more тогда нет — одна страница.
+ */
+public final class CloudSyncClient {
+
+    public static final class Page {
+        public final List<SyncRow> rows;
+        public final boolean more;
+
+        Page(List<SyncRow> rows, boolean more) {
+            this.rows = rows;
+            this.more = more;
+        }
+    }
+
+    private final URL url;
+    private final boolean compress;
+
+    private int connectTimeoutMs = 15_000;
+    private int readTimeoutMs = 60_000;
+
+    // ============================================================
+    // Traffic (request / response bodies as sent)
+    // ============================================================
+
+    private long bytesSent = 0;
+    private long bytesReceived = 0;
+    private long requests = 0;
+
+    public CloudSyncClient(URL url, boolean compress) {
+        this.url = url;
+        this.compress = compress;
+    }
+
+    public void setTimeouts(int connectTimeoutMs, int readTimeoutMs) {
+        this.connectTimeoutMs = connectTimeoutMs;
+        this.readTimeoutMs = readTimeoutMs;
+    }
+
+    public boolean isCompressing() {
+        return compress;
+    }
+
+    /** Одна пачка изменений; исключение — пачка не принята. */
+    public void updateRows(List<SyncRow> rows) throws IOException {
+
+        try {
+            JSONArray payload = SyncCodec.toWire(rows);
+
+            JSONObject body = new JSONObject();
+            body.put("methodName", "UpdateRows");
+
+            if (compress) {
+                body.put("encoding", "gzip");
+                body.put("payload", SyncCodec.pack(payload.toString()));
+            } else {
+                body.put("payload", payload);
+            }
+
+            post(body);
+        } catch (JSONException ex) {
+            throw new IOException("Bad UpdateRows payload", ex);
+        }
+    }
+
+    /** Строки сервера после (sinceTs, sinceUid), по возрастанию (Ts, Uid). */
+    public Page getRows(long sinceTs, String sinceUid, int limit) throws IOException {
+
+        try {
+            JSONObject body = new JSONObject();
+            body.put("methodName", "GetAllRows");
+            body.put("since", sinceTs);
+            body.put("sinceUid", sinceUid != null ? sinceUid : "");
+            body.put("limit", limit);
+
+            return getRows(body);
+        } catch (JSONException ex) {
+            throw new IOException("Bad GetAllRows request", ex);
+        }
+    }
+
+    /** Вся таблица сервера одним запросом. */
+    public List<SyncRow> getAllRows() throws IOException {
+
+        try {
+            JSONObject body = new JSONObject();
+            body.put("methodName", "GetAllRows");
+
+            return getRows(body).rows;
+        } catch (JSONException ex) {
+            throw new IOException("Bad GetAllRows request", ex);
+        }
+    }
+
+    private Page getRows(JSONObject body) throws IOException {
+
+        try {
+            if (compress) body.put("acceptEncoding", "gzip");
+
+            JSONObject res = post(body);
+
+            JSONArray data;
+            if ("gzip".equals(res.optString("encoding")) && res.opt("data") instanceof String) {
+                data = new JSONArray(SyncCodec.unpack(res.getString("data")));
+            } else {
+                data = res.optJSONArray("data");
+                if (data == null) data = new JSONArray();
+            }
+
+            ArrayList<SyncRow> rows = new ArrayList<>(data.length());
+            for (int i = 0; i < data.length(); i++) {
+                rows.add(SyncCodec.fromWire(data.getJSONObject(i)));
+            }
+
+            return new Page(rows, res.optBoolean("more", false));
+        } catch (JSONException ex) {
+            throw new IOException("Bad GetAllRows response", ex);
+        }
+    }
+
+    /** [requests, bytesSent, bytesReceived] */
+    public synchronized long[] getTraffic() {
+        return new long[] { requests, bytesSent, bytesReceived };
+    }
+
+    // ============================================================
+    // HTTP
+    // ============================================================
+
+    private JSONObject post(JSONObject body) throws IOException, JSONException {
+
+        byte[] out = body.toString().getBytes(StandardCharsets.UTF_8);
+
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        try {
+            conn.setConnectTimeout(connectTimeoutMs);
+            conn.setReadTimeout(readTimeoutMs);
+            conn.setRequestMethod("POST");
+            conn.setDoOutput(true);
+            // no streaming mode: Apps Script answers POST with a redirect
+            conn.setRequestProperty("Content-Type", "application/json; charset=utf-8");
+            // the JSON envelope is compressed anyway; this covers the response
+            conn.setRequestProperty("Accept-Encoding", "gzip");
+
+            try (OutputStream os = conn.getOutputStream()) {
+                os.write(out);
+            }
+
+            int code = conn.getResponseCode();
+            if (code / 100 != 2) {
+                throw new IOException("HTTP error " + code);
+            }
+
+            byte[] raw;
+            try (InputStream is = conn.getInputStream()) {
+                raw = readAll(is);
+            }
+
+            synchronized (this) {
+                requests++;
+                bytesSent += out.length;
+                bytesReceived += raw.length;
+            }
+
+            // an explicit Accept-Encoding turns off Android's transparent unzip
+            if ("gzip".equalsIgnoreCase(conn.getHeaderField("Content-Encoding"))) {
+                raw = SyncCodec.gunzip(new ByteArrayInputStream(raw));
+            }
+
+            JSONObject res = new JSONObject(new String(raw, StandardCharsets.UTF_8));
+
+            String status = res.optString("status", "ok");
+            if (!"ok".equals(status)) {
+                throw new IOException(body.optString("methodName") + " failed: "
+                        + res.optString("message", status));
+            }
+            return res;
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int n;
+        while ((n = in.read(buf)) > 0) {
+            out.write(buf, 0, n);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,396 @@
+package com.speechtrainerai.sync;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Журнал изменений phrases в самой speechtrainer.db.
+ *
+ * Триггеры AFTER INSERT / UPDATE / DELETE на phrases пишут uid в
+ * phrase_changes (version — AUTOINCREMENT). Срабатывают на любом
+ * соединении: JS (react-native-sqlite-storage), PhraseStatsWriter, apply
+ * с сервера. Содержимое строки в журнал не копируется — при отправке
+ * берётся текущее из phrases, нет строки — фраза удалена.
+ *
+ * Таблицы и триггеры ставит install() при каждом открытии: если
+ * триггеров нет (первый запуск, phrases пересоздана debug-командой),
+ * все текущие фразы попадают в журнал — следующий push отправит их
+ * целиком.
+ *
+ * sync_state: acked (подтверждённая версия), wm_ts / wm_uid (водяной
+ * знак сервера).
+ */
+public final class SqliteSyncStore implements SyncStore {
+
+    private static final String TAG = "SqliteSyncStore";
+
+    private static final String NOW_MS = "CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER)";
+
+    private static final String[] TRIGGERS = {
+            "phrases_log_insert", "phrases_log_update", "phrases_log_delete"
+    };
+
+    // phrases columns besides uid, as SyncRow.values
+    private static final String[] VALUE_COLUMNS = {
+            "topic", "q", "a", "variants", "cntf", "cntr", "df", "dr", "dwf", "dwr", "tsf", "tsr"
+    };
+
+    private final File dbFile;
+
+    // guarded by this
+    private SQLiteDatabase db;
+    private final HashMap<String, SQLiteStatement> updateByColumns = new HashMap<>();
+
+    public SqliteSyncStore(File dbFile) {
+        this.dbFile = dbFile;
+    }
+
+    // ============================================================
+    // Push side
+    // ============================================================
+
+    @Override
+    public synchronized List<SyncRow> pendingChanges(long afterVersion, int limit) {
+
+        open();
+
+        StringBuilder cols = new StringBuilder();
+        for (String c : VALUE_COLUMNS) {
+            cols.append(", p.").append(c);
+        }
+
+        // latest change per uid, oldest first; the row itself as it is now
+        Cursor c = db.rawQuery(
+                "SELECT c.version, c.uid, c.changed_at, p.uid IS NULL" + cols
+                        + " FROM (SELECT MAX(version) AS version FROM phrase_changes"
+                        + "       WHERE version > ? GROUP BY uid) m"
+                        + " JOIN phrase_changes c ON c.version = m.version"
+                        + " LEFT JOIN phrases p ON p.uid = c.uid"
+                        + " ORDER BY c.version LIMIT " + limit,
+                new String[] { Long.toString(afterVersion) });
+
+        ArrayList<SyncRow> out = new ArrayList<>();
+
+        try {
+            while (c.moveToNext()) {
+                boolean deleted = c.getInt(3) != 0;
+                LinkedHashMap<String, Object> values = null;
+
+                if (!deleted) {
+                    values = new LinkedHashMap<>();
+                    for (int i = 0; i < VALUE_COLUMNS.length; i++) {
+                        values.put(VALUE_COLUMNS[i], read(c, 4 + i));
+                    }
+                }
+
+                out.add(new SyncRow(c.getString(1), c.getLong(0), c.getLong(2), deleted, values));
+            }
+        } finally {
+            c.close();
+        }
+        return out;
+    }
+
+    @Override
+    public synchronized int pendingCount() {
+        open();
+        return (int) longQuery("SELECT COUNT(DISTINCT uid) FROM phrase_changes WHERE version > ?",
+                Long.toString(getAckedVersion()));
+    }
+
+    @Override
+    public synchronized List<SyncRow> allRows() {
+
+        open();
+
+        Cursor c = db.rawQuery("SELECT uid, " + String.join(", ", VALUE_COLUMNS)
+                + " FROM phrases ORDER BY uid", null);
+
+        ArrayList<SyncRow> out = new ArrayList<>();
+
+        try {
+            while (c.moveToNext()) {
+                LinkedHashMap<String, Object> values = new LinkedHashMap<>();
+                for (int i = 0; i < VALUE_COLUMNS.length; i++) {
+                    values.put(VALUE_COLUMNS[i], read(c, 1 + i));
+                }
+                out.add(new SyncRow(c.getString(0), 0, 0, false, values));
+            }
+        } finally {
+            c.close();
+        }
+        return out;
+    }
+
+    @Override
+    public synchronized long headVersion() {
+        open();
+        return longQuery("SELECT IFNULL(MAX(version), 0) FROM phrase_changes");
+    }
+
+    @Override
+    public synchronized long getAckedVersion() {
+        open();
+        return getState("acked", 0);
+    }
+
+    @Override
+    public synchronized void ack(long version) {
+
+        open();
+
+        db.beginTransaction();
+        try {
+            putState("acked", version);
+            // older entries are covered: the server has the rows as of `version`
+            db.execSQL("DELETE FROM phrase_changes WHERE version <= ?", new Object[] { version });
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    // ============================================================
+    // Pull side
+    // ============================================================
+
+    @Override
+    public synchronized long getWatermarkTs() {
+        open();
+        return getState("wm_ts", 0);
+    }
+
+    @Override
+    public synchronized String getWatermarkUid() {
+
+        open();
+
+        Cursor c = db.rawQuery("SELECT value FROM sync_state WHERE key = 'wm_uid'", null);
+        try {
+            return c.moveToFirst() && !c.isNull(0) ? c.getString(0) : "";
+        } finally {
+            c.close();
+        }
+    }
+
+    @Override
+    public synchronized int applyRemote(List<SyncRow> rows, long watermarkTs, String watermarkUid) {
+
+        open();
+
+        int applied = 0;
+        int skipped = 0;
+
+        // one write transaction: no other connection can log in between,
+        // so every entry above `before` is an echo of this apply
+        db.beginTransaction();
+        try {
+            long acked = getState("acked", 0);
+            long before = longQuery("SELECT IFNULL(MAX(version), 0) FROM phrase_changes");
+
+            SQLiteStatement pending = db.compileStatement(
+                    "SELECT COUNT(*) FROM phrase_changes WHERE uid = ? AND version > ? AND version <= ?");
+            SQLiteStatement delete = db.compileStatement("DELETE FROM phrases WHERE uid = ?");
+
+            try {
+                for (SyncRow row : rows) {
+                    pending.bindString(1, row.uid);
+                    pending.bindLong(2, acked);
+                    pending.bindLong(3, before);
+
+                    // not pushed yet: the local version wins, it goes up next push
+                    if (pending.simpleQueryForLong() > 0) {
+                        skipped++;
+                        continue;
+                    }
+
+                    if (row.deleted) {
+                        delete.bindString(1, row.uid);
+                        delete.executeUpdateDelete();
+                        applied++;
+                    } else if (upsert(row)) {
+                        applied++;
+                    } else {
+                        skipped++;
+                    }
+                }
+            } finally {
+                pending.close();
+                delete.close();
+            }
+
+            db.execSQL("DELETE FROM phrase_changes WHERE version > ?", new Object[] { before });
+
+            putState("wm_ts", watermarkTs);
+            db.execSQL("INSERT OR REPLACE INTO sync_state(key, value) VALUES('wm_uid', ?)",
+                    new Object[] { watermarkUid });
+
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        Log.i(TAG, "Applied " + applied + " server row(s), skipped " + skipped);
+        return applied;
+    }
+
+    public synchronized void close() {
+
+        for (SQLiteStatement st : updateByColumns.values()) {
+            st.close();
+        }
+        updateByColumns.clear();
+
+        if (db != null) {
+            db.close();
+            db = null;
+        }
+    }
+
+    // ============================================================
+    // Internals
+    // ============================================================
+
+    private void open() {
+
+        if (db != null) return;
+
+        db = SQLiteDatabase.openDatabase(dbFile.getPath(), null, SQLiteDatabase.OPEN_READWRITE);
+        install();
+    }
+
+    private void install() {
+
+        db.execSQL("CREATE TABLE IF NOT EXISTS sync_state (key TEXT PRIMARY KEY, value)");
+        db.execSQL("CREATE TABLE IF NOT EXISTS phrase_changes ("
+                + " version INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + " uid TEXT NOT NULL,"
+                + " changed_at INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS phrase_changes_uid ON phrase_changes(uid, version)");
+
+        long present = longQuery("SELECT COUNT(*) FROM sqlite_master WHERE type = 'trigger' AND name IN ('"
+                + String.join("', '", TRIGGERS) + "')");
+        if (present == TRIGGERS.length) return;
+
+        db.beginTransaction();
+        try {
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS phrases_log_insert AFTER INSERT ON phrases BEGIN"
+                    + " INSERT INTO phrase_changes(uid, changed_at) VALUES (NEW.uid, " + NOW_MS + "); END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS phrases_log_update AFTER UPDATE ON phrases BEGIN"
+                    + " INSERT INTO phrase_changes(uid, changed_at) VALUES (NEW.uid, " + NOW_MS + ");"
+                    + " INSERT INTO phrase_changes(uid, changed_at)"
+                    + "  SELECT OLD.uid, " + NOW_MS + " WHERE OLD.uid <> NEW.uid; END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS phrases_log_delete AFTER DELETE ON phrases BEGIN"
+                    + " INSERT INTO phrase_changes(uid, changed_at) VALUES (OLD.uid, " + NOW_MS + "); END");
+
+            // rows written while nothing was logging: all of them are news
+            db.execSQL("INSERT INTO phrase_changes(uid, changed_at) SELECT uid, " + NOW_MS + " FROM phrases");
+
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        Log.i(TAG, "Change log installed, " + pendingCount() + " phrase(s) to push");
+    }
+
+    /** UPDATE the sent columns, or INSERT a phrase new to this device. */
+    private boolean upsert(SyncRow row) {
+
+        if (row.values.isEmpty()) return false;
+
+        String[] cols = row.values.keySet().toArray(new String[0]);
+        String key = String.join(",", cols);
+
+        SQLiteStatement update = updateByColumns.get(key);
+        if (update == null) {
+            update = db.compileStatement("UPDATE phrases SET " + String.join(" = ?, ", cols)
+                    + " = ? WHERE uid = ?");
+            updateByColumns.put(key, update);
+        }
+
+        update.clearBindings();
+        bind(update, row.values.values().toArray(), row.uid);
+        if (update.executeUpdateDelete() > 0) return true;
+
+        // NOT NULL columns of phrases
+        if (!(row.values.get("topic") instanceof String)
+                || !(row.values.get("q") instanceof String)
+                || !(row.values.get("a") instanceof String)) {
+            Log.w(TAG, "Incomplete new row from server: " + row.uid);
+            return false;
+        }
+
+        StringBuilder marks = new StringBuilder("?");
+        for (int i = 0; i < cols.length; i++) {
+            marks.append(", ?");
+        }
+
+        SQLiteStatement insert = db.compileStatement("INSERT INTO phrases(uid, " + String.join(", ", cols)
+                + ") VALUES(" + marks + ")");
+        try {
+            insert.bindString(1, row.uid);
+            Object[] values = row.values.values().toArray();
+            for (int i = 0; i < values.length; i++) {
+                bindValue(insert, i + 2, values[i]);
+            }
+            insert.executeInsert();
+        } finally {
+            insert.close();
+        }
+        return true;
+    }
+
+    private static void bind(SQLiteStatement st, Object[] values, String uid) {
+        for (int i = 0; i < values.length; i++) {
+            bindValue(st, i + 1, values[i]);
+        }
+        st.bindString(values.length + 1, uid);
+    }
+
+    private static void bindValue(SQLiteStatement st, int index, Object v) {
+        if (v == null) st.bindNull(index);
+        else if (v instanceof Long || v instanceof Integer) st.bindLong(index, ((Number) v).longValue());
+        else if (v instanceof Number) st.bindDouble(index, ((Number) v).doubleValue());
+        else st.bindString(index, v.toString());
+    }
+
+    private static Object read(Cursor c, int i) {
+        switch (c.getType(i)) {
+            case Cursor.FIELD_TYPE_INTEGER: return c.getLong(i);
+            case Cursor.FIELD_TYPE_FLOAT:   return c.getDouble(i);
+            case Cursor.FIELD_TYPE_NULL:    return null;
+            default:                        return c.getString(i);
+        }
+    }
+
+    private long getState(String key, long def) {
+        Cursor c = db.rawQuery("SELECT value FROM sync_state WHERE key = ?", new String[] { key });
+        try {
+            return c.moveToFirst() && !c.isNull(0) ? c.getLong(0) : def;
+        } finally {
+            c.close();
+        }
+    }
+
+    private void putState(String key, long value) {
+        db.execSQL("INSERT OR REPLACE INTO sync_state(key, value) VALUES(?, ?)", new Object[] { key, value });
+    }
+
+    private long longQuery(String sql, String... args) {
+        Cursor c = db.rawQuery(sql, args.length > 0 ? args : null);
+        try {
+            return c.moveToFirst() ? c.getLong(0) : 0;
+        } finally {
+            c.close();
+        }
+    }
+}
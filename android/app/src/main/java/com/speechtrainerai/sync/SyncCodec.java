@@ -0,0 +1,200 @@
+package com.speechtrainerai.sync;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Формат строк на проводе (контракт UpdateRows / GetAllRows) и сжатие.
+ *
+ * Колонки таблицы на сервере остаются прежними (Uid, SheetName, Ru, En,
+ * Asf, Asr, Ts — как в выгрузке GetAllRows), остальная статистика
+ * phrases идёт под своими именами с заглавной буквы. Колонки сервера без
+ * пары в phrases (Lcnt, Aef, Aer, Aw) не отправляются и при приёме
+ * игнорируются.
+ *
+ * Сжатые пачки — base64(gzip(JSON-массив)) в поле JSON-конверта: Apps
+ * Script не разжимает тело запроса сам. Base64 свой: java.util.Base64
+ * есть только с API 26, android.util.Base64 нет в JVM-тестах.
+ */
+public final class SyncCodec {
+
+    // local column ↔ server column
+    private static final String[][] COLUMNS = {
+            { "topic", "SheetName" },
+            { "q", "Ru" },
+            { "a", "En" },
+            { "cntf", "Asf" },
+            { "cntr", "Asr" },
+            { "df", "Df" },
+            { "dr", "Dr" },
+            { "dwf", "Dwf" },
+            { "dwr", "Dwr" },
+            { "tsf", "Tsf" },
+            { "tsr", "Tsr" },
+            { "variants", "Variants" },
+    };
+
+    private SyncCodec() {
+    }
+
+    // ============================================================
+    // Rows
+    // ============================================================
+
+    public static JSONObject toWire(SyncRow row) throws JSONException {
+
+        JSONObject o = new JSONObject();
+        o.put("Uid", row.uid);
+        o.put("Ts", row.ts);
+
+        if (row.deleted) {
+            o.put("Deleted", true);
+            return o;
+        }
+
+        for (String[] c : COLUMNS) {
+            if (!row.values.containsKey(c[0])) continue;
+
+            Object v = row.values.get(c[0]);
+            o.put(c[1], v != null ? v : JSONObject.NULL);
+        }
+        return o;
+    }
+
+    public static SyncRow fromWire(JSONObject o) throws JSONException {
+
+        String uid = o.getString("Uid");
+        long ts = o.optLong("Ts", 0);
+
+        if (o.optBoolean("Deleted", false)) {
+            return new SyncRow(uid, 0, ts, true, null);
+        }
+
+        LinkedHashMap<String, Object> values = new LinkedHashMap<>();
+
+        for (String[] c : COLUMNS) {
+            if (!o.has(c[1])) continue;
+
+            Object v = o.get(c[1]);
+            if (v == JSONObject.NULL) {
+                values.put(c[0], null);
+            } else if (v instanceof Integer || v instanceof Long) {
+                values.put(c[0], ((Number) v).longValue());
+            } else if (v instanceof Number) {
+                values.put(c[0], ((Number) v).doubleValue());
+            } else {
+                values.put(c[0], v.toString());
+            }
+        }
+
+        return new SyncRow(uid, 0, ts, false, values);
+    }
+
+    public static JSONArray toWire(List<SyncRow> rows) throws JSONException {
+        JSONArray out = new JSONArray();
+        for (SyncRow row : rows) {
+            out.put(toWire(row));
+        }
+        return out;
+    }
+
+    // ============================================================
+    // Compression
+    // ============================================================
+
+    /** base64(gzip(utf-8 text)) */
+    public static String pack(String text) throws IOException {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(text.length() / 4 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(bytes)) {
+            gz.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return base64(bytes.toByteArray());
+    }
+
+    public static String unpack(String packed) throws IOException {
+        return new String(gunzip(new ByteArrayInputStream(unbase64(packed))), StandardCharsets.UTF_8);
+    }
+
+    static byte[] gunzip(InputStream in) throws IOException {
+
+        try (GZIPInputStream gz = new GZIPInputStream(in)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = gz.read(buf)) > 0) {
+                out.write(buf, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    // ============================================================
+    // Base64 (RFC 4648, with padding)
+    // ============================================================
+
+    private static final char[] ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+    private static final int[] DECODE = new int[128];
+
+    static {
+        Arrays.fill(DECODE, -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            DECODE[ALPHABET[i]] = i;
+        }
+    }
+
+    static String base64(byte[] data) {
+
+        StringBuilder sb = new StringBuilder((data.length + 2) / 3 * 4);
+
+        for (int i = 0; i < data.length; i += 3) {
+            int b = (data[i] & 0xFF) << 16;
+            if (i + 1 < data.length) b |= (data[i + 1] & 0xFF) << 8;
+            if (i + 2 < data.length) b |= data[i + 2] & 0xFF;
+
+            sb.append(ALPHABET[(b >> 18) & 63]);
+            sb.append(ALPHABET[(b >> 12) & 63]);
+            sb.append(i + 1 < data.length ? ALPHABET[(b >> 6) & 63] : '=');
+            sb.append(i + 2 < data.length ? ALPHABET[b & 63] : '=');
+        }
+        return sb.toString();
+    }
+
+    static byte[] unbase64(String s) throws IOException {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(s.length() * 3 / 4);
+        int acc = 0;
+        int bits = 0;
+
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (ch == '=') break;
+            if (ch == '\n' || ch == '\r') continue;
+
+            int v = ch < 128 ? DECODE[ch] : -1;
+            if (v < 0) throw new IOException("Bad base64 at " + i);
+
+            acc = (acc << 6) | v;
+            bits += 6;
+            if (bits >= 8) {
+                bits -= 8;
+                out.write((acc >> bits) & 0xFF);
+            }
+        }
+        return out.toByteArray();
+    }
+}
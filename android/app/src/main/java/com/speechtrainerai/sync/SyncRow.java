@@ -0,0 +1,38 @@
+package com.speechtrainerai.sync;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Одна фраза в синхронизации — локальное изменение или строка с сервера.
+ *
+ * values — колонки phrases кроме uid (Long / Double / String / null),
+ * только присланные: отсутствующая колонка при применении не трогается.
+ */
+public final class SyncRow {
+
+    public final String uid;
+
+    /** Версия в журнале изменений (phrase_changes); 0 — строка с сервера */
+    public final long version;
+
+    /** Метка сервера (Ts) для строк с сервера; для локальных — время изменения */
+    public final long ts;
+
+    public final boolean deleted;
+    public final Map<String, Object> values;
+
+    public SyncRow(String uid, long version, long ts, boolean deleted, Map<String, Object> values) {
+        this.uid = uid;
+        this.version = version;
+        this.ts = ts;
+        this.deleted = deleted;
+        this.values = values != null ? values : Collections.emptyMap();
+    }
+
+    /** (ts, uid) строго после водяного знака (sinceTs, sinceUid) */
+    public boolean isAfter(long sinceTs, String sinceUid) {
+        if (ts != sinceTs) return ts > sinceTs;
+        return uid.compareTo(sinceUid != null ? sinceUid : "") > 0;
+    }
+}
@@ -0,0 +1,45 @@
+package com.speechtrainerai.sync;
+
+import java.util.List;
+
+/**
+ * Локальная сторона синхронизации: журнал изменений phrases и состояние
+ * (подтверждённая версия, водяной знак сервера).
+ *
+ * На устройстве — SqliteSyncStore; CloudSync от SQLite не зависит.
+ */
+public interface SyncStore {
+
+    /**
+     * Изменённые после afterVersion фразы — по одной строке на uid
+     * (текущее содержимое, удалённая — deleted), по возрастанию версии
+     * последнего изменения, не больше limit.
+     */
+    List<SyncRow> pendingChanges(long afterVersion, int limit);
+
+    /** Сколько фраз ждут отправки */
+    int pendingCount();
+
+    /** Все фразы как сейчас, по uid (полная выгрузка) */
+    List<SyncRow> allRows();
+
+    /** Последняя версия журнала; 0 — журнал пуст */
+    long headVersion();
+
+    long getAckedVersion();
+
+    /** Сервер принял изменения до version включительно: журнал до неё не нужен. */
+    void ack(long version);
+
+    long getWatermarkTs();
+
+    String getWatermarkUid();
+
+    /**
+     * Строки с сервера — одной транзакцией, вместе с новым водяным знаком.
+     * Фразы с неотправленными локальными изменениями пропускаются
+     * (их версия уйдёт на сервер следующим push).
+     * @return сколько строк применено
+     */
+    int applyRemote(List<SyncRow> rows, long watermarkTs, String watermarkUid);
+}
@@ -0,0 +1,548 @@
+package com.speechtrainerai.tts;
+
+import android.media.MediaPlayer;
+import android.speech.tts.TextToSpeech;
+import android.speech.tts.UtteranceProgressListener;
+import android.speech.tts.Voice;
+import android.util.Log;
+
+import com.speechtrainerai.metrics.LatencyHistogram;
+import com.speechtrainerai.rn_java_connector.TextLanguage;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Озвучка подсказок с кэшем заранее синтезированного аудио.
+ *
+ *  - prefetch(): следующие вероятные фразы синтезируются в фоне
+ *    (synthesizeToFile, по одной) в TtsDiskCache
+ *  - speak(): попадание → файл сразу играет MediaPlayer; промах → обычный
+ *    tts.speak(QUEUE_FLUSH), а фраза ставится в очередь на синтез
+ *
+ * Ключ кэша: текст + локаль + голос + скорость (всё, от чего зависит звук).
+ *
+ * setLanguage / setSpeechRate у TextToSpeech глобальные, но параметры
+ * снимаются в момент speak / synthesizeToFile, поэтому пара
+ * "setLanguage + вызов" делается под ttsLock.
+ *
+ * Живой speak(QUEUE_FLUSH) прерывает идущий фоновый синтез; такая фраза
+ * один раз возвращается в очередь. Пока звучит живая речь, фон ждёт.
+ */
+public final class TtsCache {
+
+    private static final String TAG = "TtsCache";
+
+    private static final String PREFETCH_PREFIX = "prefetch:";
+    private static final int MAX_PENDING = 16;
+    private static final long SYNTH_TIMEOUT_MS = 15_000;
+    private static final long LIVE_WAIT_MS = 30_000;
+
+    /**
+     * Одинаково для живой речи и кэшированного файла.
+     * onStart приходит до первого звука, onStop — если речь прервана
+     * (новым speak() или stop()).
+     */
+    public interface Listener {
+        void onStart(String utteranceId);
+        void onDone(String utteranceId);
+        void onError(String utteranceId);
+        void onStop(String utteranceId);
+    }
+
+    private final TtsDiskCache disk;
+
+    private final ExecutorService prefetcher = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "TtsPrefetch");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+
+    private volatile TextToSpeech tts;
+    private volatile Listener listener;
+
+    // ============================================================
+    // TTS parameters (guarded by ttsLock)
+    // ============================================================
+
+    private final Object ttsLock = new Object();
+    private final Map<Locale, String> voiceByLocale = new HashMap<>();
+    private Locale currentLocale;
+    private float rate = 1.0f;
+
+    // ============================================================
+    // Playback / live speech
+    // ============================================================
+
+    private MediaPlayer player;            // guarded by this
+    private String playingId;              // guarded by this
+
+    private volatile String liveId;
+    private volatile long liveStartNs;
+
+    // ============================================================
+    // Prefetch queue (guarded by this)
+    // ============================================================
+
+    private final ArrayDeque<Prefetch> pending = new ArrayDeque<>();
+    private boolean draining = false;
+
+    // one synthesizeToFile in flight (prefetch thread only)
+    private volatile String synthId;
+    private volatile CountDownLatch synthDone;
+    private volatile boolean synthOk;
+
+    // ============================================================
+    // Stats
+    // ============================================================
+
+    private long hits = 0;
+    private long misses = 0;
+    private long prefetched = 0;
+    private long prefetchFailures = 0;
+
+    private final LatencyHistogram ttfaCached = new LatencyHistogram();
+    private final LatencyHistogram ttfaLive = new LatencyHistogram();
+
+    private static final class Prefetch {
+        final String text;
+        final boolean retried;
+
+        Prefetch(String text, boolean retried) {
+            this.text = text;
+            this.retried = retried;
+        }
+    }
+
+    public TtsCache(File dir, long budgetBytes) {
+        this.disk = new TtsDiskCache(dir, budgetBytes);
+    }
+
+    /**
+     * Вызывается из onInit(SUCCESS): до этого speak/prefetch не работают.
+     */
+    public void attach(TextToSpeech tts, Locale defaultLocale, Listener listener) {
+
+        this.listener = listener;
+
+        synchronized (ttsLock) {
+            this.tts = tts;
+            currentLocale = null;
+            setLanguageLocked(defaultLocale);
+        }
+
+        tts.setOnUtteranceProgressListener(new UtteranceProgressListener() {
+
+            @Override
+            public void onStart(String utteranceId) {
+                if (isSynth(utteranceId)) return;
+
+                if (utteranceId.equals(liveId)) {
+                    ttfaLive.recordSince(liveStartNs, System.nanoTime());
+                    Log.i(TAG, "Speech started: " + utteranceId);
+                }
+
+                Listener l = TtsCache.this.listener;
+                if (l != null) l.onStart(utteranceId);
+            }
+
+            @Override
+            public void onDone(String utteranceId) {
+                if (isSynth(utteranceId)) {
+                    finishSynth(utteranceId, true);
+                    return;
+                }
+                if (utteranceId.equals(liveId)) liveId = null;
+
+                Listener l = TtsCache.this.listener;
+                if (l != null) l.onDone(utteranceId);
+            }
+
+            @Override
+            public void onError(String utteranceId) {
+                if (isSynth(utteranceId)) {
+                    finishSynth(utteranceId, false);
+                    return;
+                }
+                if (utteranceId.equals(liveId)) liveId = null;
+
+                Listener l = TtsCache.this.listener;
+                if (l != null) l.onError(utteranceId);
+            }
+
+            @Override
+            public void onStop(String utteranceId, boolean interrupted) {
+                if (isSynth(utteranceId)) {
+                    finishSynth(utteranceId, false);
+                    return;
+                }
+                if (utteranceId.equals(liveId)) liveId = null;
+
+                Listener l = TtsCache.this.listener;
+                if (l != null) l.onStop(utteranceId);
+            }
+        });
+    }
+
+    public boolean isAttached() {
+        return tts != null;
+    }
+
+    // ============================================================
+    // Speak
+    // ============================================================
+
+    /**
+     * Как tts.speak(QUEUE_FLUSH): прерывает то, что звучит сейчас.
+     * @return utteranceId (TtsFinished / TtsError придут с ним же)
+     */
+    public String speak(String text) {
+
+        final long t0 = System.nanoTime();
+        final String id = UUID.randomUUID().toString();
+        final Locale locale = TextLanguage.detect(text);
+
+        stopPlayback();
+
+        String voice;
+        float r;
+        synchronized (ttsLock) {
+            voice = voiceByLocale.get(locale);
+            r = rate;
+        }
+
+        File cached = voice != null ? disk.get(key(text, locale, voice, r)) : null;
+
+        if (cached != null) {
+            if (liveId != null) stopLive();
+
+            if (play(cached, id)) {
+                synchronized (this) {
+                    hits++;
+                }
+                ttfaCached.recordSince(t0, System.nanoTime());
+                return id;
+            }
+        }
+
+        synchronized (this) {
+            misses++;
+        }
+
+        synchronized (ttsLock) {
+            setLanguageLocked(locale);
+            liveStartNs = t0;
+            liveId = id;
+            tts.speak(text, TextToSpeech.QUEUE_FLUSH, null, id);
+        }
+
+        // next time this prompt comes from disk
+        enqueue(text, true, false);
+        return id;
+    }
+
+    public void setSpeechRate(float rate) {
+        synchronized (ttsLock) {
+            this.rate = rate;
+            if (tts != null) tts.setSpeechRate(rate);
+        }
+    }
+
+    /** Останавливает и кэшированное воспроизведение, и живую речь. */
+    public void stop() {
+        stopPlayback();
+        stopLive();
+    }
+
+    // ============================================================
+    // Prefetch
+    // ============================================================
+
+    /**
+     * Следующие вероятные подсказки в порядке важности; заменяет
+     * предыдущий список (фраза, которую синтезируют сейчас, доделается).
+     */
+    public void prefetch(List<String> texts) {
+
+        synchronized (this) {
+            pending.clear();
+        }
+
+        int n = Math.min(texts.size(), MAX_PENDING);
+        for (int i = 0; i < n; i++) {
+            enqueue(texts.get(i), false, false);
+        }
+    }
+
+    private void enqueue(String text, boolean first, boolean retried) {
+
+        if (text == null || text.trim().isEmpty()) return;
+
+        synchronized (this) {
+            if (pending.size() >= MAX_PENDING) return;
+
+            for (Prefetch q : pending) {
+                if (q.text.equals(text)) return;
+            }
+
+            Prefetch p = new Prefetch(text, retried);
+            if (first) pending.addFirst(p); else pending.addLast(p);
+
+            if (draining) return;
+            draining = true;
+        }
+
+        prefetcher.execute(this::drain);
+    }
+
+    private void drain() {
+
+        while (true) {
+
+            Prefetch next;
+            synchronized (this) {
+                next = pending.pollFirst();
+                if (next == null) {
+                    draining = false;
+                    return;
+                }
+            }
+
+            try {
+                synthesize(next);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                synchronized (this) {
+                    draining = false;
+                }
+                return;
+            } catch (Exception ex) {
+                Log.e(TAG, "Prefetch failed: " + next.text, ex);
+            }
+        }
+    }
+
+    private void synthesize(Prefetch p) throws InterruptedException {
+
+        if (tts == null) return;
+
+        // never compete with what the user is hearing right now
+        long waitUntil = System.currentTimeMillis() + LIVE_WAIT_MS;
+        while (liveId != null && System.currentTimeMillis() < waitUntil) {
+            Thread.sleep(50);
+        }
+
+        Locale locale = TextLanguage.detect(p.text);
+        String id = PREFETCH_PREFIX + UUID.randomUUID();
+        CountDownLatch done = new CountDownLatch(1);
+        String key;
+        File tmp;
+
+        synchronized (ttsLock) {
+            setLanguageLocked(locale);
+            key = key(p.text, locale, voiceByLocale.get(locale), rate);
+
+            if (disk.contains(key)) return;
+
+            tmp = disk.newTempFile(key);
+            synthOk = false;
+            synthDone = done;
+            synthId = id;
+
+            if (tts.synthesizeToFile(p.text, null, tmp, id) != TextToSpeech.SUCCESS) {
+                synthId = null;
+                countPrefetch(false);
+                return;
+            }
+        }
+
+        boolean finished = done.await(SYNTH_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        synthId = null;
+
+        if (finished && synthOk && disk.commit(key, tmp)) {
+            countPrefetch(true);
+            return;
+        }
+
+        disk.discard(tmp);
+        countPrefetch(false);
+
+        // most likely flushed by a live speak(); give it one more go
+        if (!p.retried) enqueue(p.text, false, true);
+    }
+
+    private boolean isSynth(String utteranceId) {
+        return utteranceId != null && utteranceId.startsWith(PREFETCH_PREFIX);
+    }
+
+    private void finishSynth(String utteranceId, boolean ok) {
+        CountDownLatch done = synthDone;
+        if (!utteranceId.equals(synthId) || done == null) return;
+
+        synthOk = ok;
+        done.countDown();
+    }
+
+    private synchronized void countPrefetch(boolean ok) {
+        if (ok) prefetched++; else prefetchFailures++;
+    }
+
+    // ============================================================
+    // Playback
+    // ============================================================
+
+    private synchronized boolean play(File file, String id) {
+
+        try {
+            if (player == null) {
+                // callbacks arrive on this thread's Looper (RN module thread)
+                player = new MediaPlayer();
+                player.setOnCompletionListener(mp -> onPlaybackEnd(true));
+                player.setOnErrorListener((mp, what, extra) -> {
+                    onPlaybackEnd(false);
+                    return true;
+                });
+            }
+
+            player.reset();
+            player.setDataSource(file.getAbsolutePath());
+            player.prepare();
+
+            Listener l = listener;
+            if (l != null) l.onStart(id);   // before the first sample
+
+            player.start();
+            playingId = id;
+            return true;
+
+        } catch (IOException | RuntimeException ex) {
+            Log.e(TAG, "Cached playback failed, falling back to live TTS: " + file, ex);
+            if (player != null) player.reset();
+            return false;
+        }
+    }
+
+    private void onPlaybackEnd(boolean ok) {
+
+        String id;
+        synchronized (this) {
+            id = playingId;
+            playingId = null;
+        }
+
+        Listener l = listener;
+        if (id == null || l == null) return;
+
+        if (ok) l.onDone(id); else l.onError(id);
+    }
+
+    private void stopPlayback() {
+
+        String stopped;
+        synchronized (this) {
+            if (player == null || playingId == null) return;
+
+            player.stop();
+            stopped = playingId;
+            playingId = null;
+        }
+
+        Listener l = listener;
+        if (l != null) l.onStop(stopped);
+    }
+
+    private void stopLive() {
+        TextToSpeech t = tts;
+        if (t != null) t.stop();
+        liveId = null;
+    }
+
+    // ============================================================
+    // Helpers
+    // ============================================================
+
+    private void setLanguageLocked(Locale locale) {
+
+        if (locale.equals(currentLocale)) return;
+
+        tts.setLanguage(locale);
+        currentLocale = locale;
+
+        Voice v = tts.getVoice();
+        voiceByLocale.put(locale, v != null && v.getName() != null ? v.getName() : "");
+    }
+
+    private static String key(String text, Locale locale, String voice, float rate) {
+        return text + '|' + locale + '|' + voice + '|' + rate;
+    }
+
+    public void clear() {
+        disk.clear();
+    }
+
+    public void setBudgetBytes(long bytes) {
+        disk.setBudgetBytes(bytes);
+    }
+
+    /**
+     * [hits, misses, prefetched, prefetchFailures, pending,
+     *  entries, bytes, budgetBytes, evictions]
+     */
+    public long[] getStats() {
+
+        long[] d = disk.getStats();
+
+        synchronized (this) {
+            return new long[] {
+                    hits, misses, prefetched, prefetchFailures, pending.size(),
+                    d[0], d[1], d[2], d[3]
+            };
+        }
+    }
+
+    public synchronized void resetStats() {
+        hits = 0;
+        misses = 0;
+        prefetched = 0;
+        prefetchFailures = 0;
+        ttfaCached.reset();
+        ttfaLive.reset();
+    }
+
+    /** Время от speak() до старта звука: из кэша / живой синтез (onStart). */
+    public LatencyHistogram getTimeToFirstAudio(boolean cached) {
+        return cached ? ttfaCached : ttfaLive;
+    }
+
+    public void shutdown() {
+
+        prefetcher.shutdownNow();
+
+        synchronized (this) {
+            pending.clear();
+            if (player != null) {
+                player.release();
+                player = null;
+                playingId = null;
+            }
+        }
+
+        TextToSpeech t = tts;
+        tts = null;
+        if (t != null) {
+            t.stop();
+            t.shutdown();
+        }
+    }
+}
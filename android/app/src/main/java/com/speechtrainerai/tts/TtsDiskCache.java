@@ -0,0 +1,196 @@
+package com.speechtrainerai.tts;
+
+import android.util.Log;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU-кэш синтезированных фраз на диске (по файлу на фразу).
+ *
+ * Ключ — строка "текст|локаль|голос|скорость", имя файла — её SHA-1.
+ * Порядок LRU держится в памяти (LinkedHashMap accessOrder) и при старте
+ * восстанавливается по lastModified; при попадании файл "трогается".
+ *
+ * Запись атомарна: синтез идёт в .tmp, commit() переименовывает файл
+ * на место и вытесняет самые старые записи сверх бюджета.
+ */
+public final class TtsDiskCache {
+
+    private static final String TAG = "TtsDiskCache";
+
+    private static final String EXT = ".wav";
+    private static final String TMP_EXT = ".tmp";
+
+    private final File dir;
+    private long budgetBytes;
+
+    // ============================================================
+    // Index (guarded by this)
+    // ============================================================
+
+    // file name → size; iteration order = least recently used first
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes = 0;
+
+    private long evictions = 0;
+
+    public TtsDiskCache(File dir, long budgetBytes) {
+        this.dir = dir;
+        this.budgetBytes = budgetBytes;
+        load();
+    }
+
+    /**
+     * @return файл с аудио или null (промах)
+     */
+    public synchronized File get(String key) {
+
+        String name = fileName(key);
+        if (entries.get(name) == null) return null;
+
+        File file = new File(dir, name);
+
+        if (!file.isFile()) {
+            // removed behind our back (cache dir cleared by the system)
+            bytes -= entries.remove(name);
+            return null;
+        }
+
+        file.setLastModified(System.currentTimeMillis());
+        return file;
+    }
+
+    public synchronized boolean contains(String key) {
+        return entries.containsKey(fileName(key));
+    }
+
+    /**
+     * Временный файл для synthesizeToFile(); после синтеза — commit()
+     * или discard().
+     */
+    public File newTempFile(String key) {
+        return new File(dir, fileName(key) + "." + System.nanoTime() + TMP_EXT);
+    }
+
+    public synchronized boolean commit(String key, File tmp) {
+
+        long size = tmp.length();
+
+        if (size <= 0 || size > budgetBytes) {
+            discard(tmp);
+            return false;
+        }
+
+        String name = fileName(key);
+        File file = new File(dir, name);
+
+        if (!tmp.renameTo(file)) {
+            Log.e(TAG, "rename failed: " + tmp);
+            discard(tmp);
+            return false;
+        }
+
+        Long old = entries.put(name, size);
+        bytes += size - (old != null ? old : 0);
+
+        evictOverBudget();
+        return true;
+    }
+
+    public void discard(File tmp) {
+        if (tmp != null && tmp.exists() && !tmp.delete()) {
+            Log.w(TAG, "Could not delete " + tmp);
+        }
+    }
+
+    public synchronized void setBudgetBytes(long budgetBytes) {
+        this.budgetBytes = Math.max(0, budgetBytes);
+        evictOverBudget();
+    }
+
+    public synchronized void clear() {
+        for (String name : entries.keySet()) {
+            new File(dir, name).delete();
+        }
+        entries.clear();
+        bytes = 0;
+    }
+
+    /** [entries, bytes, budgetBytes, evictions] */
+    public synchronized long[] getStats() {
+        return new long[] { entries.size(), bytes, budgetBytes, evictions };
+    }
+
+    // ============================================================
+    // Internals
+    // ============================================================
+
+    private void load() {
+
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            Log.e(TAG, "Cannot create " + dir);
+            return;
+        }
+
+        File[] files = dir.listFiles();
+        if (files == null) return;
+
+        // oldest first, so the LRU order survives a restart
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+
+        synchronized (this) {
+            for (File f : files) {
+                String name = f.getName();
+
+                if (name.endsWith(TMP_EXT)) {
+                    discard(f);   // synthesis interrupted by process death
+                } else if (name.endsWith(EXT)) {
+                    entries.put(name, f.length());
+                    bytes += f.length();
+                }
+            }
+
+            evictOverBudget();
+        }
+
+        Log.i(TAG, "Loaded " + entries.size() + " cached prompt(s), " + bytes / 1024 + " KB");
+    }
+
+    private void evictOverBudget() {
+
+        Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+
+        while (bytes > budgetBytes && it.hasNext()) {
+            Map.Entry<String, Long> e = it.next();
+
+            new File(dir, e.getKey()).delete();
+            bytes -= e.getValue();
+            evictions++;
+            it.remove();
+        }
+    }
+
+    static String fileName(String key) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            byte[] digest = md.digest(key.getBytes(StandardCharsets.UTF_8));
+
+            StringBuilder sb = new StringBuilder(digest.length * 2 + EXT.length());
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+                sb.append(Character.forDigit(b & 0xf, 16));
+            }
+            return sb.append(EXT).toString();
+
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.speechtrainerai.audio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Recorder end to end on a temp directory: the tee → ring → mapped file
+ * path, the index (VAD markers, one utterance per phrase without the VAD,
+ * reload, refresh while open) and WAV export.
+ */
+public class SessionAudioRecorderTest {
+
+    private static final int RATE = 16000;
+    private static final int BUFFER = 640;          // 40 ms
+    private static final long BUDGET = 1_000_000;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private final List<SessionAudioRecorder> open = new ArrayList<>();
+
+    private final ByteBuffer pcm = ByteBuffer.allocateDirect(BUFFER * 2).order(ByteOrder.nativeOrder());
+    private short sample = 0;
+
+    @After
+    public void tearDown() {
+        for (SessionAudioRecorder r : open) r.close(1000);
+    }
+
+    private SessionAudioRecorder recorder(int sessionSeconds) {
+        SessionAudioRecorder r = new SessionAudioRecorder(tmp.getRoot(), RATE, BUDGET, sessionSeconds);
+        open.add(r);
+        return r;
+    }
+
+    /** Ramp signal: sample n of a session is (short) n, so positions can be checked. */
+    private void tee(SessionAudioRecorder r, int buffers) throws InterruptedException {
+        for (int i = 0; i < buffers; i++) {
+            for (int k = 0; k < BUFFER; k++) pcm.putShort(k * 2, sample++);
+            r.tee(pcm, BUFFER);
+
+            // capture pace is not needed, just keep the 4 s ring from overflowing
+            if (i % 10 == 9) Thread.sleep(5);
+        }
+    }
+
+    private static void settle() throws InterruptedException {
+        Thread.sleep(200);   // a few drain periods
+    }
+
+    private void begin(SessionAudioRecorder r) throws InterruptedException {
+        sample = 0;
+        r.beginSession();
+        settle();
+    }
+
+    private File index() {
+        File[] files = tmp.getRoot().listFiles((d, name) -> name.endsWith(".json"));
+        assertNotNull(files);
+        assertEquals(1, files.length);
+        return files[0];
+    }
+
+    // ============================================================
+    // Index
+    // ============================================================
+
+    @Test
+    public void vadMarkersSplitUtterancesByPhrase() throws Exception {
+        SessionAudioRecorder r = recorder(10);
+        r.markPhrase("P");
+        begin(r);
+
+        tee(r, 20);
+        r.markSpeechStart(0);
+        tee(r, 40);
+        r.markSpeechEnd();
+        tee(r, 40);
+        r.markPhrase("Q");
+        r.markSpeechStart(0);
+        tee(r, 50);
+        r.markSpeechEnd();
+        tee(r, 10);
+
+        r.endSession();
+        settle();
+
+        List<SessionAudioRecorder.Segment> p = r.segments("P");
+        List<SessionAudioRecorder.Segment> q = r.segments("Q");
+        assertEquals(1, p.size());
+        assertEquals(1, q.size());
+
+        // a start marker sits at the beginning of the buffer that triggered it
+        assertEquals(19 * BUFFER, p.get(0).startFrame);
+        assertEquals(60 * BUFFER, p.get(0).endFrame);
+        assertEquals(99 * BUFFER, q.get(0).startFrame);
+        assertEquals(150 * BUFFER, q.get(0).endFrame);
+        assertFalse(q.get(0).open);
+        assertFalse(q.get(0).clipped);
+    }
+
+    @Test
+    public void withoutVadEachPhraseIsOneUtterance() throws Exception {
+        SessionAudioRecorder r = recorder(10);
+        r.setPhraseUtterances(true);
+        r.markPhrase("A");
+        begin(r);
+
+        tee(r, 25);
+        r.markPhrase("B");
+        tee(r, 25);
+
+        r.endSession();
+        settle();
+
+        List<SessionAudioRecorder.Segment> all = r.segments(null);
+        assertEquals(2, all.size());
+
+        // the phrase shown before the session started is recorded from frame 0
+        assertEquals("A", all.get(0).phraseUid);
+        assertEquals(0, all.get(0).startFrame);
+        assertEquals(25 * BUFFER, all.get(0).endFrame);
+        assertEquals("B", all.get(1).phraseUid);
+        assertEquals(50 * BUFFER, all.get(1).endFrame);
+    }
+
+    @Test
+    public void indexSurvivesReload() throws Exception {
+        SessionAudioRecorder r = recorder(10);
+        r.markPhrase("P");
+        begin(r);
+        tee(r, 10);
+        r.markSpeechStart(0);
+        tee(r, 20);
+        r.markSpeechEnd();
+        r.close(1000);
+        open.remove(r);
+
+        SessionAudioRecorder again = recorder(10);
+        settle();
+
+        List<SessionAudioRecorder.Segment> p = again.segments("P");
+        assertEquals(1, p.size());
+        assertEquals(9 * BUFFER, p.get(0).startFrame);
+        assertEquals(30 * BUFFER, p.get(0).endFrame);
+    }
+
+    @Test
+    public void openSessionIndexIsRefreshedWithoutMarkers() throws Exception {
+        SessionAudioRecorder r = recorder(10);
+        begin(r);
+        tee(r, 75);   // 3 s, no utterance boundary
+        settle();
+
+        JSONObject o = new JSONObject(new String(Files.readAllBytes(index().toPath()), StandardCharsets.UTF_8));
+        assertFalse(o.getBoolean("closed"));
+        assertTrue(o.getLong("writtenFrames") >= 2 * RATE);
+    }
+
+    @Test
+    public void wrappedSessionCutShortDropsPossiblyOverwrittenAudio() throws Exception {
+        SessionAudioRecorder r = recorder(1);
+        r.setPhraseUtterances(true);
+        r.markPhrase("A");
+        begin(r);
+        tee(r, 75);   // 3 s into a 1 s ring
+        settle();
+
+        // the live recorder still has the last second
+        assertEquals(1, r.segments("A").size());
+        assertTrue(r.segments("A").get(0).clipped);
+
+        // a second instance reads the index as after a process death: the
+        // frames written since the last refresh may have overwritten the rest
+        SessionAudioRecorder reloaded = recorder(1);
+        settle();
+        assertEquals(0, reloaded.segments("A").size());
+    }
+
+    // ============================================================
+    // Export
+    // ============================================================
+
+    @Test
+    public void exportedWavStartsAtTheUtterance() throws Exception {
+        SessionAudioRecorder r = recorder(10);
+        r.markPhrase("P");
+        begin(r);
+        tee(r, 30);
+        r.markSpeechStart(0);
+        tee(r, 30);
+        r.markSpeechEnd();
+        r.endSession();
+        settle();
+
+        SessionAudioRecorder.Segment s = r.segments("P").get(0);
+
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<File> wav = new AtomicReference<>();
+        r.exportWav(s.sessionId, s.utterance, new SessionAudioRecorder.ExportCallback() {
+            @Override
+            public void onExported(File file) {
+                wav.set(file);
+                done.countDown();
+            }
+
+            @Override
+            public void onError(IOException ex) {
+                done.countDown();
+            }
+        });
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        assertNotNull(wav.get());
+
+        assertEquals(44 + (s.endFrame - s.startFrame) * 2, wav.get().length());
+
+        try (DataInputStream in = new DataInputStream(new FileInputStream(wav.get()))) {
+            assertEquals(44, in.skipBytes(44));
+            int lo = in.read();
+            int hi = in.read();
+            assertEquals((short) s.startFrame, (short) ((hi << 8) | lo));
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.speechtrainerai.schedule;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * The sampler against the JS reference (getWeaknessScore / getRecencyFactor
+ * in phraseSelection.ts): leaf weights, the history window, the pick walk,
+ * likelyNext() ordering and the degenerate decks.
+ */
+public class PhraseSamplerTest {
+
+    private static final double EPS = 1e-9;
+
+    /** nextDouble() returns the given values in turn */
+    private static final class FixedRandom extends Random {
+        private final double[] values;
+        private int next = 0;
+
+        FixedRandom(double... values) {
+            this.values = values;
+        }
+
+        @Override
+        public double nextDouble() {
+            return values[next++ % values.length];
+        }
+    }
+
+    private static PhraseSampler sampler(Random random, int[] cntf, double[] dwf) {
+        String[] uids = new String[cntf.length];
+        for (int i = 0; i < uids.length; i++) uids[i] = "p" + i;
+
+        PhraseSampler s = new PhraseSampler(random);
+        s.load(uids, cntf, dwf, new int[cntf.length], new double[cntf.length], false);
+        return s;
+    }
+
+    private static PhraseSampler sampler(int[] cntf, double[] dwf) {
+        return sampler(new Random(1), cntf, dwf);
+    }
+
+    // ============================================================
+    // Weights
+    // ============================================================
+
+    @Test
+    public void weightsFollowTheJsFormula() {
+        // 1 / (1 + count) * 0.7 + clamp(duration / 2500) * 0.3
+        PhraseSampler s = sampler(
+                new int[] { 0, 1, 4, 3 },
+                new double[] { 0, 1250, 5000, 0 });
+
+        assertEquals(1.0, s.getWeight(0), EPS);     // unseen: duration counts as the target
+        assertEquals(0.5, s.getWeight(1), EPS);
+        assertEquals(0.44, s.getWeight(2), EPS);    // speed part clamped to 1
+        assertEquals(0.175, s.getWeight(3), EPS);
+    }
+
+    @Test
+    public void reverseModeUsesTheReverseCounters() {
+        PhraseSampler s = new PhraseSampler(new Random(1));
+        s.load(new String[] { "a" },
+                new int[] { 0 }, new double[] { 0 },
+                new int[] { 1 }, new double[] { 2500 },
+                true);
+
+        assertEquals(0.65, s.getWeight(0), EPS);
+
+        s.setReverseMode(false);
+        assertEquals(1.0, s.getWeight(0), EPS);
+    }
+
+    @Test
+    public void updateChangesOnlyThatPhrase() {
+        PhraseSampler s = sampler(new int[] { 0, 0 }, new double[] { 0, 0 });
+
+        assertTrue(s.update("p1", 1, 1250, 0, 0));
+        assertFalse(s.update("missing", 1, 0, 0, 0));
+
+        assertEquals(1.0, s.getWeight(0), EPS);
+        assertEquals(0.5, s.getWeight(1), EPS);
+    }
+
+    // ============================================================
+    // History
+    // ============================================================
+
+    @Test
+    public void visitsApplyRecencyAndEvictionRestoresTheWeight() {
+        // 4 phrases: history window of 3, all weights 1 before any visit
+        PhraseSampler s = sampler(new int[4], new double[4]);
+
+        s.visit("p0");
+        s.visit("p1");
+        s.visit("p2");
+
+        assertEquals(0.5, s.getWeight(0), EPS);            // 3 steps ago
+        assertEquals(0.2, s.getWeight(1), EPS);            // 2 steps ago
+        assertEquals(0.05 * 0.01, s.getWeight(2), EPS);    // current
+        assertEquals(1.0, s.getWeight(3), EPS);
+
+        s.visit("p3");
+
+        assertEquals(1.0, s.getWeight(0), EPS);            // evicted
+        assertEquals(0.5, s.getWeight(1), EPS);
+        assertEquals(0.2, s.getWeight(2), EPS);
+        assertEquals(0.05 * 0.01, s.getWeight(3), EPS);
+    }
+
+    @Test
+    public void revisitingMovesThePhraseToCurrent() {
+        PhraseSampler s = sampler(new int[4], new double[4]);
+
+        s.visit("p0");
+        s.visit("p1");
+        s.visit("p0");
+
+        assertEquals(0.05 * 0.01, s.getWeight(0), EPS);
+        assertEquals(0.2, s.getWeight(1), EPS);
+    }
+
+    // ============================================================
+    // Picks
+    // ============================================================
+
+    @Test
+    public void pickWalksTheCumulativeWeights() {
+        // equal weights, three leaves of a four-leaf tree (one padding leaf)
+        PhraseSampler s = sampler(new FixedRandom(0.05, 0.45, 0.85, 0.999),
+                new int[] { 1, 1, 1 }, new double[] { 1000, 1000, 1000 });
+
+        assertEquals(0, s.next());
+        assertEquals(1, s.next());
+        assertEquals(2, s.next());
+        assertEquals(2, s.next());   // never the padding leaf
+    }
+
+    @Test
+    public void likelyNextIsOrderedByWeightWithoutTheCurrent() {
+        // cur / weak / strong / recent
+        PhraseSampler s = new PhraseSampler(new Random(1));
+        s.load(new String[] { "cur", "weak", "strong", "recent" },
+                new int[] { 0, 0, 9, 0 }, new double[] { 0, 0, 300, 0 },
+                new int[4], new double[4], false);
+
+        s.visit("recent");
+        s.visit("cur");
+
+        assertArrayEquals(new int[] { 1, 3 }, s.likelyNext(2));
+        assertArrayEquals(new int[] { 1, 3, 2 }, s.likelyNext(10));
+        assertArrayEquals(new int[0], s.likelyNext(0));
+    }
+
+    // ============================================================
+    // Degenerate decks
+    // ============================================================
+
+    @Test
+    public void emptyAndSinglePhraseDecks() {
+        PhraseSampler empty = sampler(new int[0], new double[0]);
+        assertEquals(-1, empty.next());
+        assertArrayEquals(new int[0], empty.likelyNext(3));
+
+        PhraseSampler one = sampler(new int[1], new double[1]);
+        one.visit("p0");
+        assertEquals(0, one.next());
+        assertArrayEquals(new int[0], one.likelyNext(3));   // only the current one
+    }
+
+    @Test
+    public void noPositiveWeightFallsBackToTheFirstOtherPhrase() {
+        // the formula never gives 0 for a real phrase; NaN durations are the
+        // reachable case where the total is not positive
+        PhraseSampler s = sampler(new int[] { 1, 1, 1 },
+                new double[] { Double.NaN, Double.NaN, Double.NaN });
+
+        assertEquals(0, s.next());
+        assertArrayEquals(new int[0], s.likelyNext(2));
+
+        s.visit("p0");
+        assertEquals(1, s.next());
+    }
+}
@@ -0,0 +1,326 @@
+package com.speechtrainerai.sync;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+public class CloudSyncTest {
+
+    private StandInSyncServer server;
+
+    @After
+    public void tearDown() {
+        if (server != null) server.close();
+    }
+
+    private CloudSync engine(MemorySyncStore store, boolean legacy, boolean compress, int batchRows)
+            throws IOException {
+        server = new StandInSyncServer(legacy);
+        return new CloudSync(store, new CloudSyncClient(server.url(), compress), batchRows, true);
+    }
+
+    /** Default mode: whole table up and down, against the old script. */
+    private CloudSync fullEngine(MemorySyncStore store, int batchRows) throws IOException {
+        server = new StandInSyncServer(true);
+        return new CloudSync(store, new CloudSyncClient(server.url(), false), batchRows, false);
+    }
+
+    private static void seed(MemorySyncStore store, int n) {
+        for (int i = 0; i < n; i++) {
+            store.put(String.format("U%05d", i), "topic " + (i / 50),
+                    "вопрос номер " + i, "answer number " + i, i % 7);
+        }
+    }
+
+    // ============================================================
+    // Push
+    // ============================================================
+
+    @Test
+    public void pushSendsOnlyChangesSinceLastAck() throws Exception {
+        MemorySyncStore store = new MemorySyncStore();
+        CloudSync sync = engine(store, false, true, 100);
+
+        seed(store, 30);
+        assertEquals(30, sync.sync().pushedRows);
+        assertEquals(30, server.rowCount());
+        assertEquals(0, store.pendingCount());
+        assertEquals(0, store.logSize());
+
+        server.clearCalls();
+        store.put("U00003", "topic 0", "вопрос номер 3", "answer number 3", 42);
+
+        CloudSync.Result r = sync.sync();
+        assertEquals(1, r.pushedRows);
+        assertEquals(1, server.calls("UpdateRows").size());
+        assertEquals(1, server.calls("UpdateRows").get(0).rows);
+        assertEquals(42, server.row("U00003").getLong("Asf"));
+    }
+
+    @Test
+    public void repeatedChangesOfOnePhraseAreSentOnce() throws Exception {
+        MemorySyncStore store = new MemorySyncStore();
+        CloudSync sync = engine(store, false, true, 100);
+
+        for (int i = 1; i <= 5; i++) {
+            store.put("U1", "t", "q", "a", i);
+        }
+
+        assertEquals(1, sync.sync().pushedRows);
+        assertEquals(5, server.row("U1").getLong("Asf"));
+    }
+
+    @Test
+    public void pushIsBatchedAndCompressed() throws Exception {
+        MemorySyncStore store = new MemorySyncStore();
+        CloudSync sync = engine(store, false, true, 100);
+
+        seed(store, 250);
+        CloudSync.Result r = sync.sync();
+
+        List<StandInSyncServer.Call> calls = server.calls("UpdateRows");
+        assertEquals(3, r.pushBatches);
+        assertEquals(3, calls.size());
+        assertEquals(100, calls.get(0).rows);
+        assertEquals(50, calls.get(2).rows);
+
+        for (StandInSyncServer.Call c : calls) {
+            assertTrue(c.compressed);
+        }
+        assertEquals(250, server.rowCount());
+    }
+
+    @Test
+    public void compressedBatchIsSmallerThanPlain() throws Exception {
+        MemorySyncStore plainStore = new MemorySyncStore();
+        seed(plainStore, 200);
+        CloudSync plain = engine(plainStore, false, false, 200);
+        plain.sync();
+        int plainBytes = server.calls("UpdateRows").get(0).bodyBytes;
+        server.close();
+
+        MemorySyncStore gzStore = new MemorySyncStore();
+        seed(gzStore, 200);
+        CloudSync gz = engine(gzStore, false, true, 200);
+        gz.sync();
+        int gzBytes = server.calls("UpdateRows").get(0).bodyBytes;
+
+        assertTrue("gzip " + gzBytes + " vs plain " + plainBytes, gzBytes * 3 < plainBytes);
+    }
+
+    @Test
+    public void failedBatchIsRetriedAndEarlierBatchesStayAcked() throws Exception {
+        MemorySyncStore store = new MemorySyncStore();
+        CloudSync sync = engine(store, false, true, 10);
+
+        seed(store, 25);
+
+        // first batch accepted, second rejected
+        server.failUpdatesAfter(1, 1);
+        try {
+            sync.sync();
+            fail("push must fail");
+        } catch (IOException expected) {
+            // retried below
+        }
+
+        assertEquals(15, store.pendingCount());
+        assertEquals(10, server.rowCount());
+
+        server.clearCalls();
+        CloudSync.Result r = sync.sync();
+        assertEquals(15, r.pushedRows);
+        assertEquals(25, server.rowCount());
+        assertEquals(0, store.pendingCount());
+        assertEquals(1, sync.getStats()[1]);
+    }
+
+    @Test
+    public void localDeleteIsPushedAsTombstone() throws Exception {
+        MemorySyncStore store = new MemorySyncStore();
+        CloudSync sync = engine(store, false, true, 100);
+
+        seed(store, 3);
+        sync.sync();
+
+        store.delete("U00001");
+        assertEquals(1, sync.sync().pushedRows);
+        assertTrue(server.row("U00001").optBoolean("Deleted", false));
+    }
+
+    // ============================================================
+    // Pull
+    // ============================================================
+
+    @Test
+    public void pullAppliesOnlyServerDeltasInOneTransaction() throws Exception {
+        MemorySyncStore store = new MemorySyncStore();
+        CloudSync sync = engine(store, false, true, 4);
+
+        for (int i = 0; i < 10; i++) {
+            server.putRow("R" + i, "remote", "ру " + i, "en " + i, i);
+        }
+
+        CloudSync.Result first = sync.sync();
+        assertEquals(10, first.pulledRows);
+        assertEquals(10, first.appliedRows);
+        assertEquals(3, first.pullPages);   // 4 + 4 + 2
+        assertEquals(1, store.applyCalls);
+        assertEquals("en 7", store.phrases.get("R7").get("a"));
+
+        server.putRow("R7", "remote", "ру 7", "en 7 changed", 70);
+        server.clearCalls();
+
+        CloudSync.Result second = sync.sync();
+        assertEquals(1, second.pulledRows);
+        assertEquals(1, server.calls("GetAllRows").get(0).rows);
+        assertEquals("en 7 changed", store.phrases.get("R7").get("a"));
+        assertEquals(70L, store.phrases.get("R7").get("cntf"));
+        assertEquals(2, store.applyCalls);
+
+        // nothing new: no apply at all
+        assertEquals(0, sync.sync().pulledRows);
+        assertEquals(2, store.applyCalls);
+    }
+
+    @Test
+    public void remoteDeleteRemovesLocalPhrase() throws Exception {
+        MemorySyncStore store = new MemorySyncStore();
+        CloudSync sync = engine(store, false, true, 100);
+
+        server.putRow("R1", "remote", "q", "a", 1);
+        sync.sync();
+        assertNotNull(store.phrases.get("R1"));
+
+        server.deleteRow("R1");
+        sync.sync();
+        assertNull(store.phrases.get("R1"));
+    }
+
+    @Test
+    public void unpushedLocalChangeWinsOverServerRow() throws Exception {
+        MemorySyncStore store = new MemorySyncStore();
+        CloudSync sync = engine(store, false, true, 100);
+
+        server.putRow("X", "remote", "q", "server", 1);
+        sync.sync();
+
+        // local edit and a concurrent remote edit; the push fails
+        store.put("X", "remote", "q", "local", 2);
+        server.putRow("X", "remote", "q", "server 2", 3);
+        server.failNextUpdates(1);
+        try {
+            sync.sync();
+            fail("push must fail");
+        } catch (IOException expected) {
+            // pull did not run
+        }
+        assertEquals("local", store.phrases.get("X").get("a"));
+
+        // next sync pushes the local row first; the echo is harmless
+        sync.sync();
+        assertEquals("local", server.row("X").getString("En"));
+        assertEquals("local", store.phrases.get("X").get("a"));
+    }
+
+    @Test
+    public void legacyServerWithoutSinceStillYieldsOnlyDeltas() throws Exception {
+        MemorySyncStore store = new MemorySyncStore();
+        CloudSync sync = engine(store, true, false, 100);
+
+        for (int i = 0; i < 5; i++) {
+            server.putRow("R" + i, "remote", "q", "a" + i, i);
+        }
+        assertEquals(5, sync.sync().pulledRows);
+
+        server.putRow("R2", "remote", "q", "a2 changed", 20);
+
+        CloudSync.Result r = sync.sync();
+        assertEquals(5, server.calls("GetAllRows").get(1).rows);   // full dump on the wire
+        assertEquals(1, r.pulledRows);                               // one row applied
+        assertEquals("a2 changed", store.phrases.get("R2").get("a"));
+    }
+
+    // ============================================================
+    // Full table (default, no delta contract)
+    // ============================================================
+
+    @Test
+    public void fullPushSendsTheWholeTableOnlyWhenSomethingChanged() throws Exception {
+        MemorySyncStore store = new MemorySyncStore();
+        CloudSync sync = fullEngine(store, 10);
+
+        seed(store, 30);
+        CloudSync.Result first = sync.sync();
+        assertEquals(30, first.pushedRows);
+        assertEquals(1, first.pushBatches);   // one request: the server may replace the table
+        assertEquals(30, server.rowCount());
+        assertEquals(0, store.pendingCount());
+
+        server.clearCalls();
+        sync.sync();
+        assertEquals(0, server.calls("UpdateRows").size());
+
+        store.put("U00003", "topic 0", "вопрос номер 3", "answer number 3", 42);
+        assertEquals(30, sync.sync().pushedRows);
+        assertEquals(1, server.calls("UpdateRows").size());
+        assertEquals(42, server.row("U00003").getLong("Asf"));
+    }
+
+    @Test
+    public void fullPushDropsDeletedPhrasesWithoutTombstones() throws Exception {
+        MemorySyncStore store = new MemorySyncStore();
+        CloudSync sync = fullEngine(store, 100);
+
+        seed(store, 3);
+        sync.sync();
+
+        store.delete("U00001");
+        assertEquals(2, sync.sync().pushedRows);
+        assertNull(server.row("U00001"));
+        assertEquals(2, server.rowCount());
+    }
+
+    @Test
+    public void fullPullAppliesEveryServerRow() throws Exception {
+        MemorySyncStore store = new MemorySyncStore();
+        CloudSync sync = fullEngine(store, 100);
+
+        for (int i = 0; i < 5; i++) {
+            server.putRow("R" + i, "remote", "q", "a" + i, i);
+        }
+
+        CloudSync.Result r = sync.sync();
+        assertEquals(5, r.pulledRows);
+        assertEquals(5, r.appliedRows);
+        assertEquals(1, r.pullPages);
+        assertEquals("a3", store.phrases.get("R3").get("a"));
+        assertEquals(0, store.getWatermarkTs());
+    }
+
+    @Test
+    public void codecRoundTripsRowsAndBase64() throws Exception {
+        for (int n = 0; n < 40; n++) {
+            byte[] data = new byte[n];
+            for (int i = 0; i < n; i++) data[i] = (byte) (i * 37 + n);
+            byte[] back = SyncCodec.unbase64(SyncCodec.base64(data));
+            assertEquals(n, back.length);
+            for (int i = 0; i < n; i++) assertEquals(data[i], back[i]);
+        }
+
+        String text = "[{\"Uid\":\"Ё\",\"Ru\":\"привет\"}]";
+        assertEquals(text, SyncCodec.unpack(SyncCodec.pack(text)));
+
+        assertFalse(SyncCodec.fromWire(SyncCodec.toWire(new SyncRow("U", 1, 5, true, null)))
+                .values.containsKey("topic"));
+    }
+}
@@ -0,0 +1,147 @@
+package com.speechtrainerai.sync;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * SyncStore over maps, with the semantics of SqliteSyncStore: every local
+ * write is logged with a new version, pending rows are read as they are
+ * now, remote rows are applied without logging and skipped while the
+ * phrase has unpushed local changes.
+ */
+final class MemorySyncStore implements SyncStore {
+
+    final TreeMap<String, Map<String, Object>> phrases = new TreeMap<>();
+
+    private final TreeMap<Long, String> log = new TreeMap<>();
+    private long nextVersion = 1;
+    private long clock = 0;
+
+    private long acked = 0;
+    private long wmTs = 0;
+    private String wmUid = "";
+
+    int applyCalls = 0;
+
+    // ============================================================
+    // Local writes (what the triggers log on the device)
+    // ============================================================
+
+    void put(String uid, String topic, String q, String a, long cntf) {
+        LinkedHashMap<String, Object> v = new LinkedHashMap<>();
+        v.put("topic", topic);
+        v.put("q", q);
+        v.put("a", a);
+        v.put("cntf", cntf);
+        phrases.put(uid, v);
+        log.put(nextVersion++, uid);
+    }
+
+    void delete(String uid) {
+        phrases.remove(uid);
+        log.put(nextVersion++, uid);
+    }
+
+    int logSize() {
+        return log.size();
+    }
+
+    // ============================================================
+    // SyncStore
+    // ============================================================
+
+    @Override
+    public List<SyncRow> pendingChanges(long afterVersion, int limit) {
+
+        HashMap<String, Long> latest = new HashMap<>();
+        for (Map.Entry<Long, String> e : log.tailMap(afterVersion, false).entrySet()) {
+            latest.put(e.getValue(), e.getKey());
+        }
+
+        TreeMap<Long, String> byVersion = new TreeMap<>();
+        for (Map.Entry<String, Long> e : latest.entrySet()) {
+            byVersion.put(e.getValue(), e.getKey());
+        }
+
+        ArrayList<SyncRow> out = new ArrayList<>();
+        for (Map.Entry<Long, String> e : byVersion.entrySet()) {
+            if (out.size() == limit) break;
+
+            Map<String, Object> row = phrases.get(e.getValue());
+            out.add(new SyncRow(e.getValue(), e.getKey(), ++clock, row == null,
+                    row != null ? new LinkedHashMap<>(row) : null));
+        }
+        return out;
+    }
+
+    @Override
+    public int pendingCount() {
+        return (int) log.tailMap(acked, false).values().stream().distinct().count();
+    }
+
+    @Override
+    public List<SyncRow> allRows() {
+        ArrayList<SyncRow> out = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Object>> e : phrases.entrySet()) {
+            out.add(new SyncRow(e.getKey(), 0, 0, false, new LinkedHashMap<>(e.getValue())));
+        }
+        return out;
+    }
+
+    @Override
+    public long headVersion() {
+        return nextVersion - 1;
+    }
+
+    @Override
+    public long getAckedVersion() {
+        return acked;
+    }
+
+    @Override
+    public void ack(long version) {
+        acked = version;
+        log.headMap(version, true).clear();
+    }
+
+    @Override
+    public long getWatermarkTs() {
+        return wmTs;
+    }
+
+    @Override
+    public String getWatermarkUid() {
+        return wmUid;
+    }
+
+    @Override
+    public int applyRemote(List<SyncRow> rows, long watermarkTs, String watermarkUid) {
+
+        applyCalls++;
+        int applied = 0;
+
+        for (SyncRow row : rows) {
+            if (log.tailMap(acked, false).containsValue(row.uid)) continue;
+
+            if (row.deleted) {
+                phrases.remove(row.uid);
+            } else {
+                Map<String, Object> existing = phrases.get(row.uid);
+                if (existing == null) {
+                    existing = new LinkedHashMap<>();
+                    phrases.put(row.uid, existing);
+                }
+                existing.putAll(row.values);
+            }
+            applied++;
+        }
+
+        wmTs = watermarkTs;
+        wmUid = watermarkUid;
+        return applied;
+    }
+}
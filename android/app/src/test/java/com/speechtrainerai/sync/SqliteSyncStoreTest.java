@@ -0,0 +1,254 @@
+package com.speechtrainerai.sync;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The change log against a real SQLite file: the triggers, the baseline on
+ * install, echo removal and the local-wins skip in applyRemote.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SqliteSyncStoreTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private File file;
+
+    // the other writer (JS, PhraseStatsWriter): a separate connection
+    private SQLiteDatabase other;
+    private SqliteSyncStore store;
+
+    @Before
+    public void setUp() {
+        file = new File(tmp.getRoot(), "speechtrainer.db");
+
+        other = SQLiteDatabase.openDatabase(file.getPath(), null,
+                SQLiteDatabase.OPEN_READWRITE | SQLiteDatabase.CREATE_IF_NECESSARY);
+        other.execSQL("CREATE TABLE phrases ("
+                + " uid TEXT PRIMARY KEY, topic TEXT NOT NULL, q TEXT NOT NULL, a TEXT NOT NULL,"
+                + " variants TEXT DEFAULT NULL,"
+                + " cntf INTEGER DEFAULT 0, cntr INTEGER DEFAULT 0,"
+                + " df REAL DEFAULT 0, dr REAL DEFAULT 0, dwf REAL DEFAULT 0, dwr REAL DEFAULT 0,"
+                + " tsf INTEGER DEFAULT NULL, tsr INTEGER DEFAULT NULL)");
+
+        store = new SqliteSyncStore(file);
+    }
+
+    @After
+    public void tearDown() {
+        store.close();
+        other.close();
+    }
+
+    private void insert(String uid, String a) {
+        other.execSQL("INSERT INTO phrases(uid, topic, q, a) VALUES(?, 't', 'q', ?)", new Object[] { uid, a });
+    }
+
+    private String answer(String uid) {
+        Cursor c = other.rawQuery("SELECT a FROM phrases WHERE uid = ?", new String[] { uid });
+        try {
+            return c.moveToFirst() ? c.getString(0) : null;
+        } finally {
+            c.close();
+        }
+    }
+
+    private void ackAll() {
+        List<SyncRow> rows = store.pendingChanges(store.getAckedVersion(), 1000);
+        store.ack(rows.get(rows.size() - 1).version);
+    }
+
+    private static SyncRow remote(String uid, String a) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("topic", "t");
+        values.put("q", "q");
+        values.put("a", a);
+        return new SyncRow(uid, 0, 1000, false, values);
+    }
+
+    private static Map<String, SyncRow> byUid(List<SyncRow> rows) {
+        Map<String, SyncRow> map = new HashMap<>();
+        for (SyncRow r : rows) map.put(r.uid, r);
+        return map;
+    }
+
+    // ============================================================
+    // Install
+    // ============================================================
+
+    @Test
+    public void installLogsPhrasesWrittenBeforeTheTriggers() {
+        insert("A", "a");
+        insert("B", "b");
+
+        assertEquals(2, store.pendingCount());
+
+        Map<String, SyncRow> rows = byUid(store.pendingChanges(0, 100));
+        assertEquals("a", rows.get("A").values.get("a"));
+        assertEquals(0L, rows.get("B").values.get("cntf"));
+        assertNull(rows.get("B").values.get("tsf"));
+    }
+
+    @Test
+    public void reopeningDoesNotLogTheBaselineTwice() {
+        insert("A", "a");
+        ackAll();
+        store.close();
+
+        store = new SqliteSyncStore(file);
+        assertEquals(0, store.pendingCount());
+    }
+
+    // ============================================================
+    // Triggers
+    // ============================================================
+
+    @Test
+    public void triggersLogChangesFromOtherConnections() {
+        insert("A", "a");
+        insert("B", "b");
+        ackAll();
+
+        insert("C", "c");
+        other.execSQL("UPDATE phrases SET cntf = cntf + 1 WHERE uid = 'A'");
+        other.execSQL("UPDATE phrases SET cntf = cntf + 1 WHERE uid = 'A'");
+        other.execSQL("DELETE FROM phrases WHERE uid = 'B'");
+
+        List<SyncRow> pending = store.pendingChanges(store.getAckedVersion(), 100);
+        assertEquals(3, pending.size());
+
+        // latest change per uid, ordered by it
+        assertEquals("C", pending.get(0).uid);
+        assertEquals("A", pending.get(1).uid);
+        assertEquals("B", pending.get(2).uid);
+
+        assertEquals(2L, pending.get(1).values.get("cntf"));
+        assertTrue(pending.get(2).deleted);
+    }
+
+    @Test
+    public void renamingUidLogsBothUids() {
+        insert("A", "a");
+        ackAll();
+
+        other.execSQL("UPDATE phrases SET uid = 'A2' WHERE uid = 'A'");
+
+        Map<String, SyncRow> rows = byUid(store.pendingChanges(store.getAckedVersion(), 100));
+        assertTrue(rows.get("A").deleted);
+        assertFalse(rows.get("A2").deleted);
+    }
+
+    @Test
+    public void ackDropsCoveredEntries() {
+        insert("A", "a");
+        insert("B", "b");
+
+        List<SyncRow> rows = store.pendingChanges(0, 1);
+        store.ack(rows.get(0).version);
+
+        assertEquals(1, store.pendingCount());
+        assertEquals("B", store.pendingChanges(store.getAckedVersion(), 100).get(0).uid);
+    }
+
+    @Test
+    public void fullTableAckCoversEveryLoggedChange() {
+        insert("B", "b");
+        insert("A", "a");
+
+        List<SyncRow> rows = store.allRows();
+        assertEquals("A", rows.get(0).uid);
+        assertEquals("b", rows.get(1).values.get("a"));
+
+        store.ack(store.headVersion());
+        assertEquals(0, store.pendingCount());
+    }
+
+    // ============================================================
+    // applyRemote
+    // ============================================================
+
+    @Test
+    public void applyRemovesItsOwnEchoes() {
+        insert("A", "a");
+        ackAll();
+
+        int applied = store.applyRemote(
+                Arrays.asList(remote("A", "server a"), remote("N", "new")), 1000, "N");
+
+        assertEquals(2, applied);
+        assertEquals("server a", answer("A"));
+        assertEquals("new", answer("N"));
+
+        // nothing to push back: the trigger entries were the apply itself
+        assertEquals(0, store.pendingCount());
+        assertEquals(1000, store.getWatermarkTs());
+        assertEquals("N", store.getWatermarkUid());
+    }
+
+    @Test
+    public void applyKeepsLocalChangesLoggedBeforeIt() {
+        insert("A", "a");
+        insert("B", "b");
+        ackAll();
+
+        other.execSQL("UPDATE phrases SET a = 'local' WHERE uid = 'A'");
+
+        int applied = store.applyRemote(
+                Arrays.asList(remote("A", "server a"), remote("B", "server b")), 2000, "B");
+
+        // A is not pushed yet: local wins and stays pending
+        assertEquals(1, applied);
+        assertEquals("local", answer("A"));
+        assertEquals("server b", answer("B"));
+
+        List<SyncRow> pending = store.pendingChanges(store.getAckedVersion(), 100);
+        assertEquals(1, pending.size());
+        assertEquals("A", pending.get(0).uid);
+        assertEquals("local", pending.get(0).values.get("a"));
+    }
+
+    @Test
+    public void remoteDeleteIsAppliedWithoutEcho() {
+        insert("A", "a");
+        ackAll();
+
+        store.applyRemote(Collections.singletonList(new SyncRow("A", 0, 3000, true, null)), 3000, "A");
+
+        assertNull(answer("A"));
+        assertEquals(0, store.pendingCount());
+    }
+
+    @Test
+    public void incompleteNewRowIsSkipped() {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("cntf", 3L);
+
+        int applied = store.applyRemote(
+                Collections.singletonList(new SyncRow("X", 0, 1000, false, values)), 1000, "X");
+
+        assertEquals(0, applied);
+        assertNull(answer("X"));
+    }
+}
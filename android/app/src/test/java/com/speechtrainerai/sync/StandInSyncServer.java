@@ -0,0 +1,253 @@
+package com.speechtrainerai.sync;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Local stand-in for the Apps Script endpoint (UpdateRows / GetAllRows).
+ *
+ * Default mode is the contract delta sync needs (CloudSync delta = true):
+ * UpdateRows upserts by Uid, keeps Deleted tombstones and stamps each row
+ * with the server's own Ts (monotonic), so pull watermarks never depend on
+ * device clocks.
+ *
+ * Legacy mode is all the client may assume of the old script: UpdateRows
+ * replaces the whole table with the payload (no merge, no Ts, no
+ * tombstones), plain JSON only, `since` / `limit` ignored, GetAllRows
+ * returns everything.
+ */
+final class StandInSyncServer implements AutoCloseable {
+
+    static final class Call {
+        final String method;
+        final boolean compressed;
+        final int rows;
+        final int bodyBytes;
+
+        Call(String method, boolean compressed, int rows, int bodyBytes) {
+            this.method = method;
+            this.compressed = compressed;
+            this.rows = rows;
+            this.bodyBytes = bodyBytes;
+        }
+    }
+
+    private final HttpServer http;
+    private final boolean legacy;
+
+    // guarded by this
+    private final TreeMap<String, JSONObject> rows = new TreeMap<>();
+    private final List<Call> calls = new ArrayList<>();
+    private long clock = 1_000;
+    private int acceptBeforeFail = 0;
+    private int failUpdates = 0;
+
+    StandInSyncServer(boolean legacy) throws IOException {
+        this.legacy = legacy;
+
+        http = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        http.createContext("/exec", this::handle);
+        http.start();
+    }
+
+    URL url() throws IOException {
+        return new URL("http://127.0.0.1:" + http.getAddress().getPort() + "/exec");
+    }
+
+    @Override
+    public void close() {
+        http.stop(0);
+    }
+
+    // ============================================================
+    // Test hooks
+    // ============================================================
+
+    /** A row written by another device. */
+    synchronized void putRow(String uid, String topic, String ru, String en, long asf) throws Exception {
+        JSONObject o = new JSONObject();
+        o.put("Uid", uid);
+        o.put("SheetName", topic);
+        o.put("Ru", ru);
+        o.put("En", en);
+        o.put("Asf", asf);
+        o.put("Ts", ++clock);
+        rows.put(uid, o);
+    }
+
+    synchronized void deleteRow(String uid) throws Exception {
+        JSONObject o = new JSONObject();
+        o.put("Uid", uid);
+        o.put("Deleted", true);
+        o.put("Ts", ++clock);
+        rows.put(uid, o);
+    }
+
+    synchronized JSONObject row(String uid) {
+        return rows.get(uid);
+    }
+
+    synchronized int rowCount() {
+        return rows.size();
+    }
+
+    synchronized void failNextUpdates(int n) {
+        failUpdatesAfter(0, n);
+    }
+
+    /** Accept `accepted` UpdateRows calls, then reject the next `n`. */
+    synchronized void failUpdatesAfter(int accepted, int n) {
+        acceptBeforeFail = accepted;
+        failUpdates = n;
+    }
+
+    synchronized List<Call> calls(String method) {
+        ArrayList<Call> out = new ArrayList<>();
+        for (Call c : calls) {
+            if (c.method.equals(method)) out.add(c);
+        }
+        return out;
+    }
+
+    synchronized void clearCalls() {
+        calls.clear();
+    }
+
+    // ============================================================
+    // HTTP
+    // ============================================================
+
+    private void handle(HttpExchange ex) throws IOException {
+
+        byte[] body = readAll(ex.getRequestBody());
+        int status = 200;
+        String reply;
+
+        try {
+            reply = dispatch(new JSONObject(new String(body, StandardCharsets.UTF_8)), body.length);
+        } catch (Exception e) {
+            status = 500;
+            reply = "{\"status\":\"error\",\"message\":\"" + e.getMessage() + "\"}";
+        }
+
+        byte[] out = reply.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "application/json");
+        ex.sendResponseHeaders(status, out.length);
+        try (OutputStream os = ex.getResponseBody()) {
+            os.write(out);
+        }
+    }
+
+    private synchronized String dispatch(JSONObject req, int bodyBytes) throws Exception {
+
+        String method = req.getString("methodName");
+
+        if ("UpdateRows".equals(method)) {
+            boolean compressed = "gzip".equals(req.optString("encoding"));
+            if (compressed && legacy) throw new IllegalStateException("encoding not supported");
+
+            JSONArray payload = compressed
+                    ? new JSONArray(SyncCodec.unpack(req.getString("payload")))
+                    : (JSONArray) req.get("payload");
+
+            calls.add(new Call(method, compressed, payload.length(), bodyBytes));
+
+            if (acceptBeforeFail > 0) {
+                acceptBeforeFail--;
+            } else if (failUpdates > 0) {
+                failUpdates--;
+                throw new IllegalStateException("update rejected");
+            }
+
+            if (legacy) {
+                rows.clear();
+                for (int i = 0; i < payload.length(); i++) {
+                    JSONObject in = payload.getJSONObject(i);
+                    rows.put(in.getString("Uid"), in);
+                }
+                return "{\"status\":\"ok\",\"updated\":" + payload.length() + "}";
+            }
+
+            for (int i = 0; i < payload.length(); i++) {
+                JSONObject in = payload.getJSONObject(i);
+                String uid = in.getString("Uid");
+
+                // merge: columns not sent (Lcnt, Aw, ...) stay as they were
+                JSONObject stored = rows.get(uid);
+                if (stored == null || in.optBoolean("Deleted", false) || stored.optBoolean("Deleted", false)) {
+                    stored = new JSONObject();
+                }
+                for (Iterator<String> it = in.keys(); it.hasNext(); ) {
+                    String k = it.next();
+                    stored.put(k, in.get(k));
+                }
+                stored.put("Ts", ++clock);
+                rows.put(uid, stored);
+            }
+            return "{\"status\":\"ok\",\"updated\":" + payload.length() + "}";
+        }
+
+        if ("GetAllRows".equals(method)) {
+            long since = legacy ? Long.MIN_VALUE : req.optLong("since", 0);
+            String sinceUid = legacy ? "" : req.optString("sinceUid", "");
+            int limit = legacy ? Integer.MAX_VALUE : req.optInt("limit", Integer.MAX_VALUE);
+
+            ArrayList<JSONObject> out = new ArrayList<>();
+            for (JSONObject o : rows.values()) {
+                long ts = o.optLong("Ts", 0);
+                String uid = o.getString("Uid");
+                if (ts > since || (ts == since && uid.compareTo(sinceUid) > 0)) out.add(o);
+            }
+            out.sort((a, b) -> {
+                int c = Long.compare(a.optLong("Ts", 0), b.optLong("Ts", 0));
+                return c != 0 ? c : a.optString("Uid").compareTo(b.optString("Uid"));
+            });
+
+            boolean more = out.size() > limit;
+            JSONArray data = new JSONArray();
+            for (int i = 0; i < Math.min(limit, out.size()); i++) {
+                data.put(out.get(i));
+            }
+
+            calls.add(new Call(method, false, data.length(), bodyBytes));
+
+            JSONObject res = new JSONObject();
+            res.put("status", "ok");
+            if (!legacy && "gzip".equals(req.optString("acceptEncoding"))) {
+                res.put("encoding", "gzip");
+                res.put("data", SyncCodec.pack(data.toString()));
+            } else {
+                res.put("data", data);
+            }
+            if (!legacy) res.put("more", more);
+            return res.toString();
+        }
+
+        throw new IllegalArgumentException("Unknown method " + method);
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int n;
+        while ((n = in.read(buf)) > 0) {
+            out.write(buf, 0, n);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,131 @@
+package com.speechtrainerai.audio;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One AudioRecord buffer through AudioCaptureService.deliver() — the body
+ * of the capture loop, without waiting on the mic.
+ *
+ *  - raw     sink only counts frames (VAD off: direct buffer goes to native as is)
+ *  - vad     sink copies the direct buffer to short[] + VoiceActivityDetector,
+ *            like onCapturedAudio()
+ *  - preRoll no sink while an engine switches: buffer goes to the pre-roll ring
+ *
+ * Audio alternates speech-like bursts and low noise in runs of 16 buffers
+ * (longer than the VAD hangover), so VAD takes both paths.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CaptureLoopBenchmark {
+
+    private static final int SAMPLE_RATE = 16000;
+
+    @Param({"raw", "vad", "preRoll"})
+    public String sink;
+
+    /** frames per AudioRecord.read() (captureLoop reads up to 4000) */
+    @Param({"640", "4000"})
+    public int frames;
+
+    private AudioCaptureService capture;
+    private VoiceActivityDetector vad;
+
+    private ByteBuffer[] buffers;
+    private ShortBuffer[] views;
+    private short[] vadInput;
+    private int next = 0;
+    private int current = 0;
+
+    private long sinkFrames = 0;
+    private final long capturedAt = System.nanoTime();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        short[][] pcm = synthesize(frames, 64);
+        buffers = new ByteBuffer[pcm.length];
+        views = new ShortBuffer[pcm.length];
+        vadInput = new short[frames];
+
+        for (int i = 0; i < pcm.length; i++) {
+            buffers[i] = ByteBuffer.allocateDirect(frames * 2).order(ByteOrder.nativeOrder());
+            views[i] = buffers[i].asShortBuffer();
+            views[i].put(pcm[i]);
+        }
+
+        capture = new AudioCaptureService(SAMPLE_RATE, 1000);
+        vad = new VoiceActivityDetector(SAMPLE_RATE);
+
+        switch (sink) {
+            case "raw":
+                capture.attach((data, n, capturedAt) -> sinkFrames += n);
+                break;
+            case "vad":
+                capture.attach((data, n, capturedAt) -> {
+                    ShortBuffer view = views[current];
+                    view.clear();
+                    view.get(vadInput, 0, n);
+                    sinkFrames += vad.process(vadInput, n);
+                });
+                break;
+            case "preRoll":
+                // detach() only buffers while a session is running
+                capture.start();
+                capture.detach();
+                break;
+            default:
+                throw new IllegalArgumentException(sink);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        capture.stop();
+    }
+
+    @Benchmark
+    public long deliver() {
+        current = next;
+        next = (next + 1) % buffers.length;
+
+        capture.deliver(buffers[current], frames, capturedAt);
+        return sinkFrames;
+    }
+
+    static short[][] synthesize(int frames, int count) {
+
+        Random rnd = new Random(42);
+        short[][] out = new short[count][frames];
+
+        for (int b = 0; b < count; b++) {
+            boolean speech = (b / 16) % 2 == 0;
+
+            for (int i = 0; i < frames; i++) {
+                double noise = rnd.nextGaussian() * 60;
+                double voice = speech
+                        ? 6000 * Math.sin(2 * Math.PI * 180 * i / SAMPLE_RATE)
+                          + 2500 * Math.sin(2 * Math.PI * 720 * i / SAMPLE_RATE)
+                        : 0;
+                out[b][i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, voice + noise));
+            }
+        }
+
+        return out;
+    }
+}
@@ -0,0 +1,152 @@
+package com.speechtrainerai.rn_java_connector;
+
+import android.content.Context;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ModelInstaller on a synthetic model folder shaped like
+ * vosk-model-small (a few large files + small configs), with a manifest.
+ *
+ *  - freshInstall  first launch: copy + sha256 + fsync of every file
+ *  - installed     every later launch: manifest hash + marker check
+ *
+ * Disk speed dominates freshInstall; compare runs on the same machine only.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+public class ModelInstallerBenchmark {
+
+    private static final String MODEL = "vosk-model-bench";
+
+    /** total model size, MB */
+    @Param({"16"})
+    public int modelMb;
+
+    private File workDir;
+    private File filesDir;
+    private Context context;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+
+        workDir = Files.createTempDirectory("model-installer-bench").toFile();
+        filesDir = new File(workDir, "files");
+        File assets = new File(workDir, "assets");
+
+        long mb = 1024L * 1024;
+        Object[][] layout = {
+                {"am/final.mdl", modelMb * mb / 2},
+                {"graph/HCLr.fst", modelMb * mb / 4},
+                {"graph/Gr.fst", modelMb * mb / 4},
+                {"conf/mfcc.conf", 256L},
+                {"conf/model.conf", 512L},
+                {"ivector/final.ie", 64L * 1024},
+        };
+
+        Random rnd = new Random(7);
+        StringBuilder manifest = new StringBuilder();
+
+        for (Object[] f : layout) {
+            String path = (String) f[0];
+            long size = (Long) f[1];
+            String sha = writeRandomFile(new File(assets, MODEL + "/" + path), size, rnd);
+            manifest.append(sha).append(' ').append(size).append(' ').append(path).append('\n');
+        }
+
+        try (Writer w = new OutputStreamWriter(
+                new FileOutputStream(new File(assets, MODEL + ".manifest")),
+                StandardCharsets.UTF_8)) {
+            w.write(manifest.toString());
+        }
+
+        context = new Context(filesDir, assets);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        deleteRecursive(workDir);
+    }
+
+    /**
+     * Per-invocation cleanup for freshInstall (not timed).
+     */
+    @State(Scope.Thread)
+    public static class Clean {
+
+        @Setup(Level.Invocation)
+        public void wipe(ModelInstallerBenchmark bench) {
+            deleteRecursive(bench.filesDir);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 10)
+    public String freshInstall(Clean clean) throws IOException {
+        return ModelInstaller.installModelIfNeeded(context, MODEL);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public String installed() throws IOException {
+        return ModelInstaller.installModelIfNeeded(context, MODEL);
+    }
+
+    private static String writeRandomFile(File file, long size, Random rnd) throws Exception {
+
+        file.getParentFile().mkdirs();
+
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        byte[] chunk = new byte[64 * 1024];
+
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            long left = size;
+            while (left > 0) {
+                int n = (int) Math.min(chunk.length, left);
+                rnd.nextBytes(chunk);
+                out.write(chunk, 0, n);
+                md.update(chunk, 0, n);
+                left -= n;
+            }
+        }
+
+        StringBuilder hex = new StringBuilder();
+        for (byte b : md.digest()) hex.append(String.format("%02x", b));
+        return hex.toString();
+    }
+
+    private static void deleteRecursive(File f) {
+        if (f == null || !f.exists()) return;
+        File[] children = f.listFiles();
+        if (children != null) {
+            for (File c : children) deleteRecursive(c);
+        }
+        f.delete();
+    }
+}
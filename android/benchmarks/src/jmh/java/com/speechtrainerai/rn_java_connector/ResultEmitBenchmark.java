@@ -0,0 +1,116 @@
+package com.speechtrainerai.rn_java_connector;
+
+import com.speechtrainerai.asr.AsrResult;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Result path behind onNativeResult():
+ *
+ *  - submitPartial / submitFinal  what the native recognition thread pays:
+ *                                 AsrResult + ResultArbiter + ResultDispatcher
+ *  - payloadSingle / payloadBatch what the dispatcher thread builds for
+ *                                 the "SpeechResult" event
+ *
+ * The dispatcher's emitter only counts (no bridge on the JVM).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ResultEmitBenchmark {
+
+    /** words per result (typical answer: 3..12) */
+    @Param({"4", "12"})
+    public int words;
+
+    private ResultDispatcher dispatcher;
+    private ResultArbiter arbiter;
+
+    private String text;
+    private String[] wordArray;
+    private float[] timings;
+
+    private AsrResult finalResult;
+    private List<AsrResult> single;
+    private List<AsrResult> batch;
+
+    private int utterance = 0;
+    private final long capturedAt = System.nanoTime();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        // rate limit as in RnJavaConnectorModule
+        dispatcher = new ResultDispatcher(results -> true, 15);
+
+        arbiter = new ResultArbiter(dispatcher, 400);
+        arbiter.setActiveEngines(Collections.singletonList("vosk-en"));
+
+        wordArray = new String[words];
+        timings = new float[words * 3];
+        StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < words; i++) {
+            wordArray[i] = "word" + i;
+            timings[i * 3] = i * 0.4f;
+            timings[i * 3 + 1] = i * 0.4f + 0.3f;
+            timings[i * 3 + 2] = 0.9f;
+            if (i > 0) sb.append(' ');
+            sb.append(wordArray[i]);
+        }
+
+        text = sb.toString();
+        finalResult = new AsrResult("vosk-en", true, 1, 0, words * 6400L,
+                System.nanoTime(), text, wordArray, timings);
+
+        single = Collections.singletonList(finalResult);
+        batch = new ArrayList<>();
+        for (int i = 0; i < 4; i++) batch.add(finalResult);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    @Benchmark
+    public AsrResult submitPartial() {
+        // partials carry no words: JNI passes empty arrays
+        AsrResult r = new AsrResult("vosk-en", false, utterance, 0, 3200,
+                capturedAt, text, new String[0], new float[0]);
+        arbiter.submit(r);
+        return r;
+    }
+
+    @Benchmark
+    public AsrResult submitFinal() {
+        AsrResult r = new AsrResult("vosk-en", true, utterance++, 0, words * 6400L,
+                capturedAt, text, wordArray.clone(), timings.clone());
+        arbiter.submit(r);
+        return r;
+    }
+
+    @Benchmark
+    public Object payloadSingle() {
+        return SpeechResultPayload.build(single);
+    }
+
+    @Benchmark
+    public Object payloadBatch() {
+        return SpeechResultPayload.build(batch);
+    }
+}
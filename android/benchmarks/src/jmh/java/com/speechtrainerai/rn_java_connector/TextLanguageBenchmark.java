@@ -0,0 +1,34 @@
+package com.speechtrainerai.rn_java_connector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TextLanguage.detect() on every speak(): English prompts scan the whole
+ * string, Russian ones stop at the first Cyrillic letter.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TextLanguageBenchmark {
+
+    @Param({
+            "Could you tell me where the nearest station is?",
+            "Не могли бы вы подсказать, где ближайшая станция?",
+            "Say it in Russian: станция"
+    })
+    public String text;
+
+    @Benchmark
+    public Locale detect() {
+        return TextLanguage.detect(text);
+    }
+}
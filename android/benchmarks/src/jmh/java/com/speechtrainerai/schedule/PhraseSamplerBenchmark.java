@@ -0,0 +1,145 @@
+package com.speechtrainerai.schedule;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Next-phrase choice on large imported decks:
+ *
+ *  - step        one trainer step: phrase shown (visit) + next pick
+ *  - answer      weight update after an answer
+ *  - likelyNext  top-4 for TTS prefetch
+ *  - linearPick  the old phraseSelection.ts algorithm (all weights,
+ *                lastIndexOf over the history, cumulative scan), as a
+ *                reference for what a pick cost before
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PhraseSamplerBenchmark {
+
+    @Param({"1000", "100000"})
+    public int phrases;
+
+    private PhraseSampler sampler;
+
+    private String[] uids;
+    private int[] cntf;
+    private double[] dwf;
+    private int[] cntr;
+    private double[] dwr;
+
+    private final Random random = new Random(42);
+    private final List<String> history = new ArrayList<>();
+
+    private String current;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        uids = new String[phrases];
+        cntf = new int[phrases];
+        dwf = new double[phrases];
+        cntr = new int[phrases];
+        dwr = new double[phrases];
+
+        // mixed deck: a third unseen, the rest answered a few times
+        for (int i = 0; i < phrases; i++) {
+            uids[i] = "phrase-" + i;
+            cntf[i] = i % 3 == 0 ? 0 : 1 + random.nextInt(10);
+            dwf[i] = cntf[i] == 0 ? 0 : 800 + random.nextInt(3000);
+            cntr[i] = random.nextInt(3);
+            dwr[i] = cntr[i] == 0 ? 0 : 1000 + random.nextInt(3000);
+        }
+
+        sampler = new PhraseSampler(new Random(7));
+        sampler.load(uids, cntf, dwf, cntr, dwr, false);
+
+        current = uids[0];
+        sampler.visit(current);
+        history.add(current);
+    }
+
+    @Benchmark
+    public int step() {
+        int next = sampler.next();
+        current = uids[next];
+        sampler.visit(current);
+        return next;
+    }
+
+    @Benchmark
+    public boolean answer() {
+        int i = random.nextInt(phrases);
+        return sampler.update(uids[i], cntf[i] + 1, dwf[i], cntr[i], dwr[i]);
+    }
+
+    @Benchmark
+    public int[] likelyNext() {
+        return sampler.likelyNext(4);
+    }
+
+    @Benchmark
+    public int linearPick() {
+        int next = linearPick(current, history);
+
+        current = uids[next];
+        history.add(current);
+        if (history.size() > 8) history.remove(0);
+        return next;
+    }
+
+    // ============================================================
+    // phraseSelection.ts, ported as-is
+    // ============================================================
+
+    private int linearPick(String currentUid, List<String> recentHistory) {
+
+        double[] weights = new double[phrases];
+        double total = 0;
+
+        for (int i = 0; i < phrases; i++) {
+            double w = weakness(cntf[i], dwf[i])
+                    * recency(uids[i], recentHistory)
+                    * (uids[i].equals(currentUid) ? 0.01 : 1);
+            weights[i] = w;
+            total += w;
+        }
+
+        double threshold = random.nextDouble() * total;
+
+        for (int i = 0; i < phrases; i++) {
+            threshold -= weights[i];
+            if (threshold <= 0) return i;
+        }
+        return phrases - 1;
+    }
+
+    private static double weakness(int count, double avgWordDuration) {
+        double effective = count == 0 ? 2500 : avgWordDuration;
+        return 0.7 / (1 + count) + 0.3 * Math.min(1, Math.max(0, effective / 2500));
+    }
+
+    private static double recency(String uid, List<String> recentHistory) {
+        int index = recentHistory.lastIndexOf(uid);
+        if (index == -1) return 1;
+
+        int stepsAgo = recentHistory.size() - index;
+        if (stepsAgo <= 1) return 0.05;
+        if (stepsAgo <= 2) return 0.2;
+        if (stepsAgo <= 4) return 0.5;
+        return 0.8;
+    }
+}
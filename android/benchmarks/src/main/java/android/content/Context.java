@@ -0,0 +1,27 @@
+package android.content;
+
+import android.content.res.AssetManager;
+
+import java.io.File;
+
+/**
+ * JVM stand-in: only what ModelInstaller touches.
+ */
+public class Context {
+
+    private final File filesDir;
+    private final AssetManager assets;
+
+    public Context(File filesDir, File assetsRoot) {
+        this.filesDir = filesDir;
+        this.assets = new AssetManager(assetsRoot);
+    }
+
+    public File getFilesDir() {
+        return filesDir;
+    }
+
+    public AssetManager getAssets() {
+        return assets;
+    }
+}
@@ -0,0 +1,33 @@
+package android.content.res;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * JVM stand-in backed by a plain directory.
+ *
+ * Same contract as the real one where ModelInstaller relies on it:
+ * open() of a missing file throws FileNotFoundException, list() of a
+ * file (or missing path) returns an empty array.
+ */
+public class AssetManager {
+
+    private final File root;
+
+    public AssetManager(File root) {
+        this.root = root;
+    }
+
+    public InputStream open(String fileName) throws IOException {
+        // uncompressed assets are read through a buffered stream on device too
+        return new BufferedInputStream(new FileInputStream(new File(root, fileName)));
+    }
+
+    public String[] list(String path) throws IOException {
+        String[] names = new File(root, path).list();
+        return names != null ? names : new String[0];
+    }
+}
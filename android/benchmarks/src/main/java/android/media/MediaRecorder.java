@@ -0,0 +1,10 @@
+package android.media;
+
+public class MediaRecorder {
+
+    public static final class AudioSource {
+        public static final int MIC = 1;
+
+        private AudioSource() {}
+    }
+}
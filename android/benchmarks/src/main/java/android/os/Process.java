@@ -0,0 +1,14 @@
+package android.os;
+
+/**
+ * JVM stand-in: thread priorities are a no-op here.
+ */
+public final class Process {
+
+    public static final int THREAD_PRIORITY_URGENT_AUDIO = -19;
+
+    private Process() {}
+
+    public static void setThreadPriority(int priority) {
+    }
+}
@@ -0,0 +1,13 @@
+package android.os;
+
+/**
+ * JVM stand-in: monotonic clock like the real one (no deep sleep here).
+ */
+public final class SystemClock {
+
+    private SystemClock() {}
+
+    public static long elapsedRealtime() {
+        return System.nanoTime() / 1_000_000;
+    }
+}
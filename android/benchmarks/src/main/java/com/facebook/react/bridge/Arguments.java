@@ -0,0 +1,14 @@
+package com.facebook.react.bridge;
+
+public final class Arguments {
+
+    private Arguments() {}
+
+    public static WritableMap createMap() {
+        return new JavaOnlyMap();
+    }
+
+    public static WritableArray createArray() {
+        return new JavaOnlyArray();
+    }
+}
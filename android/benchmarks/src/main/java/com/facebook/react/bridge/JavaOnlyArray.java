@@ -0,0 +1,17 @@
+package com.facebook.react.bridge;
+
+import java.util.ArrayList;
+
+/**
+ * Same idea as React Native's JavaOnlyArray (see JavaOnlyMap).
+ */
+public class JavaOnlyArray extends ArrayList<Object> implements WritableArray {
+
+    @Override public void pushNull() { add(null); }
+    @Override public void pushBoolean(boolean value) { add(value); }
+    @Override public void pushDouble(double value) { add(value); }
+    @Override public void pushInt(int value) { add((double) value); }
+    @Override public void pushString(String value) { add(value); }
+    @Override public void pushArray(WritableArray array) { add(array); }
+    @Override public void pushMap(WritableMap map) { add(map); }
+}
@@ -0,0 +1,20 @@
+package com.facebook.react.bridge;
+
+import java.util.HashMap;
+
+/**
+ * Same idea as React Native's JavaOnlyMap: plain Java storage, no JNI.
+ *
+ * On device Arguments.createMap() is a WritableNativeMap (a JNI call per
+ * put), so these numbers cover the Java side of the payload only.
+ */
+public class JavaOnlyMap extends HashMap<String, Object> implements WritableMap {
+
+    @Override public void putNull(String key) { put(key, null); }
+    @Override public void putBoolean(String key, boolean value) { put(key, value); }
+    @Override public void putDouble(String key, double value) { put(key, value); }
+    @Override public void putInt(String key, int value) { put(key, (double) value); }
+    @Override public void putString(String key, String value) { put(key, value); }
+    @Override public void putArray(String key, WritableArray value) { put(key, value); }
+    @Override public void putMap(String key, WritableMap value) { put(key, value); }
+}
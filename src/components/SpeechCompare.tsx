@@ -1,44 +1,10 @@
-import React, { useEffect, useMemo, useRef, useState } from "react";
+import React, { useEffect, useRef, useState } from "react";
 import { StyleSheet, Text, View, Button } from "react-native";
 import { Tvariant } from "../db/speechDb";
+import { AsrService } from "../speech/asr/AsrService";
 import { Fieldstyles } from "./SpeechTrainerPhrase";
 import LinearGradient from "react-native-linear-gradient";
 
-/**
- * Normalize text
- */
-function normalizeText(input: string): string {
-  if (!input) return "";
-  return input
-    .toLowerCase()
-    .replace(/[^\p{L}\p{N}\s]/gu, " ")
-    .replace(/\s+/g, " ")
-    .trim();
-}
-
-/**
- * Проверка по вариантам
- */
-function checkVariants(
-  etalonWord: string,
-  variants: Tvariant[],
-  casrr: string
-): boolean {
-  const entry = variants.find(
-    (v) => normalizeText(v.word) === normalizeText(etalonWord)
-  );
-
-  if (!entry) return false;
-
-  for (const tvElm of entry.variants) {
-    if (normalizeText(casrr).includes(normalizeText(tvElm))) {
-      return true;
-    }
-  }
-
-  return false;
-}
-
 /**
  * Props
  */
@@ -50,6 +16,10 @@ type Props = {
   onCurrentWord?: (word: string) => void;
 };
 
+/**
+ * Сопоставление идёт в Java (PhraseMatcher) прямо на потоке результатов;
+ * здесь только загрузка эталона и отображение событий совпадения.
+ */
 export default function SpeechCompare({
   etalon,
   asrText,
@@ -57,123 +27,97 @@ export default function SpeechCompare({
   onMatched,
   onCurrentWord,
 }: Props) {
-  const etalonWords = useMemo(() => {
-    return normalizeText(etalon).split(" ").filter(Boolean);
-  }, [etalon]);
+  const matchId = useRef(0);
+  const etalonWords = useRef<string[]>([]);
+  const matchedCount = useRef(0);
+
+  // колбэки родителя меняются на каждом рендере, подписка — одна
+  const onMatchedRef = useRef(onMatched);
+  const onCurrentWordRef = useRef(onCurrentWord);
+  onMatchedRef.current = onMatched;
+  onCurrentWordRef.current = onCurrentWord;
 
-  const currIndex = useRef(0);
+  const variantsRef = useRef(variants);
+  variantsRef.current = variants;
 
   const [asrResult, setAsrResult] = useState("");
   const [matchedWords, setMatchedWords] = useState<string[]>([]);
   const [status, setStatus] = useState("");
 
   // ============================================================
-  // Reset on new phrase
+  // Load on new phrase
   // ============================================================
   useEffect(() => {
-    currIndex.current = 0;
+    let cancelled = false;
+
+    // id известен до ответа Java: события, обогнавшие его, не теряются,
+    // события старой фразы отсекаются
+    const id = AsrService.newPhraseMatchId();
+    matchId.current = id;
+    etalonWords.current = [];
+    matchedCount.current = 0;
     setMatchedWords([]);
     setStatus("");
 
-    // сообщаем первое слово
-    if (etalonWords.length > 0 && onCurrentWord) {
-      onCurrentWord(etalonWords[0]);
-    }
-  }, [etalon]);
-
-
-  useEffect(() => {
-    if (!asrText) return;
-    setAsrResult(asrText);
-    processCASRR(asrText);
-  }, [asrText]);
+    AsrService.loadPhraseMatch(id, etalon, variantsRef.current)
+      .then(({ words }) => {
+        if (cancelled) return;
 
+        etalonWords.current = words;
 
-  /**
-   * Mark word matched
-   */
-  function markWordMatched(word: string) {
-    setMatchedWords((prev) => [...prev, word]);
-    currIndex.current++;
+        // сообщаем текущее слово (первое, если ничего ещё не совпало)
+        const current = words[matchedCount.current];
+        if (current) onCurrentWordRef.current?.(current);
+      })
+      .catch((e) => console.warn("loadPhraseMatch failed", e));
 
-    // ✅ Фраза полностью завершена?
-    if (currIndex.current >= etalonWords.length) {
-      setStatus("Ответ засчитан");
-      onMatched();
-      return;
-    }
+    return () => {
+      cancelled = true;
+    };
+  }, [etalon]);
 
-    // сообщаем новое текущее слово
-    const nextWord = etalonWords[currIndex.current];
-    if (nextWord && onCurrentWord) {
-      onCurrentWord(nextWord);
-    }
-  }
-
-
-  /**
-   * CASRR обработка
-   */
-  function processCASRR(casrr: string) {
-    const CASRRWords = normalizeText(casrr)
-      .split(" ")
-      .filter(Boolean);
-
-    let etalonWord = etalonWords[currIndex.current];
-    if (!etalonWord) return;
-
-    // ============================================================
-    // 1) Шум: ничего нет
-    // ============================================================
-    if (CASRRWords.length === 0) {
-      if (checkVariants(etalonWord, variants, casrr)) {
-        markWordMatched(etalonWord);
-      }
+  // варианты догружаются / меняются посреди фразы
+  const variantsLoaded = useRef(false);
+  useEffect(() => {
+    if (!variantsLoaded.current) {
+      variantsLoaded.current = true;
       return;
     }
+    AsrService.setPhraseMatchVariants(variants).catch(() => {});
+  }, [variants]);
 
-    // ============================================================
-    // 1.2 Ищем совпадение текущего эталонного слова
-    // ============================================================
-    const foundIndex = CASRRWords.findIndex((w) => w === etalonWord);
-
-    if (foundIndex === -1) {
-      // ============================================================
-      // 2) Проверка по вариантам
-      // ============================================================
-      if (checkVariants(etalonWord, variants, casrr)) {
-        markWordMatched(etalonWord);
-      }
-      return;
-    }
+  useEffect(() => {
+    const unsubscribe = AsrService.subscribePhraseMatch({
+      onWord: (evt) => {
+        if (evt.matchId !== matchId.current) return;
 
-    // ============================================================
-    // 3) Сравнение следующих слов
-    // ============================================================
-    let i = foundIndex;
+        matchedCount.current = evt.index + 1;
+        setMatchedWords((prev) => [...prev, evt.word]);
 
-    while (i < CASRRWords.length) {
-      etalonWord = etalonWords[currIndex.current];
-      if (!etalonWord) break;
+        // сообщаем новое текущее слово
+        const nextWord = etalonWords.current[evt.index + 1];
+        if (nextWord) onCurrentWordRef.current?.(nextWord);
+      },
+      onComplete: (evt) => {
+        if (evt.matchId !== matchId.current) return;
 
-      const spoken = CASRRWords[i];
+        // ✅ Фраза полностью завершена
+        setStatus("Ответ засчитан");
+        onMatchedRef.current();
+      },
+    });
 
-      if (spoken === etalonWord) {
-        markWordMatched(etalonWord);
-        i++;
-        continue;
-      }
+    return () => {
+      unsubscribe();
+      AsrService.clearPhraseMatch().catch(() => {});
+    };
+  }, []);
 
-      // ============================================================
-      // 4) fallback: variants
-      // ============================================================
-      if (checkVariants(etalonWord, variants, casrr)) {
-        markWordMatched(etalonWord);
-      }
 
-      break;
-    }
-  }
+  useEffect(() => {
+    if (!asrText) return;
+    setAsrResult(asrText);
+  }, [asrText]);
 
   // ============================================================
   // Render
@@ -1,4 +1,4 @@
-import React, { useEffect, useMemo, useState, useContext } from "react";
+import React, { useEffect, useMemo, useRef, useState, useContext } from "react";
 import {
   View,
   Text,
@@ -15,11 +15,16 @@ import { speakAndListen } from "../speech/flow/speechOrchestrator";
 import { TtsService } from "../speech/tts/TtsService";
 import { AsrService } from "../speech/asr/AsrService";
 import { AsrResultEvent } from "../speech/asr/types";
+import { buildPhraseGrammar } from "../speech/asr/grammar";
+import {
+  findSubstitution,
+  mergeVariants,
+  VariantProposals,
+} from "../speech/asr/nbestVariants";
 
 import {
   initSpeechDb,
   seedSpeechDbIfEmpty,
-  loadAllPhrases,
   SpItem,
   Tvariant,
   toReverse,
@@ -31,10 +36,22 @@ import {
 import { AnchoredOverlay } from "./AnchoredOverlay";
 import { VariantPicker } from "./VariantPicker";
 import Toolbar from "./Toolbar";
-import { pickNextPhraseIndex } from "./phraseSelection";
+import { PhraseScheduler } from "./phraseScheduler";
 import { Appbar } from "react-native-paper";
 import { AppContext } from "../../App";
 
+const CORRECT_PROMPT = "Correct!";
+// prompts synthesized ahead (besides CORRECT_PROMPT)
+const TTS_PREFETCH_COUNT = 4;
+// n-best hypotheses per final, best match for the answer wins (0 = off)
+const NBEST_ALTERNATIVES = 3;
+// rescued substitution seen this often → saved as a variant of the word
+const NBEST_VARIANT_MIN_HITS = 2;
+// picks of a deleted phrase before the deck is reloaded
+const PICK_ATTEMPTS = 3;
+
+const variantProposals = new VariantProposals(NBEST_VARIANT_MIN_HITS);
+
 /**
  * Normalize ASR text
  */
@@ -135,11 +152,17 @@ export default function SpeechTrainerPhrase() {
   // ============================================================
   // Core trainer state
   // ============================================================
-  const [items, setItems] = useState<SpItem[]>([]);
+  // the deck lives in Java (PhraseScheduler.loadDeck): JS only holds the
+  // phrase on screen and the likely next ones (fetched for TTS prefetch)
+  const [rawItem, setRawItem] = useState<SpItem | null>(null);
   const [phraseIndex, setPhraseIndex] = useState(0);
+  const upcoming = useRef<Map<number, SpItem>>(new Map());
   const [phase, setPhase] = useState<"speaking" | "listening">("speaking");
   const [ttsInitialized, setTtsInitialized] = useState(false);
   const [reverseMode] = useState(false);
+  // распознавать только ожидаемый ответ (+ варианты), без открытого словаря
+  const [grammarMode] = useState(false);
+  const [nBestAlternatives] = useState(NBEST_ALTERNATIVES);
   // ============================================================
   // ASR integration (SINGLE SOURCE)
   // ============================================================
@@ -150,13 +173,11 @@ export default function SpeechTrainerPhrase() {
   // ============================================================
   const [currentWord, setCurrentWord] = useState("");
   const [listeningStartedAt, setListeningStartedAt] = useState<number | null>(null);
-  const [recentHistory, setRecentHistory] = useState<string[]>([]);
 
   // ============================================================
   // Current phrase
   // ============================================================
-  const hasData = items.length > 0;
-  const rawItem = hasData ? items[phraseIndex] : null;
+  const hasData = rawItem !== null;
   const currentItem = useMemo(() => {
     if (!rawItem) return null;
     return reverseMode ? toReverse(rawItem) : rawItem;
@@ -165,6 +186,31 @@ export default function SpeechTrainerPhrase() {
   const currentAnswer = currentItem?.a ?? "";
   const perAnswerVariants: Tvariant[] = rawItem?.variants ?? [];
 
+  // ============================================================
+  // Next phrase
+  // ============================================================
+  // a phrase deleted behind the deck (cloud sync, debug commands) reads
+  // back as null: pick again, then reload the deck from SQLite
+  async function pickPhrase(): Promise<[number, SpItem] | null> {
+    for (let attempt = 0; attempt <= PICK_ATTEMPTS; attempt++) {
+      if (attempt === PICK_ATTEMPTS) {
+        upcoming.current = new Map();   // indices of the old deck
+        const count = await PhraseScheduler.loadDeck(null, reverseMode);
+        if (count === 0) return null;
+      }
+
+      const index = Math.max(0, await PhraseScheduler.pickNext());
+
+      // the current phrase is never in upcoming: fetched again with new stats
+      const item =
+        upcoming.current.get(index) ??
+        (await PhraseScheduler.phrasesAt([index]))[0];
+
+      if (item) return [index, item];
+    }
+    return null;
+  }
+
   // ============================================================
   // Load DB
   // ============================================================
@@ -175,24 +221,17 @@ export default function SpeechTrainerPhrase() {
       await initSpeechDb();
       await seedSpeechDbIfEmpty();
 
-      const data = await loadAllPhrases();
-      if (data.length === 0) {
-        setItems(data);
-        setPhraseIndex(0);
-        setRecentHistory([]);
-        return;
-      }
+      // uid + counters only, straight into the sampler
+      const count = await PhraseScheduler.loadDeck(null, reverseMode);
+      console.log(`📦 ${count} phrases in deck`);
 
-      const initialIndex = pickNextPhraseIndex(
-        data,
-        "__initial__",
-        reverseMode,
-        []
-      );
+      if (count === 0) return;
+
+      const first = await pickPhrase();
+      if (!first) return;
 
-      setItems(data);
-      setPhraseIndex(initialIndex);
-      setRecentHistory([data[initialIndex].uid]);
+      setRawItem(first[1]);
+      setPhraseIndex(first[0]);
     }
 
     load();
@@ -212,6 +251,15 @@ export default function SpeechTrainerPhrase() {
     };
   }, []);
 
+  // ============================================================
+  // N-best decoding
+  // ============================================================
+  useEffect(() => {
+    AsrService.setNBest(nBestAlternatives).catch((e) =>
+      console.warn("setNBest failed", e)
+    );
+  }, [nBestAlternatives]);
+
   // ============================================================
   // ASR subscription (THE ONLY ONE)
   // ============================================================
@@ -219,6 +267,19 @@ export default function SpeechTrainerPhrase() {
     return AsrService.subscribeResults((evt) => {
       setLastAsrResult(evt);
 
+      // Rescued n-best final: the word the learner says differently
+      if (evt.type === "final" && rawItem) {
+        const expectedWords = normalizeText(currentAnswer).split(" ").filter(Boolean);
+        const sub = findSubstitution(evt, expectedWords);
+
+        if (sub && variantProposals.add(rawItem.uid, sub)) {
+          console.log(`🧩 Variant learned: ${sub.word} ~ ${sub.heard}`);
+          saveVariants(sub.word, [sub.heard]).catch((e) =>
+            console.warn("saveVariants failed", e)
+          );
+        }
+      }
+
       // Collect partials into variant buffer
       if (evt.type === "partial" && phase === "listening") {
         const norm = normalizeText(evt.text);
@@ -237,7 +298,7 @@ export default function SpeechTrainerPhrase() {
         });
       }
     });
-  }, [phase]);
+  }, [phase, rawItem]);
 
   // ============================================================
   // Reset variant buffer on new phrase
@@ -247,6 +308,56 @@ export default function SpeechTrainerPhrase() {
     setLastAsrResult(null);
   }, [phraseIndex]);
 
+  // ============================================================
+  // Phrase on screen → scheduler history (recency of the next pick)
+  // ============================================================
+  useEffect(() => {
+    if (!rawItem) return;
+
+    PhraseScheduler.visit(rawItem.uid).catch((e) =>
+      console.warn("PhraseScheduler.visit failed", e)
+    );
+  }, [phraseIndex, hasData]);
+
+  // ============================================================
+  // Phrase on screen → session recording index (no-op when disabled)
+  // ============================================================
+  useEffect(() => {
+    if (!rawItem) return;
+
+    AsrService.setRecordingPhrase(rawItem.uid).catch((e) =>
+      console.warn("setRecordingPhrase failed", e)
+    );
+  }, [phraseIndex, hasData]);
+
+  // ============================================================
+  // TTS prefetch: feedback + prompts that will most likely come next
+  // ============================================================
+  useEffect(() => {
+    if (!ttsInitialized || !rawItem) return;
+
+    async function prefetch() {
+      // queued after visit() above: native module calls run in order
+      const likely = await PhraseScheduler.getLikelyNext(TTS_PREFETCH_COUNT);
+      const rows = await PhraseScheduler.phrasesAt(likely);
+
+      // kept until the next pick: it is usually one of these
+      const next = new Map<number, SpItem>();
+      rows.forEach((it, k) => {
+        if (it) next.set(likely[k], it);
+      });
+      upcoming.current = next;
+
+      const prompts = Array.from(next.values()).map((it) =>
+        reverseMode ? toReverse(it).q : it.q
+      );
+
+      await TtsService.prefetch([CORRECT_PROMPT, ...prompts]);
+    }
+
+    prefetch().catch((e) => console.warn("TTS prefetch failed", e));
+  }, [phraseIndex, ttsInitialized, hasData]);
+
   // ============================================================
   // Trainer loop
   // ============================================================
@@ -258,7 +369,15 @@ export default function SpeechTrainerPhrase() {
 
     async function runStep() {
       setPhase("speaking");
-      await speakAndListen(currentQuestion, "vosk-en");
+      const grammar =
+        grammarMode && rawItem
+          ? buildPhraseGrammar(
+              `${rawItem.uid}:${reverseMode ? "r" : "f"}`,
+              currentAnswer,
+              perAnswerVariants
+            )
+          : undefined;
+      await speakAndListen(currentQuestion, "vosk-en", grammar);
       if (cancelled) return;
       setListeningStartedAt(Date.now());
       setPhase("listening");
@@ -299,68 +418,47 @@ export default function SpeechTrainerPhrase() {
 
     await saveResultToPhrase(rawItem.uid, resultToPersist);
 
-    const updatedItems = items.map((it) =>
-      it.uid === rawItem.uid
-        ? { ...it, ...patch }
-        : it
-    );
+    const updatedItem = { ...rawItem, ...patch };
 
-    setItems(updatedItems);
+    setRawItem(updatedItem);
+    await PhraseScheduler.update(updatedItem);
 
     console.log("✅ Phrase complete!");
-    const id = await TtsService.speak("Correct!");
+    const id = await TtsService.speak(CORRECT_PROMPT);
     await TtsService.waitFinish(id);
 
-    const historyLimit = Math.max(3, Math.min(8, Math.floor(updatedItems.length / 2)));
-    const nextHistory = [...recentHistory, rawItem.uid].slice(-historyLimit);
-    const nextIndex = pickNextPhraseIndex(
-      updatedItems,
-      rawItem.uid,
-      reverseMode,
-      nextHistory
-    );
+    const next = await pickPhrase();
 
-    setRecentHistory(nextHistory);
     setListeningStartedAt(null);
-    setPhraseIndex(nextIndex);
+
+    // the deck is empty now: nothing left to train
+    if (!next) {
+      setRawItem(null);
+      return;
+    }
+
+    setRawItem(next[1]);
+    setPhraseIndex(next[0]);
   }
 
   async function handleSaveVariants(selected: string[]) {
-    if (!rawItem || !currentWord) return;
-
-    const prev = rawItem.variants ?? [];
-    let updated: Tvariant[];
-
-    const existing = prev.find((v) => v.word === currentWord);
-
-    if (existing) {
-      updated = prev.map((v) =>
-        v.word === currentWord
-          ? {
-            ...v,
-            variants: Array.from(
-              new Set([...v.variants, ...selected])
-            ),
-          }
-          : v
-      );
-    } else {
-      updated = [
-        ...prev,
-        { word: currentWord, variants: selected },
-      ];
-    }
+    if (!currentWord) return;
+    await saveVariants(currentWord, selected);
+  }
+
+  async function saveVariants(word: string, selected: string[]) {
+    if (!rawItem) return;
+
+    const updated = mergeVariants(rawItem.variants ?? [], word, selected);
 
     // 1️⃣ DB
     await saveVariantsToPhrase(rawItem.uid, updated);
 
     // 2️⃣ React state (немедленно)
-    setItems((prevItems) =>
-      prevItems.map((it) =>
-        it.uid === rawItem.uid
-          ? { ...it, variants: updated }
-          : it
-      )
+    setRawItem((prev) =>
+      prev && prev.uid === rawItem.uid
+        ? { ...prev, variants: updated }
+        : prev
     );
   }
 
@@ -454,11 +552,8 @@ export default function SpeechTrainerPhrase() {
       <View style={styles.bottomSection}>
         <TouchableOpacity onPress={() => {
           if (!currentWord) return;
-          setLastAsrResult({
-            engine: "vosk-en",
-            type: "final",
-            text: currentWord
-          });
+          // засчитываем текущее слово в PhraseMatcher, событие придёт как обычно
+          AsrService.skipPhraseWord().catch(() => {});
         }} style={{ position: "absolute", left: 20 }}>
           <Image
             style={{ width: 150 }}
@@ -0,0 +1,91 @@
+import { NativeModules } from "react-native";
+import { fromNativeRows, SpItem } from "../db/speechDb";
+import { StageLatency } from "../speech/asr/types";
+
+const { PhraseScheduler: NativeScheduler } = NativeModules;
+
+export type PhraseSamplerStats = {
+  phrases: number;
+  picks: number;
+  updates: number;
+  historySize: number;
+  pickLatency: StageLatency; // только выбор в Java, без моста
+};
+
+/**
+ * Выбор следующей фразы в Java (PhraseSampler): веса те же, что
+ * в phraseSelection.ts, но выбор и обновление после ответа — O(log n),
+ * без пересчёта всей колоды на JS-потоке.
+ *
+ * Индексы — позиции в колоде: в массиве, переданном в load(), или в
+ * порядке (topic, uid) после loadDeck().
+ */
+class PhraseSchedulerImpl {
+  /**
+   * Колода прямо из SQLite в Java (только uid + счётчики, через мост
+   * ничего не идёт); topic null — все темы. История сбрасывается.
+   * Индексы — порядок (topic, uid), фразы по ним — phrasesAt().
+   */
+  async loadDeck(topic: string | null, reverseMode: boolean): Promise<number> {
+    return await NativeScheduler.loadPhraseDeck(topic, reverseMode);
+  }
+
+  /** Полные строки фраз по индексам (null — индекса / фразы уже нет) */
+  async phrasesAt(indices: number[]): Promise<(SpItem | null)[]> {
+    if (indices.length === 0) return [];
+    return fromNativeRows(await NativeScheduler.getPhrasesAt(indices));
+  }
+
+  /** Колода целиком; история показов сбрасывается */
+  async load(items: SpItem[], reverseMode: boolean): Promise<number> {
+    const deck = items.map((it) => ({
+      uid: it.uid,
+      cntf: it.cntf ?? 0,
+      dwf: it.dwf ?? 0,
+      cntr: it.cntr ?? 0,
+      dwr: it.dwr ?? 0,
+    }));
+
+    return await NativeScheduler.loadPhraseSampler(deck, reverseMode);
+  }
+
+  /** Ответ на фразу: пересчитывается только её вес */
+  async update(item: SpItem): Promise<boolean> {
+    return await NativeScheduler.updatePhraseSampler({
+      uid: item.uid,
+      cntf: item.cntf ?? 0,
+      dwf: item.dwf ?? 0,
+      cntr: item.cntr ?? 0,
+      dwr: item.dwr ?? 0,
+    });
+  }
+
+  async setReverseMode(reverseMode: boolean) {
+    await NativeScheduler.setPhraseSamplerReverseMode(reverseMode);
+  }
+
+  /** Фраза показана — становится текущей (история давности) */
+  async visit(uid: string) {
+    await NativeScheduler.visitPhrase(uid);
+  }
+
+  /** Индекс следующей фразы (-1 — колода пуста) */
+  async pickNext(): Promise<number> {
+    return await NativeScheduler.pickNextPhrase();
+  }
+
+  /** Самые вероятные следующие (для TTS prefetch), кроме текущей */
+  async getLikelyNext(count: number): Promise<number[]> {
+    return await NativeScheduler.getLikelyNextPhrases(count);
+  }
+
+  async getStats(): Promise<PhraseSamplerStats> {
+    return await NativeScheduler.getPhraseSamplerStats();
+  }
+
+  async resetStats() {
+    await NativeScheduler.resetPhraseSamplerStats();
+  }
+}
+
+export const PhraseScheduler = new PhraseSchedulerImpl();
@@ -1,5 +1,8 @@
 import { SpItem } from "../db/speechDb";
 
+// Эталон весов: в приложении выбор идёт в Java (PhraseSampler, тот же
+// расчёт за O(log n), проверен PhraseSamplerTest); здесь — только формула.
+
 const TARGET_WORD_DURATION_MS = 2500;
 
 function clamp(value: number, min = 0, max = 1): number {
@@ -31,15 +34,13 @@ function getRecencyFactor(uid: string, recentHistory: string[]): number {
   return 0.8;
 }
 
-export function pickNextPhraseIndex(
+function getSelectionWeights(
   allItems: SpItem[],
   currentUid: string,
   reverseMode: boolean,
   recentHistory: string[]
-): number {
-  if (allItems.length <= 1) return 0;
-
-  const weighted = allItems.map((item, index) => {
+) {
+  return allItems.map((item, index) => {
     const weakness = getWeaknessScore(item, reverseMode);
     const recencyFactor = getRecencyFactor(item.uid, recentHistory);
     const sameAsCurrentFactor = item.uid === currentUid ? 0.01 : 1;
@@ -49,6 +50,26 @@ export function pickNextPhraseIndex(
       weight: weakness * recencyFactor * sameAsCurrentFactor,
     };
   });
+}
+
+/**
+ * @deprecated Приложение выбирает фразу через PhraseScheduler (Java).
+ * Остаётся эталоном выбора для __tests__/phraseSelection.test.ts.
+ */
+export function pickNextPhraseIndex(
+  allItems: SpItem[],
+  currentUid: string,
+  reverseMode: boolean,
+  recentHistory: string[]
+): number {
+  if (allItems.length <= 1) return 0;
+
+  const weighted = getSelectionWeights(
+    allItems,
+    currentUid,
+    reverseMode,
+    recentHistory
+  );
 
   const total = weighted.reduce((sum, x) => sum + x.weight, 0);
   if (total <= 0) {
@@ -1,4 +1,8 @@
+import { NativeModules } from "react-native";
 import SQLite, { SQLiteDatabase } from "react-native-sqlite-storage";
+import { StageLatency } from "../speech/asr/types";
+
+const { PhraseStore } = NativeModules;
 
 SQLite.enablePromise(true);
 
@@ -91,6 +95,11 @@ export async function initSpeechDb() {
     );
   `);
 
+  // paged / per-topic reads in Java (PhraseRepository) go by (topic, uid)
+  await db.executeSql(`
+    CREATE INDEX IF NOT EXISTS phrases_topic_uid ON phrases(topic, uid);
+  `);
+
   await db.executeSql(`
     CREATE TABLE IF NOT EXISTS appSettings (
       settings TEXT DEFAULT NULL
@@ -100,11 +109,15 @@ export async function initSpeechDb() {
 
 
 /**
- * Load all phrases
+ * Load all phrases (export / sync). The trainer itself reads the deck
+ * through PhraseScheduler.loadDeck() and fetches shown phrases by index.
  */
 export async function loadAllPhrases(): Promise<SpItem[]> {
   const db = await openSpeechDb();
 
+  // results may still be buffered in Java (saveResultToPhrase)
+  await flushPhraseResults();
+
   const res = await db.executeSql(`SELECT * FROM phrases ORDER BY topic;`);
 
   const rows = res[0].rows;
@@ -124,6 +137,76 @@ export async function loadAllPhrases(): Promise<SpItem[]> {
   return items;
 }
 
+// ============================================================
+// Paged reads (Java PhraseRepository)
+// ============================================================
+
+export type PhraseColumn = keyof SpItem;
+
+/** Keyset cursor: the last row of the previous page */
+export type PhraseCursor = { topic: string; uid: string };
+
+export type PhrasePage = {
+  items: SpItem[]; // only the requested columns (+ uid, topic)
+  next: PhraseCursor | null;
+};
+
+export type PhraseTopic = { topic: string; count: number };
+
+export type PhrasePageQuery = {
+  topic?: string;
+  after?: PhraseCursor | null;
+  limit?: number; // default 50, max 500
+  columns?: PhraseColumn[]; // default: all
+};
+
+/**
+ * Native rows keep variants as the raw column; it is parsed only here,
+ * i.e. only for rows a caller actually asked variants for.
+ */
+function fromNativeRow(row: any): SpItem {
+  if (typeof row.variants !== "string") return row;
+
+  let variants: Tvariant[] = [];
+  try {
+    variants = JSON.parse(row.variants);
+  } catch (e) {
+    console.warn(`Bad variants JSON for ${row.uid}`, e);
+  }
+  return { ...row, variants };
+}
+
+export function fromNativeRows(rows: any[]): (SpItem | null)[] {
+  return rows.map((r) => (r ? fromNativeRow(r) : null));
+}
+
+/**
+ * One page in (topic, uid) order, without loading the rest of the deck.
+ */
+export async function loadPhrasePage(
+  query: PhrasePageQuery = {}
+): Promise<PhrasePage> {
+  const res = await PhraseStore.queryPhrasePage(query);
+
+  return {
+    items: fromNativeRows(res.rows) as SpItem[],
+    next: res.next ?? null,
+  };
+}
+
+/**
+ * Full rows of a few phrases, in order (null — no such uid).
+ */
+export async function loadPhrasesByUid(
+  uids: string[]
+): Promise<(SpItem | null)[]> {
+  return fromNativeRows(await PhraseStore.getPhrases(uids));
+}
+
+export async function listTopics(): Promise<PhraseTopic[]> {
+  return await PhraseStore.getPhraseTopics();
+}
+
 /**
  * Save variants into DB
  */
@@ -140,30 +223,65 @@ export async function saveVariantsToPhrase(
 }
 
 /**
- * Save learning result into DB
+ * Save learning result into DB.
+ * Write-behind: Java buffers the row (a newer result for the same uid
+ * replaces the pending one) and commits batches in one transaction.
+ * Resolves once buffered, not once on disk — see flushPhraseResults().
  */
 export async function saveResultToPhrase(
   uid: string,
   result: SpItemResult
 ) {
-  const db = await openSpeechDb();
+  await PhraseStore.queuePhraseResult(uid, {
+    cntf: result.cntf ?? 0,
+    cntr: result.cntr ?? 0,
+    df: result.df ?? 0,
+    dr: result.dr ?? 0,
+    dwf: result.dwf ?? 0,
+    dwr: result.dwr ?? 0,
+    tsf: result.tsf ?? null,
+    tsr: result.tsr ?? null,
+  });
+}
 
-  await db.executeSql(
-    `UPDATE phrases
-      SET cntf=?, cntr=?, df=?, dr=?, dwf=?, dwr=?, tsf=?, tsr=?
-      WHERE uid=?`,
-    [
-      result.cntf ?? 0,
-      result.cntr ?? 0,
-      result.df ?? 0,
-      result.dr ?? 0,
-      result.dwf ?? 0,
-      result.dwr ?? 0,
-      result.tsf ?? null,
-      result.tsr ?? null,
-      uid,
-    ]
-  );
+export type PhraseResultWriterStats = {
+  pending: number; // в буфере, ещё не записано
+  queued: number;
+  coalesced: number; // заменены более свежим результатом той же фразы
+  flushes: number;
+  rowsWritten: number;
+  rowsMissing: number; // uid уже нет в таблице
+  failures: number;
+  lastBatch: number;
+  maxBatch: number;
+  meanBatch: number;
+  flushLatency: StageLatency; // одна транзакция целиком
+};
+
+/**
+ * Commit everything buffered so far (before reading / altering phrases).
+ */
+export async function flushPhraseResults(): Promise<void> {
+  await PhraseStore.flushPhraseResults();
+}
+
+/**
+ * Flush after maxBatch phrases or flushDelayMs after the first pending one
+ * (defaults 32 / 2000).
+ */
+export async function setPhraseResultWriteBehind(
+  maxBatch: number,
+  flushDelayMs: number
+): Promise<void> {
+  await PhraseStore.setPhraseResultWriteBehind(maxBatch, flushDelayMs);
+}
+
+export async function getPhraseResultWriterStats(): Promise<PhraseResultWriterStats> {
+  return await PhraseStore.getPhraseResultWriterStats();
+}
+
+export async function resetPhraseResultWriterStats(): Promise<void> {
+  await PhraseStore.resetPhraseResultWriterStats();
 }
 
 /**
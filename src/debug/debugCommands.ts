@@ -3,14 +3,18 @@ import {
   seedSpeechDbIfEmpty,
   loadAllPhrases,
   openSpeechDb,
+  flushPhraseResults,
   generatePseudoUniqueId,
   SpItem
 } from "../db/speechDb";
 import { AsrService } from "../speech/asr/AsrService";
+import { NativeModules } from "react-native";
+import SQLite from "react-native-sqlite-storage";
 import {dataRows} from "./testPhraseData";
 
 export async function dropPhrasesTable() {
   const db = await openSpeechDb();
+  await flushPhraseResults();
 
   await db.executeSql("DROP TABLE IF EXISTS phrases;");
 
@@ -19,6 +23,7 @@ export async function dropPhrasesTable() {
 
 export async function clearDb() {
   const db = await openSpeechDb();
+  await flushPhraseResults();
   await db.executeSql("DELETE FROM phrases;");
   console.log("🧹 Database cleared");
 }
@@ -40,6 +45,7 @@ export async function reseedDb() {
 export async function listAllRows(): Promise<void> {
   console.log("listAllRows");  
   const db = await openSpeechDb();
+  await flushPhraseResults();
   console.log("listAllRows1");  
 
   const res = await db.executeSql(`SELECT * FROM phrases ORDER BY topic;`);
@@ -65,3 +71,50 @@ export async function asrshutdown(){
   await AsrService.shutdownAllEngines();
 }
 
+
+/**
+ * Startup cost of loading a deck of `rows` phrases, old path vs new, on
+ * a synthetic deck (its own file, the real DB is not touched):
+ *  - old: SELECT * over the bridge + JSON.parse of every variants column
+ *  - new: uid + counters straight into the Java sampler, one phrase to JS
+ * Heap numbers are deltas without a forced GC — rough, compare orders.
+ */
+export async function measurePhraseLoading(rows: number) {
+  const jsHeap = (): number =>
+    (global as any).HermesInternal?.getInstrumentedStats?.().js_heapSize ?? NaN;
+
+  const java = await NativeModules.PhraseStore.measurePhraseDeck(rows);
+
+  // new path as seen from JS: one round trip, one row back
+  let h0 = jsHeap();
+  let t0 = Date.now();
+  await NativeModules.PhraseStore.measurePhraseDeck(rows);
+  const newMs = Date.now() - t0;
+  const newHeap = jsHeap() - h0;
+
+  const db = await SQLite.openDatabase({ name: java.file, location: "default" });
+
+  h0 = jsHeap();
+  t0 = Date.now();
+  const res = await db.executeSql(`SELECT * FROM phrases ORDER BY topic;`);
+  const all: SpItem[] = [];
+  for (let i = 0; i < res[0].rows.length; i++) {
+    const row = res[0].rows.item(i);
+    all.push({ ...row, variants: row.variants ? JSON.parse(row.variants) : [] });
+  }
+  const oldMs = Date.now() - t0;
+  const oldHeap = jsHeap() - h0;
+
+  await db.close();
+
+  console.log(
+    `📏 ${all.length} phrases (seed ${java.seedMs.toFixed(0)} ms)\n` +
+      `  old: ${oldMs} ms, JS heap +${(oldHeap / 1024).toFixed(0)} KiB\n` +
+      `  new: ${newMs} ms round trip` +
+      ` (deck ${java.deckMs.toFixed(1)} + sampler ${java.samplerMs.toFixed(1)}` +
+      ` + first phrase ${java.firstPhraseMs.toFixed(1)} ms),` +
+      ` JS heap +${(newHeap / 1024).toFixed(0)} KiB,` +
+      ` Java heap +${(java.javaHeapBytes / 1024).toFixed(0)} KiB\n` +
+      `  first page of 50: ${java.pageMs.toFixed(1)} ms`
+  );
+}
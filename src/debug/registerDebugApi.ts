@@ -1,5 +1,5 @@
-import { SendDatabaseToCloud_test } from "../helpers/webApiWrapper";
-import { clearDb, reseedDb, listAllRows, asrinit, asrshutdown } from "./debugCommands";
+import { SyncWithCloud, getCloudSyncStats } from "../helpers/webApiWrapper";
+import { clearDb, reseedDb, listAllRows, asrinit, asrshutdown, measurePhraseLoading } from "./debugCommands";
 
 export const testReg = ()=>{
     console.log("blablabla");
@@ -16,7 +16,9 @@ export function registerDebugApi() {
     testReg,
     asrinit,
     asrshutdown,
-    SendDatabaseToCloud_test
+    measurePhraseLoading,
+    SyncWithCloud,
+    getCloudSyncStats
   };
 
   console.log("✅ Debug API registered: globalThis.dbg");
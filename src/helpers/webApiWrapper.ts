@@ -1,4 +1,8 @@
+import { NativeModules } from "react-native";
 import { loadAllPhrases, SpItem } from "../db/speechDb";
+import { StageLatency } from "../speech/asr/types";
+
+const { CloudSync } = NativeModules;
 
 const API_URL = "https://script.google.com/macros/s/AKfycbwS8blQc2ycTE2m4bLFKFmlEbHBmTRlWTXPWcvZCwcMOBobTFjG6ERxDtlolrw6Nrv3Cg/exec";
 
@@ -37,3 +41,53 @@ export async function ReceiveAllRowsFromCloud() {
   });
   return response;
 }
+
+export type CloudSyncResult = {
+  pushedRows: number; // изменённые фразы, отправленные на сервер
+  pushBatches: number;
+  pulledRows: number; // строки сервера новее водяного знака
+  pullPages: number;
+  appliedRows: number;
+  bytesSent: number;
+  bytesReceived: number;
+  durationMs: number;
+};
+
+export type CloudSyncStats = {
+  pendingChanges: number; // фразы, изменённые после последней принятой пачки
+  syncs?: number;
+  failures?: number;
+  pushedRows?: number;
+  pulledRows?: number;
+  appliedRows?: number;
+  syncLatency?: StageLatency;
+};
+
+/**
+ * Sync in Java, in place of SendDatabaseToCloud(all rows) +
+ * ReceiveAllRowsFromCloud(). By default it keeps their contract (whole
+ * table up, only when something changed; whole table down).
+ * compress: payload as base64(gzip) inside the JSON envelope (encoding:
+ *   "gzip"), not HTTP Content-Encoding — only for a server that reads it.
+ * delta: only changed phrases up (in batches), only rows newer than the
+ *   watermark down — only for a server that upserts by Uid, stamps Ts and
+ *   keeps Deleted tombstones.
+ */
+export async function SyncWithCloud(
+  batchRows = 200,
+  compress = false,
+  delta = false
+): Promise<CloudSyncResult> {
+  await CloudSync.configureCloudSync({ url: API_URL, batchRows, compress, delta });
+  const result: CloudSyncResult = await CloudSync.syncPhrases();
+  console.log(result);
+  return result;
+}
+
+export async function getCloudSyncStats(): Promise<CloudSyncStats> {
+  return await CloudSync.getCloudSyncStats();
+}
+
+export async function resetCloudSyncStats(): Promise<void> {
+  await CloudSync.resetCloudSyncStats();
+}
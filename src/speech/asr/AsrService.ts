@@ -1,15 +1,54 @@
 import { NativeModules, DeviceEventEmitter } from "react-native";
 import { SupportedEngines } from "./engines";
-import { AsrEngineId, AsrResultEvent, AsrSessionConfig } from "./types";
+import { stripUnknown, UNK } from "./grammar";
+import {
+  ArbitrationPolicy,
+  ArbitrationStats,
+  AsrEngineId,
+  AsrResultEvent,
+  AsrSessionConfig,
+  AudioBufferStats,
+  AudioOverflowPolicy,
+  AudioRecorderConfig,
+  AudioRecorderStats,
+  CaptureStats,
+  EngineReadiness,
+  GrammarStats,
+  ModelCacheStats,
+  ModelInstallProgress,
+  ModelInstallReport,
+  NBestStats,
+  PhraseCompleteEvent,
+  PhraseMatchLoad,
+  PhraseMatchStats,
+  PhraseVariant,
+  PhraseWordMatchedEvent,
+  PipelineMetrics,
+  RecordedUtterance,
+  ReplayMode,
+  ReplayReport,
+  ResultDispatchStats,
+  TtsGatingStats,
+  VadEvent,
+  VadStats,
+} from "./types";
 import { ensureAudioPermission } from "../permissions/audioPermission";
 
 const { RnJavaConnector } = NativeModules;
 
+/**
+ * То, что приходит из RnJavaConnectorModule (уже объект, без JSON)
+ */
+type NativeAsrResult = Omit<AsrResultEvent, "engine"> & {
+  engine?: AsrEngineId; // распознаватель, выдавший результат
+};
+
 /**
  * Центральный сервис управления ASR.
  */
 class AsrServiceImpl {
   private activeEngine: AsrEngineId | null = null;
+  private phraseMatchId = 0;
 
   /**
    * Инициализация всех движков при старте приложения.
@@ -17,16 +56,39 @@ class AsrServiceImpl {
   async initAllEngines() {
     console.log("🚀 Initializing ASR engines...");
 
-    await RnJavaConnector.init();
+    // install + load уже идут в фоне с MainApplication.onCreate(),
+    // здесь только дожидаемся готовности каждого движка
+    for (const engineId of SupportedEngines) {
+      const modelPath = await RnJavaConnector.awaitEngineReady(engineId);
+      console.log("📦 ASR engine ready:", engineId, modelPath);
+    }
 
-    const modelPath = await RnJavaConnector.prepareModel();
-    console.log("📦 Vosk model installed:", modelPath);
+    const report: ModelInstallReport | null =
+      await RnJavaConnector.getModelInstallReport();
+    if (report) {
+      console.log(
+        `⏱️ Model install: ${report.durationMs} ms`,
+        report.alreadyInstalled ? "(cached)" : `(copied ${report.filesCopied}, reused ${report.filesReused})`
+      );
+    }
 
-    await RnJavaConnector.loadModel(modelPath);
+    const readiness = await this.getEngineReadiness();
+    readiness.forEach((r) =>
+      console.log(
+        `⏱️ ${r.engine}: ready in ${r.timeToReadyMs} ms (install ${r.installMs} ms, load ${r.loadMs} ms)`
+      )
+    );
 
     console.log("✅ ASR engines ready:", SupportedEngines);
   }
 
+  /**
+   * Состояние фоновой загрузки движков + тайминги
+   */
+  async getEngineReadiness(): Promise<EngineReadiness[]> {
+    return await RnJavaConnector.getEngineReadiness();
+  }
+
   async shutdownAllEngines() {
     console.log("🚀 shutdown ASR engines...");
     await RnJavaConnector.shutdown();
@@ -44,6 +106,13 @@ class AsrServiceImpl {
     console.log("🔄 Setting current ASR engine:", cfg.engineId);
     await RnJavaConnector.setCurrentEngine(cfg.engineId);
 
+    if (cfg.grammar) {
+      console.log("📐 Grammar:", cfg.grammar.key, cfg.grammar.phrases.length);
+      await RnJavaConnector.setGrammar(cfg.grammar.key, cfg.grammar.phrases);
+    } else {
+      await RnJavaConnector.clearGrammar();
+    }
+
     console.log("🎤 Starting ASR session:", cfg.engineId);
     await RnJavaConnector.startRecognition(cfg.engineId);
   }
@@ -73,34 +142,351 @@ class AsrServiceImpl {
 
     console.log("🔁 Reloading ASR engine:", engineId);
 
-    // 1) Stop current session
-    await RnJavaConnector.stopRecognition(engineId);
-
-    // 2) Full reset engine (AudioRecord + ASR)
+    // 1) Reset engine; AudioRecord keeps running, speech during the
+    //    reset is buffered and replayed to the new recognizer
     await RnJavaConnector.setCurrentEngine(engineId);
 
-    // 3) Restart recognition
+    // 2) Restart recognition (re-attaches to the running capture)
     await RnJavaConnector.startRecognition(engineId);
 
     console.log("✅ ASR reloaded successfully");
   }
 
+  /**
+   * Кэш скомпилированных грамматик (по uid фразы)
+   */
+  async getGrammarStats(): Promise<GrammarStats> {
+    return await RnJavaConnector.getGrammarStats();
+  }
+
+  /**
+   * Прогон записанных ответов (WAV 16 kHz mono / raw PCM, файл или папка)
+   * через тот же нативный путь, что и микрофон. Результаты идут и в
+   * обычный канал (subscribeResults), итог — ReplayReport.
+   */
+  async runReplay(
+    path: string,
+    mode: ReplayMode = "throughput",
+    engineId: AsrEngineId = "replay-en"
+  ): Promise<ReplayReport> {
+    await RnJavaConnector.configureReplay(engineId, path, mode);
+
+    const finished = new Promise<ReplayReport>((resolve) => {
+      const sub = DeviceEventEmitter.addListener(
+        "ReplayFinished",
+        (report: ReplayReport) => {
+          sub.remove();
+          resolve(report);
+        }
+      );
+    });
+
+    await this.startSession({ engineId });
+    const report = await finished;
+
+    console.log(
+      `⏱️ Replay (${report.mode}): ${report.files.length} file(s), ` +
+        (report.rtf !== null ? `RTF ${report.rtf.toFixed(3)}, ` : "") +
+        `max final +${report.maxTailMs} ms, wall ${report.wallMs} ms`
+    );
+    return report;
+  }
+
+  async getReplayReport(engineId: AsrEngineId = "replay-en"): Promise<ReplayReport | null> {
+    return await RnJavaConnector.getReplayReport(engineId);
+  }
+
+  /**
+   * Параллельные распознаватели на том же аудиопотоке (помимо текущего).
+   * Возвращает движки, которые реально работают (текущий первым).
+   */
+  async setParallelEngines(engineIds: AsrEngineId[]): Promise<AsrEngineId[]> {
+    return await RnJavaConnector.setParallelEngines(engineIds);
+  }
+
+  /**
+   * Как выбирать результат, когда движков несколько
+   * (например, preferred = язык ожидаемого ответа).
+   */
+  async setArbitrationPolicy(
+    policy: ArbitrationPolicy,
+    preferredEngine: AsrEngineId | null = null
+  ) {
+    await RnJavaConnector.setArbitrationPolicy(policy, preferredEngine);
+  }
+
+  async getArbitrationStats(): Promise<ArbitrationStats> {
+    return await RnJavaConnector.getArbitrationStats();
+  }
+
+  async resetArbitrationStats() {
+    await RnJavaConnector.resetArbitrationStats();
+  }
+
+  /**
+   * Разрыв в аудио при переключении движка (AudioRecord не пересоздаётся)
+   */
+  async getCaptureStats(): Promise<CaptureStats> {
+    return await RnJavaConnector.getCaptureStats();
+  }
+
+  async resetCaptureStats() {
+    await RnJavaConnector.resetCaptureStats();
+  }
+
+  /**
+   * Запись ответов: сессия пишется, пока идёт захват; высказывания
+   * индексируются по фразе из setRecordingPhrase
+   */
+  async configureAudioRecorder(config: AudioRecorderConfig): Promise<boolean> {
+    return await RnJavaConnector.configureAudioRecorder(config);
+  }
+
+  async setRecordingPhrase(uid: string | null) {
+    await RnJavaConnector.setRecordingPhrase(uid);
+  }
+
+  async listRecordings(uid: string | null = null): Promise<RecordedUtterance[]> {
+    return await RnJavaConnector.listRecordings(uid);
+  }
+
+  /** Путь к WAV или null, если аудио уже вытеснено */
+  async exportRecording(sessionId: string, utterance: number): Promise<string | null> {
+    return await RnJavaConnector.exportRecording(sessionId, utterance);
+  }
+
+  async getAudioRecorderStats(): Promise<AudioRecorderStats> {
+    return await RnJavaConnector.getAudioRecorderStats();
+  }
+
+  async resetAudioRecorderStats() {
+    await RnJavaConnector.resetAudioRecorderStats();
+  }
+
+  /**
+   * Задержки по этапам (p50/p90/p99) и счётчики кадров с последнего сброса
+   */
+  async getPipelineMetrics(): Promise<PipelineMetrics> {
+    return await RnJavaConnector.getPipelineMetrics();
+  }
+
+  async resetPipelineMetrics() {
+    await RnJavaConnector.resetPipelineMetrics();
+  }
+
+  /**
+   * Диагностика нативного аудио-буфера
+   */
+  async getAudioBufferStats(): Promise<AudioBufferStats> {
+    return await RnJavaConnector.getAudioBufferStats();
+  }
+
+  async resetAudioBufferStats() {
+    await RnJavaConnector.resetAudioBufferStats();
+  }
+
+  async setAudioOverflowPolicy(policy: AudioOverflowPolicy) {
+    await RnJavaConnector.setAudioOverflowPolicy(policy);
+  }
+
+  /**
+   * Минимальный размер чанка для декодера (фреймы 16 kHz)
+   * и максимальное ожидание неполного чанка (мс)
+   */
+  async setRecognitionChunk(minChunkFrames: number, maxWaitMs: number) {
+    await RnJavaConnector.setRecognitionChunk(minChunkFrames, maxWaitMs);
+  }
+
+  /**
+   * Кэш загруженных моделей (переключение движков без перезагрузки с диска)
+   */
+  async getModelCacheStats(): Promise<ModelCacheStats> {
+    return await RnJavaConnector.getModelCacheStats();
+  }
+
+  async setModelCacheBudget(megabytes: number) {
+    await RnJavaConnector.setModelCacheBudget(megabytes);
+  }
+
+  async trimModelCache() {
+    await RnJavaConnector.trimModelCache();
+  }
+
+  /**
+   * Прогресс копирования модели из assets (первый запуск)
+   */
+  subscribeModelInstallProgress(cb: (p: ModelInstallProgress) => void) {
+    const sub = DeviceEventEmitter.addListener("ModelInstallProgress", cb);
+    return () => sub.remove();
+  }
+
+  /**
+   * Канал результатов: максимум событий в секунду (partial'ы схлопываются)
+   */
+  async setResultEmitRate(maxEmitsPerSecond: number) {
+    await RnJavaConnector.setResultEmitRate(maxEmitsPerSecond);
+  }
+
+  async getResultDispatchStats(): Promise<ResultDispatchStats> {
+    return await RnJavaConnector.getResultDispatchStats();
+  }
+
+  async resetResultDispatchStats() {
+    await RnJavaConnector.resetResultDispatchStats();
+  }
+
+  /**
+   * VAD перед декодером
+   */
+  async setVadEnabled(enabled: boolean) {
+    await RnJavaConnector.setVadEnabled(enabled);
+  }
+
+  async getVadStats(): Promise<VadStats> {
+    return await RnJavaConnector.getVadStats();
+  }
+
+  async resetVadStats() {
+    await RnJavaConnector.resetVadStats();
+  }
+
+  /**
+   * Не распознавать нашу же озвучку: аудио во время TTS выбрасывается,
+   * распознавание возобновляется через guardMs после её конца.
+   */
+  async setTtsGating(enabled: boolean, guardMs = 250) {
+    await RnJavaConnector.setTtsGating(enabled, guardMs);
+  }
+
+  async getTtsGatingStats(): Promise<TtsGatingStats> {
+    return await RnJavaConnector.getTtsGatingStats();
+  }
+
+  async resetTtsGatingStats() {
+    await RnJavaConnector.resetTtsGatingStats();
+  }
+
+  subscribeVad(cb: (evt: VadEvent) => void) {
+    const start = DeviceEventEmitter.addListener(
+      "SpeechStart",
+      (msg: { timestamp: number }) => cb({ type: "start", timestamp: msg.timestamp })
+    );
+    const end = DeviceEventEmitter.addListener(
+      "SpeechEnd",
+      (msg: { timestamp: number }) => cb({ type: "end", timestamp: msg.timestamp })
+    );
+
+    return () => {
+      start.remove();
+      end.remove();
+    };
+  }
+
+  /**
+   * N-best: до n гипотез на final (0 — выкл., максимум 10), выбирается
+   * ближайшая к фразе из loadPhraseMatch. Цена — поле finalize в статистике.
+   */
+  async setNBest(maxAlternatives: number) {
+    await RnJavaConnector.setNBest(maxAlternatives);
+  }
+
+  async getNBestStats(): Promise<NBestStats> {
+    return await RnJavaConnector.getNBestStats();
+  }
+
+  async resetNBestStats() {
+    await RnJavaConnector.resetNBestStats();
+  }
+
+  /**
+   * id фразы выдаётся в JS до вызова Java: события, пришедшие раньше
+   * ответа loadPhraseMatch, уже опознаются по нему. 0 не выдаётся.
+   */
+  newPhraseMatchId(): number {
+    this.phraseMatchId = (this.phraseMatchId % 0x7fffffff) + 1;
+    return this.phraseMatchId;
+  }
+
+  /**
+   * Ожидаемый ответ сопоставляется с результатами в Java; в JS приходят
+   * только события "слово совпало" / "фраза завершена" с этим matchId.
+   */
+  async loadPhraseMatch(
+    matchId: number,
+    expected: string,
+    variants: PhraseVariant[]
+  ): Promise<PhraseMatchLoad> {
+    return await RnJavaConnector.loadPhraseMatch(matchId, expected, variants);
+  }
+
+  /** Варианты изменились посреди фразы — прогресс сохраняется */
+  async setPhraseMatchVariants(variants: PhraseVariant[]) {
+    await RnJavaConnector.setPhraseMatchVariants(variants);
+  }
+
+  async clearPhraseMatch() {
+    await RnJavaConnector.clearPhraseMatch();
+  }
+
+  /** Засчитать текущее слово вручную; false — фраза уже завершена */
+  async skipPhraseWord(): Promise<boolean> {
+    return await RnJavaConnector.skipPhraseWord();
+  }
+
+  async getPhraseMatchStats(): Promise<PhraseMatchStats> {
+    return await RnJavaConnector.getPhraseMatchStats();
+  }
+
+  async resetPhraseMatchStats() {
+    await RnJavaConnector.resetPhraseMatchStats();
+  }
+
+  subscribePhraseMatch(handlers: {
+    onWord?: (evt: PhraseWordMatchedEvent) => void;
+    onComplete?: (evt: PhraseCompleteEvent) => void;
+  }) {
+    const word = DeviceEventEmitter.addListener(
+      "PhraseWordMatched",
+      (evt: PhraseWordMatchedEvent) => handlers.onWord?.(evt)
+    );
+    const complete = DeviceEventEmitter.addListener(
+      "PhraseComplete",
+      (evt: PhraseCompleteEvent) => handlers.onComplete?.(evt)
+    );
+
+    return () => {
+      word.remove();
+      complete.remove();
+    };
+  }
+
   /**
    * Подписка на события распознавания
    */
   subscribeResults(cb: (evt: AsrResultEvent) => void) {
     const sub = DeviceEventEmitter.addListener(
       "SpeechResult",
-      (msg: string) => {
-        const parsed = JSON.parse(msg);
+      (msg: NativeAsrResult | NativeAsrResult[]) => {
+        // Нативный диспетчер может прислать пачку: [final..., partial]
+        const batch = Array.isArray(msg) ? msg : [msg];
 
-        const evt: AsrResultEvent = {
-          engine: this.activeEngine ?? "vosk-en",
-          type: parsed.type,
-          text: parsed.text,
-        };
+        for (const r of batch) {
+          const evt: AsrResultEvent = {
+            engine: r.engine ?? this.activeEngine ?? "vosk-en",
+            type: r.type,
+            text: stripUnknown(r.text),
+            utteranceId: r.utteranceId,
+            startFrame: r.startFrame,
+            endFrame: r.endFrame,
+            words: r.words?.filter((w) => w.word !== UNK),
+            alternatives: r.alternatives,
+            chosenAlternative: r.chosenAlternative,
+            matchScore: r.matchScore,
+            topText: r.topText !== undefined ? stripUnknown(r.topText) : undefined,
+          };
 
-        cb(evt);
+          cb(evt);
+        }
       }
     );
 
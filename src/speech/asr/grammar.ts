@@ -0,0 +1,63 @@
+import { Tvariant } from "../../db/speechDb";
+
+/**
+ * "Мусорный" токен Vosk: всё, что не входит в грамматику
+ */
+export const UNK = "[unk]";
+
+/**
+ * Грамматика для распознавателя, ограниченного ожидаемой фразой.
+ * key — uid фразы (+ направление), по нему нативный кэш хранит
+ * скомпилированный распознаватель.
+ */
+export type AsrGrammar = {
+  key: string;
+  phrases: string[];
+};
+
+// апостроф оставляем: в словаре Vosk есть "don't", "it's"
+function normalizeText(input: string): string {
+  if (!input) return "";
+  return input
+    .toLowerCase()
+    .replace(/[^\p{L}\p{N}\s']/gu, " ")
+    .replace(/\s+/g, " ")
+    .trim();
+}
+
+/**
+ * Фраза целиком + её отдельные слова (частичный ответ)
+ * + сохранённые "фонетические" варианты слов этой фразы.
+ * [unk] добавляет нативная сторона.
+ */
+export function buildPhraseGrammar(
+  key: string,
+  answer: string,
+  variants: Tvariant[] = []
+): AsrGrammar {
+  const phrases = new Set<string>();
+
+  const full = normalizeText(answer);
+  if (full) phrases.add(full);
+
+  const words = full.split(" ").filter(Boolean);
+  words.forEach((w) => phrases.add(w));
+
+  for (const v of variants) {
+    if (!words.includes(normalizeText(v.word))) continue;
+
+    for (const alt of v.variants) {
+      const norm = normalizeText(alt);
+      if (norm) phrases.add(norm);
+    }
+  }
+
+  return { key, phrases: Array.from(phrases) };
+}
+
+/**
+ * Убирает [unk] из текста результата грамматического распознавателя
+ */
+export function stripUnknown(text: string): string {
+  return text.split(UNK).join(" ").replace(/\s+/g, " ").trim();
+}
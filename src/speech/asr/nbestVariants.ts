@@ -0,0 +1,96 @@
+import { Tvariant } from "../../db/speechDb";
+import { AsrResultEvent } from "./types";
+
+/**
+ * Из n-best финалов: какое слово ожидаемой фразы распознаватель слышит
+ * у ученика как другое. Если такая пара повторяется, её стоит сохранить
+ * как "фонетический" вариант слова (saveVariantsToPhrase).
+ */
+export type VariantProposal = {
+  word: string; // слово эталона (как в PhraseMatcher)
+  heard: string; // что было в лучшей по декодеру гипотезе
+};
+
+// как PhraseMatcher.normalize / normalizeText в SpeechCompare
+function tokenize(input: string): string[] {
+  if (!input) return [];
+  return input
+    .toLowerCase()
+    .replace(/[^\p{L}\p{N}\s]/gu, " ")
+    .replace(/\s+/g, " ")
+    .trim()
+    .split(" ")
+    .filter(Boolean);
+}
+
+/**
+ * Ровно одно слово заменено: выбранная гипотеза (evt.text) совпала
+ * с эталоном там, где лучшая по декодеру (evt.topText) — нет.
+ */
+export function findSubstitution(
+  evt: AsrResultEvent,
+  expectedWords: string[]
+): VariantProposal | null {
+  if (evt.type !== "final" || !evt.topText || (evt.chosenAlternative ?? 0) <= 0) {
+    return null;
+  }
+
+  const chosen = tokenize(evt.text);
+  const top = tokenize(evt.topText);
+  if (chosen.length === 0 || chosen.length !== top.length) return null;
+
+  let found: VariantProposal | null = null;
+
+  for (let i = 0; i < chosen.length; i++) {
+    if (chosen[i] === top[i]) continue;
+    if (found) return null; // больше одной замены — не вариант слова
+
+    found = { word: chosen[i], heard: top[i] };
+  }
+
+  if (!found || !expectedWords.includes(found.word)) return null;
+  return found;
+}
+
+/**
+ * Счётчик замен по фразам: add() возвращает true один раз — когда пара
+ * набрала minHits.
+ */
+export class VariantProposals {
+  private counts = new Map<string, number>();
+
+  constructor(private readonly minHits = 2) {}
+
+  add(phraseUid: string, p: VariantProposal): boolean {
+    const key = `${phraseUid}|${p.word}|${p.heard}`;
+    const count = (this.counts.get(key) ?? 0) + 1;
+
+    this.counts.set(key, count);
+    return count === this.minHits;
+  }
+
+  reset() {
+    this.counts.clear();
+  }
+}
+
+/**
+ * Добавляет варианты слову (без дублей), слово без записи — новая запись.
+ */
+export function mergeVariants(
+  prev: Tvariant[],
+  word: string,
+  added: string[]
+): Tvariant[] {
+  const existing = prev.find((v) => v.word === word);
+
+  if (!existing) {
+    return [...prev, { word, variants: added }];
+  }
+
+  return prev.map((v) =>
+    v.word === word
+      ? { ...v, variants: Array.from(new Set([...v.variants, ...added])) }
+      : v
+  );
+}
@@ -1,14 +1,387 @@
+import { AsrGrammar } from "./grammar";
+
 export type AsrEngineId =
   | "vosk-en"
+  | "vosk-ru" // будущий (fan-out вместе с EN)
+  | "replay-en" // записанное аудио вместо микрофона (тесты, замеры RTF)
   | "android-ru"; // будущий
 
+export type AsrWord = {
+  word: string;
+  start: number; // сек.
+  end: number; // сек.
+  conf: number; // 0..1
+};
+
 export type AsrResultEvent = {
   engine: AsrEngineId;
   type: "partial" | "final";
   text: string;
+  utteranceId?: number;
+  startFrame?: number; // позиция в аудиопотоке декодера (16 kHz)
+  endFrame?: number;
+  words?: AsrWord[]; // только для final
+
+  // n-best (только final, если включено setNBest): text/words — выбранная
+  // гипотеза, topText — лучшая по декодеру, если выбрана другая
+  alternatives?: number;
+  chosenAlternative?: number;
+  matchScore?: number; // доля слов ожидаемой фразы, -1 — фраза не задана
+  topText?: string;
 };
 
 export type AsrSessionConfig = {
   engineId: AsrEngineId;
+  // распознавание только ожидаемой фразы (нет → открытый словарь)
+  grammar?: AsrGrammar;
+};
+
+
+export type AudioOverflowPolicy = "dropOldest" | "dropNewest" | "block";
+
+/**
+ * Счётчики нативного кольцевого аудио-буфера (в фреймах, 16 kHz)
+ */
+export type AudioBufferStats = {
+  capacity: number;
+  fill: number;
+  highWater: number;
+  framesPushed: number;
+  framesDropped: number;
+  overflowEvents: number;
+  wakeups: number; // пробуждения потока распознавания
+  emptyWakeups: number; // ...из них без аудио
+};
+
+/**
+ * Счётчики VAD в потоке захвата (в сэмплах 16 kHz)
+ */
+export type VadStats = {
+  enabled: boolean;
+  inSpeech: boolean;
+  framesIn: number;
+  framesForwarded: number;
+  framesSkipped: number;
+  speechSegments: number;
+};
+
+/**
+ * Глушение распознавания на время нашей же озвучки (TTS / кэш):
+ * аудио не декодируется от начала подсказки до конца + guardMs.
+ */
+export type TtsGatingStats = {
+  enabled: boolean;
+  guardMs: number;
+  gated: boolean; // гейт закрыт сейчас
+  gatings: number; // сколько раз закрывался
+  suppressedBuffers: number;
+  suppressedFrames: number;
+  suppressedMs: number;
+};
+
+export type VadEvent = {
+  type: "start" | "end";
+  timestamp: number;
+};
+
+/**
+ * Счётчики канала результатов native → JS
+ */
+export type ResultDispatchStats = {
+  received: number;
+  coalescedPartials: number;
+  droppedPartials: number;
+  droppedNoContext: number;
+  emits: number;
+  batchedEmits: number;
+  resultsEmitted: number;
+  minIntervalMs: number;
+};
+
+export type ModelInstallProgress = {
+  bytesDone: number;
+  bytesTotal: number;
+  filesDone: number;
+  filesTotal: number;
+};
+
+/**
+ * Итог последней установки модели (ModelInstaller)
+ */
+export type ModelInstallReport = {
+  path: string;
+  version: string;
+  alreadyInstalled: boolean;
+  verified: boolean;
+  filesCopied: number;
+  filesReused: number;
+  bytesCopied: number;
+  durationMs: number;
+};
+
+/**
+ * Нативный кэш моделей Vosk (общий для всех движков)
+ */
+export type ModelCacheStats = {
+  hits: number;
+  misses: number;
+  loadFailures: number;
+  evictions: number;
+  residentBytes: number;
+  residentModels: number;
+  idleModels: number;
+  budgetBytes: number;
+  lastLoadMs: number;
+};
+
+export type AsrEngineState =
+  | "REGISTERED"
+  | "INSTALLING"
+  | "LOADING"
+  | "READY"
+  | "FAILED";
+
+/**
+ * Фоновая загрузка движка (AsrEngineManager.preloadAll)
+ */
+export type EngineReadiness = {
+  engine: AsrEngineId;
+  state: AsrEngineState;
+  ready: boolean;
+  modelPath: string | null;
+  error: string | null;
+  installMs: number;
+  loadMs: number;
+  timeToReadyMs: number;
+  timeToFirstResultMs: number;
+};
+
+/**
+ * Постоянный захват микрофона: переключения движка без пересоздания AudioRecord
+ */
+export type CaptureStats = {
+  running: boolean;
+  recorderStarts: number;
+  switches: number;
+  lastSwitchMs: number;
+  lastReplayedFrames: number;
+  lastLostFrames: number;
+  lastGapMs: number;
+  totalReplayedFrames: number;
+  totalLostFrames: number;
+  preRollFrames: number;
+  overruns: number; // AudioRecord не дождался чтения (оценка)
+  overrunFrames: number;
+  readFrames: number; // кадров за один read()
+  recordBufferFrames: number; // буфер AudioRecord
+};
+
+/**
+ * Запись ответов сессии (SessionAudioRecorder)
+ */
+export type AudioRecorderConfig = {
+  enabled: boolean;
+  budgetMb?: number; // все сессии + WAV, по умолчанию 256
+  sessionSeconds?: number; // кольцо одной сессии, по умолчанию 600
+};
+
+export type RecordedUtterance = {
+  sessionId: string;
+  utterance: number;
+  phraseUid: string | null;
+  startMs: number; // от начала сессии
+  durationMs: number;
+  open: boolean; // ещё пишется
+  clipped: boolean; // начало перезаписано кольцом сессии
+};
+
+export type AudioRecorderStats = {
+  enabled: boolean;
+  sessions?: number;
+  teeCalls?: number;
+  framesTeed?: number;
+  framesDropped?: number; // писатель не успел: пропуск в записи, не в захвате
+  slowTees?: number; // tee() дольше 1 мс на потоке захвата
+  framesWritten?: number;
+  maxRingFill?: number;
+  ringFrames?: number;
+  diskBytes?: number;
+  budgetBytes?: number;
+  evictedSessions?: number;
+  exports?: number;
+  storedSessions?: number;
+  utterances?: number;
+  teeLatency?: StageLatency; // вся цена записи для AudioRecordThread
+  drainLatency?: StageLatency;
+};
+
+/**
+ * Выбор между параллельными распознавателями (ResultArbiter)
+ */
+export type ArbitrationPolicy = "all" | "preferred" | "bestConfidence";
+
+export type ArbitrationStats = {
+  engines: AsrEngineId[];
+  preferredEngine: AsrEngineId | null;
+  received: number;
+  forwarded: number;
+  suppressedPartials: number;
+  finalGroups: number;
+  finalsDiscarded: number;
+  fallbackFinals: number; // у preferred движка не было ответа
+};
+
+/**
+ * Кэш грамматических распознавателей (по uid фразы)
+ */
+export type GrammarStats = {
+  hits: number;
+  misses: number;
+  failures: number;
+  evictions: number;
+  cached: number;
+  lastCompileMs: number;
+  active: boolean;
+};
+
+/**
+ * Воспроизведение записей через replay-движок
+ *  - realtime   — в темпе микрофона (только задержка финала, без RTF)
+ *  - throughput — максимально быстро (замер RTF)
+ */
+export type ReplayMode = "realtime" | "throughput";
+
+export type ReplayFileResult = {
+  name: string;
+  audioMs: number;
+  decodeMs: number | null; // throughput only
+  rtf: number | null; // decodeMs / audioMs, throughput only
+  tailMs: number; // last pushed chunk → final
+  text: string;
+  utterances: string[];
+  error: string | null;
+};
+
+export type ReplayReport = {
+  mode: ReplayMode;
+  audioMs: number;
+  decodeMs: number | null; // throughput only
+  wallMs: number;
+  rtf: number | null; // throughput only
+  maxTailMs: number;
+  cancelled: boolean;
+  files: ReplayFileResult[];
+};
+
+/**
+ * Задержка одного этапа конвейера (микросекунды, HDR-гистограмма ~12%)
+ */
+export type StageLatency = {
+  count: number;
+  meanUs: number;
+  p50Us: number;
+  p90Us: number;
+  p99Us: number;
+  maxUs: number;
 };
 
+/**
+ * Микрофон → JS по этапам:
+ *  read     — блокировка в AudioRecord.read
+ *  push     — захват → чанк в нативном буфере (VAD + JNI)
+ *  queue    — ожидание в AudioBuffer до декодера
+ *  decode   — vosk accept_waveform на чанк
+ *  parse    — разбор JSON результата
+ *  dispatch — результат в очереди → onNativeResult вернулся (поток диспетчера)
+ *  finalize — final из Vosk (с n-best) + разбор + выбор гипотезы
+ *  emit     — результат в Java → emit в JS (coalescing + мост)
+ *  endToEnd — захват самого свежего аудио в результате → emit в JS
+ */
+export type PipelineMetrics = {
+  stages: {
+    read: StageLatency;
+    push: StageLatency;
+    queue: StageLatency;
+    decode: StageLatency;
+    parse: StageLatency;
+    dispatch: StageLatency;
+    finalize: StageLatency;
+    emit: StageLatency;
+    endToEnd: StageLatency;
+  };
+  counters: {
+    framesCaptured: number;
+    framesPushed: number; // после VAD
+    framesQueued: number; // сумма по распознавателям
+    framesDecoded: number;
+    framesDropped: number; // переполнение AudioBuffer
+    chunksDecoded: number;
+    partials: number;
+    finals: number;
+    resultsEmitted: number;
+  };
+  // очередь результатов: потоки распознавателей → поток диспетчера
+  resultQueue: {
+    capacity: number;
+    depth: number;
+    highWater: number;
+    enqueued: number;
+    dispatched: number;
+    droppedPartials: number; // очередь полна — partial заменится следующим
+    droppedFinals: number; // очередь полна дольше 200 мс
+  };
+};
+
+// ============================================================
+// Сопоставление с ожидаемой фразой (PhraseMatcher в Java)
+// ============================================================
+
+/** Совместим с Tvariant из speechDb */
+export type PhraseVariant = {
+  word: string;
+  variants: string[];
+};
+
+export type PhraseMatchLoad = {
+  matchId: number; // приходит в каждом событии этой фразы
+  words: string[]; // нормализованные слова эталона
+};
+
+export type PhraseWordMatchedEvent = {
+  matchId: number;
+  index: number;
+  word: string;
+  byVariant: boolean;
+  manual: boolean; // skipPhraseWord()
+  engine?: AsrEngineId;
+  isFinal?: boolean;
+};
+
+export type PhraseCompleteEvent = {
+  matchId: number;
+  words: number;
+  durationMs: number; // от loadPhraseMatch
+};
+
+export type PhraseMatchStats = {
+  matchId: number;
+  currentIndex: number;
+  results: number;
+  wordsMatched: number;
+  variantMatches: number;
+  phrasesCompleted: number;
+  latency: StageLatency; // результат в Java → событие отправлено
+};
+
+// ============================================================
+// N-best гипотезы (выбор ближайшей к ожидаемой фразе)
+// ============================================================
+
+export type NBestStats = {
+  maxAlternatives: number; // 0 — выключено
+  finals: number; // final с n-best
+  alternatives: number; // гипотез всего
+  scored: number; // с заданной ожидаемой фразой
+  rescued: number; // выбрана не лучшая по декодеру
+  finalize: StageLatency; // сравнить с maxAlternatives = 0
+};
@@ -1,4 +1,5 @@
 import { AsrEngineId } from "../asr/types";
+import { AsrGrammar } from "../asr/grammar";
 import { AsrService } from "../asr/AsrService";
 import { TtsService } from "../tts/TtsService";
 
@@ -8,7 +9,8 @@ import { TtsService } from "../tts/TtsService";
  */
 export async function speakAndListen(
   text: string,
-  engineId: AsrEngineId
+  engineId: AsrEngineId,
+  grammar?: AsrGrammar
 ) {
   console.log("🎤 Stopping ASR before speaking...");
   await AsrService.stopSession();
@@ -20,5 +22,5 @@ export async function speakAndListen(
   await TtsService.waitFinish(utteranceId);
 
   console.log("🎤 Restarting ASR...");
-  await AsrService.startSession({ engineId });
+  await AsrService.startSession({ engineId, grammar });
 }
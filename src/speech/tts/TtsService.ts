@@ -1,7 +1,29 @@
 import { NativeModules, DeviceEventEmitter } from "react-native";
+import { StageLatency } from "../asr/types";
 
 const { RnJavaConnector } = NativeModules;
 
+/**
+ * Кэш заранее синтезированных подсказок (cacheDir/tts, LRU по размеру).
+ * timeToFirstAudio: от speak() до старта звука — из кэша / живой синтез.
+ */
+export type TtsCacheStats = {
+  hits: number;
+  misses: number;
+  hitRate: number; // 0..1
+  prefetched: number;
+  prefetchFailures: number;
+  pending: number;
+  entries: number;
+  bytes: number;
+  budgetBytes: number;
+  evictions: number;
+  timeToFirstAudio: {
+    cached: StageLatency;
+    live: StageLatency;
+  };
+};
+
 class TtsServiceImpl {
   private ready = false;
   private waiting: Promise<void> | null = null;
@@ -34,6 +56,32 @@ class TtsServiceImpl {
     return await RnJavaConnector.speak(text);
   }
 
+  /**
+   * Синтезирует в фоне подсказки, которые скорее всего прозвучат дальше
+   * (самые вероятные — первыми). Заменяет предыдущий список.
+   */
+  async prefetch(texts: string[]): Promise<void> {
+    await this.waitReady();
+    await RnJavaConnector.prefetchTts(texts);
+  }
+
+  /** 1.0 — обычная скорость; входит в ключ кэша. */
+  setRate(rate: number): Promise<void> {
+    return RnJavaConnector.setTtsRate(rate);
+  }
+
+  getCacheStats(): Promise<TtsCacheStats> {
+    return RnJavaConnector.getTtsCacheStats();
+  }
+
+  resetCacheStats(): Promise<void> {
+    return RnJavaConnector.resetTtsCacheStats();
+  }
+
+  clearCache(): Promise<void> {
+    return RnJavaConnector.clearTtsCache();
+  }
+
   waitFinish(utteranceId: string) {
     return new Promise<void>((resolve) => {
       const sub = DeviceEventEmitter.addListener("TtsFinished", (evt) => {